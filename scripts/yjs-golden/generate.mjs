@@ -0,0 +1,115 @@
+// 用真实的 yjs 运行时重新生成 JVM Yjs 编解码的黄金用例
+//
+//   cd scripts/yjs-golden && npm install && npm run generate   # 重写 expected 并追加 Y.Doc 场景
+//   npm run check                                              # 只比对，不一致时退出码为 1
+//
+// 已有用例保留输入，expected 一律由 Y.mergeUpdates / Y.diffUpdate / Y.encodeStateVectorFromUpdate 计算；
+// ydoc-* 用例由真实的 Y.Doc 编辑会话产生输入，每次运行整体替换。
+import { readFileSync, writeFileSync } from 'node:fs'
+import * as Y from 'yjs'
+
+const GOLDEN = new URL('../../src/test/resources/yjs/golden-v1.json', import.meta.url)
+const YJS_VERSION = JSON.parse(readFileSync(new URL('./node_modules/yjs/package.json', import.meta.url))).version
+const check = process.argv.includes('--check')
+
+const hex = bytes => Buffer.from(bytes).toString('hex')
+const bin = str => new Uint8Array(Buffer.from(str, 'hex'))
+
+function expectedOf (golden) {
+  const inputs = golden.inputs.map(bin)
+  switch (golden.op) {
+    case 'merge': return hex(Y.mergeUpdates(inputs))
+    case 'diff': return hex(Y.diffUpdate(inputs[0], bin(golden.stateVector)))
+    case 'stateVector': return hex(Y.encodeStateVectorFromUpdate(inputs[0]))
+    default: throw new Error(`unknown op: ${golden.op}`)
+  }
+}
+
+/**
+ * 固定 clientID 的文档，记录产生的每个更新
+ */
+function recordingDoc (clientID) {
+  const doc = new Y.Doc()
+  doc.clientID = clientID
+  const updates = []
+  doc.on('update', update => updates.push(update))
+  return { doc, updates }
+}
+
+function sync (from, to) {
+  Y.applyUpdate(to.doc, Y.encodeStateAsUpdate(from.doc, Y.encodeStateVector(to.doc)))
+}
+
+function ydocCases () {
+  const cases = []
+
+  // 三个客户端在同一位置并发插入文本，随后删除一段
+  const a = recordingDoc(1)
+  const b = recordingDoc(2)
+  const c = recordingDoc(3)
+  a.doc.getText('t').insert(0, 'hello')
+  sync(a, b)
+  sync(a, c)
+  b.doc.getText('t').insert(5, ' world')
+  c.doc.getText('t').insert(5, '!')
+  sync(b, a)
+  a.doc.getText('t').delete(1, 3)
+  const textUpdates = [...a.updates, ...b.updates.slice(-1), ...c.updates.slice(-1)]
+  cases.push({ name: 'ydoc-concurrent-text-merge', op: 'merge', inputs: textUpdates.map(hex) })
+  const textState = Y.mergeUpdates(textUpdates)
+  cases.push({
+    name: 'ydoc-concurrent-text-diff',
+    op: 'diff',
+    inputs: [hex(textState)],
+    stateVector: hex(Y.encodeStateVector(c.doc))
+  })
+  cases.push({ name: 'ydoc-concurrent-text-state-vector', op: 'stateVector', inputs: [hex(textState)] })
+
+  // AFFiNE 风格的 blocks map：同一个键被两个客户端先后覆盖，另一个键被删除
+  const m = recordingDoc(10)
+  const n = recordingDoc(11)
+  const blocks = m.doc.getMap('blocks')
+  const page = new Y.Map()
+  blocks.set('page', page)
+  page.set('sys:flavour', 'affine:page')
+  page.set('prop:title', new Y.Text('Title'))
+  blocks.set('tmp', 'x')
+  sync(m, n)
+  n.doc.getMap('blocks').get('page').set('sys:flavour', 'affine:note')
+  n.doc.getMap('blocks').delete('tmp')
+  cases.push({ name: 'ydoc-map-overwrite-merge', op: 'merge', inputs: [...m.updates, ...n.updates].map(hex) })
+
+  // 数组中插入 Any 值后删除中间元素
+  const r = recordingDoc(20)
+  const arr = r.doc.getArray('a')
+  arr.insert(0, [1, 'two', { three: 3 }, [4], null, true])
+  arr.delete(2, 2)
+  const arrayState = Y.mergeUpdates(r.updates)
+  cases.push({ name: 'ydoc-array-delete-merge', op: 'merge', inputs: r.updates.map(hex) })
+  cases.push({ name: 'ydoc-array-diff-with-offset', op: 'diff', inputs: [hex(arrayState)], stateVector: hex(Y.encodeStateVector(new Map([[20, 2]]))) })
+
+  return cases
+}
+
+// 校验模式直接使用文件中的输入；生成模式重建 ydoc-* 用例
+const existing = JSON.parse(readFileSync(GOLDEN, 'utf8'))
+const cases = check
+  ? existing
+  : [...existing.filter(golden => !golden.name.startsWith('ydoc-')), ...ydocCases()]
+
+let mismatches = 0
+for (const golden of cases) {
+  const expected = expectedOf(golden)
+  if (golden.expected !== undefined && golden.expected !== expected) {
+    mismatches++
+    console.log(`✗ ${golden.name}\n  file: ${golden.expected}\n  yjs:  ${expected}`)
+  }
+  golden.expected = expected
+}
+
+if (check) {
+  console.log(`yjs ${YJS_VERSION}: ${cases.length - mismatches}/${cases.length} cases match`)
+  process.exit(mismatches === 0 ? 0 : 1)
+}
+writeFileSync(GOLDEN, JSON.stringify(cases, null, 2) + '\n')
+console.log(`yjs ${YJS_VERSION}: wrote ${cases.length} cases (${mismatches} expected values changed)`)
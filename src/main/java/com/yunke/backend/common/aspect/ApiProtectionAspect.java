@@ -9,6 +9,7 @@ import com.yunke.backend.security.enums.SecurityLevel;
 import com.yunke.backend.common.exception.BusinessException;
 import com.yunke.backend.security.AffineUserDetails;
 import com.yunke.backend.security.service.SecurityMonitorService;
+import com.yunke.backend.security.service.guard.RequestGuard;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -16,7 +17,6 @@ import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.reflect.MethodSignature;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
@@ -24,7 +24,7 @@ import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
 import java.lang.reflect.Method;
-import java.util.concurrent.TimeUnit;
+import java.time.Duration;
 
 /**
  * 🎯 API保护切面
@@ -37,7 +37,7 @@ import java.util.concurrent.TimeUnit;
 @Slf4j
 public class ApiProtectionAspect {
     
-    private final RedisTemplate<String, Object> redisTemplate;
+    private final RequestGuard requestGuard;
     private final SecurityMonitorService securityMonitor;
     
     /**
@@ -133,29 +133,19 @@ public class ApiProtectionAspect {
     }
     
     /**
-     * 检查频率限制
+     * 检查频率限制（自增与过期设置一次往返）
      */
     private boolean checkRateLimit(String key, int limit, int timeWindowMinutes) {
-        try {
-            Long count = redisTemplate.opsForValue().increment(key);
-            
-            if (count != null && count == 1) {
-                redisTemplate.expire(key, timeWindowMinutes, TimeUnit.MINUTES);
-            }
-            
-            if (count != null && count > limit) {
-                log.warn("⚠️ API调用超限: key={}, count={}, limit={}", 
-                        key, count, limit);
-                return false;
-            }
-            
-            return true;
-            
-        } catch (Exception e) {
-            log.error("检查频率限制失败: {}", e.getMessage(), e);
-            // 发生异常时允许访问，避免误伤
-            return true;
+        Long count = requestGuard.hit(key, Duration.ofMinutes(timeWindowMinutes));
+        
+        if (count != null && count > limit) {
+            log.warn("⚠️ API调用超限: key={}, count={}, limit={}", 
+                    key, count, limit);
+            return false;
         }
+        
+        // 计数失败（null）时允许访问，避免误伤
+        return true;
     }
     
     /**
@@ -0,0 +1,132 @@
+package com.yunke.backend.common.counter;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 单个计数目标的内存增量缓冲
+ *
+ * 按实体ID分片，每个分片一张 ID → LongAdder 表。累加只持有分片读锁，同一实体的并发累加落在 LongAdder 的不同单元上；
+ * 刷新时在写锁内把整张表换成新表，旧表不再有写入，求和结果是精确的，也不需要在高并发下删除空条目。
+ * 换出的增量在 {@link #complete} 之前仍计入 {@link #pending}，读取不会在刷新期间出现回退。
+ */
+final class CounterBuffer {
+
+    private static final class Shard {
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        volatile ConcurrentHashMap<String, LongAdder> live = new ConcurrentHashMap<>();
+        volatile Map<String, LongAdder> flushing = Map.of();
+    }
+
+    private final Shard[] shards;
+    private final int mask;
+
+    CounterBuffer(int shardCount) {
+        int size = Integer.highestOneBit(Math.max(1, shardCount - 1) << 1);
+        this.shards = new Shard[size];
+        for (int i = 0; i < size; i++) {
+            shards[i] = new Shard();
+        }
+        this.mask = size - 1;
+    }
+
+    void add(String id, long delta) {
+        Shard shard = shard(id);
+        Lock lock = shard.lock.readLock();
+        lock.lock();
+        try {
+            shard.live.computeIfAbsent(id, k -> new LongAdder()).add(delta);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 尚未写入数据库的增量（含正在刷新的部分）
+     */
+    long pending(String id) {
+        Shard shard = shard(id);
+        Lock lock = shard.lock.readLock();
+        lock.lock();
+        try {
+            return sum(shard.live.get(id)) + sum(shard.flushing.get(id));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 有增量的实体数
+     */
+    int size() {
+        int size = 0;
+        for (Shard shard : shards) {
+            size += shard.live.size();
+        }
+        return size;
+    }
+
+    /**
+     * 换出各分片当前的增量，返回非零部分；必须随后调用 {@link #complete}
+     */
+    Map<String, Long> drain() {
+        Map<String, Long> result = new HashMap<>();
+        for (Shard shard : shards) {
+            Map<String, LongAdder> drained;
+            Lock lock = shard.lock.writeLock();
+            lock.lock();
+            try {
+                drained = shard.live;
+                shard.live = new ConcurrentHashMap<>();
+                shard.flushing = drained;
+            } finally {
+                lock.unlock();
+            }
+            drained.forEach((id, adder) -> {
+                long value = adder.sum();
+                if (value != 0) {
+                    result.put(id, value);
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * 结束一次刷新
+     *
+     * @param written 增量是否已落库；为 false 时并回当前表，下次刷新重试
+     */
+    void complete(boolean written) {
+        for (Shard shard : shards) {
+            Lock lock = shard.lock.writeLock();
+            lock.lock();
+            try {
+                if (!written) {
+                    shard.flushing.forEach((id, adder) -> {
+                        long value = adder.sum();
+                        if (value != 0) {
+                            shard.live.computeIfAbsent(id, k -> new LongAdder()).add(value);
+                        }
+                    });
+                }
+                shard.flushing = Map.of();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private Shard shard(String id) {
+        int h = id.hashCode();
+        return shards[(h ^ (h >>> 16)) & mask];
+    }
+
+    private static long sum(LongAdder adder) {
+        return adder == null ? 0L : adder.sum();
+    }
+}
@@ -0,0 +1,28 @@
+package com.yunke.backend.common.counter;
+
+import org.springframework.context.ApplicationEvent;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 计数增量落库事件
+ * 一次刷新事务提交后触发，携带本次写入的各计数目标的实体ID
+ */
+public class CounterFlushedEvent extends ApplicationEvent {
+
+    private final Map<CounterTarget, Set<String>> ids;
+
+    public CounterFlushedEvent(Object source, Map<CounterTarget, Set<String>> ids) {
+        super(source);
+        this.ids = ids;
+    }
+
+    public Set<String> getIds(CounterTarget target) {
+        return ids.getOrDefault(target, Set.of());
+    }
+
+    public boolean contains(CounterTarget target) {
+        return ids.containsKey(target);
+    }
+}
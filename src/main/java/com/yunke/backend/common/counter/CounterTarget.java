@@ -0,0 +1,50 @@
+package com.yunke.backend.common.counter;
+
+/**
+ * 合并写入的计数列
+ *
+ * 每个目标对应一张表的一个计数列，刷新时同一张表的各列合并为一条
+ * {@code UPDATE table SET column = GREATEST(COALESCE(column, 0) + ?, 0), ... WHERE id = ?}。
+ * 表中有影响帖子热度的目标时，同一语句内按 PostService.calculateHotScore 的同一公式重算 hot_score。
+ */
+public enum CounterTarget {
+
+    POST_VIEWS("forum_posts", "view_count", false, true),
+    POST_REPLIES("forum_posts", "reply_count", false, true),
+    POST_LIKES("forum_posts", "like_count", false, true),
+    POST_COLLECTS("forum_posts", "collect_count", false, false),
+    REPLY_LIKES("forum_replies", "like_count", true, false),
+    COMMUNITY_DOC_VIEWS("community_documents", "view_count", false, false);
+
+    private final String table;
+    private final String column;
+    private final boolean numericId;
+    private final boolean affectsHotScore;
+
+    CounterTarget(String table, String column, boolean numericId, boolean affectsHotScore) {
+        this.table = table;
+        this.column = column;
+        this.numericId = numericId;
+        this.affectsHotScore = affectsHotScore;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    public boolean affectsHotScore() {
+        return affectsHotScore;
+    }
+
+    Object idParameter(String id) {
+        return numericId ? Long.valueOf(id) : id;
+    }
+
+    String assignment() {
+        return column + " = GREATEST(COALESCE(" + column + ", 0) + ?, 0)";
+    }
+}
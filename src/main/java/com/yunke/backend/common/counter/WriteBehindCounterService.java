@@ -0,0 +1,363 @@
+package com.yunke.backend.common.counter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 计数合并写入服务（浏览数、点赞数、回复数等）
+ *
+ * 原实现每次浏览/点赞都读出整行、修改后 save 回去：热门帖子的同一行被并发请求反复加锁，
+ * 并且两个请求读到同一个旧值时会丢失更新。这里改为：
+ * - 累加只写内存增量（{@link CounterBuffer}），不访问数据库；事务内的累加在提交后才生效，回滚不计数
+ * - 每隔 flush-interval-ms 把增量按 {@code SET x = x + ?} 批量写入：同一行的各列增量合并为一条 UPDATE，
+ *   按（表名, ID）的全局顺序加锁，各节点的刷新事务加锁顺序一致，相互之间不会死锁
+ * - 帖子的浏览/回复/点赞数在同一条 UPDATE 中重算 hot_score
+ * - 读取时用 {@link #merged} 把未落库的增量叠加到实体上的值
+ * - 落库后发布 {@link CounterFlushedEvent}，热度榜单据此更新
+ *
+ * 开启 redis-mirror 时，各节点把每轮的增量 HINCRBY 到 Redis 哈希，再由抢到刷新锁的一个节点统一取出写库，
+ * 多个节点对同一帖子的增量在 Redis 中先合并；Redis 不可用时退回本节点直接写库。
+ * 此模式下 {@link #merged} 只叠加本节点的增量，读到的计数最多落后一个刷新周期。
+ * 进程被强制终止时最多丢失一个刷新周期内的增量，正常停机会先刷新。
+ */
+@Slf4j
+@Component
+public class WriteBehindCounterService {
+
+    private static final String REDIS_PREFIX = "counter:delta:";
+    private static final String FLUSH_LOCK_KEY = "counter:flush:lock";
+
+    /**
+     * 帖子热度，与 PostService.calculateHotScore 相同：(回复×5 + 点赞×3 + 浏览×0.1) / (1 + 发帖天数)
+     */
+    public static final String HOT_SCORE_EXPRESSION =
+            "ROUND((COALESCE(reply_count, 0) * 5 + COALESCE(like_count, 0) * 3 + COALESCE(view_count, 0) * 0.1) " +
+            "/ (1 + GREATEST(COALESCE(TIMESTAMPDIFF(DAY, created_at, NOW()), 0), 0)), 2)";
+
+    /**
+     * 按表名排序的表 → 计数列，决定刷新时的加锁顺序
+     */
+    private static final Map<String, List<CounterTarget>> TABLES = new TreeMap<>();
+
+    static {
+        for (CounterTarget target : CounterTarget.values()) {
+            TABLES.computeIfAbsent(target.getTable(), k -> new ArrayList<>()).add(target);
+        }
+    }
+
+    /**
+     * KEYS: 增量哈希；ARGV: id1, delta1, id2, delta2, ...
+     */
+    private static final String PUSH_SCRIPT =
+            "for i = 1, #ARGV, 2 do redis.call('HINCRBY', KEYS[1], ARGV[i], ARGV[i + 1]) end " +
+            "return 1";
+
+    /**
+     * KEYS: 增量哈希；原子地取出全部字段并删除
+     */
+    private static final String DRAIN_SCRIPT =
+            "local values = redis.call('HGETALL', KEYS[1]) " +
+            "redis.call('DEL', KEYS[1]) " +
+            "return values";
+
+    private static final RedisScript<Long> PUSH = RedisScript.of(PUSH_SCRIPT, Long.class);
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> DRAIN = RedisScript.of(DRAIN_SCRIPT, List.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final StringRedisTemplate redisTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Map<CounterTarget, CounterBuffer> buffers = new EnumMap<>(CounterTarget.class);
+
+    private final boolean redisMirror;
+    private final long flushIntervalMs;
+
+    private final Timer flushTimer;
+    private final Counter flushedRows;
+    private final Counter flushFailures;
+
+    public WriteBehindCounterService(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            StringRedisTemplate redisTemplate,
+            ApplicationEventPublisher eventPublisher,
+            MeterRegistry meterRegistry,
+            @Value("${counter.shards:16}") int shards,
+            @Value("${counter.flush-interval-ms:3000}") long flushIntervalMs,
+            @Value("${counter.redis-mirror:false}") boolean redisMirror) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.redisTemplate = redisTemplate;
+        this.eventPublisher = eventPublisher;
+        this.redisMirror = redisMirror;
+        this.flushIntervalMs = flushIntervalMs;
+        for (CounterTarget target : CounterTarget.values()) {
+            buffers.put(target, new CounterBuffer(shards));
+        }
+
+        Gauge.builder("counter_pending_entities", buffers,
+                        map -> map.values().stream().mapToInt(CounterBuffer::size).sum())
+                .description("Entities with counter deltas not yet flushed")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("counter_flush_duration")
+                .description("Counter flush duration")
+                .register(meterRegistry);
+        this.flushedRows = Counter.builder("counter_flushed_rows")
+                .description("Counter rows updated by flushes")
+                .register(meterRegistry);
+        this.flushFailures = Counter.builder("counter_flush_failures")
+                .description("Counter flushes that failed and were retried")
+                .register(meterRegistry);
+    }
+
+    public void increment(CounterTarget target, String id) {
+        add(target, id, 1);
+    }
+
+    public void decrement(CounterTarget target, String id) {
+        add(target, id, -1);
+    }
+
+    /**
+     * 累加增量；在可写事务中调用时，事务提交后才计入
+     */
+    public void add(CounterTarget target, String id, long delta) {
+        if (id == null || delta == 0) {
+            return;
+        }
+        CounterBuffer buffer = buffers.get(target);
+        if (TransactionSynchronizationManager.isSynchronizationActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    buffer.add(id, delta);
+                }
+            });
+            return;
+        }
+        buffer.add(id, delta);
+    }
+
+    /**
+     * 本节点尚未落库的增量
+     */
+    public long pending(CounterTarget target, String id) {
+        return id == null ? 0L : buffers.get(target).pending(id);
+    }
+
+    /**
+     * 实体上的计数加上未落库的增量，不小于 0
+     */
+    public int merged(CounterTarget target, String id, Integer persisted) {
+        long value = (persisted == null ? 0L : persisted) + pending(target, id);
+        return (int) Math.max(0L, Math.min(Integer.MAX_VALUE, value));
+    }
+
+    @Scheduled(fixedDelayString = "${counter.flush-interval-ms:3000}")
+    public void flush() {
+        flush(false);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush(true);
+    }
+
+    private synchronized void flush(boolean force) {
+        Map<CounterTarget, Map<String, Long>> local = drainLocal();
+
+        if (redisMirror) {
+            for (CounterTarget target : push(local)) {
+                buffers.get(target).complete(true);
+                local.remove(target);
+            }
+            if (local.isEmpty()) {
+                completeLocal(true);
+                if (force || tryFlushLock()) {
+                    Map<CounterTarget, Map<String, Long>> merged = drainRedis();
+                    if (!merged.isEmpty() && !write(merged) && push(merged).size() < merged.size()) {
+                        log.error("❌ 计数增量写回 Redis 失败，已丢弃: {}", summary(merged));
+                    }
+                }
+                return;
+            }
+            // Redis 不可用，剩余目标由本节点直接落库
+        }
+
+        completeLocal(local.isEmpty() || write(local));
+    }
+
+    private Map<CounterTarget, Map<String, Long>> drainLocal() {
+        Map<CounterTarget, Map<String, Long>> drained = new EnumMap<>(CounterTarget.class);
+        buffers.forEach((target, buffer) -> {
+            Map<String, Long> deltas = buffer.drain();
+            if (!deltas.isEmpty()) {
+                drained.put(target, deltas);
+            }
+        });
+        return drained;
+    }
+
+    private void completeLocal(boolean written) {
+        buffers.values().forEach(buffer -> buffer.complete(written));
+    }
+
+    /**
+     * 在一个事务内批量写入全部增量，成功返回 true
+     */
+    private boolean write(Map<CounterTarget, Map<String, Long>> deltas) {
+        Timer.Sample sample = Timer.start();
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    TABLES.forEach((table, targets) -> writeTable(table, targets, deltas)));
+            flushedRows.increment(deltas.values().stream().mapToInt(Map::size).sum());
+            log.debug("计数增量已落库: {}", summary(deltas));
+        } catch (Exception e) {
+            flushFailures.increment();
+            log.error("❌ 计数增量落库失败，下次刷新重试: {}, {}", summary(deltas), e.getMessage());
+            return false;
+        } finally {
+            sample.stop(flushTimer);
+        }
+
+        Map<CounterTarget, Set<String>> ids = new EnumMap<>(CounterTarget.class);
+        deltas.forEach((target, byId) -> ids.put(target, Set.copyOf(byId.keySet())));
+        try {
+            eventPublisher.publishEvent(new CounterFlushedEvent(this, ids));
+        } catch (Exception e) {
+            log.warn("⚠️ 计数落库事件处理失败: {}", e.getMessage());
+        }
+        return true;
+    }
+
+    /**
+     * 一张表的增量：每行一条 UPDATE，按 ID 排序；该行没有增量的列加 0
+     */
+    private void writeTable(String table, List<CounterTarget> targets, Map<CounterTarget, Map<String, Long>> deltas) {
+        TreeMap<String, long[]> rows = new TreeMap<>();
+        boolean hotScore = false;
+        for (int i = 0; i < targets.size(); i++) {
+            Map<String, Long> byId = deltas.get(targets.get(i));
+            if (byId == null) {
+                continue;
+            }
+            int column = i;
+            byId.forEach((id, delta) -> rows.computeIfAbsent(id, k -> new long[targets.size()])[column] = delta);
+            hotScore |= targets.get(i).affectsHotScore();
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        StringBuilder sql = new StringBuilder("UPDATE ").append(table).append(" SET ");
+        for (int i = 0; i < targets.size(); i++) {
+            sql.append(i == 0 ? "" : ", ").append(targets.get(i).assignment());
+        }
+        if (hotScore) {
+            // MySQL 按顺序求值 SET，hot_score 使用本条语句更新后的计数
+            sql.append(", hot_score = ").append(HOT_SCORE_EXPRESSION);
+        }
+        sql.append(" WHERE id = ?");
+
+        List<Object[]> args = new ArrayList<>(rows.size());
+        rows.forEach((id, columnDeltas) -> {
+            Object[] row = new Object[columnDeltas.length + 1];
+            for (int i = 0; i < columnDeltas.length; i++) {
+                row[i] = columnDeltas[i];
+            }
+            row[columnDeltas.length] = targets.get(0).idParameter(id);
+            args.add(row);
+        });
+        jdbcTemplate.batchUpdate(sql.toString(), args);
+    }
+
+    /**
+     * 把增量 HINCRBY 到 Redis，返回成功写入的目标
+     */
+    private List<CounterTarget> push(Map<CounterTarget, Map<String, Long>> deltas) {
+        List<CounterTarget> pushed = new ArrayList<>(deltas.size());
+        for (Map.Entry<CounterTarget, Map<String, Long>> entry : deltas.entrySet()) {
+            List<String> args = new ArrayList<>(entry.getValue().size() * 2);
+            entry.getValue().forEach((id, delta) -> {
+                args.add(id);
+                args.add(String.valueOf(delta));
+            });
+            try {
+                redisTemplate.execute(PUSH, List.of(REDIS_PREFIX + entry.getKey().name()), args.toArray());
+            } catch (Exception e) {
+                log.warn("⚠️ 计数增量写入 Redis 失败，改为本节点直接落库: target={}, {}", entry.getKey(), e.getMessage());
+                break;
+            }
+            pushed.add(entry.getKey());
+        }
+        return pushed;
+    }
+
+    private boolean tryFlushLock() {
+        try {
+            return Boolean.TRUE.equals(redisTemplate.opsForValue()
+                    .setIfAbsent(FLUSH_LOCK_KEY, "1", Duration.ofMillis(Math.max(1, flushIntervalMs))));
+        } catch (Exception e) {
+            log.warn("⚠️ 获取计数刷新锁失败: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private Map<CounterTarget, Map<String, Long>> drainRedis() {
+        Map<CounterTarget, Map<String, Long>> drained = new EnumMap<>(CounterTarget.class);
+        for (CounterTarget target : CounterTarget.values()) {
+            try {
+                List<?> values = redisTemplate.execute(DRAIN, List.of(REDIS_PREFIX + target.name()));
+                if (values == null || values.isEmpty()) {
+                    continue;
+                }
+                Map<String, Long> byId = new HashMap<>(values.size());
+                for (int i = 0; i + 1 < values.size(); i += 2) {
+                    long delta = Long.parseLong(String.valueOf(values.get(i + 1)));
+                    if (delta != 0) {
+                        byId.put(String.valueOf(values.get(i)), delta);
+                    }
+                }
+                if (!byId.isEmpty()) {
+                    drained.put(target, byId);
+                }
+            } catch (Exception e) {
+                log.warn("⚠️ 读取 Redis 计数增量失败: target={}, {}", target, e.getMessage());
+            }
+        }
+        return drained;
+    }
+
+    private static String summary(Map<CounterTarget, Map<String, Long>> deltas) {
+        Map<CounterTarget, Integer> rows = new EnumMap<>(CounterTarget.class);
+        deltas.forEach((target, byId) -> rows.put(target, byId.size()));
+        return rows.toString();
+    }
+}
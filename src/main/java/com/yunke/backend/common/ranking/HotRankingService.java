@@ -0,0 +1,379 @@
+package com.yunke.backend.common.ranking;
+
+import com.yunke.backend.common.counter.CounterFlushedEvent;
+import com.yunke.backend.common.counter.CounterTarget;
+import com.yunke.backend.common.counter.WriteBehindCounterService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 热度榜单（Redis 有序集合）
+ *
+ * 原实现每次请求热门列表都对全表 ORDER BY hot_score / view_count，热度只在帖子被打开时重算，
+ * 没人打开的帖子永远不会衰减。这里为每个榜单维护前 capacity 名：
+ * - 帖子热度：全站榜 + 每个板块一个榜；社区文档热门：按浏览量的全站榜
+ * - 计数落库（{@link CounterFlushedEvent}）后按数据库中的最新值更新相关成员，并裁剪到 capacity
+ * - 每隔 rescore-interval-ms 在数据库中批量重算全部正常帖子的衰减热度，
+ *   每隔 refresh-interval-ms 从数据库重建全部榜单（先写临时键再 RENAME），修正删除、隐藏与排名漂移
+ * - 热门列表页在榜单范围内直接取 ID 再批量加载实体；榜单未建立、Redis 不可用或页码超出榜单时回退数据库查询
+ *
+ * 多节点下重建由抢到锁的一个节点执行；上次衰减重算的时间记录在 Redis 中，与锁一样在节点间共享。
+ */
+@Slf4j
+@Component
+public class HotRankingService {
+
+    /**
+     * 榜单
+     */
+    public enum Board {
+        POST_HOT("ranking:post_hot:"),
+        DOC_POPULAR("ranking:doc_popular:");
+
+        private final String prefix;
+
+        Board(String prefix) {
+            this.prefix = prefix;
+        }
+    }
+
+    /**
+     * 榜单中的一页
+     *
+     * @param ids 按名次排列的实体ID
+     * @param total 榜单对应的实体总数（分页用）
+     */
+    public record RankPage(List<String> ids, long total) {
+    }
+
+    public static final String GLOBAL = "global";
+
+    private static final String TOTAL_SUFFIX = ":total";
+    private static final String REFRESH_LOCK_KEY = "ranking:refresh:lock";
+    private static final String LAST_RESCORE_KEY = "ranking:rescore:last-at";
+
+    /**
+     * KEYS: 榜单；ARGV: 容量, score1, member1, score2, member2, ...
+     * 写入后只保留前 capacity 名
+     */
+    private static final String UPSERT_SCRIPT =
+            "for i = 2, #ARGV, 2 do redis.call('ZADD', KEYS[1], ARGV[i], ARGV[i + 1]) end " +
+            "local size = redis.call('ZCARD', KEYS[1]) " +
+            "local capacity = tonumber(ARGV[1]) " +
+            "if size > capacity then redis.call('ZREMRANGEBYRANK', KEYS[1], 0, size - capacity - 1) end " +
+            "return size";
+
+    private static final RedisScript<Long> UPSERT = RedisScript.of(UPSERT_SCRIPT, Long.class);
+
+    private static final String RESCORE_SQL =
+            "UPDATE forum_posts SET hot_score = " + WriteBehindCounterService.HOT_SCORE_EXPRESSION +
+            " WHERE status = 'NORMAL'";
+
+    private static final String TOP_POSTS_SQL =
+            "SELECT id, forum_id, hot_score FROM (" +
+            "  SELECT id, forum_id, hot_score, ROW_NUMBER() OVER (PARTITION BY forum_id ORDER BY hot_score DESC) AS rn" +
+            "  FROM forum_posts WHERE status = 'NORMAL') ranked " +
+            "WHERE rn <= ?";
+
+    private static final String POST_TOTALS_SQL =
+            "SELECT forum_id, COUNT(*) AS total FROM forum_posts WHERE status = 'NORMAL' GROUP BY forum_id";
+
+    private static final String FORUM_IDS_SQL = "SELECT id FROM forums";
+
+    private static final String TOP_DOCS_SQL =
+            "SELECT id, view_count FROM community_documents WHERE is_public = 1 ORDER BY view_count DESC LIMIT ?";
+
+    private static final String DOC_TOTAL_SQL =
+            "SELECT COUNT(*) FROM community_documents WHERE is_public = 1";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StringRedisTemplate redisTemplate;
+    private final int capacity;
+    private final long refreshIntervalMs;
+    private final long rescoreIntervalMs;
+
+    private final Counter boardHits;
+    private final Counter boardMisses;
+
+    public HotRankingService(
+            JdbcTemplate jdbcTemplate,
+            StringRedisTemplate redisTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${ranking.capacity:500}") int capacity,
+            @Value("${ranking.refresh-interval-ms:600000}") long refreshIntervalMs,
+            @Value("${ranking.rescore-interval-ms:3600000}") long rescoreIntervalMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.redisTemplate = redisTemplate;
+        this.capacity = Math.max(1, capacity);
+        this.refreshIntervalMs = refreshIntervalMs;
+        this.rescoreIntervalMs = rescoreIntervalMs;
+        this.boardHits = Counter.builder("ranking_page_requests")
+                .tag("source", "board")
+                .description("Hot list pages served from leaderboards")
+                .register(meterRegistry);
+        this.boardMisses = Counter.builder("ranking_page_requests")
+                .tag("source", "database")
+                .description("Hot list pages that fell back to the database")
+                .register(meterRegistry);
+    }
+
+    public static String forumScope(Long forumId) {
+        return forumId == null ? GLOBAL : "forum:" + forumId;
+    }
+
+    /**
+     * 从榜单取一页
+     *
+     * @return 榜单不可用或页码超出榜单范围时返回 null，调用方回退数据库查询
+     */
+    public RankPage page(Board board, String scope, Pageable pageable) {
+        String key = board.prefix + scope;
+        try {
+            String total = redisTemplate.opsForValue().get(key + TOTAL_SUFFIX);
+            long end = pageable.getOffset() + pageable.getPageSize();
+            if (total == null || (end > capacity && Long.parseLong(total) > capacity)) {
+                boardMisses.increment();
+                return null;
+            }
+            Set<String> ids = redisTemplate.opsForZSet().reverseRange(key, pageable.getOffset(), end - 1);
+            boardHits.increment();
+            return new RankPage(ids == null ? List.of() : new ArrayList<>(ids), Long.parseLong(total));
+        } catch (Exception e) {
+            log.warn("⚠️ 读取榜单失败，回退数据库: key={}, {}", key, e.getMessage());
+            boardMisses.increment();
+            return null;
+        }
+    }
+
+    /**
+     * 帖子被删除或隐藏时移出榜单
+     */
+    public void removePost(String postId, Long forumId) {
+        try {
+            redisTemplate.opsForZSet().remove(Board.POST_HOT.prefix + GLOBAL, postId);
+            if (forumId != null) {
+                redisTemplate.opsForZSet().remove(Board.POST_HOT.prefix + forumScope(forumId), postId);
+            }
+        } catch (Exception e) {
+            log.warn("⚠️ 帖子移出榜单失败: postId={}, {}", postId, e.getMessage());
+        }
+    }
+
+    /**
+     * 计数落库后，按数据库中的最新值更新相关成员
+     */
+    @EventListener
+    public void onCounterFlushed(CounterFlushedEvent event) {
+        Set<String> postIds = new HashSet<>();
+        for (CounterTarget target : CounterTarget.values()) {
+            if (target.affectsHotScore()) {
+                postIds.addAll(event.getIds(target));
+            }
+        }
+        if (!postIds.isEmpty()) {
+            updatePosts(postIds);
+        }
+        Set<String> docIds = event.getIds(CounterTarget.COMMUNITY_DOC_VIEWS);
+        if (!docIds.isEmpty()) {
+            updateDocuments(docIds);
+        }
+    }
+
+    /**
+     * 定期衰减重算与榜单重建
+     */
+    @Scheduled(fixedDelayString = "${ranking.refresh-interval-ms:600000}", initialDelayString = "${ranking.initial-delay-ms:30000}")
+    public void refresh() {
+        if (!tryRefreshLock()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            if (start - lastRescoreAt() >= rescoreIntervalMs) {
+                int rows = jdbcTemplate.update(RESCORE_SQL);
+                redisTemplate.opsForValue().set(LAST_RESCORE_KEY, String.valueOf(start));
+                log.info("🔥 帖子热度衰减重算完成: rows={}", rows);
+            }
+            rebuildPostBoards();
+            rebuildDocumentBoard();
+            log.info("🔥 热度榜单重建完成: {}ms", System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("❌ 热度榜单重建失败: {}", e.getMessage(), e);
+        }
+    }
+
+    private void rebuildPostBoards() {
+        Map<String, List<ZSetOperations.TypedTuple<String>>> boards = new HashMap<>();
+        List<ZSetOperations.TypedTuple<String>> global = new ArrayList<>();
+        jdbcTemplate.query(TOP_POSTS_SQL, rs -> {
+            ZSetOperations.TypedTuple<String> tuple = new DefaultTypedTuple<>(rs.getString("id"), rs.getDouble("hot_score"));
+            global.add(tuple);
+            boards.computeIfAbsent(forumScope(rs.getLong("forum_id")), k -> new ArrayList<>()).add(tuple);
+        }, capacity);
+        global.sort(Collections.reverseOrder((a, b) -> Double.compare(a.getScore(), b.getScore())));
+
+        Map<String, Long> totals = new HashMap<>();
+        long globalTotal = 0;
+        for (Map<String, Object> row : jdbcTemplate.queryForList(POST_TOTALS_SQL)) {
+            long total = ((Number) row.get("total")).longValue();
+            totals.put(forumScope(((Number) row.get("forum_id")).longValue()), total);
+            globalTotal += total;
+        }
+
+        replace(Board.POST_HOT.prefix + GLOBAL, global.subList(0, Math.min(capacity, global.size())), globalTotal);
+        // 已没有正常帖子的板块也要清空
+        for (Long forumId : jdbcTemplate.queryForList(FORUM_IDS_SQL, Long.class)) {
+            boards.putIfAbsent(forumScope(forumId), List.of());
+        }
+        boards.forEach((scope, members) ->
+                replace(Board.POST_HOT.prefix + scope, members, totals.getOrDefault(scope, 0L)));
+    }
+
+    private void rebuildDocumentBoard() {
+        List<ZSetOperations.TypedTuple<String>> members = jdbcTemplate.query(TOP_DOCS_SQL,
+                (rs, i) -> new DefaultTypedTuple<>(rs.getString("id"), (double) rs.getLong("view_count")), capacity);
+        Long total = jdbcTemplate.queryForObject(DOC_TOTAL_SQL, Long.class);
+        replace(Board.DOC_POPULAR.prefix + GLOBAL, members, total == null ? 0 : total);
+    }
+
+    /**
+     * 整体替换榜单：写临时键后 RENAME，读取方不会看到半成品
+     */
+    private void replace(String key, Collection<ZSetOperations.TypedTuple<String>> members, long total) {
+        if (members.isEmpty()) {
+            redisTemplate.delete(key);
+        } else {
+            String temp = key + ":rebuild";
+            redisTemplate.delete(temp);
+            redisTemplate.opsForZSet().add(temp, new HashSet<>(members));
+            redisTemplate.rename(temp, key);
+        }
+        redisTemplate.opsForValue().set(key + TOTAL_SUFFIX, String.valueOf(total));
+    }
+
+    private void updatePosts(Set<String> postIds) {
+        Map<String, List<String>> upserts = new HashMap<>();
+        List<Object[]> removals = new ArrayList<>();
+        for (List<String> chunk : chunks(postIds)) {
+            jdbcTemplate.query("SELECT id, forum_id, hot_score, status FROM forum_posts WHERE id IN (" +
+                    placeholders(chunk.size()) + ")", rs -> {
+                String id = rs.getString("id");
+                long forumId = rs.getLong("forum_id");
+                if (!"NORMAL".equals(rs.getString("status"))) {
+                    removals.add(new Object[]{id, forumId});
+                    return;
+                }
+                String score = rs.getBigDecimal("hot_score") == null ? "0" : rs.getBigDecimal("hot_score").toPlainString();
+                addMember(upserts, Board.POST_HOT.prefix + GLOBAL, score, id);
+                addMember(upserts, Board.POST_HOT.prefix + forumScope(forumId), score, id);
+            }, chunk.toArray());
+        }
+        upsert(upserts);
+        removals.forEach(r -> removePost((String) r[0], (Long) r[1]));
+    }
+
+    private void updateDocuments(Set<String> docIds) {
+        Map<String, List<String>> upserts = new HashMap<>();
+        List<String> removals = new ArrayList<>();
+        for (List<String> chunk : chunks(docIds)) {
+            jdbcTemplate.query("SELECT id, view_count, is_public FROM community_documents WHERE id IN (" +
+                    placeholders(chunk.size()) + ")", rs -> {
+                if (!rs.getBoolean("is_public")) {
+                    removals.add(rs.getString("id"));
+                    return;
+                }
+                addMember(upserts, Board.DOC_POPULAR.prefix + GLOBAL,
+                        String.valueOf(rs.getLong("view_count")), rs.getString("id"));
+            }, chunk.toArray());
+        }
+        upsert(upserts);
+        if (!removals.isEmpty()) {
+            try {
+                redisTemplate.opsForZSet().remove(Board.DOC_POPULAR.prefix + GLOBAL, removals.toArray());
+            } catch (Exception e) {
+                log.warn("⚠️ 文档移出榜单失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 只更新已建立的榜单；尚未建立的榜单等待下次重建
+     */
+    private void upsert(Map<String, List<String>> upserts) {
+        upserts.forEach((key, args) -> {
+            try {
+                if (!Boolean.TRUE.equals(redisTemplate.hasKey(key + TOTAL_SUFFIX))) {
+                    return;
+                }
+                List<String> argv = new ArrayList<>(args.size() + 1);
+                argv.add(String.valueOf(capacity));
+                argv.addAll(args);
+                redisTemplate.execute(UPSERT, List.of(key), argv.toArray());
+            } catch (Exception e) {
+                log.warn("⚠️ 更新榜单失败: key={}, {}", key, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 任一节点上次完成衰减重算的时间；未记录或无法解析时返回 0（立即重算）
+     */
+    private long lastRescoreAt() {
+        String value = redisTemplate.opsForValue().get(LAST_RESCORE_KEY);
+        try {
+            return value == null ? 0 : Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private boolean tryRefreshLock() {
+        try {
+            return Boolean.TRUE.equals(redisTemplate.opsForValue()
+                    .setIfAbsent(REFRESH_LOCK_KEY, "1", Duration.ofMillis(Math.max(1000, refreshIntervalMs / 2))));
+        } catch (Exception e) {
+            log.warn("⚠️ 获取榜单重建锁失败: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private static void addMember(Map<String, List<String>> upserts, String key, String score, String id) {
+        List<String> args = upserts.computeIfAbsent(key, k -> new ArrayList<>());
+        args.add(score);
+        args.add(id);
+    }
+
+    private static List<List<String>> chunks(Set<String> ids) {
+        List<String> all = new ArrayList<>(ids);
+        List<List<String>> chunks = new ArrayList<>();
+        for (int i = 0; i < all.size(); i += 500) {
+            chunks.add(all.subList(i, Math.min(all.size(), i + 500)));
+        }
+        return chunks;
+    }
+
+    private static String placeholders(int count) {
+        return String.join(",", Collections.nCopies(count, "?"));
+    }
+}
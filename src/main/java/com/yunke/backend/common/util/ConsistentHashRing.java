@@ -0,0 +1,210 @@
+package com.yunke.backend.common.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * 带有界负载的一致性哈希环
+ *
+ * <p>每个节点在环上放置若干虚拟节点，键按顺时针找到第一个节点。节点加入/离开时只有约 1/n 的键迁移。</p>
+ *
+ * <p>{@link #route} 实现 consistent hashing with bounded loads：每个节点容量为
+ * {@code ceil(loadFactor * (总负载 + 1) / 节点数)}，顺时针跳过已满或不可用的节点，
+ * 热点键溢出到环上的下一个节点而不是压垮所有者。</p>
+ *
+ * <p>读操作无锁：环以不可变快照发布，增删节点时整体重建。</p>
+ *
+ * @param <N> 节点类型，需正确实现 equals/hashCode 与稳定的 toString（用于计算虚拟节点位置）
+ */
+public final class ConsistentHashRing<N> {
+
+    private static final class Snapshot<N> {
+        private final long[] hashes;
+        private final List<N> owners;
+        private final List<N> nodes;
+
+        Snapshot(long[] hashes, List<N> owners, List<N> nodes) {
+            this.hashes = hashes;
+            this.owners = owners;
+            this.nodes = nodes;
+        }
+    }
+
+    private final int virtualNodes;
+    private final double loadFactor;
+    private volatile Snapshot<N> snapshot = new Snapshot<>(new long[0], List.of(), List.of());
+
+    /**
+     * @param virtualNodes 每个节点的虚拟节点数
+     * @param loadFactor   有界负载系数（1 + ε），如 1.25 表示任一节点负载不超过平均值的 125%
+     */
+    public ConsistentHashRing(int virtualNodes, double loadFactor) {
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("virtualNodes must be positive");
+        }
+        if (loadFactor < 1.0) {
+            throw new IllegalArgumentException("loadFactor must be >= 1.0");
+        }
+        this.virtualNodes = virtualNodes;
+        this.loadFactor = loadFactor;
+    }
+
+    /**
+     * 节点加入，已存在时忽略
+     */
+    public synchronized void add(N node) {
+        Set<N> nodes = new LinkedHashSet<>(snapshot.nodes);
+        if (nodes.add(node)) {
+            rebuild(nodes);
+        }
+    }
+
+    /**
+     * 节点离开，不存在时忽略
+     */
+    public synchronized void remove(N node) {
+        Set<N> nodes = new LinkedHashSet<>(snapshot.nodes);
+        if (nodes.remove(node)) {
+            rebuild(nodes);
+        }
+    }
+
+    /**
+     * 用新的成员列表整体替换
+     */
+    public synchronized void reset(Iterable<N> members) {
+        Set<N> nodes = new LinkedHashSet<>();
+        members.forEach(nodes::add);
+        rebuild(nodes);
+    }
+
+    public List<N> nodes() {
+        return snapshot.nodes;
+    }
+
+    public int size() {
+        return snapshot.nodes.size();
+    }
+
+    public boolean isEmpty() {
+        return snapshot.nodes.isEmpty();
+    }
+
+    /**
+     * 键的所有者（不考虑负载），环为空时返回 null
+     */
+    public N primary(String key) {
+        Snapshot<N> current = snapshot;
+        if (current.hashes.length == 0) {
+            return null;
+        }
+        return current.owners.get(indexOf(current, hash(key)));
+    }
+
+    /**
+     * 有界负载路由：从所有者开始顺时针，返回第一个未超过容量且 available 为真的节点；没有时返回 null
+     *
+     * @param load      节点当前负载（如在途请求数、已分配的热文档数）
+     * @param available 节点是否可用；仅对未超容量的候选节点调用，且按顺序调用直到命中
+     */
+    public N route(String key, ToIntFunction<N> load, Predicate<N> available) {
+        Snapshot<N> current = snapshot;
+        int nodeCount = current.nodes.size();
+        if (nodeCount == 0) {
+            return null;
+        }
+        long totalLoad = 0;
+        for (N node : current.nodes) {
+            totalLoad += Math.max(0, load.applyAsInt(node));
+        }
+        long capacity = (long) Math.ceil(loadFactor * (totalLoad + 1) / nodeCount);
+
+        int start = indexOf(current, hash(key));
+        Set<N> visited = new LinkedHashSet<>();
+        List<N> overloaded = new ArrayList<>();
+        for (int i = 0; i < current.owners.size() && visited.size() < nodeCount; i++) {
+            N node = current.owners.get((start + i) % current.owners.size());
+            if (!visited.add(node)) {
+                continue;
+            }
+            if (load.applyAsInt(node) >= capacity) {
+                overloaded.add(node);
+                continue;
+            }
+            if (available.test(node)) {
+                return node;
+            }
+        }
+        // 未超容量的节点均不可用时，退回到已满但可用的节点
+        for (N node : overloaded) {
+            if (available.test(node)) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    private void rebuild(Set<N> nodes) {
+        int total = nodes.size() * virtualNodes;
+        long[] hashes = new long[total];
+        Object[][] entries = new Object[total][];
+        int i = 0;
+        for (N node : nodes) {
+            String name = String.valueOf(node);
+            for (int v = 0; v < virtualNodes; v++) {
+                entries[i++] = new Object[]{hash(name + "#" + v), node};
+            }
+        }
+        Arrays.sort(entries, (a, b) -> Long.compareUnsigned((Long) a[0], (Long) b[0]));
+        List<N> owners = new ArrayList<>(total);
+        for (int j = 0; j < total; j++) {
+            hashes[j] = (Long) entries[j][0];
+            @SuppressWarnings("unchecked")
+            N owner = (N) entries[j][1];
+            owners.add(owner);
+        }
+        snapshot = new Snapshot<>(hashes, Collections.unmodifiableList(owners), List.copyOf(nodes));
+    }
+
+    /**
+     * 第一个哈希值不小于 h 的虚拟节点下标（无符号比较，越过末尾回绕到 0）
+     */
+    private static int indexOf(Snapshot<?> current, long h) {
+        long[] hashes = current.hashes;
+        int low = 0;
+        int high = hashes.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (Long.compareUnsigned(hashes[mid], h) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low == hashes.length ? 0 : low;
+    }
+
+    /**
+     * FNV-1a 64 + murmur3 fmix64 混淆，分布均匀且跨进程稳定
+     */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,19 @@
+package com.yunke.backend.common.viewer;
+
+/**
+ * 当前用户与列表实体之间的关系（列表页上的 isLiked / isCollected / isFollowing）
+ */
+public enum ViewerRelation {
+    /** 社区文档点赞 */
+    DOC_LIKE,
+    /** 社区文档收藏 */
+    DOC_COLLECT,
+    /** 关注作者 */
+    AUTHOR_FOLLOW,
+    /** 论坛帖子点赞 */
+    POST_LIKE,
+    /** 论坛回复点赞 */
+    REPLY_LIKE,
+    /** 论坛帖子收藏 */
+    POST_COLLECT
+}
@@ -0,0 +1,39 @@
+package com.yunke.backend.common.viewer;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * 用户关系变化事件
+ * 点赞、收藏、关注记录写入或删除后触发
+ */
+public class ViewerRelationChangedEvent extends ApplicationEvent {
+
+    private final ViewerRelation relation;
+    private final String userId;
+    private final String targetId;
+    private final boolean added;
+
+    public ViewerRelationChangedEvent(Object source, ViewerRelation relation, String userId, String targetId, boolean added) {
+        super(source);
+        this.relation = relation;
+        this.userId = userId;
+        this.targetId = targetId;
+        this.added = added;
+    }
+
+    public ViewerRelation getRelation() {
+        return relation;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getTargetId() {
+        return targetId;
+    }
+
+    public boolean isAdded() {
+        return added;
+    }
+}
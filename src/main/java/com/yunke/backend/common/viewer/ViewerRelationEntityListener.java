@@ -0,0 +1,61 @@
+package com.yunke.backend.common.viewer;
+
+import com.yunke.backend.document.domain.entity.DocumentCollection;
+import com.yunke.backend.document.domain.entity.DocumentLike;
+import com.yunke.backend.system.domain.entity.EntityCollection;
+import com.yunke.backend.system.domain.entity.EntityLike;
+import com.yunke.backend.user.domain.entity.UserFollow;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * 用户关系实体的 JPA 生命周期监听
+ *
+ * 挂在 {@link DocumentLike}、{@link DocumentCollection}、{@link UserFollow}、
+ * {@link EntityLike}、{@link EntityCollection} 上，任何经由 save/delete（含派生的 deleteBy）的写入
+ * 都会发布 {@link ViewerRelationChangedEvent}，不依赖各业务写入点逐个记得同步 {@link ViewerStateService}。
+ * 由 Hibernate 的 Spring Bean 容器创建。
+ */
+@Component
+@RequiredArgsConstructor
+public class ViewerRelationEntityListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PostPersist
+    public void onPersist(Object entity) {
+        onChange(entity, true);
+    }
+
+    @PostRemove
+    public void onRemove(Object entity) {
+        onChange(entity, false);
+    }
+
+    private void onChange(Object entity, boolean added) {
+        if (entity instanceof DocumentLike like) {
+            publish(ViewerRelation.DOC_LIKE, like.getUserId(), like.getDocumentId(), added);
+        } else if (entity instanceof DocumentCollection collection) {
+            publish(ViewerRelation.DOC_COLLECT, collection.getUserId(), collection.getDocumentId(), added);
+        } else if (entity instanceof UserFollow follow) {
+            publish(ViewerRelation.AUTHOR_FOLLOW, follow.getFollowerId(), follow.getFollowingId(), added);
+        } else if (entity instanceof EntityLike like && like.getEntityType() != null) {
+            switch (like.getEntityType()) {
+                case POST -> publish(ViewerRelation.POST_LIKE, like.getUserId(), like.getEntityId(), added);
+                case REPLY -> publish(ViewerRelation.REPLY_LIKE, like.getUserId(), like.getEntityId(), added);
+                default -> { }
+            }
+        } else if (entity instanceof EntityCollection collection && "POST".equals(collection.getEntityType())) {
+            publish(ViewerRelation.POST_COLLECT, collection.getUserId(), collection.getEntityId(), added);
+        }
+    }
+
+    private void publish(ViewerRelation relation, String userId, String targetId, boolean added) {
+        if (userId != null && targetId != null) {
+            eventPublisher.publishEvent(new ViewerRelationChangedEvent(this, relation, userId, targetId, added));
+        }
+    }
+}
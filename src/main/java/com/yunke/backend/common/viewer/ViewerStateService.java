@@ -0,0 +1,292 @@
+package com.yunke.backend.common.viewer;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.yunke.backend.document.repository.DocumentCollectionRepository;
+import com.yunke.backend.document.repository.DocumentLikeRepository;
+import com.yunke.backend.system.domain.entity.EntityLike.EntityType;
+import com.yunke.backend.system.repository.EntityCollectionRepository;
+import com.yunke.backend.system.repository.EntityLikeRepository;
+import com.yunke.backend.user.repository.UserFollowRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 列表页的当前用户状态（是否点赞 / 收藏 / 关注）批量解析
+ *
+ * 原实现对列表中的每一项各执行一次 exists 查询，一页 20 条文档就是 40~60 次往返。
+ * 这里每种关系每页最多一次 IN 查询，并按 "关系:用户" 在本地缓存该用户的关系集合：
+ * - 关系数不超过 exact-limit：缓存精确集合，命中时不查库
+ * - 不超过 max-ids：缓存布隆过滤器，只对"可能存在"的 ID 执行 IN 查询确认
+ * - 超过 max-ids：不缓存集合，直接 IN 查询
+ *
+ * 关系实体写入或删除时由 {@link ViewerRelationEntityListener} 发出事件，业务写入点无需逐个同步；
+ * 变更在事务提交后同步到本节点缓存，并通过 Redis 频道通知其他节点失效；
+ * 广播丢失时，条目最多保留 ttl-seconds。
+ */
+@Slf4j
+@Component
+public class ViewerStateService {
+
+    private static final String INVALIDATE_CHANNEL = "viewer:state:invalidate";
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final DocumentLikeRepository documentLikeRepository;
+    private final DocumentCollectionRepository documentCollectionRepository;
+    private final UserFollowRepository userFollowRepository;
+    private final EntityLikeRepository entityLikeRepository;
+    private final EntityCollectionRepository entityCollectionRepository;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final Cache<String, Entry> cache;
+    private final int exactLimit;
+    private final int maxIds;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<Source, Counter> lookups = new EnumMap<>(Source.class);
+
+    private enum Source { EXACT, BLOOM, QUERY }
+
+    public ViewerStateService(
+            DocumentLikeRepository documentLikeRepository,
+            DocumentCollectionRepository documentCollectionRepository,
+            UserFollowRepository userFollowRepository,
+            EntityLikeRepository entityLikeRepository,
+            EntityCollectionRepository entityCollectionRepository,
+            StringRedisTemplate redisTemplate,
+            RedisMessageListenerContainer listenerContainer,
+            MeterRegistry meterRegistry,
+            @Value("${viewer.cache.max-entries:50000}") long maxEntries,
+            @Value("${viewer.cache.ttl-seconds:300}") long ttlSeconds,
+            @Value("${viewer.cache.exact-limit:256}") int exactLimit,
+            @Value("${viewer.cache.max-ids:20000}") int maxIds) {
+        this.documentLikeRepository = documentLikeRepository;
+        this.documentCollectionRepository = documentCollectionRepository;
+        this.userFollowRepository = userFollowRepository;
+        this.entityLikeRepository = entityLikeRepository;
+        this.entityCollectionRepository = entityCollectionRepository;
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.exactLimit = exactLimit;
+        this.maxIds = Math.max(exactLimit, maxIds);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+        for (Source source : Source.values()) {
+            lookups.put(source, Counter.builder("viewer_state_lookups")
+                    .tag("source", source.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        listenerContainer.addMessageListener(this::onInvalidateMessage, new ChannelTopic(INVALIDATE_CHANNEL));
+        log.info("👀 [ViewerState] 已订阅关系失效频道: {}", INVALIDATE_CHANNEL);
+    }
+
+    /**
+     * 返回 ids 中当前用户存在该关系的子集
+     *
+     * @param userId 当前用户，为空时返回空集合
+     */
+    public Set<String> resolve(ViewerRelation relation, String userId, Collection<String> ids) {
+        if (userId == null || userId.isBlank() || ids == null || ids.isEmpty()) {
+            return Set.of();
+        }
+        Set<String> distinct = new LinkedHashSet<>(ids);
+        distinct.remove(null);
+        if (distinct.isEmpty()) {
+            return Set.of();
+        }
+
+        Entry entry;
+        try {
+            entry = cache.get(key(relation, userId), k -> build(relation, userId));
+        } catch (Exception e) {
+            log.warn("构建用户关系缓存失败 - relation: {}, userId: {}", relation, userId, e);
+            entry = Entry.NONE;
+        }
+
+        if (entry.exact != null) {
+            lookups.get(Source.EXACT).increment();
+            Set<String> result = new HashSet<>();
+            for (String id : distinct) {
+                if (entry.exact.contains(id)) {
+                    result.add(id);
+                }
+            }
+            return result;
+        }
+
+        if (entry.bloom != null) {
+            lookups.get(Source.BLOOM).increment();
+            BloomFilter bloom = entry.bloom;
+            distinct.removeIf(id -> !bloom.mightContain(id));
+            if (distinct.isEmpty()) {
+                return Set.of();
+            }
+        } else {
+            lookups.get(Source.QUERY).increment();
+        }
+        return new HashSet<>(query(relation, userId, distinct));
+    }
+
+    /**
+     * 单个实体的关系判断
+     */
+    public boolean contains(ViewerRelation relation, String userId, String id) {
+        return id != null && resolve(relation, userId, List.of(id)).contains(id);
+    }
+
+    /**
+     * 关系新增或删除后调用；在事务中调用时，提交后才更新缓存
+     */
+    public void record(ViewerRelation relation, String userId, String id, boolean added) {
+        if (userId == null || id == null) {
+            return;
+        }
+        afterCommit(() -> apply(relation, userId, id, added));
+    }
+
+    @EventListener
+    public void onRelationChanged(ViewerRelationChangedEvent event) {
+        record(event.getRelation(), event.getUserId(), event.getTargetId(), event.isAdded());
+    }
+
+    private void apply(ViewerRelation relation, String userId, String id, boolean added) {
+        String key = key(relation, userId);
+        // computeIfPresent 会等待同一键上正在进行的加载完成，加载读到的旧快照也能补上本次变更
+        cache.asMap().computeIfPresent(key, (k, entry) -> {
+            entry.apply(id, added);
+            return entry;
+        });
+        try {
+            redisTemplate.convertAndSend(INVALIDATE_CHANNEL, nodeId + "|" + key);
+        } catch (Exception e) {
+            log.warn("发布用户关系失效消息失败 - key: {}", key, e);
+        }
+    }
+
+    private void onInvalidateMessage(Message message, byte[] pattern) {
+        String payload = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = payload.indexOf('|');
+        if (separator < 0) {
+            cache.invalidateAll();
+            return;
+        }
+        // 本节点已在提交后直接更新
+        if (!payload.substring(0, separator).equals(nodeId)) {
+            cache.invalidate(payload.substring(separator + 1));
+        }
+    }
+
+    private Entry build(ViewerRelation relation, String userId) {
+        List<String> ids = loadAll(relation, userId, maxIds + 1);
+        if (ids.size() > maxIds) {
+            return Entry.NONE;
+        }
+        if (ids.size() <= exactLimit) {
+            Set<String> exact = ConcurrentHashMap.newKeySet(Math.max(16, ids.size() * 2));
+            exact.addAll(ids);
+            return new Entry(exact, null);
+        }
+        // 预留增长空间，避免缓存期间新增的关系把误判率推高
+        BloomFilter bloom = new BloomFilter(Math.min(maxIds, ids.size() * 2), FALSE_POSITIVE_RATE);
+        ids.forEach(bloom::add);
+        return new Entry(null, bloom);
+    }
+
+    private List<String> loadAll(ViewerRelation relation, String userId, int limit) {
+        PageRequest page = PageRequest.of(0, limit);
+        return switch (relation) {
+            case DOC_LIKE -> documentLikeRepository.findDocumentIdsByUserId(userId, page);
+            case DOC_COLLECT -> documentCollectionRepository.findDocumentIdsByUserId(userId, page);
+            case AUTHOR_FOLLOW -> userFollowRepository.findFollowingIdsByFollowerId(userId, page);
+            case POST_LIKE -> entityLikeRepository.findEntityIds(userId, EntityType.POST, page);
+            case REPLY_LIKE -> entityLikeRepository.findEntityIds(userId, EntityType.REPLY, page);
+            case POST_COLLECT -> entityCollectionRepository.findEntityIds(userId, "POST", page);
+        };
+    }
+
+    private List<String> query(ViewerRelation relation, String userId, Collection<String> ids) {
+        return switch (relation) {
+            case DOC_LIKE -> documentLikeRepository.findLikedDocumentIds(userId, ids);
+            case DOC_COLLECT -> documentCollectionRepository.findCollectedDocumentIds(userId, ids);
+            case AUTHOR_FOLLOW -> userFollowRepository.findFollowedIds(userId, ids);
+            case POST_LIKE -> entityLikeRepository.findLikedEntityIds(userId, EntityType.POST, ids);
+            case REPLY_LIKE -> entityLikeRepository.findLikedEntityIds(userId, EntityType.REPLY, ids);
+            case POST_COLLECT -> entityCollectionRepository.findCollectedEntityIds(userId, "POST", ids);
+        };
+    }
+
+    private static String key(ViewerRelation relation, String userId) {
+        return relation.name() + ":" + userId;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * 用户关系集合：精确集合、布隆过滤器或不缓存（两者皆空）
+     */
+    private static final class Entry {
+
+        static final Entry NONE = new Entry(null, null);
+
+        final Set<String> exact;
+        final BloomFilter bloom;
+
+        Entry(Set<String> exact, BloomFilter bloom) {
+            this.exact = exact;
+            this.bloom = bloom;
+        }
+
+        void apply(String id, boolean added) {
+            if (exact != null) {
+                if (added) {
+                    exact.add(id);
+                } else {
+                    exact.remove(id);
+                }
+            } else if (bloom != null && added) {
+                // 删除无需处理：布隆命中后仍会查库确认
+                bloom.add(id);
+            }
+        }
+    }
+}
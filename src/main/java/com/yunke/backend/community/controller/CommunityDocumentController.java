@@ -8,6 +8,7 @@ import com.yunke.backend.document.domain.entity.DocumentTag;
 import com.yunke.backend.document.dto.DocumentStatistics;
 
 import com.yunke.backend.common.PageResponse;
+import com.yunke.backend.common.dto.CursorPage;
 import com.yunke.backend.security.AffineUserDetails;
 import com.yunke.backend.community.service.CommunityDocumentService;
 import lombok.RequiredArgsConstructor;
@@ -373,6 +374,24 @@ public class CommunityDocumentController {
             .switchIfEmpty(Mono.just(ResponseEntity.status(HttpStatus.UNAUTHORIZED).build()));
     }
 
+    /**
+     * 获取关注动态（游标分页）
+     * GET /api/community/documents/feed
+     */
+    @GetMapping("/feed")
+    public Mono<ResponseEntity<CursorPage<CommunityDocument>>> getFeed(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        log.info("获取关注动态: cursor={}, size={}", cursor, size);
+
+        return getCurrentUserId()
+            .flatMap(userId -> communityDocumentService.getFeed(userId, cursor, size))
+            .map(ResponseEntity::ok)
+            .onErrorResume(IllegalArgumentException.class,
+                e -> Mono.just(ResponseEntity.badRequest().<CursorPage<CommunityDocument>>build()))
+            .switchIfEmpty(Mono.just(ResponseEntity.status(HttpStatus.UNAUTHORIZED).build()));
+    }
+
     /**
      * 获取关注作者的文档
      * GET /api/community/documents/following
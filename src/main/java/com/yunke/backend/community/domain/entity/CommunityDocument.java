@@ -88,7 +88,8 @@ public class CommunityDocument {
     @Column(name = "free_preview_length")
     private Integer freePreviewLength = 500;
 
-    @Column(name = "view_count")
+    // 由 WriteBehindCounterService 以增量 UPDATE 维护，保存实体时不回写
+    @Column(name = "view_count", updatable = false)
     private Integer viewCount = 0;
 
     @Column(name = "like_count")
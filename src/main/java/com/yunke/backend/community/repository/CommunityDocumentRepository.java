@@ -12,6 +12,8 @@ import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -190,4 +192,20 @@ public interface CommunityDocumentRepository extends JpaRepository<CommunityDocu
 
     @Query("SELECT cd FROM CommunityDocument cd WHERE cd.authorId IN :authorIds AND cd.isPublic = true AND cd.status = 'published' ORDER BY cd.publishedAt DESC")
     Page<CommunityDocument> findByAuthorIdIn(@Param("authorIds") List<String> authorIds, Pageable pageable);
+
+    /**
+     * 动态流条目投影：文档ID与发布时间
+     */
+    interface FeedEntry {
+        String getId();
+        LocalDateTime getPublishedAt();
+    }
+
+    /**
+     * 指定作者最近发布的公开文档（重建动态收件箱 / 发件箱）
+     */
+    @Query("SELECT cd.id AS id, cd.publishedAt AS publishedAt FROM CommunityDocument cd " +
+           "WHERE cd.authorId IN :authorIds AND cd.isPublic = true AND cd.status = 'published' " +
+           "ORDER BY cd.publishedAt DESC")
+    List<FeedEntry> findFeedEntries(@Param("authorIds") Collection<String> authorIds, Pageable pageable);
 }
\ No newline at end of file
@@ -0,0 +1,34 @@
+package com.yunke.backend.community.service;
+
+import com.yunke.backend.common.dto.CursorPage;
+import com.yunke.backend.community.domain.entity.CommunityDocument;
+
+/**
+ * 关注动态服务（发布时推送到粉丝收件箱，大V作者读取时拉取）
+ */
+public interface ActivityFeedService {
+
+    /**
+     * 文档发布后调用，异步推送到粉丝收件箱
+     */
+    void onDocumentPublished(CommunityDocument document);
+
+    /**
+     * 文档删除后调用，从作者发件箱移除；收件箱中的残留在读取时过滤
+     */
+    void onDocumentRemoved(String documentId, String authorId);
+
+    /**
+     * 关注关系变更后调用，丢弃关注者的收件箱，下次读取时重建
+     */
+    void onFollowChanged(String followerId);
+
+    /**
+     * 游标分页读取用户的关注动态
+     *
+     * @param cursor 上一页返回的 nextCursor，首页为空
+     * @return 按发布时间倒序的文档ID
+     * @throws IllegalArgumentException 如果游标无效
+     */
+    CursorPage<String> getFeed(String userId, String cursor, int size);
+}
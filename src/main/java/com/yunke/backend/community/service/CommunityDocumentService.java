@@ -1,5 +1,6 @@
 package com.yunke.backend.community.service;
 
+import com.yunke.backend.common.dto.CursorPage;
 import com.yunke.backend.document.dto.DocumentStatistics;
 import com.yunke.backend.community.domain.entity.CommunityDocument;
 import com.yunke.backend.document.domain.entity.DocumentComment;
@@ -166,6 +167,13 @@ public interface CommunityDocumentService {
      */
     Mono<Boolean> isFollowing(String followerId, String followingId);
 
+    /**
+     * 获取关注动态（游标分页，按发布时间倒序）
+     *
+     * @param cursor 上一页返回的 nextCursor，首页为空
+     */
+    Mono<CursorPage<CommunityDocument>> getFeed(String userId, String cursor, int size);
+
     /**
      * 获取关注的作者发布的文档
      */
@@ -0,0 +1,407 @@
+package com.yunke.backend.community.service.impl;
+
+import com.yunke.backend.common.dto.CursorPage;
+import com.yunke.backend.common.viewer.ViewerRelation;
+import com.yunke.backend.common.viewer.ViewerStateService;
+import com.yunke.backend.community.domain.entity.CommunityDocument;
+import com.yunke.backend.community.repository.CommunityDocumentRepository;
+import com.yunke.backend.community.service.ActivityFeedService;
+import com.yunke.backend.user.repository.UserFollowRepository;
+import com.yunke.backend.user.service.FollowCountService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 关注动态服务实现（推拉结合）
+ *
+ * 原来客户端只能逐个轮询关注作者的主页。这里为每个用户维护 Redis 有序集合收件箱（文档ID，分值为发布时间毫秒）：
+ * - 发布时按关系ID游标分批遍历粉丝，把文档写入已存在的收件箱并裁剪到 inbox-capacity；
+ *   不存在的收件箱（不活跃用户）不创建，读取时再从数据库重建
+ * - 粉丝数超过 fanout-threshold 的作者不推送，只写自己的发件箱，读取时与收件箱合并（拉取）；
+ *   粉丝数降到阈值一半以下才恢复推送，并把发件箱中的近期文档补推给粉丝
+ * - 读取按 (发布时间, 文档ID) 游标翻页；Redis 不可用时按关注作者直接查库
+ * - 删除的文档只从发件箱移除，收件箱残留由调用方批量加载时过滤
+ *
+ * 关注关系变化时丢弃关注者的收件箱；收件箱与发件箱带 TTL，过期后从数据库重建以修正漂移。
+ */
+@Slf4j
+@Service
+public class ActivityFeedServiceImpl implements ActivityFeedService {
+
+    private static final String INBOX_PREFIX = "feed:inbox:";
+    private static final String OUTBOX_PREFIX = "feed:outbox:";
+    private static final String BIG_AUTHORS_KEY = "feed:big_authors";
+    private static final int MAX_PAGE_SIZE = 50;
+    /** 游标所在毫秒内可能有多条文档，多取几条用于跳过 */
+    private static final int READ_SLACK = 16;
+    private static final long BIG_AUTHORS_REFRESH_MILLIS = 60_000;
+
+    /**
+     * KEYS: 收件箱...；ARGV: 容量, score1, member1, score2, member2, ...
+     * 只写入已存在的收件箱，写入后保留最新的 capacity 条
+     */
+    private static final RedisScript<Long> FANOUT_SCRIPT = RedisScript.of(
+            "local cap = tonumber(ARGV[1]) " +
+            "local written = 0 " +
+            "for i = 1, #KEYS do " +
+            "  if redis.call('EXISTS', KEYS[i]) == 1 then " +
+            "    for j = 2, #ARGV, 2 do redis.call('ZADD', KEYS[i], ARGV[j], ARGV[j + 1]) end " +
+            "    redis.call('ZREMRANGEBYRANK', KEYS[i], 0, -cap - 1) " +
+            "    written = written + 1 " +
+            "  end " +
+            "end " +
+            "return written",
+            Long.class);
+
+    /**
+     * KEYS: 收件箱或发件箱；ARGV: TTL 秒, score1, member1, ...
+     * 键不存在时才写入；写入分值为 0 的占位成员 "-"，没有动态的用户不会每次都重建
+     */
+    private static final RedisScript<Long> FILL_SCRIPT = RedisScript.of(
+            "if redis.call('EXISTS', KEYS[1]) == 1 then return 0 end " +
+            "redis.call('ZADD', KEYS[1], 0, '-') " +
+            "for i = 2, #ARGV, 2 do redis.call('ZADD', KEYS[1], ARGV[i], ARGV[i + 1]) end " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[1]) " +
+            "return 1",
+            Long.class);
+
+    private final CommunityDocumentRepository documentRepository;
+    private final UserFollowRepository userFollowRepository;
+    private final FollowCountService followCountService;
+    private final ViewerStateService viewerStateService;
+    private final StringRedisTemplate redisTemplate;
+    private final int inboxCapacity;
+    private final int outboxCapacity;
+    private final long fanoutThreshold;
+    private final int fanoutBatchSize;
+    private final long inboxTtlSeconds;
+    private final long outboxTtlSeconds;
+    private final int rebuildMaxAuthors;
+
+    private volatile Set<String> bigAuthors = Set.of();
+    private volatile long bigAuthorsCheckedAt;
+
+    private record FeedItem(long score, String documentId) {
+    }
+
+    private record Cursor(long score, String documentId) {
+    }
+
+    private static final Comparator<FeedItem> NEWEST_FIRST = Comparator
+            .comparingLong(FeedItem::score).reversed()
+            .thenComparing(FeedItem::documentId, Comparator.reverseOrder());
+
+    public ActivityFeedServiceImpl(
+            CommunityDocumentRepository documentRepository,
+            UserFollowRepository userFollowRepository,
+            FollowCountService followCountService,
+            ViewerStateService viewerStateService,
+            StringRedisTemplate redisTemplate,
+            @Value("${feed.inbox-capacity:500}") int inboxCapacity,
+            @Value("${feed.outbox-capacity:200}") int outboxCapacity,
+            @Value("${feed.fanout-threshold:5000}") long fanoutThreshold,
+            @Value("${feed.fanout-batch-size:500}") int fanoutBatchSize,
+            @Value("${feed.inbox-ttl-seconds:604800}") long inboxTtlSeconds,
+            @Value("${feed.outbox-ttl-seconds:604800}") long outboxTtlSeconds,
+            @Value("${feed.rebuild-max-authors:2000}") int rebuildMaxAuthors) {
+        this.documentRepository = documentRepository;
+        this.userFollowRepository = userFollowRepository;
+        this.followCountService = followCountService;
+        this.viewerStateService = viewerStateService;
+        this.redisTemplate = redisTemplate;
+        this.inboxCapacity = inboxCapacity;
+        this.outboxCapacity = outboxCapacity;
+        this.fanoutThreshold = fanoutThreshold;
+        this.fanoutBatchSize = fanoutBatchSize;
+        this.inboxTtlSeconds = inboxTtlSeconds;
+        this.outboxTtlSeconds = outboxTtlSeconds;
+        this.rebuildMaxAuthors = rebuildMaxAuthors;
+    }
+
+    @Override
+    @Async("generalTaskScheduler")
+    public void onDocumentPublished(CommunityDocument document) {
+        if (document == null || document.getAuthorId() == null
+                || !Boolean.TRUE.equals(document.getIsPublic()) || !"published".equals(document.getStatus())) {
+            return;
+        }
+        String authorId = document.getAuthorId();
+        FeedItem item = new FeedItem(score(document.getPublishedAt()), document.getId());
+        try {
+            // 发件箱不存在时不创建，读取时从数据库重建（已包含本文档）
+            redisTemplate.execute(FANOUT_SCRIPT, List.of(OUTBOX_PREFIX + authorId),
+                    String.valueOf(outboxCapacity), String.valueOf(item.score()), item.documentId());
+
+            long followers = followCountService.getFollowersCount(authorId);
+            boolean big = Boolean.TRUE.equals(redisTemplate.opsForSet().isMember(BIG_AUTHORS_KEY, authorId));
+            if (followers > fanoutThreshold || (big && followers > fanoutThreshold / 2)) {
+                if (!big) {
+                    redisTemplate.opsForSet().add(BIG_AUTHORS_KEY, authorId);
+                    bigAuthorsCheckedAt = 0;
+                    log.info("📣 [Feed] 作者粉丝数 {} 超过阈值，改为读取时拉取: authorId={}", followers, authorId);
+                }
+                return;
+            }
+
+            List<FeedItem> items = List.of(item);
+            if (big) {
+                // 大V期间发布的文档只在发件箱里，恢复推送时一并补推
+                redisTemplate.opsForSet().remove(BIG_AUTHORS_KEY, authorId);
+                bigAuthorsCheckedAt = 0;
+                ensureFilled(OUTBOX_PREFIX + authorId, outboxTtlSeconds, List.of(authorId), outboxCapacity);
+                items = read(OUTBOX_PREFIX + authorId, null, outboxCapacity);
+                log.info("📣 [Feed] 作者粉丝数 {} 回落，恢复推送并补推 {} 条: authorId={}",
+                        followers, items.size(), authorId);
+            }
+            int inboxes = fanOut(authorId, items);
+            log.debug("文档推送完成 - documentId: {}, 收件箱: {}", item.documentId(), inboxes);
+        } catch (Exception e) {
+            log.warn("文档推送失败 - documentId: {}, authorId: {}", item.documentId(), authorId, e);
+        }
+    }
+
+    @Override
+    public void onDocumentRemoved(String documentId, String authorId) {
+        if (documentId == null || authorId == null) {
+            return;
+        }
+        try {
+            redisTemplate.opsForZSet().remove(OUTBOX_PREFIX + authorId, documentId);
+        } catch (Exception e) {
+            log.warn("从发件箱移除文档失败 - documentId: {}", documentId, e);
+        }
+    }
+
+    @Override
+    public void onFollowChanged(String followerId) {
+        if (followerId == null) {
+            return;
+        }
+        afterCommit(() -> {
+            try {
+                redisTemplate.delete(INBOX_PREFIX + followerId);
+            } catch (Exception e) {
+                log.warn("丢弃收件箱失败 - userId: {}", followerId, e);
+            }
+        });
+    }
+
+    @Override
+    public CursorPage<String> getFeed(String userId, String cursor, int size) {
+        Cursor after = parseCursor(cursor);
+        int limit = size <= 0 ? 20 : Math.min(size, MAX_PAGE_SIZE);
+        if (userId == null) {
+            return CursorPage.empty();
+        }
+
+        List<FeedItem> candidates = new ArrayList<>();
+        try {
+            String inbox = INBOX_PREFIX + userId;
+            if (!Boolean.TRUE.equals(redisTemplate.hasKey(inbox))) {
+                rebuildInbox(userId, inbox);
+            }
+            candidates.addAll(read(inbox, after, limit + 1 + READ_SLACK));
+
+            for (String authorId : viewerStateService.resolve(ViewerRelation.AUTHOR_FOLLOW, userId, bigAuthors())) {
+                String outbox = OUTBOX_PREFIX + authorId;
+                ensureFilled(outbox, outboxTtlSeconds, List.of(authorId), outboxCapacity);
+                candidates.addAll(read(outbox, after, limit + 1 + READ_SLACK));
+            }
+        } catch (Exception e) {
+            log.warn("读取关注动态失败，回退数据库 - userId: {}", userId, e);
+            List<String> following = userFollowRepository.findFollowingIdsByFollowerId(
+                    userId, PageRequest.of(0, rebuildMaxAuthors));
+            candidates = load(following, inboxCapacity);
+        }
+        return toPage(candidates, after, limit);
+    }
+
+    /**
+     * 从数据库重建收件箱：关注的非大V作者最近发布的文档
+     */
+    private void rebuildInbox(String userId, String inbox) {
+        Set<String> big = bigAuthors();
+        List<String> authors = userFollowRepository.findFollowingIdsByFollowerId(
+                        userId, PageRequest.of(0, rebuildMaxAuthors)).stream()
+                .filter(authorId -> !big.contains(authorId))
+                .toList();
+        fill(inbox, inboxTtlSeconds, load(authors, inboxCapacity));
+    }
+
+    private void ensureFilled(String key, long ttlSeconds, List<String> authors, int capacity) {
+        if (!Boolean.TRUE.equals(redisTemplate.hasKey(key))) {
+            fill(key, ttlSeconds, load(authors, capacity));
+        }
+    }
+
+    private void fill(String key, long ttlSeconds, List<FeedItem> items) {
+        List<String> argv = new ArrayList<>(items.size() * 2 + 1);
+        argv.add(String.valueOf(ttlSeconds));
+        for (FeedItem item : items) {
+            argv.add(String.valueOf(item.score()));
+            argv.add(item.documentId());
+        }
+        redisTemplate.execute(FILL_SCRIPT, List.of(key), argv.toArray());
+    }
+
+    /**
+     * 按关系ID游标分批遍历粉丝，每批一次脚本调用
+     *
+     * @return 写入的收件箱数量
+     */
+    private int fanOut(String authorId, List<FeedItem> items) {
+        if (items.isEmpty()) {
+            return 0;
+        }
+        List<String> entries = new ArrayList<>(items.size() * 2 + 1);
+        entries.add(String.valueOf(inboxCapacity));
+        for (FeedItem item : items) {
+            entries.add(String.valueOf(item.score()));
+            entries.add(item.documentId());
+        }
+        Object[] argv = entries.toArray();
+
+        int written = 0;
+        PageRequest batch = PageRequest.of(0, fanoutBatchSize);
+        List<UserFollowRepository.FollowEdge> edges = userFollowRepository.findFollowerEdges(authorId, batch);
+        while (!edges.isEmpty()) {
+            List<String> keys = edges.stream().map(edge -> INBOX_PREFIX + edge.getUserId()).toList();
+            Long count = redisTemplate.execute(FANOUT_SCRIPT, keys, argv);
+            written += count != null ? count.intValue() : 0;
+            if (edges.size() < fanoutBatchSize) {
+                break;
+            }
+            Long last = edges.get(edges.size() - 1).getId();
+            edges = userFollowRepository.findFollowerEdgesBefore(authorId, last, batch);
+        }
+        return written;
+    }
+
+    /**
+     * 读取游标之后（含游标所在毫秒）的条目，排除占位成员
+     */
+    private List<FeedItem> read(String key, Cursor after, int count) {
+        double max = after != null ? after.score() : Double.POSITIVE_INFINITY;
+        Set<ZSetOperations.TypedTuple<String>> tuples =
+                redisTemplate.opsForZSet().reverseRangeByScoreWithScores(key, 1, max, 0, count);
+        if (tuples == null || tuples.isEmpty()) {
+            return List.of();
+        }
+        List<FeedItem> items = new ArrayList<>(tuples.size());
+        for (ZSetOperations.TypedTuple<String> tuple : tuples) {
+            if (tuple.getValue() != null && tuple.getScore() != null) {
+                items.add(new FeedItem(tuple.getScore().longValue(), tuple.getValue()));
+            }
+        }
+        return items;
+    }
+
+    private List<FeedItem> load(List<String> authors, int limit) {
+        if (authors.isEmpty()) {
+            return List.of();
+        }
+        return documentRepository.findFeedEntries(authors, PageRequest.of(0, limit)).stream()
+                .map(entry -> new FeedItem(score(entry.getPublishedAt()), entry.getId()))
+                .toList();
+    }
+
+    /**
+     * 合并各来源、去重、按游标过滤后取一页；多取一条判断是否还有下一页
+     */
+    private static CursorPage<String> toPage(List<FeedItem> candidates, Cursor after, int limit) {
+        Map<String, FeedItem> distinct = new LinkedHashMap<>();
+        for (FeedItem item : candidates) {
+            if (isAfter(item, after)) {
+                distinct.putIfAbsent(item.documentId(), item);
+            }
+        }
+        List<FeedItem> sorted = new ArrayList<>(distinct.values());
+        sorted.sort(NEWEST_FIRST);
+
+        boolean hasMore = sorted.size() > limit;
+        List<FeedItem> page = hasMore ? sorted.subList(0, limit) : sorted;
+        String nextCursor = null;
+        if (hasMore) {
+            FeedItem last = page.get(page.size() - 1);
+            nextCursor = last.score() + ":" + last.documentId();
+        }
+        return CursorPage.of(page.stream().map(FeedItem::documentId).toList(), nextCursor);
+    }
+
+    private static boolean isAfter(FeedItem item, Cursor cursor) {
+        if (cursor == null) {
+            return true;
+        }
+        return item.score() < cursor.score()
+                || (item.score() == cursor.score() && item.documentId().compareTo(cursor.documentId()) < 0);
+    }
+
+    private static Cursor parseCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        int separator = cursor.indexOf(':');
+        try {
+            if (separator > 0 && separator < cursor.length() - 1) {
+                return new Cursor(Long.parseLong(cursor.substring(0, separator)), cursor.substring(separator + 1));
+            }
+        } catch (NumberFormatException ignored) {
+            // 落到下面统一报错
+        }
+        throw new IllegalArgumentException("无效的游标: " + cursor);
+    }
+
+    /**
+     * 大V作者集合，本地缓存 BIG_AUTHORS_REFRESH_MILLIS；读取失败时沿用上次的值
+     */
+    private Set<String> bigAuthors() {
+        long now = System.currentTimeMillis();
+        if (now - bigAuthorsCheckedAt > BIG_AUTHORS_REFRESH_MILLIS) {
+            try {
+                Set<String> members = redisTemplate.opsForSet().members(BIG_AUTHORS_KEY);
+                bigAuthors = members != null ? new HashSet<>(members) : Set.of();
+            } catch (Exception e) {
+                log.debug("读取大V作者集合失败: {}", e.getMessage());
+            }
+            bigAuthorsCheckedAt = now;
+        }
+        return bigAuthors;
+    }
+
+    private static long score(LocalDateTime publishedAt) {
+        return publishedAt != null
+                ? publishedAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                : System.currentTimeMillis();
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
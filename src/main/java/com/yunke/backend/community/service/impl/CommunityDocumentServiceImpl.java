@@ -1,5 +1,11 @@
 package com.yunke.backend.community.service.impl;
 
+import com.yunke.backend.common.counter.CounterTarget;
+import com.yunke.backend.common.dto.CursorPage;
+import com.yunke.backend.common.counter.WriteBehindCounterService;
+import com.yunke.backend.common.ranking.HotRankingService;
+import com.yunke.backend.common.viewer.ViewerRelation;
+import com.yunke.backend.common.viewer.ViewerStateService;
 import com.yunke.backend.document.dto.DocumentStatistics;
 import com.yunke.backend.community.domain.entity.CommunityDocument;
 import com.yunke.backend.document.domain.entity.DocumentCategory;
@@ -21,9 +27,11 @@ import com.yunke.backend.user.repository.UserFollowRepository;
 import com.yunke.backend.document.repository.DocumentCommentRepository;
 import com.yunke.backend.document.repository.DocumentPurchaseRepository;
 import com.yunke.backend.document.repository.DocumentViewRepository;
+import com.yunke.backend.community.service.ActivityFeedService;
 import com.yunke.backend.community.service.CommunityDocumentService;
 import com.yunke.backend.notification.service.NotificationService;
 import com.yunke.backend.payment.service.PaymentService;
+import com.yunke.backend.user.service.FollowCountService;
 import com.yunke.backend.user.service.UserService;
 import com.yunke.backend.workspace.repository.WorkspaceDocRepository;
 import com.yunke.backend.user.repository.UserRepository;
@@ -33,6 +41,7 @@ import com.yunke.backend.user.domain.entity.User;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -42,7 +51,11 @@ import reactor.core.publisher.Mono;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
@@ -65,6 +78,11 @@ public class CommunityDocumentServiceImpl implements CommunityDocumentService {
     private final WorkspaceDocRepository workspaceDocRepository;
     private final UserRepository userRepository;
     private final SnapshotRepository snapshotRepository;
+    private final WriteBehindCounterService counterService;
+    private final HotRankingService hotRankingService;
+    private final ViewerStateService viewerStateService;
+    private final FollowCountService followCountService;
+    private final ActivityFeedService activityFeedService;
 
     @Override
     public Mono<CommunityDocument> publishDocument(
@@ -147,6 +165,7 @@ public class CommunityDocumentServiceImpl implements CommunityDocumentService {
             }
 
             log.info("文档发布成功: id={}, title={}, author={}", saved.getId(), saved.getTitle(), saved.getAuthorName());
+            activityFeedService.onDocumentPublished(saved);
             return saved;
         });
     }
@@ -212,6 +231,7 @@ public class CommunityDocumentServiceImpl implements CommunityDocumentService {
             document.setStatus("deleted");
             document.setDeletedAt(LocalDateTime.now());
             documentRepository.save(document);
+            activityFeedService.onDocumentRemoved(documentId, document.getAuthorId());
 
             return true;
         });
@@ -223,8 +243,10 @@ public class CommunityDocumentServiceImpl implements CommunityDocumentService {
             CommunityDocument document = documentRepository.findById(documentId)
                     .orElseThrow(() -> new RuntimeException("文档不存在"));
 
-            // 增加浏览量（异步，不影响返回）
-            documentRepository.incrementViewCount(documentId);
+            // 增加浏览量（合并写入，返回值叠加未落库的增量）
+            counterService.increment(CounterTarget.COMMUNITY_DOC_VIEWS, documentId);
+            document.setViewCount(counterService.merged(
+                    CounterTarget.COMMUNITY_DOC_VIEWS, documentId, document.getViewCount()));
 
             // 从WorkspaceDoc获取实时的title和summary
             try {
@@ -251,11 +273,7 @@ public class CommunityDocumentServiceImpl implements CommunityDocumentService {
             document.setContentSnapshot(null);
 
             // 填充用户相关状态
-            if (currentUserId != null) {
-                document.setIsLiked(likeRepository.existsByDocumentIdAndUserId(documentId, currentUserId));
-                document.setIsCollected(collectionRepository.existsByDocumentIdAndUserId(documentId, currentUserId));
-                document.setIsFollowing(followRepository.existsByFollowerIdAndFollowingId(currentUserId, document.getAuthorId()));
-            }
+            fillViewerState(List.of(document), currentUserId);
 
             return document;
         });
@@ -311,12 +329,7 @@ public class CommunityDocumentServiceImpl implements CommunityDocumentService {
             );
 
             // 填充用户状态
-            if (currentUserId != null) {
-                page.getContent().forEach(doc -> {
-                    doc.setIsLiked(likeRepository.existsByDocumentIdAndUserId(doc.getId(), currentUserId));
-                    doc.setIsCollected(collectionRepository.existsByDocumentIdAndUserId(doc.getId(), currentUserId));
-                });
-            }
+            fillViewerState(page.getContent(), currentUserId);
 
             return page;
         });
@@ -334,12 +347,7 @@ public class CommunityDocumentServiceImpl implements CommunityDocumentService {
             Page<CommunityDocument> page = documentRepository.searchByKeyword(keyword, pageable);
 
             // 填充用户状态
-            if (currentUserId != null) {
-                page.getContent().forEach(doc -> {
-                    doc.setIsLiked(likeRepository.existsByDocumentIdAndUserId(doc.getId(), currentUserId));
-                    doc.setIsCollected(collectionRepository.existsByDocumentIdAndUserId(doc.getId(), currentUserId));
-                });
-            }
+            fillViewerState(page.getContent(), currentUserId);
 
             return page;
         });
@@ -348,30 +356,61 @@ public class CommunityDocumentServiceImpl implements CommunityDocumentService {
     @Override
     public Mono<Page<CommunityDocument>> getPopularDocuments(Pageable pageable, String currentUserId) {
         return Mono.fromCallable(() -> {
-            Page<CommunityDocument> page = documentRepository.findPopularDocuments(pageable);
+            Page<CommunityDocument> page = findPopularDocuments(pageable);
 
-            if (currentUserId != null) {
-                page.getContent().forEach(doc -> {
-                    doc.setIsLiked(likeRepository.existsByDocumentIdAndUserId(doc.getId(), currentUserId));
-                    doc.setIsCollected(collectionRepository.existsByDocumentIdAndUserId(doc.getId(), currentUserId));
-                });
-            }
+            fillViewerState(page.getContent(), currentUserId);
 
             return page;
         });
     }
 
+    /**
+     * 热门文档优先从浏览量榜单取ID再批量加载，榜单不可用时按 view_count 查库
+     */
+    private Page<CommunityDocument> findPopularDocuments(Pageable pageable) {
+        HotRankingService.RankPage ranked = hotRankingService.page(
+                HotRankingService.Board.DOC_POPULAR, HotRankingService.GLOBAL, pageable);
+        if (ranked == null) {
+            return documentRepository.findPopularDocuments(pageable);
+        }
+        Map<String, CommunityDocument> byId = documentRepository.findAllById(ranked.ids()).stream()
+                .collect(Collectors.toMap(CommunityDocument::getId, doc -> doc));
+        List<CommunityDocument> documents = ranked.ids().stream()
+                .map(byId::get)
+                .filter(doc -> doc != null && Boolean.TRUE.equals(doc.getIsPublic()))
+                .collect(Collectors.toList());
+        return new PageImpl<>(documents, pageable, ranked.total());
+    }
+
+    /**
+     * 批量填充当前用户的点赞、收藏、关注状态，每种关系最多一次查询
+     */
+    private void fillViewerState(List<CommunityDocument> documents, String userId) {
+        if (userId == null || documents.isEmpty()) {
+            return;
+        }
+        List<String> documentIds = documents.stream().map(CommunityDocument::getId).toList();
+        List<String> authorIds = documents.stream()
+                .map(CommunityDocument::getAuthorId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        Set<String> liked = viewerStateService.resolve(ViewerRelation.DOC_LIKE, userId, documentIds);
+        Set<String> collected = viewerStateService.resolve(ViewerRelation.DOC_COLLECT, userId, documentIds);
+        Set<String> following = viewerStateService.resolve(ViewerRelation.AUTHOR_FOLLOW, userId, authorIds);
+        for (CommunityDocument doc : documents) {
+            doc.setIsLiked(liked.contains(doc.getId()));
+            doc.setIsCollected(collected.contains(doc.getId()));
+            doc.setIsFollowing(doc.getAuthorId() != null && following.contains(doc.getAuthorId()));
+        }
+    }
+
     @Override
     public Mono<Page<CommunityDocument>> getFeaturedDocuments(Pageable pageable, String currentUserId) {
         return Mono.fromCallable(() -> {
             Page<CommunityDocument> page = documentRepository.findFeaturedDocuments(pageable);
 
-            if (currentUserId != null) {
-                page.getContent().forEach(doc -> {
-                    doc.setIsLiked(likeRepository.existsByDocumentIdAndUserId(doc.getId(), currentUserId));
-                    doc.setIsCollected(collectionRepository.existsByDocumentIdAndUserId(doc.getId(), currentUserId));
-                });
-            }
+            fillViewerState(page.getContent(), currentUserId);
 
             return page;
         });
@@ -382,12 +421,7 @@ public class CommunityDocumentServiceImpl implements CommunityDocumentService {
         return Mono.fromCallable(() -> {
             Page<CommunityDocument> page = documentRepository.findLatestDocuments(pageable);
 
-            if (currentUserId != null) {
-                page.getContent().forEach(doc -> {
-                    doc.setIsLiked(likeRepository.existsByDocumentIdAndUserId(doc.getId(), currentUserId));
-                    doc.setIsCollected(collectionRepository.existsByDocumentIdAndUserId(doc.getId(), currentUserId));
-                });
-            }
+            fillViewerState(page.getContent(), currentUserId);
 
             return page;
         });
@@ -402,12 +436,7 @@ public class CommunityDocumentServiceImpl implements CommunityDocumentService {
         return Mono.fromCallable(() -> {
             Page<CommunityDocument> page = documentRepository.findByAuthorIdAndIsPublicTrue(authorId, pageable);
 
-            if (currentUserId != null) {
-                page.getContent().forEach(doc -> {
-                    doc.setIsLiked(likeRepository.existsByDocumentIdAndUserId(doc.getId(), currentUserId));
-                    doc.setIsCollected(collectionRepository.existsByDocumentIdAndUserId(doc.getId(), currentUserId));
-                });
-            }
+            fillViewerState(page.getContent(), currentUserId);
 
             return page;
         });
@@ -532,11 +561,7 @@ public class CommunityDocumentServiceImpl implements CommunityDocumentService {
 
             Page<CommunityDocument> page = documentRepository.findByIdIn(documentIds, pageable);
 
-            page.getContent().forEach(doc -> {
-                doc.setIsLiked(likeRepository.existsByDocumentIdAndUserId(doc.getId(), userId));
-                doc.setIsCollected(true);
-                doc.setIsFollowing(followRepository.existsByFollowerIdAndFollowingId(userId, doc.getAuthorId()));
-            });
+            fillViewerState(page.getContent(), userId);
 
             return page;
         });
@@ -554,6 +579,8 @@ public class CommunityDocumentServiceImpl implements CommunityDocumentService {
             follow.setFollowerId(followerId);
             follow.setFollowingId(followingId);
             followRepository.save(follow);
+            followCountService.onFollowChanged(followerId, followingId, true);
+            activityFeedService.onFollowChanged(followerId);
 
             return true;
         });
@@ -563,7 +590,13 @@ public class CommunityDocumentServiceImpl implements CommunityDocumentService {
     @Transactional
     public Mono<Boolean> unfollowAuthor(String followerId, String followingId) {
         return Mono.fromCallable(() -> {
+            if (!followRepository.existsByFollowerIdAndFollowingId(followerId, followingId)) {
+                return false;
+            }
+
             followRepository.deleteByFollowerIdAndFollowingId(followerId, followingId);
+            followCountService.onFollowChanged(followerId, followingId, false);
+            activityFeedService.onFollowChanged(followerId);
             return true;
         });
     }
@@ -575,6 +608,27 @@ public class CommunityDocumentServiceImpl implements CommunityDocumentService {
         );
     }
 
+    @Override
+    public Mono<CursorPage<CommunityDocument>> getFeed(String userId, String cursor, int size) {
+        return Mono.fromCallable(() -> {
+            CursorPage<String> feed = activityFeedService.getFeed(userId, cursor, size);
+            if (feed.getItems().isEmpty()) {
+                return new CursorPage<CommunityDocument>(List.of(), feed.getNextCursor(), feed.isHasMore());
+            }
+
+            // 批量加载并保持动态顺序，已删除或转为私有的文档跳过
+            Map<String, CommunityDocument> byId = documentRepository.findAllById(feed.getItems()).stream()
+                    .collect(Collectors.toMap(CommunityDocument::getId, doc -> doc));
+            List<CommunityDocument> documents = feed.getItems().stream()
+                    .map(byId::get)
+                    .filter(doc -> doc != null && Boolean.TRUE.equals(doc.getIsPublic())
+                            && "published".equals(doc.getStatus()))
+                    .collect(Collectors.toList());
+            fillViewerState(documents, userId);
+            return new CursorPage<>(documents, feed.getNextCursor(), feed.isHasMore());
+        });
+    }
+
     @Override
     public Mono<Page<CommunityDocument>> getFollowingDocuments(String userId, Pageable pageable) {
         return Mono.fromCallable(() -> {
@@ -586,11 +640,7 @@ public class CommunityDocumentServiceImpl implements CommunityDocumentService {
 
             Page<CommunityDocument> page = documentRepository.findByAuthorIdIn(followingIds, pageable);
 
-            page.getContent().forEach(doc -> {
-                doc.setIsLiked(likeRepository.existsByDocumentIdAndUserId(doc.getId(), userId));
-                doc.setIsCollected(collectionRepository.existsByDocumentIdAndUserId(doc.getId(), userId));
-                doc.setIsFollowing(true);
-            });
+            fillViewerState(page.getContent(), userId);
 
             return page;
         });
@@ -731,7 +781,7 @@ public class CommunityDocumentServiceImpl implements CommunityDocumentService {
     @Transactional
     public Mono<Void> incrementViewCount(String documentId) {
         return Mono.fromRunnable(() ->
-                documentRepository.incrementViewCount(documentId)
+                counterService.increment(CounterTarget.COMMUNITY_DOC_VIEWS, documentId)
         );
     }
 
@@ -820,7 +870,8 @@ public class CommunityDocumentServiceImpl implements CommunityDocumentService {
             Double avgViewDuration = viewRepository.averageViewDurationByDocumentId(documentId);
 
             return DocumentStatistics.builder()
-                    .viewCount(document.getViewCount())
+                    .viewCount(counterService.merged(
+                            CounterTarget.COMMUNITY_DOC_VIEWS, documentId, document.getViewCount()))
                     .likeCount(document.getLikeCount())
                     .collectCount(document.getCollectCount())
                     .commentCount(document.getCommentCount())
@@ -0,0 +1,244 @@
+package com.yunke.backend.document.collaboration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 文档单写者 Actor 调度器
+ *
+ * 每个文档一个邮箱，同一文档的任务严格串行、不同文档之间并行，运行在虚拟线程上，
+ * 不再占用公共 ForkJoinPool，也不需要在读写锁上排队。
+ * - 邮箱中连续的可合并任务（同一个 {@link Coalescer}）会一次性交给合并函数处理
+ * - 邮箱深度有上限，超出时立即以 {@link MailboxFullException} 失败，由调用方通知客户端退避
+ * - 邮箱清空后自动移除，不会随文档数量无限增长
+ */
+@Component
+@Slf4j
+public class DocActorExecutor {
+
+    /**
+     * 批量处理连续的同类任务，返回值与输入一一对应
+     */
+    @FunctionalInterface
+    public interface Coalescer<I, R> {
+        List<R> apply(List<I> batch) throws Exception;
+    }
+
+    /**
+     * 邮箱已满（背压信号）
+     */
+    public static class MailboxFullException extends RejectedExecutionException {
+        private final String docKey;
+        private final int depth;
+
+        public MailboxFullException(String docKey, int depth) {
+            super("文档任务队列已满: " + docKey + ", depth=" + depth);
+            this.docKey = docKey;
+            this.depth = depth;
+        }
+
+        public String getDocKey() {
+            return docKey;
+        }
+
+        public int getDepth() {
+            return depth;
+        }
+    }
+
+    private static final class Task {
+        private final Callable<?> callable;
+        private final Coalescer<Object, Object> coalescer;
+        private final Object item;
+        private final CompletableFuture<Object> future = new CompletableFuture<>();
+
+        private Task(Callable<?> callable, Coalescer<Object, Object> coalescer, Object item) {
+            this.callable = callable;
+            this.coalescer = coalescer;
+            this.item = item;
+        }
+    }
+
+    /**
+     * 邮箱状态只在 mailboxes 的 compute 中修改，由 ConcurrentHashMap 的桶锁保证原子性
+     */
+    private static final class Mailbox {
+        private final Queue<Task> queue = new ArrayDeque<>();
+        private boolean running;
+    }
+
+    private final ConcurrentHashMap<String, Mailbox> mailboxes = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("doc-actor-", 0).factory());
+    private final int maxQueueDepth;
+    private final int maxBatchSize;
+
+    public DocActorExecutor(
+            @Value("${collaboration.actor.max-queue-depth:256}") int maxQueueDepth,
+            @Value("${collaboration.actor.max-batch-size:64}") int maxBatchSize) {
+        this.maxQueueDepth = maxQueueDepth;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * 提交普通任务
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> submit(String docKey, Callable<T> callable) {
+        return (CompletableFuture<T>) enqueue(docKey, new Task(callable, null, null));
+    }
+
+    /**
+     * 提交可合并任务：邮箱中紧邻的、使用同一个 coalescer 的任务会被合并为一批执行
+     */
+    @SuppressWarnings("unchecked")
+    public <I, R> CompletableFuture<R> submitCoalescing(String docKey, I item, Coalescer<I, R> coalescer) {
+        return (CompletableFuture<R>) enqueue(docKey,
+                new Task(null, (Coalescer<Object, Object>) (Coalescer<?, ?>) coalescer, item));
+    }
+
+    /**
+     * 当前排队中的任务数
+     */
+    public int queueDepth(String docKey) {
+        int[] depth = {0};
+        mailboxes.computeIfPresent(docKey, (key, mailbox) -> {
+            depth[0] = mailbox.queue.size();
+            return mailbox;
+        });
+        return depth[0];
+    }
+
+    public int activeMailboxes() {
+        return mailboxes.size();
+    }
+
+    private CompletableFuture<Object> enqueue(String docKey, Task task) {
+        boolean[] start = {false};
+        int[] rejectedDepth = {-1};
+        mailboxes.compute(docKey, (key, mailbox) -> {
+            if (mailbox == null) {
+                mailbox = new Mailbox();
+            }
+            if (mailbox.queue.size() >= maxQueueDepth) {
+                rejectedDepth[0] = mailbox.queue.size();
+                return mailbox;
+            }
+            mailbox.queue.add(task);
+            if (!mailbox.running) {
+                mailbox.running = true;
+                start[0] = true;
+            }
+            return mailbox;
+        });
+
+        if (rejectedDepth[0] >= 0) {
+            log.warn("⏳ [DocActorExecutor] 文档任务队列已满，拒绝新任务: docKey={}, depth={}", docKey, rejectedDepth[0]);
+            task.future.completeExceptionally(new MailboxFullException(docKey, rejectedDepth[0]));
+        } else if (start[0]) {
+            try {
+                executor.execute(() -> drain(docKey));
+            } catch (RejectedExecutionException e) {
+                failAll(docKey, e);
+            }
+        }
+        return task.future;
+    }
+
+    /**
+     * 串行处理邮箱中的任务，直到邮箱为空
+     */
+    private void drain(String docKey) {
+        while (true) {
+            List<Task> batch = takeBatch(docKey);
+            if (batch.isEmpty()) {
+                return;
+            }
+            run(docKey, batch);
+        }
+    }
+
+    /**
+     * 取出下一个任务；若为可合并任务，连同后续使用同一 coalescer 的任务一起取出。
+     * 邮箱为空时在同一个原子操作里移除邮箱
+     */
+    private List<Task> takeBatch(String docKey) {
+        List<Task> batch = new ArrayList<>();
+        mailboxes.computeIfPresent(docKey, (key, mailbox) -> {
+            Task first = mailbox.queue.poll();
+            if (first == null) {
+                mailbox.running = false;
+                return null;
+            }
+            batch.add(first);
+            if (first.coalescer != null) {
+                while (batch.size() < maxBatchSize) {
+                    Task next = mailbox.queue.peek();
+                    if (next == null || next.coalescer != first.coalescer) {
+                        break;
+                    }
+                    batch.add(mailbox.queue.poll());
+                }
+            }
+            return mailbox;
+        });
+        return batch;
+    }
+
+    private void run(String docKey, List<Task> batch) {
+        Task first = batch.get(0);
+        try {
+            if (first.coalescer == null) {
+                first.future.complete(first.callable.call());
+                return;
+            }
+            List<Object> items = new ArrayList<>(batch.size());
+            for (Task task : batch) {
+                items.add(task.item);
+            }
+            if (batch.size() > 1) {
+                log.debug("🧩 [DocActorExecutor] 合并 {} 个连续任务: docKey={}", batch.size(), docKey);
+            }
+            List<Object> results = first.coalescer.apply(items);
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).future.complete(results != null && i < results.size() ? results.get(i) : null);
+            }
+        } catch (Throwable e) {
+            log.error("❌ [DocActorExecutor] 文档任务执行失败: docKey={}", docKey, e);
+            batch.forEach(task -> task.future.completeExceptionally(e));
+        }
+    }
+
+    private void failAll(String docKey, Throwable cause) {
+        Mailbox mailbox = mailboxes.remove(docKey);
+        if (mailbox != null) {
+            mailbox.queue.forEach(task -> task.future.completeExceptionally(cause));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("⚠️ [DocActorExecutor] 文档任务未在30秒内完成");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
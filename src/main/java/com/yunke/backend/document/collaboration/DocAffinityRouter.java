@@ -0,0 +1,153 @@
+package com.yunke.backend.document.collaboration;
+
+import com.yunke.backend.common.util.ConsistentHashRing;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 文档到应用节点的亲和路由
+ *
+ * 各节点按相同的成员列表构建一致性哈希环，因此对同一 docKey 给出相同的所有者节点。
+ * onLoadDoc 的 ack 中带上 {@code affinity} 提示，客户端以 {@code ?affinity=<node>} 重连，
+ * 负载均衡器据此粘滞（如 nginx {@code hash $arg_affinity consistent}），
+ * 使热文档的 DocState 只在一个节点上常驻。
+ *
+ * 应用节点之间没有共享的负载视图，这里只使用所有者（不做有界负载溢出），保证各节点提示一致；
+ * 有界负载用于能观测到实时负载的 yjs-service 实例选择。
+ *
+ * 成员以 collaboration.cluster.nodes 为初始值；配置了 self-id 时，各节点每隔 heartbeat-ms
+ * 把自己写入 Redis 有序集合（score 为心跳时间），并按 member-ttl-ms 内有心跳的成员
+ * 调用 {@link #join}/{@link #leave} 更新哈希环，只有约 1/n 的文档改变所有者。
+ * 正常停机时立即移出集合；Redis 不可用时保留当前成员。
+ */
+@Component
+@Slf4j
+public class DocAffinityRouter {
+
+    private static final String MEMBERS_KEY = "collaboration:cluster:members";
+
+    private final ConsistentHashRing<String> ring;
+    private final String selfId;
+    private final StringRedisTemplate redisTemplate;
+    private final long memberTtlMs;
+
+    public DocAffinityRouter(
+            StringRedisTemplate redisTemplate,
+            @Value("${collaboration.cluster.nodes:}") String nodes,
+            @Value("${collaboration.cluster.self-id:}") String selfId,
+            @Value("${collaboration.cluster.virtual-nodes:160}") int virtualNodes,
+            @Value("${collaboration.cluster.member-ttl-ms:30000}") long memberTtlMs) {
+        this.redisTemplate = redisTemplate;
+        this.memberTtlMs = memberTtlMs;
+        this.ring = new ConsistentHashRing<>(virtualNodes, 1.0);
+        this.selfId = selfId == null ? "" : selfId.trim();
+        List<String> members = Arrays.stream(nodes.split(","))
+                .map(String::trim)
+                .filter(node -> !node.isEmpty())
+                .toList();
+        ring.reset(members);
+        if (ring.size() > 1) {
+            log.info("🧭 [DocAffinityRouter] 文档亲和路由已启用: nodes={}, self={}", members, this.selfId);
+        }
+    }
+
+    /**
+     * 是否启用（至少两个节点）
+     */
+    public boolean isEnabled() {
+        return ring.size() > 1;
+    }
+
+    /**
+     * 文档的所有者节点，未启用时返回 null
+     */
+    public String ownerOf(String workspaceId, String docId) {
+        return isEnabled() ? ring.primary(workspaceId + ":" + docId) : null;
+    }
+
+    /**
+     * 文档是否归属本节点；未启用或未配置 self-id 时视为本地
+     */
+    public boolean isLocal(String workspaceId, String docId) {
+        String owner = ownerOf(workspaceId, docId);
+        return owner == null || selfId.isEmpty() || owner.equals(selfId);
+    }
+
+    /**
+     * 节点加入
+     */
+    public void join(String nodeId) {
+        ring.add(nodeId);
+        log.info("🧭 [DocAffinityRouter] 节点加入: {}, 当前节点数={}", nodeId, ring.size());
+    }
+
+    /**
+     * 节点离开
+     */
+    public void leave(String nodeId) {
+        ring.remove(nodeId);
+        log.info("🧭 [DocAffinityRouter] 节点离开: {}, 当前节点数={}", nodeId, ring.size());
+    }
+
+    public List<String> nodes() {
+        return ring.nodes();
+    }
+
+    /**
+     * 写入本节点心跳，并按存活成员增删哈希环上的节点
+     */
+    @Scheduled(fixedDelayString = "${collaboration.cluster.heartbeat-ms:10000}")
+    public void heartbeat() {
+        if (selfId.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Set<String> live;
+        try {
+            redisTemplate.opsForZSet().add(MEMBERS_KEY, selfId, now);
+            redisTemplate.opsForZSet().removeRangeByScore(MEMBERS_KEY, 0, now - memberTtlMs);
+            live = redisTemplate.opsForZSet().rangeByScore(MEMBERS_KEY, now - memberTtlMs, Double.MAX_VALUE);
+        } catch (Exception e) {
+            log.warn("⚠️ [DocAffinityRouter] 集群心跳失败，保留当前成员: {}", e.getMessage());
+            return;
+        }
+        if (live == null) {
+            return;
+        }
+        Set<String> members = new HashSet<>(live);
+        members.add(selfId);
+
+        Set<String> current = new HashSet<>(ring.nodes());
+        for (String node : current) {
+            if (!members.contains(node)) {
+                leave(node);
+            }
+        }
+        for (String node : members) {
+            if (!current.contains(node)) {
+                join(node);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (selfId.isEmpty()) {
+            return;
+        }
+        try {
+            redisTemplate.opsForZSet().remove(MEMBERS_KEY, selfId);
+        } catch (Exception e) {
+            log.warn("⚠️ [DocAffinityRouter] 移出集群成员失败: {}", e.getMessage());
+        }
+    }
+}
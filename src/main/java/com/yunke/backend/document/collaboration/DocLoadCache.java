@@ -0,0 +1,230 @@
+package com.yunke.backend.document.collaboration;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.yunke.backend.document.event.DocUpdatedEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 文档加载结果缓存（onLoadDoc）
+ *
+ * 缓存某个文档版本（存储时间戳）的完整更新与编码后的状态向量，并为每个版本保留一个
+ * 按客户端状态向量索引的小型 diff LRU。多个客户端同时打开同一文档时只加载、编码一次：
+ * 并发的首次加载由 Caffeine 合并为一次，后续请求直接命中。
+ *
+ * 任何写入路径发布 {@link DocUpdatedEvent} 后（协作推送、REST applyYjsUpdate 等）旧版本失效。
+ * 本节点立即失效；通知其他节点的 Redis 广播在独立线程上每隔 invalidate-interval-ms 发送一次，
+ * 同一文档在一个周期内的多次写入只广播一次，多个文档合并为一条消息，
+ * 避免在写后日志的刷写线程上逐条同步 publish。广播丢失时由 expire-after-write 兜底。
+ */
+@Slf4j
+@Component
+public class DocLoadCache {
+
+    private static final String INVALIDATE_CHANNEL = "doc:load:invalidate";
+
+    /**
+     * 某个文档版本的加载结果
+     */
+    public static final class Entry {
+        private final byte[] update;
+        private final byte[] stateVector;
+        private final long timestamp;
+        private final Map<String, byte[]> diffs;
+
+        Entry(byte[] update, byte[] stateVector, long timestamp, int maxDiffs) {
+            this.update = update;
+            this.stateVector = stateVector;
+            this.timestamp = timestamp;
+            this.diffs = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+                    return size() > maxDiffs;
+                }
+            };
+        }
+
+        public byte[] update() {
+            return update;
+        }
+
+        public byte[] stateVector() {
+            return stateVector;
+        }
+
+        public long timestamp() {
+            return timestamp;
+        }
+
+        /**
+         * 获取相对客户端状态向量的 diff，未命中时计算并缓存
+         *
+         * @param stateVectorKey 客户端状态向量的稳定表示（如 Base64 字符串）
+         */
+        public byte[] diff(String stateVectorKey, Supplier<byte[]> differ) {
+            synchronized (diffs) {
+                byte[] cached = diffs.get(stateVectorKey);
+                if (cached != null) {
+                    return cached;
+                }
+            }
+            byte[] computed = differ.get();
+            synchronized (diffs) {
+                diffs.put(stateVectorKey, computed);
+            }
+            return computed;
+        }
+
+        /**
+         * 缓存权重按完整更新与状态向量计算，diff 数量另由 max-diffs-per-doc 限制
+         */
+        int weight() {
+            return update.length + stateVector.length;
+        }
+    }
+
+    private final Cache<String, Entry> cache;
+    private final int maxDiffsPerDoc;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Set<String> pendingBroadcasts = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService broadcaster = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "doc-load-invalidate");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public DocLoadCache(
+            StringRedisTemplate redisTemplate,
+            RedisMessageListenerContainer listenerContainer,
+            @Value("${collaboration.load-cache.max-bytes:67108864}") long maxBytes,
+            @Value("${collaboration.load-cache.expire-after-write-seconds:30}") long expireSeconds,
+            @Value("${collaboration.load-cache.max-diffs-per-doc:16}") int maxDiffsPerDoc,
+            @Value("${collaboration.load-cache.invalidate-interval-ms:50}") long invalidateIntervalMs) {
+        this.maxDiffsPerDoc = maxDiffsPerDoc;
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, Entry entry) -> Math.max(1, entry.weight()))
+                .expireAfterWrite(Duration.ofSeconds(expireSeconds))
+                .build();
+        broadcaster.scheduleWithFixedDelay(this::broadcastPending,
+                invalidateIntervalMs, invalidateIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        listenerContainer.addMessageListener(this::onInvalidateMessage, new ChannelTopic(INVALIDATE_CHANNEL));
+        log.info("📦 [DocLoadCache] 已订阅文档加载缓存失效频道: {}", INVALIDATE_CHANNEL);
+    }
+
+    /**
+     * 获取文档加载结果；loader 返回 null（文档不存在）时不缓存
+     */
+    public Entry get(String workspaceId, String docId, Supplier<Entry> loader) {
+        return cache.get(docKey(workspaceId, docId), key -> loader.get());
+    }
+
+    /**
+     * 新建缓存条目
+     */
+    public Entry newEntry(byte[] update, byte[] stateVector, long timestamp) {
+        return new Entry(update, stateVector, timestamp, maxDiffsPerDoc);
+    }
+
+    /**
+     * 文档有新的写入后本地立即失效，并登记到下一次广播；正在进行的加载完成后同样会被移除
+     */
+    public void invalidate(String workspaceId, String docId) {
+        String key = docKey(workspaceId, docId);
+        cache.invalidate(key);
+        pendingBroadcasts.add(key);
+    }
+
+    /**
+     * 文档更新提交后失效；没有事务的写入立即失效
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDocUpdated(DocUpdatedEvent event) {
+        invalidate(event.getWorkspaceId(), event.getDocId());
+    }
+
+    /**
+     * 把本周期登记的文档一次性广播给其他节点，消息格式：nodeId|key1\nkey2...
+     */
+    void broadcastPending() {
+        if (pendingBroadcasts.isEmpty()) {
+            return;
+        }
+        List<String> keys = new ArrayList<>(pendingBroadcasts.size());
+        for (String key : pendingBroadcasts) {
+            // 先移除再广播：广播期间的新写入会留到下一周期，不会丢失
+            if (pendingBroadcasts.remove(key)) {
+                keys.add(key);
+            }
+        }
+        if (keys.isEmpty()) {
+            return;
+        }
+        try {
+            redisTemplate.convertAndSend(INVALIDATE_CHANNEL, nodeId + "|" + String.join("\n", keys));
+        } catch (Exception e) {
+            log.warn("⚠️ [DocLoadCache] 发布失效消息失败: docs={}", keys.size(), e);
+        }
+    }
+
+    private void onInvalidateMessage(Message message, byte[] pattern) {
+        String payload = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = payload.indexOf('|');
+        if (separator < 0) {
+            cache.invalidateAll();
+            return;
+        }
+        // 本节点已在写入后直接失效
+        if (!payload.substring(0, separator).equals(nodeId)) {
+            for (String key : payload.substring(separator + 1).split("\n")) {
+                cache.invalidate(key);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        broadcaster.shutdown();
+        try {
+            broadcaster.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        broadcastPending();
+    }
+
+    private static String docKey(String workspaceId, String docId) {
+        return workspaceId + ":" + docId;
+    }
+}
@@ -0,0 +1,160 @@
+package com.yunke.backend.document.collaboration;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.yunke.backend.document.collaboration.model.DocState;
+import com.yunke.backend.document.service.DocUpdateWriteBehindLog;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * 协作文档状态缓存
+ *
+ * 以文档字节数为权重的有界缓存，替代 SpaceSyncGateway 中无上限的 docStates / docLocks：
+ * - 总权重超过堆预算时按 W-TinyLFU 淘汰，空闲超时的文档自动过期
+ * - 文档锁与文档状态放在同一个条目里，随状态一起释放
+ * - 被淘汰的脏文档先写回存储，再从内存移除
+ */
+@Component
+@Slf4j
+public class DocStateCache {
+
+    /**
+     * 缓存条目：文档状态与其读写锁
+     */
+    public record Entry(String workspaceId, String docId, DocState state, ReentrantReadWriteLock lock) {
+    }
+
+    private final DocUpdateWriteBehindLog updateLog;
+    private final ExecutorService writeBackExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "doc-state-write-back");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Cache<String, Entry> cache;
+
+    public DocStateCache(
+            DocUpdateWriteBehindLog updateLog,
+            MeterRegistry meterRegistry,
+            @Value("${collaboration.doc-cache.max-bytes:268435456}") long maxBytes,
+            @Value("${collaboration.doc-cache.idle-timeout-minutes:60}") long idleTimeoutMinutes) {
+        this.updateLog = updateLog;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, Entry entry) -> Math.max(1, entry.state().getSize()))
+                .expireAfterAccess(Duration.ofMinutes(idleTimeoutMinutes))
+                .executor(writeBackExecutor)
+                .removalListener(this::onRemoval)
+                .recordStats()
+                .build();
+
+        Gauge.builder("collaboration_doc_cache_docs", cache, Cache::estimatedSize)
+                .description("Resident collaboration documents")
+                .register(meterRegistry);
+        Gauge.builder("collaboration_doc_cache_bytes", cache,
+                        c -> c.policy().eviction().map(e -> e.weightedSize().orElse(0)).orElse(0L))
+                .description("Estimated bytes held by resident collaboration documents")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("collaboration_doc_cache_hit_rate", cache, c -> c.stats().hitRate())
+                .description("Collaboration document cache hit rate")
+                .register(meterRegistry);
+        FunctionCounter.builder("collaboration_doc_cache_evictions", cache, c -> c.stats().evictionCount())
+                .description("Collaboration documents evicted from memory")
+                .register(meterRegistry);
+
+        log.info("📦 [DocStateCache] 初始化完成: maxBytes={}, idleTimeout={}min", maxBytes, idleTimeoutMinutes);
+    }
+
+    /**
+     * 获取文档条目，不存在时通过 loader 加载
+     */
+    public Entry get(String workspaceId, String docId, Supplier<DocState> loader) {
+        return cache.get(docKey(workspaceId, docId),
+                key -> new Entry(workspaceId, docId, loader.get(), new ReentrantReadWriteLock()));
+    }
+
+    /**
+     * 获取已驻留的文档条目，不触发加载
+     */
+    public Entry getIfPresent(String workspaceId, String docId) {
+        return cache.getIfPresent(docKey(workspaceId, docId));
+    }
+
+    /**
+     * 文档内容变化后重新计算权重
+     */
+    public void reweigh(String workspaceId, String docId) {
+        cache.asMap().computeIfPresent(docKey(workspaceId, docId), (key, entry) -> entry);
+    }
+
+    /**
+     * 执行挂起的过期与淘汰
+     */
+    public void cleanUp() {
+        cache.cleanUp();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    public long weightedSize() {
+        return cache.policy().eviction().map(e -> e.weightedSize().orElse(0)).orElse(0L);
+    }
+
+    /**
+     * 脏文档在淘汰/过期/失效时写回存储（全量文档作为一条更新，CRDT 合并幂等）
+     */
+    private void onRemoval(String key, Entry entry, RemovalCause cause) {
+        if (entry == null || cause == RemovalCause.REPLACED || !entry.state().isDirty()) {
+            return;
+        }
+        ReentrantReadWriteLock lock = entry.lock();
+        lock.readLock().lock();
+        try {
+            long version = entry.state().getVersion();
+            byte[] currentDoc = entry.state().getCurrentDoc();
+            if (currentDoc != null && currentDoc.length > 0) {
+                updateLog.persistNow(entry.workspaceId(), entry.docId(), currentDoc, "system");
+            }
+            entry.state().markSnapshotSaved(version);
+            log.info("💾 [DocStateCache] 移除前写回文档: docKey={}, cause={}", key, cause);
+        } catch (Exception e) {
+            log.error("❌ [DocStateCache] 写回文档失败: docKey={}, cause={}", key, cause, e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        cache.invalidateAll();
+        cache.cleanUp();
+        writeBackExecutor.shutdown();
+        try {
+            if (!writeBackExecutor.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("⚠️ [DocStateCache] 写回任务未在30秒内完成");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String docKey(String workspaceId, String docId) {
+        return workspaceId + ":" + docId;
+    }
+}
@@ -1,5 +1,6 @@
 package com.yunke.backend.document.collaboration;
 
+import com.yunke.backend.document.service.DocUpdateWriteBehindLog;
 import com.yunke.backend.document.service.YjsServiceClient;
 import com.yunke.backend.storage.impl.WorkspaceDocStorageAdapter;
 import com.yunke.backend.workspace.service.WorkspaceDocService;
@@ -7,8 +8,10 @@ import com.yunke.backend.document.collaboration.model.DocState;
 import com.yunke.backend.document.collaboration.model.SyncMessage;
 import com.yunke.backend.common.concurrency.ConcurrencyControlService;
 import com.yunke.backend.security.util.JwtUtil;
+import com.yunke.backend.document.event.DocUpdatedEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
 
 import java.io.*;
@@ -31,7 +34,9 @@ import jakarta.annotation.PreDestroy;
  * 4. 提供WebSocket事件处理接口
  * 
  * 架构说明：
- * - 使用 YjsServiceClient 调用 Node.js yjs-service 进行 CRDT 合并
+ * - 使用 YjsServiceClient 进行 CRDT 合并（JVM 内置编解码或 Node.js yjs-service）
+ * - 内置编解码模式下 DocState 增量维护结构体存储，不再每次整文档重新合并
+ * - 同一文档的消息经 DocActorExecutor 串行处理，连续更新合并为一次应用
  * - Java 后端只负责保存原始更新和业务逻辑
  * 
  * 对应开源AFFiNE代码：
@@ -47,12 +52,27 @@ public class SpaceSyncGateway {
     private final ConcurrencyControlService concurrencyControl;
     private final com.corundumstudio.socketio.SocketIOServer socketIOServer;  // Socket.IO 服务器实例
     private final JwtUtil jwtUtil;  // JWT工具类，用于解析token获取用户ID
+    private final DocStateCache docStateCache;  // 有界文档状态缓存（状态 + 文档锁）
     private final ScheduledExecutorService broadcastScheduler = Executors.newScheduledThreadPool(1, runnable -> {
         Thread thread = new Thread(runnable, "doc-broadcast-flusher");
         thread.setDaemon(true);
         return thread;
     });
     
+    private final DocActorExecutor docActorExecutor;  // 文档单写者调度器
+    private final DocUpdateWriteBehindLog updateLog;  // 文档更新写后日志
+    private final DocLoadCache docLoadCache;  // 文档加载结果缓存
+    private final DocAffinityRouter affinityRouter;  // 文档到应用节点的亲和路由
+    private final ApplicationEventPublisher eventPublisher;  // 文档更新事件（驱动搜索增量索引）
+    private final DocActorExecutor.Coalescer<PendingUpdate, List<byte[]>> updateCoalescer =
+            batch -> handleSyncUpdates(batch.get(0).workspaceId(), batch.get(0).docId(), batch);
+
+    /**
+     * 排队等待应用的客户端更新
+     */
+    private record PendingUpdate(String workspaceId, String docId, String clientId, byte[] payload) {
+    }
+    
     // 显式构造函数，使用 @Lazy 解决循环依赖
     public SpaceSyncGateway(
             YjsServiceClient yjsServiceClient,
@@ -60,20 +80,26 @@ public class SpaceSyncGateway {
             WorkspaceDocService docService,
             ConcurrencyControlService concurrencyControl,
             @org.springframework.context.annotation.Lazy com.corundumstudio.socketio.SocketIOServer socketIOServer,
-            JwtUtil jwtUtil) {
+            JwtUtil jwtUtil,
+            DocStateCache docStateCache,
+            DocActorExecutor docActorExecutor,
+            DocUpdateWriteBehindLog updateLog,
+            DocLoadCache docLoadCache,
+            DocAffinityRouter affinityRouter,
+            ApplicationEventPublisher eventPublisher) {
         this.yjsServiceClient = yjsServiceClient;
         this.storageAdapter = storageAdapter;
         this.docService = docService;
         this.concurrencyControl = concurrencyControl;
         this.socketIOServer = socketIOServer;
         this.jwtUtil = jwtUtil;
+        this.docStateCache = docStateCache;
+        this.docActorExecutor = docActorExecutor;
+        this.updateLog = updateLog;
+        this.docLoadCache = docLoadCache;
+        this.affinityRouter = affinityRouter;
+        this.eventPublisher = eventPublisher;
     }
-    
-    // 文档状态缓存 - workspaceId:docId -> DocState
-    private final Map<String, DocState> docStates = new ConcurrentHashMap<>();
-
-    // 读写锁管理器 - workspaceId:docId -> ReadWriteLock
-    private final Map<String, ReentrantReadWriteLock> docLocks = new ConcurrentHashMap<>();
 
     private static final long BROADCAST_DEBOUNCE_MS = 40L;
     private final ConcurrentHashMap<String, BroadcastBuffer> broadcastBuffers = new ConcurrentHashMap<>();
@@ -109,19 +135,31 @@ public class SpaceSyncGateway {
         log.info("🔄 [SpaceSyncGateway] 处理同步消息: docKey={}, clientId={}, messageSize={}B", 
                 docKey, clientId, message.length);
         
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                // 解析消息
-                SyncMessage syncMessage = parseSyncMessage(message);
-                log.debug("📨 [SpaceSyncGateway] 解析消息: type={}, syncType={}", 
-                         syncMessage.getMessageType(), syncMessage.getSyncType());
-                
-                // 获取文档锁
-                ReentrantReadWriteLock lock = getDocLock(docKey);
-                
+        // 解析消息
+        SyncMessage syncMessage;
+        try {
+            syncMessage = parseSyncMessage(message);
+        } catch (Exception e) {
+            log.error("❌ [SpaceSyncGateway] 解析同步消息失败: docKey={}", docKey, e);
+            return CompletableFuture.completedFuture(Collections.emptyList());
+        }
+        log.debug("📨 [SpaceSyncGateway] 解析消息: type={}, syncType={}", 
+                 syncMessage.getMessageType(), syncMessage.getSyncType());
+
+        // 同一文档的所有消息进入该文档的邮箱串行执行；连续的更新合并为一次应用
+        CompletableFuture<List<byte[]>> future;
+        if (syncMessage.getMessageType() == YJS_MSG_SYNC
+                && (syncMessage.getSyncType() == YJS_SYNC_STEP2 || syncMessage.getSyncType() == YJS_SYNC_UPDATE)) {
+            future = docActorExecutor.submitCoalescing(docKey,
+                    new PendingUpdate(workspaceId, docId, clientId, syncMessage.getPayload()),
+                    updateCoalescer);
+        } else {
+            future = docActorExecutor.submit(docKey, () -> {
                 switch (syncMessage.getMessageType()) {
                     case YJS_MSG_SYNC:
-                        return handleYjsSyncMessage(workspaceId, docId, syncMessage, clientId, lock);
+                        // 文档锁与文档状态取自同一个缓存条目，避免中途被淘汰后锁与状态错配
+                        DocStateCache.Entry entry = getOrLoadEntry(workspaceId, docId);
+                        return handleYjsSyncMessage(workspaceId, docId, syncMessage, clientId, entry);
                         
                     case YJS_MSG_AWARENESS:
                         return handleAwarenessMessage(workspaceId, docId, syncMessage, clientId);
@@ -133,11 +171,21 @@ public class SpaceSyncGateway {
                         log.warn("⚠️ [SpaceSyncGateway] 未知消息类型: {}", syncMessage.getMessageType());
                         return Collections.emptyList();
                 }
-                
-            } catch (Exception e) {
-                log.error("❌ [SpaceSyncGateway] 处理同步消息失败: docKey={}", docKey, e);
-                return Collections.emptyList();
+            });
+        }
+
+        // 背压异常交给调用方通知客户端，其余异常保持原有行为：记录日志并返回空响应
+        return future.handle((responses, throwable) -> {
+            if (throwable == null) {
+                return responses;
+            }
+            Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                    ? throwable.getCause() : throwable;
+            if (cause instanceof DocActorExecutor.MailboxFullException) {
+                throw new CompletionException(cause);
             }
+            log.error("❌ [SpaceSyncGateway] 处理同步消息失败: docKey={}", docKey, cause);
+            return Collections.<byte[]>emptyList();
         });
     }
     
@@ -149,7 +197,7 @@ public class SpaceSyncGateway {
             String docId, 
             SyncMessage syncMessage, 
             String clientId,
-            ReentrantReadWriteLock lock) throws IOException {
+            DocStateCache.Entry entry) throws IOException {
         
         List<byte[]> responses = new ArrayList<>();
         String docKey = workspaceId + ":" + docId;
@@ -158,19 +206,15 @@ public class SpaceSyncGateway {
             case YJS_SYNC_STEP1:
                 // 客户端请求状态向量
                 log.info("📥 [SpaceSyncGateway] Step1 - 客户端请求状态向量: docKey={}", docKey);
-                responses.addAll(handleSyncStep1(workspaceId, docId, syncMessage, clientId, lock));
+                responses.addAll(handleSyncStep1(workspaceId, docId, syncMessage, clientId, entry));
                 break;
                 
             case YJS_SYNC_STEP2:
-                // 客户端发送更新数据
-                log.info("📤 [SpaceSyncGateway] Step2 - 客户端发送更新: docKey={}", docKey);
-                responses.addAll(handleSyncStep2(workspaceId, docId, syncMessage, clientId, lock));
-                break;
-                
             case YJS_SYNC_UPDATE:
-                // 增量更新
-                log.info("🔄 [SpaceSyncGateway] Update - 增量更新: docKey={}", docKey);
-                responses.addAll(handleSyncUpdate(workspaceId, docId, syncMessage, clientId, lock));
+                // 客户端发送更新数据（正常情况下经 updateCoalescer 批量处理）
+                log.info("📤 [SpaceSyncGateway] Step2/Update - 客户端发送更新: docKey={}", docKey);
+                responses.addAll(handleSyncUpdates(workspaceId, docId,
+                        List.of(new PendingUpdate(workspaceId, docId, clientId, syncMessage.getPayload()))).get(0));
                 break;
                 
             default:
@@ -189,11 +233,12 @@ public class SpaceSyncGateway {
             String docId, 
             SyncMessage syncMessage, 
             String clientId,
-            ReentrantReadWriteLock lock) throws IOException {
+            DocStateCache.Entry entry) throws IOException {
         
         List<byte[]> responses = new ArrayList<>();
         String docKey = workspaceId + ":" + docId;
         
+        ReentrantReadWriteLock lock = entry.lock();
         lock.readLock().lock();
         try {
             // 获取客户端状态向量
@@ -201,7 +246,7 @@ public class SpaceSyncGateway {
             log.debug("📊 [SpaceSyncGateway] 客户端状态向量: size={}B", clientStateVector.length);
             
             // 获取服务器文档状态
-            DocState docState = getOrCreateDocState(workspaceId, docId);
+            DocState docState = entry.state();
             byte[] serverDoc = docState.getCurrentDoc();
             
             if (serverDoc == null || serverDoc.length == 0) {
@@ -211,10 +256,16 @@ public class SpaceSyncGateway {
                 docState.setCurrentDoc(serverDoc);
             }
             
-            // 🔥 使用 yjs-service 计算差异更新
+            // 🔥 使用 yjs-service 计算差异更新（同一文档版本下按客户端状态向量缓存）
             byte[] diffUpdate = null;
             if (serverDoc.length > 0) {
-                diffUpdate = yjsServiceClient.diffUpdate(serverDoc, clientStateVector);
+                String stateVectorKey = Base64.getEncoder().encodeToString(clientStateVector);
+                long version = docState.getVersion();
+                diffUpdate = docState.getCachedDiff(stateVectorKey);
+                if (diffUpdate == null) {
+                    diffUpdate = yjsServiceClient.diffUpdate(docKey, serverDoc, clientStateVector);
+                    docState.cacheDiff(stateVectorKey, diffUpdate, version);
+                }
             } else {
                 diffUpdate = serverDoc;
             }
@@ -230,10 +281,12 @@ public class SpaceSyncGateway {
                 log.debug("✅ [SpaceSyncGateway] 客户端已是最新状态: docKey={}", docKey);
             }
             
-            // 🔥 使用 yjs-service 编码状态向量
-            byte[] serverStateVector = null;
-            if (serverDoc.length > 0) {
-                serverStateVector = yjsServiceClient.encodeStateVector(serverDoc);
+            // 🔥 增量模式下直接使用缓存的状态向量，否则使用 yjs-service 编码
+            byte[] serverStateVector = docState.getStateVector();
+            if (serverStateVector != null) {
+                log.debug("📊 [SpaceSyncGateway] 使用缓存状态向量: docKey={}", docKey);
+            } else if (serverDoc.length > 0) {
+                serverStateVector = yjsServiceClient.encodeStateVector(docKey, serverDoc);
             } else {
                 serverStateVector = new byte[0];
             }
@@ -248,66 +301,109 @@ public class SpaceSyncGateway {
     }
     
     /**
-     * 处理同步步骤2：客户端发送更新数据
-     * 服务器应用更新并可能返回冲突解决后的数据
+     * 处理同步步骤2 / 增量更新：客户端发送更新数据
+     * 邮箱中连续排队的更新作为一批应用：内置编解码模式逐个追加到结构体存储，
+     * 远程模式先尝试一次 mergeUpdates，失败时拆开逐个重试。
+     * 每个更新单独判定：被拒绝的更新不落库、不回执（返回空响应），不影响同批其他更新。
+     * 返回值与输入一一对应
      */
-    private List<byte[]> handleSyncStep2(
-            String workspaceId, 
-            String docId, 
-            SyncMessage syncMessage, 
-            String clientId,
-            ReentrantReadWriteLock lock) throws IOException {
+    private List<List<byte[]>> handleSyncUpdates(
+            String workspaceId,
+            String docId,
+            List<PendingUpdate> batch) throws IOException {
         
-        List<byte[]> responses = new ArrayList<>();
         String docKey = workspaceId + ":" + docId;
+        List<List<byte[]>> responses = new ArrayList<>(batch.size());
+        DocStateCache.Entry entry = getOrLoadEntry(workspaceId, docId);
+        ReentrantReadWriteLock lock = entry.lock();
         
         lock.writeLock().lock();
         try {
-            byte[] clientUpdate = syncMessage.getPayload();
-            log.info("📥 [SpaceSyncGateway] 接收客户端更新: docKey={}, updateSize={}B", 
-                    docKey, clientUpdate.length);
+            log.info("📥 [SpaceSyncGateway] 接收客户端更新: docKey={}, count={}, totalSize={}B", 
+                    docKey, batch.size(), batch.stream().mapToLong(update -> update.payload().length).sum());
             
             // 获取文档状态
-            DocState docState = getOrCreateDocState(workspaceId, docId);
-            byte[] currentDoc = docState.getCurrentDoc();
-            
-            // 应用客户端更新
-            List<byte[]> updates = new ArrayList<>();
-            if (currentDoc != null && currentDoc.length > 0) {
-                updates.add(currentDoc);
-            }
-            updates.add(clientUpdate);
-            
-            // 🔥 使用 yjs-service 微服务合并更新
-            log.info("📞 [SpaceSyncGateway] 调用 yjs-service 合并 {} 个更新", updates.size());
-            byte[] mergedDoc = yjsServiceClient.mergeUpdates(updates);
-            docState.setCurrentDoc(mergedDoc);
-            docState.setLastModified(System.currentTimeMillis());
-            
-            log.info("✅ [SpaceSyncGateway] 文档更新完成: docKey={}, newSize={}B", 
-                    docKey, mergedDoc.length);
+            DocState docState = entry.state();
+            // 每个更新应用后的文档版本，-1 表示被拒绝
+            long[] appliedVersions = new long[batch.size()];
+            Arrays.fill(appliedVersions, -1L);
 
-            // 返回一个同步更新包给发送者，确保客户端完成Yjs协议流程
-            if (clientUpdate != null && clientUpdate.length > 0) {
-                try {
-                    responses.add(createSyncUpdateMessage(clientUpdate));
-                } catch (IOException ioException) {
-                    log.warn("⚠️ [SpaceSyncGateway] 构造同步更新消息失败: docKey={}", docKey, ioException);
+            if (yjsServiceClient.isNativeEngine()) {
+                // 🔥 增量应用：只解析本次更新，完整文档在 Step1/加载时才编码
+                for (int i = 0; i < batch.size(); i++) {
+                    appliedVersions[i] = applySingleUpdate(docKey, docState, batch.get(i));
                 }
-            }
-            
-            // 异步保存原始更新到数据库（不保存合并后的，只保存原始更新）
-            CompletableFuture.runAsync(() -> {
+                log.info("✅ [SpaceSyncGateway] 文档增量更新完成: docKey={}, version={}",
+                        docKey, docState.getVersion());
+            } else {
+                byte[] currentDoc = docState.getCurrentDoc();
+
+                // 应用客户端更新
+                List<byte[]> updates = new ArrayList<>(batch.size() + 1);
+                if (currentDoc != null && currentDoc.length > 0) {
+                    updates.add(currentDoc);
+                }
+                batch.forEach(update -> updates.add(update.payload()));
+
+                // 🔥 使用 yjs-service 微服务合并更新
+                log.info("📞 [SpaceSyncGateway] 调用 yjs-service 合并 {} 个更新", updates.size());
+                byte[] mergedDoc = null;
                 try {
-                    List<byte[]> updateList = Collections.singletonList(clientUpdate);
-                    storageAdapter.pushDocUpdates(workspaceId, docId, updateList, clientId);
-                    log.debug("💾 [SpaceSyncGateway] 异步保存原始更新成功: docKey={}", docKey);
+                    mergedDoc = yjsServiceClient.mergeUpdates(docKey, updates);
                 } catch (Exception e) {
-                    log.error("❌ [SpaceSyncGateway] 异步保存失败: docKey={}", docKey, e);
+                    if (batch.size() == 1) {
+                        log.warn("⚠️ [SpaceSyncGateway] 客户端更新被拒绝: docKey={}, clientId={}",
+                                docKey, batch.get(0).clientId(), e);
+                    } else {
+                        // 找出有问题的更新：逐个重试，其余更新照常生效
+                        log.warn("⚠️ [SpaceSyncGateway] 批量合并失败，拆分逐个重试: docKey={}, count={}",
+                                docKey, batch.size(), e);
+                        for (int i = 0; i < batch.size(); i++) {
+                            appliedVersions[i] = applySingleUpdate(docKey, docState, batch.get(i));
+                        }
+                    }
                 }
-            });
-            
-            // 通常Step2不需要响应，除非有冲突需要解决
+                if (mergedDoc != null) {
+                    docState.setCurrentDoc(mergedDoc);
+                    Arrays.fill(appliedVersions, docState.getVersion());
+                    log.info("✅ [SpaceSyncGateway] 文档更新完成: docKey={}, newSize={}B",
+                            docKey, mergedDoc.length);
+                }
+            }
+            docStateCache.reweigh(workspaceId, docId);
+
+            for (int i = 0; i < batch.size(); i++) {
+                PendingUpdate update = batch.get(i);
+                long appliedVersion = appliedVersions[i];
+                if (appliedVersion < 0) {
+                    responses.add(Collections.emptyList());
+                    continue;
+                }
+                byte[] clientUpdate = update.payload();
+                List<byte[]> updateResponses = new ArrayList<>(1);
+                // 返回一个同步更新包给发送者，确保客户端完成Yjs协议流程
+                if (clientUpdate != null && clientUpdate.length > 0) {
+                    try {
+                        updateResponses.add(createSyncUpdateMessage(clientUpdate));
+                    } catch (IOException ioException) {
+                        log.warn("⚠️ [SpaceSyncGateway] 构造同步更新消息失败: docKey={}", docKey, ioException);
+                    }
+                }
+                responses.add(updateResponses);
+                
+                // 异步保存原始更新到数据库（不保存合并后的，只保存原始更新），由写后日志批量落库
+                updateLog.append(workspaceId, docId, clientUpdate, update.clientId()).whenComplete((ts, e) -> {
+                    if (e == null) {
+                        docState.markCleanIfVersion(appliedVersion);
+                        eventPublisher.publishEvent(new DocUpdatedEvent(this, workspaceId, docId, update.clientId()));
+                        log.debug("💾 [SpaceSyncGateway] 异步保存原始更新成功: docKey={}", docKey);
+                    } else {
+                        // 记录失败版本，之后的增量保存成功也不会清除脏标记，淘汰前会整体写回
+                        docState.markSaveFailed(appliedVersion);
+                        log.error("❌ [SpaceSyncGateway] 异步保存失败: docKey={}", docKey, e);
+                    }
+                });
+            }
             
         } finally {
             lock.writeLock().unlock();
@@ -315,19 +411,27 @@ public class SpaceSyncGateway {
         
         return responses;
     }
-    
+
     /**
-     * 处理增量更新：实时协作中的增量数据
+     * 单独应用一个更新，返回应用后的文档版本；更新被拒绝时返回 -1，文档状态保持不变
      */
-    private List<byte[]> handleSyncUpdate(
-            String workspaceId, 
-            String docId, 
-            SyncMessage syncMessage, 
-            String clientId,
-            ReentrantReadWriteLock lock) throws IOException {
-        
-        // 增量更新的处理逻辑与Step2一致
-        return handleSyncStep2(workspaceId, docId, syncMessage, clientId, lock);
+    private long applySingleUpdate(String docKey, DocState docState, PendingUpdate update) {
+        try {
+            if (yjsServiceClient.isNativeEngine()) {
+                docState.applyUpdate(update.payload());
+            } else {
+                byte[] currentDoc = docState.getCurrentDoc();
+                List<byte[]> updates = currentDoc != null && currentDoc.length > 0
+                        ? List.of(currentDoc, update.payload())
+                        : List.of(update.payload());
+                docState.setCurrentDoc(yjsServiceClient.mergeUpdates(docKey, updates));
+            }
+            return docState.getVersion();
+        } catch (Exception e) {
+            log.warn("⚠️ [SpaceSyncGateway] 客户端更新被拒绝: docKey={}, clientId={}, size={}B",
+                    docKey, update.clientId(), update.payload().length, e);
+            return -1L;
+        }
     }
     
     /**
@@ -428,48 +532,47 @@ public class SpaceSyncGateway {
     }
     
     /**
-     * 获取或创建文档状态
+     * 获取文档缓存条目（状态 + 文档锁），不存在时从数据库加载
+     * 调用方必须只取一次条目并同时使用其中的锁和状态：
+     * 两次查询之间条目可能被淘汰重建，分开获取会拿到旧锁配新状态
      */
-    private DocState getOrCreateDocState(String workspaceId, String docId) {
+    private DocStateCache.Entry getOrLoadEntry(String workspaceId, String docId) {
+        return docStateCache.get(workspaceId, docId, () -> loadDocState(workspaceId, docId));
+    }
+
+    /**
+     * 从数据库加载文档状态
+     */
+    private DocState loadDocState(String workspaceId, String docId) {
         String docKey = workspaceId + ":" + docId;
+        log.info("📄 [SpaceSyncGateway] 创建新文档状态: docKey={}", docKey);
         
-        return docStates.computeIfAbsent(docKey, key -> {
-            log.info("📄 [SpaceSyncGateway] 创建新文档状态: docKey={}", key);
-            
-            // 从数据库加载现有文档
-            try {
-                var docRecord = storageAdapter.getDoc(workspaceId, docId);
-                if (docRecord != null && docRecord.getBlob() != null) {
-                    byte[] docBlob = docRecord.getBlob();
-                    
-                    // 验证文档数据
-                    if (docBlob.length > 50 * 1024 * 1024) { // 50MB limit
-                        log.warn("⚠️ [SpaceSyncGateway] 文档过大，跳过加载: docKey={}, size={}MB", 
-                                key, docBlob.length / (1024 * 1024));
-                        return new DocState();
-                    }
-                    
-                    log.info("💾 [SpaceSyncGateway] 从数据库加载文档: docKey={}, size={}B", 
-                            key, docBlob.length);
-                    return new DocState(docBlob, docRecord.getTimestamp());
+        // 从数据库加载现有文档
+        try {
+            var docRecord = storageAdapter.getDoc(workspaceId, docId);
+            if (docRecord != null && docRecord.getBlob() != null) {
+                byte[] docBlob = docRecord.getBlob();
+                
+                // 验证文档数据
+                if (docBlob.length > 50 * 1024 * 1024) { // 50MB limit
+                    log.warn("⚠️ [SpaceSyncGateway] 文档过大，跳过加载: docKey={}, size={}MB", 
+                            docKey, docBlob.length / (1024 * 1024));
+                    return new DocState();
                 }
-            } catch (OutOfMemoryError e) {
-                log.error("💥 [SpaceSyncGateway] 加载文档内存不足: docKey={}", key, e);
-                return new DocState();
-            } catch (Exception e) {
-                log.warn("⚠️ [SpaceSyncGateway] 从数据库加载文档失败: docKey={}", key, e);
+                
+                log.info("💾 [SpaceSyncGateway] 从数据库加载文档: docKey={}, size={}B", 
+                        docKey, docBlob.length);
+                return new DocState(docBlob, docRecord.getTimestamp());
             }
-            
-            // 创建空文档状态
+        } catch (OutOfMemoryError e) {
+            log.error("💥 [SpaceSyncGateway] 加载文档内存不足: docKey={}", docKey, e);
             return new DocState();
-        });
-    }
-    
-    /**
-     * 获取文档锁
-     */
-    private ReentrantReadWriteLock getDocLock(String docKey) {
-        return docLocks.computeIfAbsent(docKey, key -> new ReentrantReadWriteLock());
+        } catch (Exception e) {
+            log.warn("⚠️ [SpaceSyncGateway] 从数据库加载文档失败: docKey={}", docKey, e);
+        }
+        
+        // 创建空文档状态
+        return new DocState();
     }
     
     /**
@@ -628,25 +731,19 @@ public class SpaceSyncGateway {
     
     /**
      * 清理文档状态缓存
-     * 应该定期调用以释放内存
+     * 空闲过期与容量淘汰由 DocStateCache 自动完成，这里只触发挂起的维护任务
      */
     public void cleanupDocStates() {
-        long currentTime = System.currentTimeMillis();
-        long maxAge = 3600_000; // 1小时
-        
-        docStates.entrySet().removeIf(entry -> {
-            DocState state = entry.getValue();
-            return (currentTime - state.getLastModified()) > maxAge;
-        });
-        
-        log.info("🧹 [SpaceSyncGateway] 清理文档状态缓存完成，当前缓存数量: {}", docStates.size());
+        docStateCache.cleanUp();
+        log.info("🧹 [SpaceSyncGateway] 清理文档状态缓存完成，当前缓存数量: {}, 占用: {}B",
+                docStateCache.size(), docStateCache.weightedSize());
     }
     
     /**
      * 获取当前缓存的文档数量
      */
     public int getCachedDocCount() {
-        return docStates.size();
+        return (int) docStateCache.size();
     }
     
     /**
@@ -654,21 +751,24 @@ public class SpaceSyncGateway {
      */
     public CompletableFuture<Void> flushDocState(String workspaceId, String docId) {
         String docKey = workspaceId + ":" + docId;
-        DocState docState = docStates.get(docKey);
+        DocStateCache.Entry entry = docStateCache.getIfPresent(workspaceId, docId);
         
-        if (docState == null || docState.getCurrentDoc() == null) {
+        if (entry == null || entry.state().getCurrentDoc() == null) {
             return CompletableFuture.completedFuture(null);
         }
+        DocState docState = entry.state();
         
         return CompletableFuture.runAsync(() -> {
             try {
-                ReentrantReadWriteLock lock = getDocLock(docKey);
+                ReentrantReadWriteLock lock = entry.lock();
                 lock.readLock().lock();
                 try {
+                    long version = docState.getVersion();
                     byte[] currentDoc = docState.getCurrentDoc();
                     if (currentDoc != null && currentDoc.length > 0) {
-                        List<byte[]> updates = Collections.singletonList(currentDoc);
-                        storageAdapter.pushDocUpdates(workspaceId, docId, updates, "system");
+                        updateLog.persistNow(workspaceId, docId, currentDoc, "system");
+                        docLoadCache.invalidate(workspaceId, docId);
+                        docState.markSnapshotSaved(version);
                         log.info("💾 [SpaceSyncGateway] 强制刷新文档状态: docKey={}", docKey);
                     }
                 } finally {
@@ -685,12 +785,13 @@ public class SpaceSyncGateway {
      */
     public Map<String, Object> getDocRoomStatus(String workspaceId, String docId) {
         String docKey = workspaceId + ":" + docId;
-        DocState docState = docStates.get(docKey);
+        DocStateCache.Entry entry = docStateCache.getIfPresent(workspaceId, docId);
+        DocState docState = entry != null ? entry.state() : null;
         
         return Map.of(
             "docKey", docKey,
             "hasState", docState != null,
-            "docSize", docState != null && docState.getCurrentDoc() != null ? docState.getCurrentDoc().length : 0,
+            "docSize", docState != null ? docState.getSize() : 0,
             "lastModified", docState != null ? docState.getLastModified() : 0
         );
     }
@@ -742,7 +843,10 @@ public class SpaceSyncGateway {
             log.warn("⚠️ [SpaceSyncGateway] 解析token失败: clientId={}, error={}", clientId, e.getMessage());
         }
         
-        log.info("🔗 [SpaceSyncGateway] 客户端连接: clientId={}", clientId);
+        // 协商文档更新传输格式（二进制附件 / Base64）
+        DocTransport.negotiate(client);
+        
+        log.info("🔗 [SpaceSyncGateway] 客户端连接: clientId={}, docTransport={}", clientId, DocTransport.name(client));
     }
     
     /**
@@ -770,8 +874,12 @@ public class SpaceSyncGateway {
             log.warn("⚠️ [SpaceSyncGateway] spaceId 为空，无法加入房间: clientId={}", clientId);
         }
         
+        boolean binary = DocTransport.negotiate(client, data);
         if (ackRequest.isAckRequested()) {
-            ackRequest.sendAckData(java.util.Map.of("data", java.util.Map.of("clientId", clientId)));
+            ackRequest.sendAckData(java.util.Map.of("data", java.util.Map.of(
+                "clientId", clientId,
+                "docTransport", binary ? DocTransport.BINARY : DocTransport.BASE64
+            )));
         }
     }
     
@@ -801,17 +909,22 @@ public class SpaceSyncGateway {
         String clientId = client.getSessionId().toString();
         String spaceId = sanitizeIdentifier(data != null ? data.get("spaceId") : null);
         String docId = sanitizeIdentifier(data != null ? data.get("docId") : null);
-        String stateVectorB64 = sanitizeIdentifier(data != null ? data.get("stateVector") : null);
+        Object rawStateVector = data != null ? data.get("stateVector") : null;
+        String stateVectorB64 = rawStateVector instanceof byte[] bytes
+                ? java.util.Base64.getEncoder().encodeToString(bytes)
+                : sanitizeIdentifier(rawStateVector);
+        boolean binary = DocTransport.negotiate(client, data);
 
         long startTime = System.currentTimeMillis();  // 开始计时
         log.info("📄 [SpaceSyncGateway] 加载文档: clientId={}, spaceId={}, docId={}, hasStateVector={}",
                 clientId, spaceId, docId, stateVectorB64 != null && !stateVectorB64.isEmpty());
         try {
-            long dbStart = System.currentTimeMillis();
-            var docRecord = storageAdapter.getDoc(spaceId, docId);
-            long dbTime = System.currentTimeMillis() - dbStart;
+            // 同一版本的文档只加载、编码一次，并发打开的客户端共享结果
+            long[] loadTimes = {-1, -1};
+            DocLoadCache.Entry loaded = docLoadCache.get(spaceId, docId,
+                    () -> loadDocForClients(spaceId, docId, loadTimes));
 
-            if (docRecord == null || docRecord.getBlob() == null) {
+            if (loaded == null) {
                 // ✅ 文档不存在，这是创建新文档的正常情况
                 // 自动创建文档元数据，并返回空文档让前端初始化
                 log.info("📝 [SpaceSyncGateway] 文档不存在: docId={}，这是创建新文档的正常情况，自动创建元数据", docId);
@@ -857,7 +970,7 @@ public class SpaceSyncGateway {
                     }
                     
                     // ✅ 直接创建文档元数据（不创建快照，快照由后续的更新请求创建）
-                    // 注意：不需要先查询，因为我们已经知道文档不存在（docRecord == null）
+                    // 注意：不需要先查询，因为我们已经知道文档不存在（loaded == null）
                     // 使用 ensureMetadataExists 方法，它不进行权限检查（因为用户已经通过 Socket.IO 认证）
                     if (docService instanceof com.yunke.backend.document.service.impl.WorkspaceDocServiceImpl) {
                         try {
@@ -892,8 +1005,8 @@ public class SpaceSyncGateway {
                 if (ackRequest.isAckRequested()) {
                     ackRequest.sendAckData(java.util.Map.of(
                         "data", java.util.Map.of(
-                            "missing", java.util.Base64.getEncoder().encodeToString(emptyDoc),
-                            "state", java.util.Base64.getEncoder().encodeToString(emptyStateVector),
+                            "missing", DocTransport.encode(emptyDoc, binary),
+                            "state", DocTransport.encode(emptyStateVector, binary),
                             "timestamp", System.currentTimeMillis()
                         )
                     ));
@@ -902,24 +1015,14 @@ public class SpaceSyncGateway {
                 return;
             }
 
-            byte[] serverUpdate = docRecord.getBlob();
-            byte[] serverStateVector;
-            long yjsStart = System.currentTimeMillis();
-            try {
-                // 🔥 使用 yjs-service 编码状态向量
-                serverStateVector = yjsServiceClient.encodeStateVector(serverUpdate);
-            } catch (Exception e) {
-                log.warn("⚠️ [SpaceSyncGateway] 编码状态向量失败，置空: {}", e.getMessage());
-                serverStateVector = new byte[0];
-            }
-            long yjsTime = System.currentTimeMillis() - yjsStart;
-
+            byte[] serverUpdate = loaded.update();
             byte[] missing;
             try {
                 if (stateVectorB64 != null && !stateVectorB64.isEmpty()) {
                     byte[] clientStateVector = java.util.Base64.getDecoder().decode(stateVectorB64);
-                    // 🔥 使用 yjs-service 计算差异
-                    missing = yjsServiceClient.diffUpdate(serverUpdate, clientStateVector);
+                    // 🔥 按客户端状态向量缓存差异，同一基线的客户端只计算一次
+                    missing = loaded.diff(stateVectorB64,
+                            () -> yjsServiceClient.diffUpdate(spaceId + ":" + docId, serverUpdate, clientStateVector));
                 } else {
                     missing = serverUpdate;
                 }
@@ -928,20 +1031,31 @@ public class SpaceSyncGateway {
                 missing = serverUpdate;
             }
 
-            long ts = docRecord.getTimestamp();
+            long ts = loaded.timestamp();
             if (ackRequest.isAckRequested()) {
-                ackRequest.sendAckData(java.util.Map.of(
-                    "data", java.util.Map.of(
-                        "missing", java.util.Base64.getEncoder().encodeToString(missing),
-                        "state", java.util.Base64.getEncoder().encodeToString(serverStateVector),
-                        "timestamp", ts
-                    )
-                ));
+                java.util.Map<String, Object> ackData = new java.util.HashMap<>();
+                ackData.put("missing", DocTransport.encode(missing, binary));
+                ackData.put("state", DocTransport.encode(loaded.stateVector(), binary));
+                ackData.put("timestamp", ts);
+                // 粘滞提示：客户端据此带 affinity 参数重连到文档所有者节点
+                String affinity = affinityRouter.ownerOf(spaceId, docId);
+                if (affinity != null) {
+                    ackData.put("affinity", affinity);
+                    if (!affinityRouter.isLocal(spaceId, docId)) {
+                        log.debug("🧭 [SpaceSyncGateway] 文档不归属本节点: docId={}, owner={}", docId, affinity);
+                    }
+                }
+                ackRequest.sendAckData(java.util.Map.of("data", ackData));
             }
 
             long totalTime = System.currentTimeMillis() - startTime;
-            log.info("⚡ [Performance] 文档加载完成: docId={}, 总耗时={}ms (数据库={}ms, YJS={}ms, 文档大小={}B)",
-                    docId, totalTime, dbTime, yjsTime, docRecord.getBlob().length);
+            if (loadTimes[0] >= 0) {
+                log.info("⚡ [Performance] 文档加载完成: docId={}, 总耗时={}ms (数据库={}ms, YJS={}ms, 文档大小={}B)",
+                        docId, totalTime, loadTimes[0], loadTimes[1], serverUpdate.length);
+            } else {
+                log.info("⚡ [Performance] 文档加载完成(缓存): docId={}, 总耗时={}ms, 文档大小={}B",
+                        docId, totalTime, serverUpdate.length);
+            }
 
         } catch (Exception e) {
             long totalTime = System.currentTimeMillis() - startTime;
@@ -954,6 +1068,33 @@ public class SpaceSyncGateway {
         }
     }
     
+    /**
+     * 从存储加载文档并编码状态向量；文档不存在时返回 null（不缓存）
+     *
+     * @param loadTimes 输出参数：[数据库耗时, YJS耗时]
+     */
+    private DocLoadCache.Entry loadDocForClients(String spaceId, String docId, long[] loadTimes) {
+        long dbStart = System.currentTimeMillis();
+        var docRecord = storageAdapter.getDoc(spaceId, docId);
+        loadTimes[0] = System.currentTimeMillis() - dbStart;
+        if (docRecord == null || docRecord.getBlob() == null) {
+            return null;
+        }
+
+        byte[] serverUpdate = docRecord.getBlob();
+        byte[] serverStateVector;
+        long yjsStart = System.currentTimeMillis();
+        try {
+            // 🔥 使用 yjs-service 编码状态向量
+            serverStateVector = yjsServiceClient.encodeStateVector(spaceId + ":" + docId, serverUpdate);
+        } catch (Exception e) {
+            log.warn("⚠️ [SpaceSyncGateway] 编码状态向量失败，置空: {}", e.getMessage());
+            serverStateVector = new byte[0];
+        }
+        loadTimes[1] = System.currentTimeMillis() - yjsStart;
+        return docLoadCache.newEntry(serverUpdate, serverStateVector, docRecord.getTimestamp());
+    }
+
     /**
      * 推送文档更新处理（兼容性）
      */
@@ -964,9 +1105,10 @@ public class SpaceSyncGateway {
         String spaceId = sanitizeIdentifier(data != null ? data.get("spaceId") : null);
         String docId = sanitizeIdentifier(data != null ? data.get("docId") : null);
         String spaceType = sanitizeIdentifier(data != null ? data.get("spaceType") : null);
-        String updateB64 = sanitizeIdentifier(data != null ? data.get("update") : null);
+        Object rawUpdate = data != null ? data.get("update") : null;
+        DocTransport.negotiate(client, data);
         log.info("📤 [SpaceSyncGateway] 推送更新: clientId={}, spaceId={}, docId={}, hasUpdate={}",
-                clientId, spaceId, docId, updateB64 != null && !updateB64.isEmpty());
+                clientId, spaceId, docId, rawUpdate != null);
         try {
             if (spaceId == null || docId == null) {
                 if (ackRequest.isAckRequested()) {
@@ -976,7 +1118,9 @@ public class SpaceSyncGateway {
                 }
                 return;
             }
-            if (updateB64 == null || updateB64.isEmpty()) {
+            // 二进制附件与 Base64 字符串均可
+            byte[] update = DocTransport.decode(rawUpdate);
+            if (update == null || update.length == 0) {
                 if (ackRequest.isAckRequested()) {
                     ackRequest.sendAckData(java.util.Map.of(
                         "error", java.util.Map.of("name", "INVALID_PARAMS", "message", "update is required")
@@ -984,15 +1128,25 @@ public class SpaceSyncGateway {
                 }
                 return;
             }
-            byte[] update = java.util.Base64.getDecoder().decode(updateB64);
             String editorIdentifier = firstNonBlank(sessionId, providedClientId, clientId);
-            long ts = storageAdapter.pushDocUpdates(spaceId, docId, java.util.List.of(update), editorIdentifier);
-
-            enqueueDocBroadcast(spaceType, spaceId, docId, updateB64, ts, clientId, editorIdentifier, providedClientId, client);
-            if (ackRequest.isAckRequested()) {
-                // CloudDocStorage 期望顶层 timestamp 字段
-                ackRequest.sendAckData(java.util.Map.of("timestamp", ts));
-            }
+            // 写后日志批量落库，提交后才广播并回 ack，保证客户端拿到的时间戳已持久化
+            updateLog.append(spaceId, docId, update, editorIdentifier).whenComplete((ts, error) -> {
+                if (error != null) {
+                    log.error("❌ [SpaceSyncGateway] 推送更新落库失败: spaceId={}, docId={}", spaceId, docId, error);
+                    if (ackRequest.isAckRequested()) {
+                        ackRequest.sendAckData(java.util.Map.of(
+                            "error", java.util.Map.of("name", "INTERNAL_ERROR", "message", String.valueOf(error.getMessage()))
+                        ));
+                    }
+                    return;
+                }
+                eventPublisher.publishEvent(new DocUpdatedEvent(this, spaceId, docId, editorIdentifier));
+                enqueueDocBroadcast(spaceType, spaceId, docId, update, ts, clientId, editorIdentifier, providedClientId, client);
+                if (ackRequest.isAckRequested()) {
+                    // CloudDocStorage 期望顶层 timestamp 字段
+                    ackRequest.sendAckData(java.util.Map.of("timestamp", ts));
+                }
+            });
         } catch (Exception e) {
             log.error("❌ [SpaceSyncGateway] 推送更新失败: spaceId={}, docId={}", spaceId, docId, e);
             if (ackRequest.isAckRequested()) {
@@ -1007,7 +1161,7 @@ public class SpaceSyncGateway {
         String spaceType,
         String spaceId,
         String docId,
-        String update,
+        byte[] update,
         long timestamp,
         String editorClientId,
         String sessionIdentifier,
@@ -1021,7 +1175,7 @@ public class SpaceSyncGateway {
             if (existing == null) {
                 existing = new BroadcastBuffer(spaceType, spaceId, docId);
             }
-            existing.addPayload(new PendingPayload(buildBroadcastPayload(spaceType, spaceId, docId, update, timestamp, editorClientId, sessionIdentifier, providedClientId), originClient));
+            existing.addPayload(new PendingPayload(buildBroadcastPayload(spaceType, spaceId, docId, timestamp, editorClientId, sessionIdentifier, providedClientId), update, originClient));
             return existing;
         });
 
@@ -1034,7 +1188,6 @@ public class SpaceSyncGateway {
         String spaceType,
         String spaceId,
         String docId,
-        String update,
         long timestamp,
         String editorClientId,
         String sessionIdentifier,
@@ -1044,7 +1197,6 @@ public class SpaceSyncGateway {
         payload.put("spaceType", spaceType);
         payload.put("spaceId", spaceId);
         payload.put("docId", docId);
-        payload.put("update", update);
         payload.put("timestamp", timestamp);
         payload.put("editor", editorClientId);
         if (sessionIdentifier != null) {
@@ -1066,31 +1218,55 @@ public class SpaceSyncGateway {
             return;
         }
 
+        // 按客户端协商的传输格式分别下发：二进制客户端收到 byte[] 附件，旧客户端收到 Base64
         if (pending.size() == 1) {
             PendingPayload single = pending.get(0);
             try {
-                socketIOServer.getRoomOperations(spaceId).sendEvent("space:broadcast-doc-update", single.originClient, single.payload);
+                for (com.corundumstudio.socketio.SocketIOClient roomClient : socketIOServer.getRoomOperations(spaceId).getClients()) {
+                    if (single.originClient != null && roomClient.getSessionId().equals(single.originClient.getSessionId())) {
+                        continue;
+                    }
+                    roomClient.sendEvent("space:broadcast-doc-update", single.payload(DocTransport.isBinary(roomClient)));
+                }
             } catch (Exception ex) {
                 log.warn("⚠️ [SpaceSyncGateway] 单条广播失败: {}", ex.getMessage());
             }
             return;
         }
 
+        Map<String, Object> binaryBatch = null;
+        Map<String, Object> base64Batch = null;
+        try {
+            for (com.corundumstudio.socketio.SocketIOClient roomClient : socketIOServer.getRoomOperations(spaceId).getClients()) {
+                boolean binary = DocTransport.isBinary(roomClient);
+                Map<String, Object> batchMessage = binary ? binaryBatch : base64Batch;
+                if (batchMessage == null) {
+                    batchMessage = buildBatchMessage(buffer.spaceType, spaceId, docId, pending, binary);
+                    if (binary) {
+                        binaryBatch = batchMessage;
+                    } else {
+                        base64Batch = batchMessage;
+                    }
+                }
+                roomClient.sendEvent("space:broadcast-doc-updates", batchMessage);
+            }
+        } catch (Exception ex) {
+            log.warn("⚠️ [SpaceSyncGateway] 批量广播失败: {}", ex.getMessage());
+        }
+    }
+
+    private Map<String, Object> buildBatchMessage(String spaceType, String spaceId, String docId,
+                                                  List<PendingPayload> pending, boolean binary) {
         List<Map<String, Object>> updates = pending.stream()
-            .map(payload -> payload.payload)
+            .map(payload -> payload.payload(binary))
             .collect(Collectors.toList());
 
         Map<String, Object> batchMessage = new HashMap<>();
-        batchMessage.put("spaceType", buffer.spaceType);
+        batchMessage.put("spaceType", spaceType);
         batchMessage.put("spaceId", spaceId);
         batchMessage.put("docId", docId);
         batchMessage.put("updates", updates);
-
-        try {
-            socketIOServer.getRoomOperations(spaceId).getClients().forEach(roomClient -> roomClient.sendEvent("space:broadcast-doc-updates", batchMessage));
-        } catch (Exception ex) {
-            log.warn("⚠️ [SpaceSyncGateway] 批量广播失败: {}", ex.getMessage());
-        }
+        return batchMessage;
     }
 
     private static final class BroadcastBuffer {
@@ -1129,7 +1305,41 @@ public class SpaceSyncGateway {
         }
     }
 
-    private record PendingPayload(Map<String, Object> payload, com.corundumstudio.socketio.SocketIOClient originClient) {}
+    private static final class PendingPayload {
+        private final Map<String, Object> meta;
+        private final byte[] update;
+        private final com.corundumstudio.socketio.SocketIOClient originClient;
+        private Map<String, Object> binaryPayload;
+        private Map<String, Object> base64Payload;
+
+        PendingPayload(Map<String, Object> meta, byte[] update, com.corundumstudio.socketio.SocketIOClient originClient) {
+            this.meta = meta;
+            this.update = update;
+            this.originClient = originClient;
+        }
+
+        /**
+         * 按传输格式生成广播负载，每种格式只编码一次
+         */
+        synchronized Map<String, Object> payload(boolean binary) {
+            if (binary) {
+                if (binaryPayload == null) {
+                    binaryPayload = withUpdate(update);
+                }
+                return binaryPayload;
+            }
+            if (base64Payload == null) {
+                base64Payload = withUpdate(DocTransport.encode(update, false));
+            }
+            return base64Payload;
+        }
+
+        private Map<String, Object> withUpdate(Object encodedUpdate) {
+            Map<String, Object> payload = new HashMap<>(meta);
+            payload.put("update", encodedUpdate);
+            return payload;
+        }
+    }
 
     @PreDestroy
     public void shutdownBroadcastScheduler() {
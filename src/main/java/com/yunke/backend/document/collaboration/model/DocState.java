@@ -1,75 +1,200 @@
 package com.yunke.backend.document.collaboration.model;
 
+import com.yunke.backend.document.crdt.yjs.YjsStructStore;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
 
 /**
  * 文档状态模型
  * 维护文档的当前状态和元信息
+ *
+ * 增量模式下（{@link #applyUpdate}）文档以 {@link YjsStructStore} 形式常驻内存，
+ * 每次更新只解析更新本身；完整文档与状态向量在被读取时才编码并缓存。
  */
 @Data
 @NoArgsConstructor
 public class DocState {
-    
+
+    private static final int MAX_CACHED_DIFFS = 16;
+
     /**
-     * 当前文档的二进制数据
+     * 当前文档的二进制数据（增量模式下为惰性编码缓存）
      */
     private byte[] currentDoc;
-    
+
     /**
      * 最后修改时间戳
      */
     private long lastModified;
-    
+
     /**
      * 文档版本号
      */
     private long version;
-    
+
     /**
      * 是否有待保存的更改
      */
     private boolean dirty;
-    
+
+    /**
+     * 落库失败、尚未被全量写回覆盖的版本；非空时后续增量保存成功也不能清除脏标记
+     */
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final NavigableSet<Long> failedVersions = new TreeSet<>();
+
+    /**
+     * 增量结构体存储，首次调用 applyUpdate 时由 currentDoc 解析得到
+     */
+    private YjsStructStore store;
+
+    /**
+     * 状态向量缓存
+     */
+    private byte[] stateVector;
+
+    /**
+     * 最近的差异更新缓存：客户端状态向量 -> diff，文档变化时清空
+     */
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final Map<String, byte[]> recentDiffs = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+            return size() > MAX_CACHED_DIFFS;
+        }
+    };
+
     public DocState(byte[] currentDoc, long lastModified) {
         this.currentDoc = currentDoc;
         this.lastModified = lastModified;
         this.version = 1;
         this.dirty = false;
     }
-    
+
     public DocState(byte[] currentDoc) {
         this(currentDoc, System.currentTimeMillis());
     }
-    
+
     /**
      * 更新文档数据
      */
-    public void setCurrentDoc(byte[] currentDoc) {
+    public synchronized void setCurrentDoc(byte[] currentDoc) {
         this.currentDoc = currentDoc;
+        this.store = null;
+        this.stateVector = null;
+        this.recentDiffs.clear();
         this.lastModified = System.currentTimeMillis();
         this.version++;
         this.dirty = true;
     }
-    
+
+    /**
+     * 增量应用一个 Yjs 更新，耗时与更新大小成正比
+     */
+    public synchronized void applyUpdate(byte[] update) {
+        if (store == null) {
+            store = YjsStructStore.fromUpdate(currentDoc);
+        }
+        store.applyUpdate(update);
+        this.currentDoc = null;
+        this.stateVector = null;
+        this.recentDiffs.clear();
+        this.lastModified = System.currentTimeMillis();
+        this.version++;
+        this.dirty = true;
+    }
+
+    /**
+     * 获取完整文档，增量模式下按需编码
+     */
+    public synchronized byte[] getCurrentDoc() {
+        if (currentDoc == null && store != null) {
+            currentDoc = store.encode();
+        }
+        return currentDoc;
+    }
+
+    /**
+     * 获取状态向量，仅增量模式下可用，否则返回 null 由调用方自行计算
+     */
+    public synchronized byte[] getStateVector() {
+        if (stateVector == null && store != null) {
+            stateVector = store.encodeStateVector();
+        }
+        return stateVector;
+    }
+
+    /**
+     * 获取缓存的差异更新
+     */
+    public synchronized byte[] getCachedDiff(String stateVectorKey) {
+        return recentDiffs.get(stateVectorKey);
+    }
+
+    /**
+     * 缓存差异更新；计算期间文档已变化则丢弃
+     */
+    public synchronized void cacheDiff(String stateVectorKey, byte[] diff, long forVersion) {
+        if (this.version == forVersion) {
+            recentDiffs.put(stateVectorKey, diff);
+        }
+    }
+
     /**
      * 标记为已保存
      */
     public void markClean() {
         this.dirty = false;
     }
-    
+
+    /**
+     * 增量更新保存成功：仅当期间没有新的修改、且没有更早的保存失败时标记为已保存
+     */
+    public synchronized void markCleanIfVersion(long savedVersion) {
+        if (this.version == savedVersion && failedVersions.isEmpty()) {
+            this.dirty = false;
+        }
+    }
+
+    /**
+     * 增量更新保存失败：保持脏标记，直到全量写回覆盖该版本
+     */
+    public synchronized void markSaveFailed(long failedVersion) {
+        failedVersions.add(failedVersion);
+        this.dirty = true;
+    }
+
+    /**
+     * 全量文档保存成功：该版本及之前的失败都已被覆盖
+     */
+    public synchronized void markSnapshotSaved(long savedVersion) {
+        failedVersions.headSet(savedVersion, true).clear();
+        markCleanIfVersion(savedVersion);
+    }
+
     /**
      * 获取文档大小
      */
-    public int getSize() {
-        return currentDoc != null ? currentDoc.length : 0;
+    public synchronized int getSize() {
+        if (currentDoc != null) {
+            return currentDoc.length;
+        }
+        return store != null ? (int) Math.min(store.approximateSize(), Integer.MAX_VALUE) : 0;
     }
-    
+
     /**
      * 检查文档是否为空
      */
-    public boolean isEmpty() {
-        return currentDoc == null || currentDoc.length == 0;
+    public synchronized boolean isEmpty() {
+        return getSize() == 0;
     }
-}
\ No newline at end of file
+}
@@ -3,6 +3,7 @@ package com.yunke.backend.document.controller;
 import com.yunke.backend.document.dto.DocDefaultRoleDto;
 import com.yunke.backend.document.dto.DocRecord;
 import com.yunke.backend.document.dto.DocRoleGrantRequest;
+import com.yunke.backend.document.event.DocUpdatedEvent;
 import com.yunke.backend.document.dto.DocRolePageDto;
 import com.yunke.backend.document.dto.DocRoleUpdateRequest;
 import com.yunke.backend.document.service.DocRoleService;
@@ -1775,6 +1776,8 @@ public class WorkspaceDocController {
             String editorIdentifier = firstNonBlank(sessionIdentifier, clientIdentifier, userId);
 
             long timestamp = pgWorkspaceDocStorageAdapter.pushDocUpdates(workspaceId, docId, updates, editorIdentifier);
+            // 失效协作加载缓存并触发增量索引
+            applicationContext.publishEvent(new DocUpdatedEvent(this, workspaceId, docId, editorIdentifier));
 
             log.info("🎯📝 [AFFINE-COMPAT] AFFiNE架构文档更新成功: docId={}, editorIdentifier={}, timestamp={}", 
                     docId, editorIdentifier, timestamp);
@@ -0,0 +1,305 @@
+package com.yunke.backend.document.crdt.yjs;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Item 内容（ContentDeleted / JSON / Binary / String / Embed / Format / Type / Any / Doc）
+ *
+ * 内容保持原始编码字节不做反序列化，整体写回时直接拷贝，
+ * 只有在按偏移切分时才重新编码，保证与 yjs 输出逐字节一致。
+ */
+public final class YjsContent {
+
+    public static final int REF_DELETED = 1;
+    public static final int REF_JSON = 2;
+    public static final int REF_BINARY = 3;
+    public static final int REF_STRING = 4;
+    public static final int REF_EMBED = 5;
+    public static final int REF_FORMAT = 6;
+    public static final int REF_TYPE = 7;
+    public static final int REF_ANY = 8;
+    public static final int REF_DOC = 9;
+
+    private static final int TYPE_REF_XML_ELEMENT = 3;
+    private static final int TYPE_REF_XML_HOOK = 5;
+
+    private final int ref;
+    private final long length;
+    private final byte[] buf;
+    private final int start;
+    private final int end;
+    /** JSON / Any 内容中每个元素的起始位置，最后一个元素之后追加 end */
+    private final int[] elementStarts;
+    private String str;
+
+    private YjsContent(int ref, long length, byte[] buf, int start, int end, int[] elementStarts, String str) {
+        this.ref = ref;
+        this.length = length;
+        this.buf = buf;
+        this.start = start;
+        this.end = end;
+        this.elementStarts = elementStarts;
+        this.str = str;
+    }
+
+    public int ref() {
+        return ref;
+    }
+
+    public long length() {
+        return length;
+    }
+
+    public boolean isCountable() {
+        return ref != REF_DELETED && ref != REF_FORMAT;
+    }
+
+    /**
+     * 按 readItemContent 的规则读取内容
+     */
+    static YjsContent read(YjsDecoder decoder, int ref) {
+        byte[] src = decoder.buffer();
+        int start = decoder.position();
+        switch (ref) {
+            case REF_DELETED -> {
+                long len = decoder.readVarUint();
+                return new YjsContent(ref, len, src, start, decoder.position(), null, null);
+            }
+            case REF_JSON, REF_ANY -> {
+                int count = decoder.readVarUintAsInt();
+                int[] starts = new int[count + 1];
+                for (int i = 0; i < count; i++) {
+                    starts[i] = decoder.position();
+                    if (ref == REF_JSON) {
+                        decoder.skipVarString();
+                    } else {
+                        decoder.skipAny();
+                    }
+                }
+                starts[count] = decoder.position();
+                return new YjsContent(ref, count, src, start, decoder.position(), starts, null);
+            }
+            case REF_STRING -> {
+                int byteLen = decoder.readVarUintAsInt();
+                int strStart = decoder.position();
+                decoder.skip(byteLen);
+                int utf16Len = utf16Length(src, strStart, byteLen);
+                String decoded = null;
+                if (utf16Len < 0) {
+                    decoded = new String(src, strStart, byteLen, StandardCharsets.UTF_8);
+                    utf16Len = decoded.length();
+                }
+                return new YjsContent(ref, utf16Len, src, start, decoder.position(), null, decoded);
+            }
+            case REF_BINARY -> decoder.skipVarUint8Array();
+            case REF_EMBED -> decoder.skipVarString();
+            case REF_FORMAT -> {
+                decoder.skipVarString();
+                decoder.skipVarString();
+            }
+            case REF_TYPE -> {
+                long typeRef = decoder.readVarUint();
+                if (typeRef == TYPE_REF_XML_ELEMENT || typeRef == TYPE_REF_XML_HOOK) {
+                    decoder.skipVarString();
+                }
+            }
+            case REF_DOC -> {
+                decoder.skipVarString();
+                decoder.skipAny();
+            }
+            default -> throw new IllegalArgumentException("未知的 Yjs 内容类型: " + ref);
+        }
+        return new YjsContent(ref, 1, src, start, decoder.position(), null, null);
+    }
+
+    /**
+     * 对应 AbstractContent.write(encoder, offset)
+     */
+    void write(YjsEncoder encoder, int offset) {
+        if (offset == 0) {
+            encoder.writeBytes(buf, start, end - start);
+            return;
+        }
+        switch (ref) {
+            case REF_DELETED -> encoder.writeVarUint(length - offset);
+            case REF_JSON, REF_ANY -> {
+                encoder.writeVarUint(length - offset);
+                int from = elementStarts[offset];
+                encoder.writeBytes(buf, from, end - from);
+            }
+            // ContentString.write 使用 str.slice(offset)，不做代理对修正
+            case REF_STRING -> encoder.writeVarString(string().substring(offset));
+            default -> throw new IllegalStateException("内容类型不支持按偏移写入: " + ref);
+        }
+    }
+
+    /**
+     * 对应 AbstractContent.splice(offset)，返回右半部分
+     */
+    YjsContent splice(int offset) {
+        switch (ref) {
+            case REF_DELETED -> {
+                return deleted(length - offset);
+            }
+            case REF_JSON, REF_ANY -> {
+                YjsEncoder encoder = new YjsEncoder(end - elementStarts[offset] + 5);
+                write(encoder, offset);
+                return read(new YjsDecoder(encoder.toByteArray()), ref);
+            }
+            case REF_STRING -> {
+                String full = string();
+                String right = full.substring(offset);
+                // 切分点落在代理对中间时，yjs 会把两侧都替换为 U+FFFD
+                if (Character.isHighSurrogate(full.charAt(offset - 1))) {
+                    right = '�' + right.substring(1);
+                }
+                return fromString(right);
+            }
+            default -> throw new IllegalStateException("内容类型不支持切分: " + ref);
+        }
+    }
+
+    /**
+     * 保留前 offset 个单位（splice 的左半部分）
+     */
+    YjsContent prefix(int offset) {
+        switch (ref) {
+            case REF_DELETED -> {
+                return deleted(offset);
+            }
+            case REF_JSON, REF_ANY -> {
+                int from = elementStarts[0];
+                int to = elementStarts[offset];
+                YjsEncoder encoder = new YjsEncoder(to - from + 5);
+                encoder.writeVarUint(offset);
+                encoder.writeBytes(buf, from, to - from);
+                return read(new YjsDecoder(encoder.toByteArray()), ref);
+            }
+            case REF_STRING -> {
+                String left = string().substring(0, offset);
+                if (Character.isHighSurrogate(left.charAt(offset - 1))) {
+                    left = left.substring(0, offset - 1) + '�';
+                }
+                return fromString(left);
+            }
+            default -> throw new IllegalStateException("内容类型不支持切分: " + ref);
+        }
+    }
+
+    static YjsContent deleted(long len) {
+        YjsEncoder encoder = new YjsEncoder(10);
+        encoder.writeVarUint(len);
+        byte[] bytes = encoder.toByteArray();
+        return new YjsContent(REF_DELETED, len, bytes, 0, bytes.length, null, null);
+    }
+
+    static YjsContent fromString(String value) {
+        YjsEncoder encoder = new YjsEncoder(value.length() * 3 + 5);
+        encoder.writeVarString(value);
+        byte[] bytes = encoder.toByteArray();
+        return new YjsContent(REF_STRING, value.length(), bytes, 0, bytes.length, null, value);
+    }
+
+    /**
+     * ContentString 的文本内容（按需解码）
+     */
+    public String string() {
+        if (ref != REF_STRING) {
+            throw new IllegalStateException("不是字符串内容: " + ref);
+        }
+        if (str == null) {
+            YjsDecoder decoder = new YjsDecoder(buf, start, end);
+            str = decoder.readVarString();
+        }
+        return str;
+    }
+
+    /**
+     * JSON / Any 内容的元素值；JSON 元素按原始字符串返回（"undefined" 视为 null）
+     */
+    public List<Object> values() {
+        if (ref != REF_JSON && ref != REF_ANY) {
+            throw new IllegalStateException("不是 JSON/Any 内容: " + ref);
+        }
+        List<Object> out = new ArrayList<>((int) length);
+        for (int i = 0; i < length; i++) {
+            YjsDecoder decoder = new YjsDecoder(buf, elementStarts[i], elementStarts[i + 1]);
+            if (ref == REF_ANY) {
+                out.add(decoder.readAny());
+            } else {
+                String json = decoder.readVarString();
+                out.add("undefined".equals(json) ? null : json);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * ContentType 的类型编号（YArray=0, YMap=1, YText=2, YXmlElement=3, ...）
+     */
+    public int typeRef() {
+        if (ref != REF_TYPE) {
+            throw new IllegalStateException("不是类型内容: " + ref);
+        }
+        return new YjsDecoder(buf, start, end).readVarUintAsInt();
+    }
+
+    /**
+     * 原始编码字节（不含 info 头）
+     */
+    public byte[] rawBytes() {
+        byte[] out = new byte[end - start];
+        System.arraycopy(buf, start, out, 0, out.length);
+        return out;
+    }
+
+    /**
+     * 在不解码的前提下计算合法 UTF-8 对应的 UTF-16 长度；遇到非法序列返回 -1
+     */
+    private static int utf16Length(byte[] src, int from, int byteLen) {
+        int units = 0;
+        int i = from;
+        int limit = from + byteLen;
+        while (i < limit) {
+            int b = src[i] & 0xFF;
+            int extra;
+            int min2;
+            int max2 = 0xBF;
+            if (b < 0x80) {
+                i++;
+                units++;
+                continue;
+            } else if (b >= 0xC2 && b <= 0xDF) {
+                extra = 1;
+                min2 = 0x80;
+            } else if (b >= 0xE0 && b <= 0xEF) {
+                extra = 2;
+                min2 = b == 0xE0 ? 0xA0 : 0x80;
+                max2 = b == 0xED ? 0x9F : 0xBF;
+            } else if (b >= 0xF0 && b <= 0xF4) {
+                extra = 3;
+                min2 = b == 0xF0 ? 0x90 : 0x80;
+                max2 = b == 0xF4 ? 0x8F : 0xBF;
+            } else {
+                return -1;
+            }
+            if (i + extra >= limit) {
+                return -1;
+            }
+            int second = src[i + 1] & 0xFF;
+            if (second < min2 || second > max2) {
+                return -1;
+            }
+            for (int k = 2; k <= extra; k++) {
+                if ((src[i + k] & 0xC0) != 0x80) {
+                    return -1;
+                }
+            }
+            i += extra + 1;
+            units += extra == 3 ? 2 : 1;
+        }
+        return units;
+    }
+}
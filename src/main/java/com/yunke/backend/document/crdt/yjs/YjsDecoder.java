@@ -0,0 +1,247 @@
+package com.yunke.backend.document.crdt.yjs;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * lib0 二进制解码器（Yjs v1 更新格式所用的基础编码）
+ *
+ * 对应 lib0/decoding.js，只实现 Yjs v1 更新与状态向量需要的部分：
+ * varUint / varString / varUint8Array / Any。
+ * 整数按 JS 语义处理，最大 2^53-1，因此统一使用 long。
+ */
+public final class YjsDecoder {
+
+    private static final long MAX_SAFE_INTEGER = (1L << 53) - 1;
+
+    private final byte[] buf;
+    private int pos;
+    private final int end;
+
+    public YjsDecoder(byte[] buf) {
+        this(buf, 0, buf.length);
+    }
+
+    public YjsDecoder(byte[] buf, int start, int end) {
+        this.buf = buf;
+        this.pos = start;
+        this.end = end;
+    }
+
+    public byte[] buffer() {
+        return buf;
+    }
+
+    public int position() {
+        return pos;
+    }
+
+    public boolean hasContent() {
+        return pos < end;
+    }
+
+    public int readUint8() {
+        if (pos >= end) {
+            throw new IllegalArgumentException("Yjs 数据意外结束: pos=" + pos);
+        }
+        return buf[pos++] & 0xFF;
+    }
+
+    public long readVarUint() {
+        long num = 0;
+        long mult = 1;
+        while (pos < end) {
+            int r = buf[pos++] & 0xFF;
+            num += (r & 0x7F) * mult;
+            mult *= 128;
+            if (r < 0x80) {
+                return num;
+            }
+            if (num > MAX_SAFE_INTEGER) {
+                throw new IllegalArgumentException("Yjs varUint 超出安全整数范围");
+            }
+        }
+        throw new IllegalArgumentException("Yjs 数据意外结束: pos=" + pos);
+    }
+
+    /**
+     * 读取 varUint 并校验其可作为数组长度/偏移使用
+     */
+    public int readVarUintAsInt() {
+        long value = readVarUint();
+        if (value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Yjs 长度字段过大: " + value);
+        }
+        return (int) value;
+    }
+
+    public String readVarString() {
+        int len = readVarUintAsInt();
+        checkAvailable(len);
+        String str = new String(buf, pos, len, StandardCharsets.UTF_8);
+        pos += len;
+        return str;
+    }
+
+    public byte[] readVarUint8Array() {
+        int len = readVarUintAsInt();
+        checkAvailable(len);
+        byte[] out = new byte[len];
+        System.arraycopy(buf, pos, out, 0, len);
+        pos += len;
+        return out;
+    }
+
+    /**
+     * 跳过一个 varString，返回其 UTF-8 字节长度
+     */
+    public int skipVarString() {
+        int len = readVarUintAsInt();
+        checkAvailable(len);
+        pos += len;
+        return len;
+    }
+
+    public void skipVarUint8Array() {
+        skipVarString();
+    }
+
+    /**
+     * 跳过一个 lib0 Any 值（不构造 Java 对象）
+     */
+    public void skipAny() {
+        int type = readUint8();
+        switch (type) {
+            case 127, 126, 121, 120 -> {
+                // undefined / null / false / true
+            }
+            case 125 -> readVarInt();
+            case 124 -> skip(4);
+            case 123, 122 -> skip(8);
+            case 119 -> skipVarString();
+            case 118 -> {
+                long size = readVarUint();
+                for (long i = 0; i < size; i++) {
+                    skipVarString();
+                    skipAny();
+                }
+            }
+            case 117 -> {
+                long size = readVarUint();
+                for (long i = 0; i < size; i++) {
+                    skipAny();
+                }
+            }
+            case 116 -> skipVarUint8Array();
+            default -> throw new IllegalArgumentException("未知的 Any 类型: " + type);
+        }
+    }
+
+    /**
+     * 读取一个 lib0 Any 值
+     *
+     * undefined / null 均返回 null；整数返回 Long，浮点返回 Double，
+     * 对象返回保持键顺序的 Map，数组返回 List，二进制返回 byte[]。
+     */
+    public Object readAny() {
+        int type = readUint8();
+        switch (type) {
+            case 127, 126 -> {
+                return null;
+            }
+            case 125 -> {
+                return readVarInt();
+            }
+            case 124 -> {
+                checkAvailable(4);
+                int bits = ((buf[pos] & 0xFF) << 24) | ((buf[pos + 1] & 0xFF) << 16)
+                    | ((buf[pos + 2] & 0xFF) << 8) | (buf[pos + 3] & 0xFF);
+                pos += 4;
+                return (double) Float.intBitsToFloat(bits);
+            }
+            case 123 -> {
+                return Double.longBitsToDouble(readInt64());
+            }
+            case 122 -> {
+                return readInt64();
+            }
+            case 121 -> {
+                return Boolean.FALSE;
+            }
+            case 120 -> {
+                return Boolean.TRUE;
+            }
+            case 119 -> {
+                return readVarString();
+            }
+            case 118 -> {
+                int size = readVarUintAsInt();
+                Map<String, Object> obj = new LinkedHashMap<>();
+                for (int i = 0; i < size; i++) {
+                    String key = readVarString();
+                    obj.put(key, readAny());
+                }
+                return obj;
+            }
+            case 117 -> {
+                int size = readVarUintAsInt();
+                List<Object> arr = new ArrayList<>(Math.min(size, 1024));
+                for (int i = 0; i < size; i++) {
+                    arr.add(readAny());
+                }
+                return arr;
+            }
+            case 116 -> {
+                return readVarUint8Array();
+            }
+            default -> throw new IllegalArgumentException("未知的 Any 类型: " + type);
+        }
+    }
+
+    /**
+     * 大端 64 位整数（DataView.getBigInt64 / getFloat64 的字节序）
+     */
+    private long readInt64() {
+        checkAvailable(8);
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (buf[pos++] & 0xFF);
+        }
+        return value;
+    }
+
+    public long readVarInt() {
+        int r = readUint8();
+        long num = r & 0x3F;
+        long mult = 64;
+        boolean negative = (r & 0x40) > 0;
+        if ((r & 0x80) == 0) {
+            return negative ? -num : num;
+        }
+        while (true) {
+            r = readUint8();
+            num += (r & 0x7F) * mult;
+            mult *= 128;
+            if (r < 0x80) {
+                return negative ? -num : num;
+            }
+            if (num > MAX_SAFE_INTEGER) {
+                throw new IllegalArgumentException("Yjs varInt 超出安全整数范围");
+            }
+        }
+    }
+
+    public void skip(int len) {
+        checkAvailable(len);
+        pos += len;
+    }
+
+    private void checkAvailable(int len) {
+        if (len < 0 || end - pos < len) {
+            throw new IllegalArgumentException("Yjs 数据意外结束: 需要" + len + "字节, 剩余" + (end - pos));
+        }
+    }
+}
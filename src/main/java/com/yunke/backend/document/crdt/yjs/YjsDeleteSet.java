@@ -0,0 +1,131 @@
+package com.yunke.backend.document.crdt.yjs;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Yjs 删除集（clientId -> 删除区间列表）
+ *
+ * 对应 yjs/src/utils/DeleteSet.js 的 v1 编解码、合并与规范化。
+ */
+public final class YjsDeleteSet {
+
+    /**
+     * 删除区间 [clock, clock + len)
+     */
+    public static final class DeleteItem {
+        private final long clock;
+        private long len;
+
+        public DeleteItem(long clock, long len) {
+            this.clock = clock;
+            this.len = len;
+        }
+
+        public long clock() {
+            return clock;
+        }
+
+        public long len() {
+            return len;
+        }
+    }
+
+    private final Map<Long, List<DeleteItem>> clients = new LinkedHashMap<>();
+
+    public Map<Long, List<DeleteItem>> clients() {
+        return clients;
+    }
+
+    public boolean isEmpty() {
+        return clients.isEmpty();
+    }
+
+    public void add(long client, long clock, long len) {
+        clients.computeIfAbsent(client, key -> new ArrayList<>()).add(new DeleteItem(clock, len));
+    }
+
+    /**
+     * 对应 readDeleteSet：删除数为 0 的 client 不会出现在结果中
+     */
+    public static YjsDeleteSet read(YjsDecoder decoder) {
+        YjsDeleteSet ds = new YjsDeleteSet();
+        long numClients = decoder.readVarUint();
+        for (long i = 0; i < numClients; i++) {
+            long client = decoder.readVarUint();
+            long numberOfDeletes = decoder.readVarUint();
+            if (numberOfDeletes > 0) {
+                List<DeleteItem> items = ds.clients.computeIfAbsent(client, key -> new ArrayList<>());
+                for (long j = 0; j < numberOfDeletes; j++) {
+                    long clock = decoder.readVarUint();
+                    long len = decoder.readVarUint();
+                    items.add(new DeleteItem(clock, len));
+                }
+            }
+        }
+        return ds;
+    }
+
+    /**
+     * 对应 writeDeleteSet：按 clientId 降序写出
+     */
+    public void write(YjsEncoder encoder) {
+        encoder.writeVarUint(clients.size());
+        List<Map.Entry<Long, List<DeleteItem>>> entries = new ArrayList<>(clients.entrySet());
+        entries.sort((a, b) -> Long.compare(b.getKey(), a.getKey()));
+        for (Map.Entry<Long, List<DeleteItem>> entry : entries) {
+            encoder.writeVarUint(entry.getKey());
+            List<DeleteItem> items = entry.getValue();
+            encoder.writeVarUint(items.size());
+            for (DeleteItem item : items) {
+                encoder.writeVarUint(item.clock);
+                encoder.writeVarUint(item.len);
+            }
+        }
+    }
+
+    /**
+     * 对应 sortAndMergeDeleteSet：按 clock 排序并合并重叠/相邻区间
+     */
+    public void sortAndMerge() {
+        for (List<DeleteItem> dels : clients.values()) {
+            dels.sort(Comparator.comparingLong(DeleteItem::clock));
+            int j = 1;
+            for (int i = 1; i < dels.size(); i++) {
+                DeleteItem left = dels.get(j - 1);
+                DeleteItem right = dels.get(i);
+                if (left.clock + left.len >= right.clock) {
+                    left.len = Math.max(left.len, right.clock + right.len - left.clock);
+                } else {
+                    if (j < i) {
+                        dels.set(j, right);
+                    }
+                    j++;
+                }
+            }
+            if (dels.size() > j) {
+                dels.subList(j, dels.size()).clear();
+            }
+        }
+    }
+
+    /**
+     * 对应 mergeDeleteSets
+     */
+    public static YjsDeleteSet merge(List<YjsDeleteSet> sets) {
+        YjsDeleteSet merged = new YjsDeleteSet();
+        for (YjsDeleteSet ds : sets) {
+            for (Map.Entry<Long, List<DeleteItem>> entry : ds.clients.entrySet()) {
+                List<DeleteItem> target = merged.clients.computeIfAbsent(entry.getKey(), key -> new ArrayList<>());
+                for (DeleteItem item : entry.getValue()) {
+                    target.add(new DeleteItem(item.clock, item.len));
+                }
+            }
+        }
+        merged.sortAndMerge();
+        return merged;
+    }
+}
@@ -0,0 +1,478 @@
+package com.yunke.backend.document.crdt.yjs;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * {@link YjsStructStore} 之上的只读共享类型视图，用于读取内容（搜索索引、预览等）
+ *
+ * <p>结构体的定位与删除状态直接查询存储，这里只补上 Y.Doc 的 Item 链表：
+ * 按依赖顺序（origin / rightOrigin / parent）执行 Item.integrate 中的 YATA 冲突解决。
+ * 与 yjs 的 getItemCleanStart / getItemCleanEnd 一样，只在被引用的位置和删除区间边界切分结构体，
+ * 其余结构体整体参与集成。不支持写入，也不保留 Y.Doc 的事件与事务语义。</p>
+ *
+ * <p>引用了已 GC 或缺失结构体的 Item 视为不可见（与 yjs 把它们转为 GC 一致）。</p>
+ */
+public final class YjsDocView {
+
+    private static final int TYPE_REF_ARRAY = 0;
+    private static final int TYPE_REF_MAP = 1;
+    private static final int TYPE_REF_TEXT = 2;
+
+    private static final int STATE_NEW = 0;
+    private static final int STATE_PENDING = 1;
+    private static final int STATE_DONE = 2;
+
+    /**
+     * 结构体在切分点之间的一段，对应 Y.Doc 中的一个 Item
+     */
+    private static final class Piece {
+        final YjsStruct struct;
+        final int offset;
+        final int length;
+        final long client;
+        final long clock;
+        final YjsId origin;
+        final YjsId rightOrigin;
+
+        Container container;
+        String parentSub;
+        Piece left;
+        Piece right;
+        boolean deleted;
+        boolean invisible;
+        int state = STATE_NEW;
+
+        Piece(YjsStruct struct, int offset, int length) {
+            this.struct = struct;
+            this.offset = offset;
+            this.length = length;
+            this.client = struct.client();
+            this.clock = struct.clock() + offset;
+            this.origin = offset == 0 ? struct.origin() : new YjsId(client, clock - 1);
+            this.rightOrigin = struct.rightOrigin();
+        }
+    }
+
+    /**
+     * 共享类型的内部状态：序列起点与 map 键链
+     */
+    private static final class Container {
+        Piece start;
+        final Map<String, Piece> map = new LinkedHashMap<>();
+    }
+
+    private final YjsStructStore store;
+    private final Map<YjsStruct, Piece[]> pieces = new IdentityHashMap<>();
+    private final Map<String, Container> roots = new HashMap<>();
+    private final Map<Piece, Container> types = new IdentityHashMap<>();
+    private final Map<YjsContent, List<Object>> valueCache = new IdentityHashMap<>();
+
+    private YjsDocView(YjsStructStore store) {
+        this.store = store;
+    }
+
+    /**
+     * 基于结构体存储构建视图；之后对存储的修改不会反映到视图中
+     */
+    public static YjsDocView of(YjsStructStore store) {
+        YjsDocView view = new YjsDocView(store);
+        view.split();
+        List<Piece> ordered = new ArrayList<>();
+        store.forEachStruct(struct -> {
+            Piece[] structPieces = view.pieces.get(struct);
+            if (structPieces != null) {
+                Collections.addAll(ordered, structPieces);
+            }
+        });
+        for (Piece piece : ordered) {
+            view.integrate(piece);
+        }
+        return view;
+    }
+
+    /**
+     * 从 v1 更新（通常是合并后的完整状态）构建视图
+     */
+    public static YjsDocView fromUpdate(byte[] update) {
+        return of(YjsStructStore.fromUpdate(update));
+    }
+
+    /**
+     * 根 YMap 的可见条目
+     */
+    public Map<String, Object> map(String rootName) {
+        return entriesOf(roots.get(rootName));
+    }
+
+    /**
+     * 嵌套 YMap 的可见条目；值为 Any 值，或嵌套共享类型的 {@link YjsId}
+     */
+    public Map<String, Object> map(YjsId type) {
+        return entriesOf(containerOf(type));
+    }
+
+    /**
+     * 根 YArray 的可见元素
+     */
+    public List<Object> array(String rootName) {
+        return elementsOf(roots.get(rootName));
+    }
+
+    /**
+     * 嵌套 YArray 的可见元素
+     */
+    public List<Object> array(YjsId type) {
+        return elementsOf(containerOf(type));
+    }
+
+    /**
+     * 根 YText 的纯文本
+     */
+    public String text(String rootName) {
+        return textOf(roots.get(rootName));
+    }
+
+    /**
+     * 嵌套 YText 的纯文本（忽略格式与嵌入）
+     */
+    public String text(YjsId type) {
+        return textOf(containerOf(type));
+    }
+
+    /**
+     * 共享类型的类型编号（YArray=0, YMap=1, YText=2, ...）；不是可见的共享类型时返回 -1
+     */
+    public int typeRef(YjsId type) {
+        Piece piece = find(type);
+        if (piece == null || piece.invisible || piece.struct.content().ref() != YjsContent.REF_TYPE) {
+            return -1;
+        }
+        return piece.struct.content().typeRef();
+    }
+
+    public boolean isMap(Object value) {
+        return value instanceof YjsId id && typeRef(id) == TYPE_REF_MAP;
+    }
+
+    public boolean isArray(Object value) {
+        return value instanceof YjsId id && typeRef(id) == TYPE_REF_ARRAY;
+    }
+
+    public boolean isText(Object value) {
+        return value instanceof YjsId id && typeRef(id) == TYPE_REF_TEXT;
+    }
+
+    /**
+     * 在 origin 之后、rightOrigin 之前以及删除区间两端切分结构体，
+     * 使每个被引用的位置都落在某一段的边界上，每一段的删除状态一致
+     */
+    private void split() {
+        Map<YjsStruct, TreeSet<Integer>> cuts = new IdentityHashMap<>();
+        store.forEachStruct(struct -> {
+            if (struct.kind() != YjsStruct.Kind.ITEM) {
+                return;
+            }
+            cuts.computeIfAbsent(struct, key -> new TreeSet<>()).add(0);
+            YjsId origin = struct.origin();
+            if (origin != null) {
+                cut(cuts, origin.client(), origin.clock() + 1);
+            }
+            YjsId rightOrigin = struct.rightOrigin();
+            if (rightOrigin != null) {
+                cut(cuts, rightOrigin.client(), rightOrigin.clock());
+            }
+        });
+        store.forEachDeleteRange(range -> {
+            cut(cuts, range[0], range[1]);
+            cut(cuts, range[0], range[1] + range[2]);
+        });
+
+        cuts.forEach((struct, offsets) -> {
+            Piece[] structPieces = new Piece[offsets.size()];
+            int i = 0;
+            Integer from = null;
+            for (Integer to : offsets) {
+                if (from != null) {
+                    structPieces[i++] = piece(struct, from, to);
+                }
+                from = to;
+            }
+            structPieces[i] = piece(struct, from, (int) struct.length());
+            pieces.put(struct, structPieces);
+        });
+    }
+
+    private void cut(Map<YjsStruct, TreeSet<Integer>> cuts, long client, long clock) {
+        YjsStruct struct = store.find(client, clock);
+        if (struct != null && struct.kind() == YjsStruct.Kind.ITEM && clock > struct.clock()) {
+            cuts.computeIfAbsent(struct, key -> new TreeSet<>()).add((int) (clock - struct.clock()));
+        }
+    }
+
+    private Piece piece(YjsStruct struct, int from, int to) {
+        Piece piece = new Piece(struct, from, to - from);
+        piece.deleted = struct.content().ref() == YjsContent.REF_DELETED
+                || store.isDeleted(piece.client, piece.clock);
+        return piece;
+    }
+
+    /**
+     * 按 ID 定位所在的段；GC 或不存在时返回 null
+     */
+    private Piece find(long client, long clock) {
+        YjsStruct struct = store.find(client, clock);
+        Piece[] structPieces = struct == null ? null : pieces.get(struct);
+        if (structPieces == null) {
+            return null;
+        }
+        int lo = 0;
+        int hi = structPieces.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (structPieces[mid].clock <= clock) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return structPieces[lo];
+    }
+
+    private Piece find(YjsId id) {
+        return id == null ? null : find(id.client(), id.clock());
+    }
+
+    /**
+     * 按依赖顺序集成：依赖（origin / rightOrigin / 父类型）先于自身，显式栈避免深递归
+     */
+    private void integrate(Piece target) {
+        if (target.state == STATE_DONE) {
+            return;
+        }
+        Deque<Piece> stack = new ArrayDeque<>();
+        target.state = STATE_PENDING;
+        stack.push(target);
+        while (!stack.isEmpty()) {
+            Piece piece = stack.peek();
+            Piece dependency = pendingDependency(piece);
+            if (dependency != null) {
+                if (dependency.state == STATE_PENDING) {
+                    // 循环引用只会出现在损坏的数据中
+                    piece.invisible = true;
+                    piece.state = STATE_DONE;
+                    stack.pop();
+                } else {
+                    dependency.state = STATE_PENDING;
+                    stack.push(dependency);
+                }
+                continue;
+            }
+            stack.pop();
+            resolveAndIntegrate(piece);
+            piece.state = STATE_DONE;
+        }
+    }
+
+    private Piece pendingDependency(Piece piece) {
+        for (Piece dependency : new Piece[]{find(piece.origin), find(piece.rightOrigin), find(piece.struct.parentId())}) {
+            if (dependency != null && dependency.state != STATE_DONE) {
+                return dependency;
+            }
+        }
+        return null;
+    }
+
+    private void resolveAndIntegrate(Piece piece) {
+        Piece left = find(piece.origin);
+        Piece right = find(piece.rightOrigin);
+        if ((piece.origin != null && left == null) || (piece.rightOrigin != null && right == null)) {
+            piece.invisible = true;
+            return;
+        }
+        YjsStruct struct = piece.struct;
+        if (struct.parentKey() != null) {
+            piece.container = roots.computeIfAbsent(struct.parentKey(), key -> new Container());
+            piece.parentSub = struct.parentSub();
+        } else if (struct.parentId() != null) {
+            Piece parent = find(struct.parentId());
+            if (parent == null || parent.invisible || parent.struct.content().ref() != YjsContent.REF_TYPE) {
+                piece.invisible = true;
+                return;
+            }
+            piece.container = types.computeIfAbsent(parent, key -> new Container());
+            piece.parentSub = struct.parentSub();
+        } else {
+            Piece neighbour = left != null ? left : right;
+            if (neighbour == null || neighbour.invisible) {
+                piece.invisible = true;
+                return;
+            }
+            piece.container = neighbour.container;
+            piece.parentSub = neighbour.parentSub;
+        }
+        if ((left != null && left.invisible) || (right != null && right.invisible)) {
+            piece.invisible = true;
+            return;
+        }
+        piece.left = left;
+        piece.right = right;
+        place(piece);
+    }
+
+    /**
+     * 对应 Item.integrate 的 YATA 冲突解决与链表连接
+     */
+    private void place(Piece piece) {
+        Container parent = piece.container;
+        if ((piece.left == null && (piece.right == null || piece.right.left != null))
+                || (piece.left != null && piece.left.right != piece.right)) {
+            Piece left = piece.left;
+            Piece o;
+            if (left != null) {
+                o = left.right;
+            } else if (piece.parentSub != null) {
+                o = parent.map.get(piece.parentSub);
+                while (o != null && o.left != null) {
+                    o = o.left;
+                }
+            } else {
+                o = parent.start;
+            }
+            Set<Piece> conflictingItems = Collections.newSetFromMap(new IdentityHashMap<>());
+            Set<Piece> itemsBeforeOrigin = Collections.newSetFromMap(new IdentityHashMap<>());
+            while (o != null && o != piece.right) {
+                itemsBeforeOrigin.add(o);
+                conflictingItems.add(o);
+                if (sameId(piece.origin, o.origin)) {
+                    if (o.client < piece.client) {
+                        left = o;
+                        conflictingItems.clear();
+                    } else if (sameId(piece.rightOrigin, o.rightOrigin)) {
+                        break;
+                    }
+                } else {
+                    Piece oOrigin = find(o.origin);
+                    if (oOrigin != null && itemsBeforeOrigin.contains(oOrigin)) {
+                        if (!conflictingItems.contains(oOrigin)) {
+                            left = o;
+                            conflictingItems.clear();
+                        }
+                    } else {
+                        break;
+                    }
+                }
+                o = o.right;
+            }
+            piece.left = left;
+        }
+
+        if (piece.left != null) {
+            piece.right = piece.left.right;
+            piece.left.right = piece;
+        } else {
+            Piece r;
+            if (piece.parentSub != null) {
+                r = parent.map.get(piece.parentSub);
+                while (r != null && r.left != null) {
+                    r = r.left;
+                }
+            } else {
+                r = parent.start;
+                parent.start = piece;
+            }
+            piece.right = r;
+        }
+        if (piece.right != null) {
+            piece.right.left = piece;
+            // map 键链中右侧已有更新的值，本项直接失效
+            if (piece.parentSub != null) {
+                piece.deleted = true;
+            }
+        } else if (piece.parentSub != null) {
+            parent.map.put(piece.parentSub, piece);
+            if (piece.left != null) {
+                piece.left.deleted = true;
+            }
+        }
+    }
+
+    private static boolean sameId(YjsId a, YjsId b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private Container containerOf(YjsId type) {
+        Piece piece = find(type);
+        if (piece == null || piece.invisible || piece.deleted) {
+            return null;
+        }
+        return types.get(piece);
+    }
+
+    private Map<String, Object> entriesOf(Container container) {
+        if (container == null) {
+            return Map.of();
+        }
+        Map<String, Object> entries = new LinkedHashMap<>();
+        for (Map.Entry<String, Piece> entry : container.map.entrySet()) {
+            Piece piece = entry.getValue();
+            if (!piece.deleted && !piece.invisible) {
+                entries.put(entry.getKey(), valueAt(piece, piece.length - 1));
+            }
+        }
+        return entries;
+    }
+
+    private List<Object> elementsOf(Container container) {
+        if (container == null) {
+            return List.of();
+        }
+        List<Object> elements = new ArrayList<>();
+        for (Piece piece = container.start; piece != null; piece = piece.right) {
+            if (!piece.deleted && !piece.invisible && piece.struct.content().isCountable()) {
+                for (int i = 0; i < piece.length; i++) {
+                    elements.add(valueAt(piece, i));
+                }
+            }
+        }
+        return elements;
+    }
+
+    private String textOf(Container container) {
+        if (container == null) {
+            return "";
+        }
+        StringBuilder text = new StringBuilder();
+        for (Piece piece = container.start; piece != null; piece = piece.right) {
+            if (!piece.deleted && !piece.invisible && piece.struct.content().ref() == YjsContent.REF_STRING) {
+                text.append(piece.struct.content().string(), piece.offset, piece.offset + piece.length);
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * 段内第 index 个单位的值
+     */
+    private Object valueAt(Piece piece, int index) {
+        YjsContent content = piece.struct.content();
+        int offset = piece.offset + index;
+        return switch (content.ref()) {
+            case YjsContent.REF_TYPE -> new YjsId(piece.client, piece.clock + index);
+            case YjsContent.REF_ANY, YjsContent.REF_JSON ->
+                valueCache.computeIfAbsent(content, YjsContent::values).get(offset);
+            case YjsContent.REF_STRING -> String.valueOf(content.string().charAt(offset));
+            case YjsContent.REF_BINARY -> new YjsDecoder(content.rawBytes()).readVarUint8Array();
+            default -> null;
+        };
+    }
+}
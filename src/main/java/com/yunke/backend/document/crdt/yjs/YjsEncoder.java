@@ -0,0 +1,104 @@
+package com.yunke.backend.document.crdt.yjs;
+
+import java.util.Arrays;
+
+/**
+ * lib0 二进制编码器（Yjs v1 更新格式所用的基础编码）
+ *
+ * 对应 lib0/encoding.js。字符串按 JS TextEncoder 的行为编码：
+ * 孤立的代理字符编码为 U+FFFD（EF BF BD），而不是 Java 默认的 '?'。
+ */
+public final class YjsEncoder {
+
+    private byte[] buf;
+    private int len;
+
+    public YjsEncoder() {
+        this(64);
+    }
+
+    public YjsEncoder(int initialCapacity) {
+        this.buf = new byte[Math.max(16, initialCapacity)];
+    }
+
+    public int length() {
+        return len;
+    }
+
+    public void writeUint8(int value) {
+        ensureCapacity(1);
+        buf[len++] = (byte) value;
+    }
+
+    public void writeVarUint(long num) {
+        ensureCapacity(10);
+        while (num > 0x7F) {
+            buf[len++] = (byte) (0x80 | (num & 0x7F));
+            num >>>= 7;
+        }
+        buf[len++] = (byte) (num & 0x7F);
+    }
+
+    public void writeBytes(byte[] src) {
+        writeBytes(src, 0, src.length);
+    }
+
+    public void writeBytes(byte[] src, int offset, int length) {
+        ensureCapacity(length);
+        System.arraycopy(src, offset, buf, len, length);
+        len += length;
+    }
+
+    public void writeVarUint8Array(byte[] src) {
+        writeVarUint(src.length);
+        writeBytes(src);
+    }
+
+    public void writeVarString(String str) {
+        byte[] utf8 = encodeUtf8(str);
+        writeVarUint(utf8.length);
+        writeBytes(utf8);
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buf, len);
+    }
+
+    private void ensureCapacity(int extra) {
+        if (len + extra > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, len + extra));
+        }
+    }
+
+    /**
+     * 与 JS TextEncoder 一致的 UTF-8 编码
+     */
+    static byte[] encodeUtf8(String str) {
+        int n = str.length();
+        byte[] out = new byte[n * 3];
+        int p = 0;
+        for (int i = 0; i < n; i++) {
+            char c = str.charAt(i);
+            if (c < 0x80) {
+                out[p++] = (byte) c;
+            } else if (c < 0x800) {
+                out[p++] = (byte) (0xC0 | (c >> 6));
+                out[p++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(str.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, str.charAt(++i));
+                out[p++] = (byte) (0xF0 | (cp >> 18));
+                out[p++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                out[p++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                out[p++] = (byte) (0x80 | (cp & 0x3F));
+            } else {
+                if (Character.isSurrogate(c)) {
+                    c = '�';
+                }
+                out[p++] = (byte) (0xE0 | (c >> 12));
+                out[p++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                out[p++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return p == out.length ? out : Arrays.copyOf(out, p);
+    }
+}
@@ -0,0 +1,7 @@
+package com.yunke.backend.document.crdt.yjs;
+
+/**
+ * Yjs 结构体标识（clientId + clock）
+ */
+public record YjsId(long client, long clock) {
+}
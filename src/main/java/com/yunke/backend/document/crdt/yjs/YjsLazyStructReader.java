@@ -0,0 +1,57 @@
+package com.yunke.backend.document.crdt.yjs;
+
+/**
+ * 惰性结构体读取器，对应 yjs updates.js 中的 LazyStructReader
+ *
+ * 逐个读取 v1 更新中的结构体；读完所有结构体后 decoder 恰好停在删除集起始位置。
+ */
+final class YjsLazyStructReader {
+
+    private final YjsDecoder decoder;
+    private final boolean filterSkips;
+
+    private long remainingClients;
+    private long remainingStructs;
+    private long client;
+    private long clock;
+
+    private YjsStruct curr;
+
+    YjsLazyStructReader(YjsDecoder decoder, boolean filterSkips) {
+        this.decoder = decoder;
+        this.filterSkips = filterSkips;
+        this.remainingClients = decoder.readVarUint();
+        next();
+    }
+
+    YjsStruct curr() {
+        return curr;
+    }
+
+    YjsDecoder decoder() {
+        return decoder;
+    }
+
+    YjsStruct next() {
+        do {
+            curr = readNext();
+        } while (filterSkips && curr != null && curr.kind() == YjsStruct.Kind.SKIP);
+        return curr;
+    }
+
+    private YjsStruct readNext() {
+        while (remainingStructs == 0) {
+            if (remainingClients == 0) {
+                return null;
+            }
+            remainingClients--;
+            remainingStructs = decoder.readVarUint();
+            client = decoder.readVarUint();
+            clock = decoder.readVarUint();
+        }
+        remainingStructs--;
+        YjsStruct struct = YjsStruct.read(decoder, client, clock);
+        clock += struct.length();
+        return struct;
+    }
+}
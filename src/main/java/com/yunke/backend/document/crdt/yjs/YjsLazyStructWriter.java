@@ -0,0 +1,53 @@
+package com.yunke.backend.document.crdt.yjs;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 惰性结构体写入器，对应 yjs updates.js 中的 LazyStructWriter
+ *
+ * 同一 client 的连续结构体写入同一片段，client 切换时落盘，
+ * 最后按片段顺序拼出 v1 结构体区。
+ */
+final class YjsLazyStructWriter {
+
+    private record Fragment(long written, byte[] bytes) {}
+
+    private final List<Fragment> fragments = new ArrayList<>();
+    private YjsEncoder rest = new YjsEncoder();
+    private long currClient;
+    private long written;
+
+    void write(YjsStruct struct, long offset) {
+        if (written > 0 && currClient != struct.client()) {
+            flush();
+        }
+        if (written == 0) {
+            currClient = struct.client();
+            rest.writeVarUint(struct.client());
+            rest.writeVarUint(struct.clock() + offset);
+        }
+        struct.write(rest, offset);
+        written++;
+    }
+
+    private void flush() {
+        if (written > 0) {
+            fragments.add(new Fragment(written, rest.toByteArray()));
+            rest = new YjsEncoder();
+            written = 0;
+        }
+    }
+
+    /**
+     * 对应 finishLazyStructWriting：把所有片段写入目标编码器
+     */
+    void finish(YjsEncoder target) {
+        flush();
+        target.writeVarUint(fragments.size());
+        for (Fragment fragment : fragments) {
+            target.writeVarUint(fragment.written());
+            target.writeBytes(fragment.bytes());
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.yunke.backend.document.crdt.yjs;
+
+/**
+ * 惰性解码的 Yjs 结构体（GC / Skip / Item）
+ *
+ * 与 yjs 中 LazyStructReader 产出的对象一致：Item 不关联左右邻居，
+ * parent 要么是根类型名（parentKey），要么是父 Item 的 ID（parentId）。
+ */
+public final class YjsStruct {
+
+    public static final int STRUCT_GC = 0;
+    public static final int STRUCT_SKIP = 10;
+
+    private static final int BIT6 = 0x20;
+    private static final int BIT7 = 0x40;
+    private static final int BIT8 = 0x80;
+    private static final int BITS5 = 0x1F;
+
+    public enum Kind { GC, SKIP, ITEM }
+
+    private final Kind kind;
+    private final long client;
+    private final long clock;
+    private long length;
+
+    private final YjsId origin;
+    private final YjsId rightOrigin;
+    private final String parentKey;
+    private final YjsId parentId;
+    private final String parentSub;
+    private final YjsContent content;
+
+    private YjsStruct(Kind kind, long client, long clock, long length,
+                      YjsId origin, YjsId rightOrigin, String parentKey, YjsId parentId,
+                      String parentSub, YjsContent content) {
+        this.kind = kind;
+        this.client = client;
+        this.clock = clock;
+        this.length = length;
+        this.origin = origin;
+        this.rightOrigin = rightOrigin;
+        this.parentKey = parentKey;
+        this.parentId = parentId;
+        this.parentSub = parentSub;
+        this.content = content;
+    }
+
+    static YjsStruct gc(long client, long clock, long length) {
+        return new YjsStruct(Kind.GC, client, clock, length, null, null, null, null, null, null);
+    }
+
+    static YjsStruct skip(long client, long clock, long length) {
+        return new YjsStruct(Kind.SKIP, client, clock, length, null, null, null, null, null, null);
+    }
+
+    static YjsStruct item(long client, long clock, YjsId origin, YjsId rightOrigin,
+                          String parentKey, YjsId parentId, String parentSub, YjsContent content) {
+        return new YjsStruct(Kind.ITEM, client, clock, content.length(),
+            origin, rightOrigin, parentKey, parentId, parentSub, content);
+    }
+
+    /**
+     * 按 lazyStructReaderGenerator 的规则读取一个结构体
+     */
+    static YjsStruct read(YjsDecoder decoder, long client, long clock) {
+        int info = decoder.readUint8();
+        if (info == STRUCT_SKIP) {
+            return skip(client, clock, decoder.readVarUint());
+        }
+        if ((info & BITS5) == 0) {
+            return gc(client, clock, decoder.readVarUint());
+        }
+        boolean cantCopyParentInfo = (info & (BIT7 | BIT8)) == 0;
+        YjsId origin = (info & BIT8) == BIT8 ? readId(decoder) : null;
+        YjsId rightOrigin = (info & BIT7) == BIT7 ? readId(decoder) : null;
+        String parentKey = null;
+        YjsId parentId = null;
+        String parentSub = null;
+        if (cantCopyParentInfo) {
+            if (decoder.readVarUint() == 1) {
+                parentKey = decoder.readVarString();
+            } else {
+                parentId = readId(decoder);
+            }
+            if ((info & BIT6) == BIT6) {
+                parentSub = decoder.readVarString();
+            }
+        }
+        YjsContent content = YjsContent.read(decoder, info & BITS5);
+        return item(client, clock, origin, rightOrigin, parentKey, parentId, parentSub, content);
+    }
+
+    private static YjsId readId(YjsDecoder decoder) {
+        long idClient = decoder.readVarUint();
+        long idClock = decoder.readVarUint();
+        return new YjsId(idClient, idClock);
+    }
+
+    /**
+     * 对应 GC.write / Skip.write / Item.write
+     */
+    void write(YjsEncoder encoder, long offset) {
+        switch (kind) {
+            case GC -> {
+                encoder.writeUint8(STRUCT_GC);
+                encoder.writeVarUint(length - offset);
+            }
+            case SKIP -> {
+                encoder.writeUint8(STRUCT_SKIP);
+                encoder.writeVarUint(length - offset);
+            }
+            case ITEM -> writeItem(encoder, offset);
+        }
+    }
+
+    private void writeItem(YjsEncoder encoder, long offset) {
+        YjsId writeOrigin = offset > 0 ? new YjsId(client, clock + offset - 1) : origin;
+        int info = (content.ref() & BITS5)
+            | (writeOrigin == null ? 0 : BIT8)
+            | (rightOrigin == null ? 0 : BIT7)
+            | (parentSub == null ? 0 : BIT6);
+        encoder.writeUint8(info);
+        if (writeOrigin != null) {
+            encoder.writeVarUint(writeOrigin.client());
+            encoder.writeVarUint(writeOrigin.clock());
+        }
+        if (rightOrigin != null) {
+            encoder.writeVarUint(rightOrigin.client());
+            encoder.writeVarUint(rightOrigin.clock());
+        }
+        if (writeOrigin == null && rightOrigin == null) {
+            if (parentKey != null) {
+                encoder.writeVarUint(1);
+                encoder.writeVarString(parentKey);
+            } else if (parentId != null) {
+                encoder.writeVarUint(0);
+                encoder.writeVarUint(parentId.client());
+                encoder.writeVarUint(parentId.clock());
+            } else {
+                throw new IllegalStateException("Item 缺少 parent 信息: " + client + ":" + clock);
+            }
+            if (parentSub != null) {
+                encoder.writeVarString(parentSub);
+            }
+        }
+        content.write(encoder, (int) offset);
+    }
+
+    /**
+     * 对应 updates.js 中的 sliceStruct，返回从 diff 开始的右半部分
+     */
+    YjsStruct slice(long diff) {
+        return switch (kind) {
+            case GC -> gc(client, clock + diff, length - diff);
+            case SKIP -> skip(client, clock + diff, length - diff);
+            case ITEM -> item(client, clock + diff, new YjsId(client, clock + diff - 1), rightOrigin,
+                parentKey, parentId, parentSub, content.splice((int) diff));
+        };
+    }
+
+    /**
+     * 截取前 len 个单位，返回左半部分
+     */
+    YjsStruct truncate(long len) {
+        return switch (kind) {
+            case GC -> gc(client, clock, len);
+            case SKIP -> skip(client, clock, len);
+            case ITEM -> item(client, clock, origin, rightOrigin,
+                parentKey, parentId, parentSub, content.prefix((int) len));
+        };
+    }
+
+    /**
+     * 对应 mergeWith：惰性读取的 Item 没有 right 引用，永远不会合并；GC/Skip 同类相邻可合并
+     */
+    boolean mergeWith(YjsStruct right) {
+        if (kind == Kind.ITEM || kind != right.kind) {
+            return false;
+        }
+        length += right.length;
+        return true;
+    }
+
+    public Kind kind() {
+        return kind;
+    }
+
+    public long client() {
+        return client;
+    }
+
+    public long clock() {
+        return clock;
+    }
+
+    public long length() {
+        return length;
+    }
+
+    void setLength(long length) {
+        this.length = length;
+    }
+
+    public YjsContent content() {
+        return content;
+    }
+
+    public String parentKey() {
+        return parentKey;
+    }
+
+    public YjsId parentId() {
+        return parentId;
+    }
+
+    public String parentSub() {
+        return parentSub;
+    }
+
+    public YjsId origin() {
+        return origin;
+    }
+
+    public YjsId rightOrigin() {
+        return rightOrigin;
+    }
+}
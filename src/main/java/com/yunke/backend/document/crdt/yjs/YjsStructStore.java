@@ -0,0 +1,345 @@
+package com.yunke.backend.document.crdt.yjs;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 可增量更新的 Yjs 结构体存储
+ *
+ * 按 client 保存按 clock 有序的结构体与删除区间，应用一个更新的代价只与更新本身的大小相关
+ * （追加写为 O(1)，补洞为二分查找），完整编码和状态向量在需要时才生成。
+ * 编码结果与 {@link YjsUpdates#mergeUpdates} 合并全部历史更新的结果语义一致：
+ * client 降序、缺口以 Skip 填充、已存在的区间优先保留先到的数据。
+ *
+ * 更新先完整解码再写入存储，解码失败时存储保持不变。
+ * 非线程安全，调用方负责串行化。
+ */
+public final class YjsStructStore {
+
+    /** 每个删除区间编码后的估算字节数（client 内的 clock 与 len 两个 varUint） */
+    private static final int DELETE_RANGE_BYTES = 6;
+
+    private static final class ClientStructs {
+        private final List<YjsStruct> structs = new ArrayList<>();
+        /** 从 clock 0 开始连续覆盖的结构体个数 */
+        private int contiguousCount;
+        /** 连续覆盖到的 clock（即状态向量中的值） */
+        private long contiguousEnd;
+
+        long end() {
+            if (structs.isEmpty()) {
+                return 0;
+            }
+            YjsStruct last = structs.get(structs.size() - 1);
+            return last.clock() + last.length();
+        }
+
+        void advanceContiguous() {
+            while (contiguousCount < structs.size() && structs.get(contiguousCount).clock() == contiguousEnd) {
+                YjsStruct struct = structs.get(contiguousCount);
+                contiguousEnd = struct.clock() + struct.length();
+                contiguousCount++;
+            }
+        }
+    }
+
+    private final Map<Long, ClientStructs> clients = new HashMap<>();
+    private final Map<Long, List<long[]>> deletes = new HashMap<>();
+    /** 已存储结构体的编码字节数之和（重复区间不计入） */
+    private long structBytes;
+    private long deleteRanges;
+    private long appliedUpdates;
+
+    public static YjsStructStore fromUpdate(byte[] update) {
+        YjsStructStore store = new YjsStructStore();
+        if (update != null && update.length > 0) {
+            store.applyUpdate(update);
+        }
+        return store;
+    }
+
+    /**
+     * 应用一个 v1 更新
+     */
+    public void applyUpdate(byte[] update) {
+        // 先解码全部结构体和删除集：损坏的更新在这里抛出，不会留下写了一半的存储
+        YjsDecoder decoder = new YjsDecoder(update);
+        YjsLazyStructReader reader = new YjsLazyStructReader(decoder, true);
+        List<YjsStruct> structs = new ArrayList<>();
+        for (YjsStruct struct = reader.curr(); struct != null; struct = reader.next()) {
+            structs.add(struct);
+        }
+        YjsDeleteSet ds = YjsDeleteSet.read(decoder);
+
+        for (YjsStruct struct : structs) {
+            insert(struct);
+        }
+        ds.clients().forEach((client, items) -> {
+            for (YjsDeleteSet.DeleteItem item : items) {
+                addDelete(client, item.clock(), item.len());
+            }
+        });
+        appliedUpdates++;
+    }
+
+    /**
+     * 生成完整的 v1 更新
+     */
+    public byte[] encode() {
+        YjsLazyStructWriter writer = new YjsLazyStructWriter();
+        for (Long client : sortedDesc(clients.keySet())) {
+            YjsStruct pending = null;
+            for (YjsStruct struct : clients.get(client).structs) {
+                if (pending != null) {
+                    long pendingEnd = pending.clock() + pending.length();
+                    if (struct.clock() > pendingEnd) {
+                        writer.write(pending, 0);
+                        writer.write(YjsStruct.skip(client, pendingEnd, struct.clock() - pendingEnd), 0);
+                    } else if (pending.kind() == YjsStruct.Kind.GC && struct.kind() == YjsStruct.Kind.GC) {
+                        pending = YjsStruct.gc(client, pending.clock(), pending.length() + struct.length());
+                        continue;
+                    } else {
+                        writer.write(pending, 0);
+                    }
+                }
+                pending = struct;
+            }
+            if (pending != null) {
+                writer.write(pending, 0);
+            }
+        }
+        YjsEncoder encoder = new YjsEncoder((int) Math.min(approximateSize() + 16, Integer.MAX_VALUE - 16));
+        writer.finish(encoder);
+
+        List<Long> deleteClients = sortedDesc(deletes.keySet());
+        encoder.writeVarUint(deleteClients.size());
+        for (Long client : deleteClients) {
+            List<long[]> ranges = deletes.get(client);
+            encoder.writeVarUint(client);
+            encoder.writeVarUint(ranges.size());
+            for (long[] range : ranges) {
+                encoder.writeVarUint(range[0]);
+                encoder.writeVarUint(range[1]);
+            }
+        }
+        return encoder.toByteArray();
+    }
+
+    /**
+     * 当前状态向量（只统计从 clock 0 开始连续的部分）
+     */
+    public Map<Long, Long> stateVector() {
+        Map<Long, Long> state = new LinkedHashMap<>();
+        clients.forEach((client, structs) -> {
+            if (structs.contiguousEnd > 0) {
+                state.put(client, structs.contiguousEnd);
+            }
+        });
+        return state;
+    }
+
+    public byte[] encodeStateVector() {
+        return YjsUpdates.encodeStateVector(stateVector());
+    }
+
+    /**
+     * 当前存储内容编码后的估算字节数，用作内存占用估算
+     *
+     * 按实际保存的结构体和合并后的删除区间统计，重复应用或相互覆盖的更新不会累加。
+     */
+    public long approximateSize() {
+        return structBytes + deleteRanges * DELETE_RANGE_BYTES;
+    }
+
+    public long appliedUpdates() {
+        return appliedUpdates;
+    }
+
+    /**
+     * 按 client、clock 顺序遍历已存储的结构体（不含 Skip）
+     */
+    void forEachStruct(Consumer<YjsStruct> action) {
+        clients.values().forEach(entry -> entry.structs.forEach(action));
+    }
+
+    /**
+     * 包含指定 clock 的结构体；缺失时返回 null
+     */
+    YjsStruct find(long client, long clock) {
+        ClientStructs entry = clients.get(client);
+        if (entry == null) {
+            return null;
+        }
+        int idx = firstEndingAfter(entry.structs, clock);
+        if (idx >= entry.structs.size()) {
+            return null;
+        }
+        YjsStruct struct = entry.structs.get(idx);
+        return struct.clock() <= clock ? struct : null;
+    }
+
+    /**
+     * 指定位置是否落在删除集中
+     */
+    boolean isDeleted(long client, long clock) {
+        List<long[]> ranges = deletes.get(client);
+        if (ranges == null) {
+            return false;
+        }
+        // 最后一个起点不大于 clock 的区间
+        int lo = 0;
+        int hi = ranges.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (ranges.get(mid)[0] <= clock) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        if (lo == 0) {
+            return false;
+        }
+        long[] range = ranges.get(lo - 1);
+        return clock < range[0] + range[1];
+    }
+
+    /**
+     * 遍历合并后的删除区间，参数为 {client, clock, len}
+     */
+    void forEachDeleteRange(Consumer<long[]> action) {
+        deletes.forEach((client, ranges) -> {
+            for (long[] range : ranges) {
+                action.accept(new long[]{client, range[0], range[1]});
+            }
+        });
+    }
+
+    private void insert(YjsStruct struct) {
+        ClientStructs entry = clients.computeIfAbsent(struct.client(), key -> new ClientStructs());
+        List<YjsStruct> list = entry.structs;
+        long start = struct.clock();
+        long end = start + struct.length();
+        if (start >= entry.end()) {
+            // 最常见的情况：追加到末尾
+            list.add(struct);
+            structBytes += encodedSize(struct);
+            entry.advanceContiguous();
+            return;
+        }
+
+        int idx = firstEndingAfter(list, start);
+        long cursor = start;
+        while (cursor < end) {
+            if (idx >= list.size()) {
+                YjsStruct tail = piece(struct, cursor, end);
+                list.add(tail);
+                structBytes += encodedSize(tail);
+                break;
+            }
+            YjsStruct existing = list.get(idx);
+            if (existing.clock() > cursor) {
+                long gapEnd = Math.min(existing.clock(), end);
+                YjsStruct gap = piece(struct, cursor, gapEnd);
+                list.add(idx, gap);
+                structBytes += encodedSize(gap);
+                idx++;
+                cursor = gapEnd;
+            } else {
+                cursor = existing.clock() + existing.length();
+                idx++;
+            }
+        }
+        entry.advanceContiguous();
+    }
+
+    private static int encodedSize(YjsStruct struct) {
+        YjsEncoder encoder = new YjsEncoder(32);
+        struct.write(encoder, 0);
+        return encoder.length();
+    }
+
+    private static YjsStruct piece(YjsStruct struct, long from, long to) {
+        YjsStruct result = from > struct.clock() ? struct.slice(from - struct.clock()) : struct;
+        if (to < result.clock() + result.length()) {
+            result = result.truncate(to - result.clock());
+        }
+        return result;
+    }
+
+    /**
+     * 二分查找第一个结束位置大于 clock 的结构体
+     */
+    private static int firstEndingAfter(List<YjsStruct> list, long clock) {
+        int lo = 0;
+        int hi = list.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            YjsStruct struct = list.get(mid);
+            if (struct.clock() + struct.length() <= clock) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * 插入删除区间并与相邻/重叠区间合并（对应 sortAndMergeDeleteSet 的结果）
+     */
+    private void addDelete(long client, long clock, long len) {
+        List<long[]> ranges = deletes.computeIfAbsent(client, key -> new ArrayList<>());
+        long end = clock + len;
+        // 第一个起点大于 clock 的区间
+        int lo = 0;
+        int hi = ranges.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (ranges.get(mid)[0] <= clock) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        int idx = lo;
+        if (idx > 0) {
+            long[] left = ranges.get(idx - 1);
+            if (left[0] + left[1] >= clock) {
+                left[1] = Math.max(left[1], end - left[0]);
+                deleteRanges -= absorbFollowing(ranges, idx - 1);
+                return;
+            }
+        }
+        ranges.add(idx, new long[]{clock, len});
+        deleteRanges += 1 - absorbFollowing(ranges, idx);
+    }
+
+    /**
+     * 合并 idx 之后与其重叠或相邻的区间，返回被合并掉的区间数
+     */
+    private static int absorbFollowing(List<long[]> ranges, int idx) {
+        long[] current = ranges.get(idx);
+        int next = idx + 1;
+        while (next < ranges.size() && ranges.get(next)[0] <= current[0] + current[1]) {
+            long[] following = ranges.get(next);
+            current[1] = Math.max(current[1], following[0] + following[1] - current[0]);
+            next++;
+        }
+        if (next > idx + 1) {
+            ranges.subList(idx + 1, next).clear();
+        }
+        return next - idx - 1;
+    }
+
+    private static List<Long> sortedDesc(Collection<Long> keys) {
+        List<Long> sorted = new ArrayList<>(keys);
+        sorted.sort((a, b) -> Long.compare(b, a));
+        return sorted;
+    }
+}
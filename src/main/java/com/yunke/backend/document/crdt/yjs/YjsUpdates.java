@@ -0,0 +1,279 @@
+package com.yunke.backend.document.crdt.yjs;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Yjs v1 更新的 JVM 内原生实现
+ *
+ * 逐行移植自 yjs 13.6 的 src/utils/updates.js（mergeUpdates / diffUpdate /
+ * encodeStateVectorFromUpdate），不需要构造 Y.Doc，输出与 yjs 同名函数逐字节一致。
+ * 所有方法都是纯函数、线程安全。
+ */
+public final class YjsUpdates {
+
+    /** Y.encodeStateAsUpdate(new Y.Doc()) 的结果：0 个 client + 空删除集 */
+    private static final byte[] EMPTY_UPDATE = {0, 0};
+
+    /** 空状态向量 */
+    private static final byte[] EMPTY_STATE_VECTOR = {0};
+
+    /**
+     * 对应 mergeUpdatesV2 中对 decoder 的排序：client 降序、clock 升序。
+     * 注意同 clock 不同类型时与 yjs 一样返回 -1，配合稳定的 TimSort 得到相同顺序。
+     */
+    private static final Comparator<YjsLazyStructReader> READER_ORDER = (dec1, dec2) -> {
+        YjsStruct a = dec1.curr();
+        YjsStruct b = dec2.curr();
+        if (a.client() == b.client()) {
+            long clockDiff = a.clock() - b.clock();
+            if (clockDiff == 0) {
+                if (a.kind() == b.kind()) {
+                    return 0;
+                }
+                return a.kind() == YjsStruct.Kind.SKIP ? 1 : -1;
+            }
+            return Long.signum(clockDiff);
+        }
+        return Long.compare(b.client(), a.client());
+    };
+
+    private YjsUpdates() {
+    }
+
+    public static byte[] emptyUpdate() {
+        return EMPTY_UPDATE.clone();
+    }
+
+    public static byte[] emptyStateVector() {
+        return EMPTY_STATE_VECTOR.clone();
+    }
+
+    /**
+     * 合并多个更新，对应 Y.mergeUpdates
+     */
+    public static byte[] mergeUpdates(List<byte[]> updates) {
+        if (updates.size() == 1) {
+            return updates.get(0);
+        }
+        List<YjsDecoder> decoders = new ArrayList<>(updates.size());
+        List<YjsLazyStructReader> readers = new ArrayList<>(updates.size());
+        for (byte[] update : updates) {
+            YjsDecoder decoder = new YjsDecoder(update);
+            decoders.add(decoder);
+            readers.add(new YjsLazyStructReader(decoder, true));
+        }
+
+        YjsStruct currWrite = null;
+        YjsLazyStructWriter writer = new YjsLazyStructWriter();
+
+        while (true) {
+            readers.removeIf(reader -> reader.curr() == null);
+            readers.sort(READER_ORDER);
+            if (readers.isEmpty()) {
+                break;
+            }
+            YjsLazyStructReader currDecoder = readers.get(0);
+            long firstClient = currDecoder.curr().client();
+
+            if (currWrite != null) {
+                YjsStruct curr = currDecoder.curr();
+                boolean iterated = false;
+
+                // 跳过已经写过的部分（高位 client 先写）
+                while (curr != null
+                        && curr.clock() + curr.length() <= currWrite.clock() + currWrite.length()
+                        && curr.client() >= currWrite.client()) {
+                    curr = currDecoder.next();
+                    iterated = true;
+                }
+                if (curr == null
+                        || curr.client() != firstClient
+                        || (iterated && curr.clock() > currWrite.clock() + currWrite.length())) {
+                    continue;
+                }
+
+                if (firstClient != currWrite.client()) {
+                    writer.write(currWrite, 0);
+                    currWrite = curr;
+                    currDecoder.next();
+                } else if (currWrite.clock() + currWrite.length() < curr.clock()) {
+                    if (currWrite.kind() == YjsStruct.Kind.SKIP) {
+                        // 扩展已有的 Skip
+                        currWrite.setLength(curr.clock() + curr.length() - currWrite.clock());
+                    } else {
+                        writer.write(currWrite, 0);
+                        long diff = curr.clock() - currWrite.clock() - currWrite.length();
+                        currWrite = YjsStruct.skip(firstClient, currWrite.clock() + currWrite.length(), diff);
+                    }
+                } else {
+                    long diff = currWrite.clock() + currWrite.length() - curr.clock();
+                    if (diff > 0) {
+                        if (currWrite.kind() == YjsStruct.Kind.SKIP) {
+                            // 优先截短 Skip，另一侧的结构体可能包含更多信息
+                            currWrite.setLength(currWrite.length() - diff);
+                        } else {
+                            curr = curr.slice(diff);
+                        }
+                    }
+                    if (!currWrite.mergeWith(curr)) {
+                        writer.write(currWrite, 0);
+                        currWrite = curr;
+                        currDecoder.next();
+                    }
+                }
+            } else {
+                currWrite = currDecoder.curr();
+                currDecoder.next();
+            }
+
+            for (YjsStruct next = currDecoder.curr();
+                 next != null
+                     && next.client() == firstClient
+                     && next.clock() == currWrite.clock() + currWrite.length()
+                     && next.kind() != YjsStruct.Kind.SKIP;
+                 next = currDecoder.next()) {
+                writer.write(currWrite, 0);
+                currWrite = next;
+            }
+        }
+        if (currWrite != null) {
+            writer.write(currWrite, 0);
+        }
+
+        YjsEncoder encoder = new YjsEncoder(estimateSize(updates));
+        writer.finish(encoder);
+
+        List<YjsDeleteSet> deleteSets = new ArrayList<>(decoders.size());
+        for (YjsDecoder decoder : decoders) {
+            deleteSets.add(YjsDeleteSet.read(decoder));
+        }
+        YjsDeleteSet.merge(deleteSets).write(encoder);
+        return encoder.toByteArray();
+    }
+
+    /**
+     * 计算相对于给定状态向量缺失的部分，对应 Y.diffUpdate
+     */
+    public static byte[] diffUpdate(byte[] update, byte[] stateVector) {
+        Map<Long, Long> state = decodeStateVector(stateVector);
+        YjsLazyStructWriter writer = new YjsLazyStructWriter();
+        YjsDecoder decoder = new YjsDecoder(update);
+        YjsLazyStructReader reader = new YjsLazyStructReader(decoder, false);
+
+        while (reader.curr() != null) {
+            YjsStruct curr = reader.curr();
+            long currClient = curr.client();
+            long svClock = state.getOrDefault(currClient, 0L);
+            if (curr.kind() == YjsStruct.Kind.SKIP) {
+                // 写出的第一个结构体不能是 Skip
+                reader.next();
+                continue;
+            }
+            if (curr.clock() + curr.length() > svClock) {
+                writer.write(curr, Math.max(svClock - curr.clock(), 0));
+                reader.next();
+                while (reader.curr() != null && reader.curr().client() == currClient) {
+                    writer.write(reader.curr(), 0);
+                    reader.next();
+                }
+            } else {
+                while (reader.curr() != null
+                        && reader.curr().client() == currClient
+                        && reader.curr().clock() + reader.curr().length() <= svClock) {
+                    reader.next();
+                }
+            }
+        }
+
+        YjsEncoder encoder = new YjsEncoder(update.length);
+        writer.finish(encoder);
+        YjsDeleteSet.read(decoder).write(encoder);
+        return encoder.toByteArray();
+    }
+
+    /**
+     * 直接从更新中提取状态向量，对应 Y.encodeStateVectorFromUpdate
+     */
+    public static byte[] encodeStateVectorFromUpdate(byte[] update) {
+        YjsLazyStructReader reader = new YjsLazyStructReader(new YjsDecoder(update), false);
+        YjsStruct curr = reader.curr();
+        if (curr == null) {
+            return emptyStateVector();
+        }
+        List<long[]> entries = new ArrayList<>();
+        long currClient = curr.client();
+        boolean stopCounting = curr.clock() != 0;
+        long currClock = stopCounting ? 0 : curr.clock() + curr.length();
+        for (; curr != null; curr = reader.next()) {
+            if (currClient != curr.client()) {
+                if (currClock != 0) {
+                    entries.add(new long[]{currClient, currClock});
+                }
+                currClient = curr.client();
+                currClock = 0;
+                stopCounting = curr.clock() != 0;
+            }
+            // Skip 之后的部分不计入状态
+            if (curr.kind() == YjsStruct.Kind.SKIP) {
+                stopCounting = true;
+            }
+            if (!stopCounting) {
+                currClock = curr.clock() + curr.length();
+            }
+        }
+        if (currClock != 0) {
+            entries.add(new long[]{currClient, currClock});
+        }
+
+        YjsEncoder encoder = new YjsEncoder(entries.size() * 10 + 1);
+        // 保持更新中 client 的出现顺序（yjs 在这里不排序）
+        encoder.writeVarUint(entries.size());
+        for (long[] entry : entries) {
+            encoder.writeVarUint(entry[0]);
+            encoder.writeVarUint(entry[1]);
+        }
+        return encoder.toByteArray();
+    }
+
+    /**
+     * 解码状态向量，对应 Y.decodeStateVector
+     */
+    public static Map<Long, Long> decodeStateVector(byte[] stateVector) {
+        YjsDecoder decoder = new YjsDecoder(stateVector);
+        long size = decoder.readVarUint();
+        Map<Long, Long> state = new LinkedHashMap<>();
+        for (long i = 0; i < size; i++) {
+            long client = decoder.readVarUint();
+            long clock = decoder.readVarUint();
+            state.put(client, clock);
+        }
+        return state;
+    }
+
+    /**
+     * 编码状态向量，对应 writeStateVector（client 降序）
+     */
+    public static byte[] encodeStateVector(Map<Long, Long> state) {
+        YjsEncoder encoder = new YjsEncoder(state.size() * 10 + 1);
+        encoder.writeVarUint(state.size());
+        state.entrySet().stream()
+            .sorted((a, b) -> Long.compare(b.getKey(), a.getKey()))
+            .forEach(entry -> {
+                encoder.writeVarUint(entry.getKey());
+                encoder.writeVarUint(entry.getValue());
+            });
+        return encoder.toByteArray();
+    }
+
+    private static int estimateSize(List<byte[]> updates) {
+        long total = 0;
+        for (byte[] update : updates) {
+            total += update.length;
+        }
+        return (int) Math.min(total, Integer.MAX_VALUE - 16);
+    }
+}
@@ -1,5 +1,6 @@
 package com.yunke.backend.document.domain.entity;
 
+import com.yunke.backend.common.viewer.ViewerRelationEntityListener;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import org.hibernate.annotations.CreationTimestamp;
@@ -12,6 +13,7 @@ import java.time.LocalDateTime;
  * 文档点赞实体类
  */
 @Entity
+@EntityListeners(ViewerRelationEntityListener.class)
 @Table(name = "document_likes")
 @Data
 @EqualsAndHashCode(callSuper = false)
@@ -0,0 +1,33 @@
+package com.yunke.backend.document.event;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * 文档更新事件
+ * 当 Yjs 更新成功写入存储后触发
+ */
+public class DocUpdatedEvent extends ApplicationEvent {
+
+    private final String workspaceId;
+    private final String docId;
+    private final String editorId;
+
+    public DocUpdatedEvent(Object source, String workspaceId, String docId, String editorId) {
+        super(source);
+        this.workspaceId = workspaceId;
+        this.docId = docId;
+        this.editorId = editorId;
+    }
+
+    public String getWorkspaceId() {
+        return workspaceId;
+    }
+
+    public String getDocId() {
+        return docId;
+    }
+
+    public String getEditorId() {
+        return editorId;
+    }
+}
@@ -1,11 +1,13 @@
 package com.yunke.backend.document.repository;
 
 import com.yunke.backend.document.domain.entity.DocumentCollection;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -84,6 +86,19 @@ public interface DocumentCollectionRepository extends JpaRepository<DocumentColl
     @Query("SELECT dc.documentId FROM DocumentCollection dc WHERE dc.userId = :userId")
     List<String> findDocumentIdsByUserId(@Param("userId") String userId);
 
+    /**
+     * 查找用户收藏的文档ID（限定条数）
+     */
+    @Query("SELECT dc.documentId FROM DocumentCollection dc WHERE dc.userId = :userId")
+    List<String> findDocumentIdsByUserId(@Param("userId") String userId, Pageable pageable);
+
+    /**
+     * 在给定文档中查找用户已收藏的文档ID
+     */
+    @Query("SELECT dc.documentId FROM DocumentCollection dc WHERE dc.userId = :userId AND dc.documentId IN :documentIds")
+    List<String> findCollectedDocumentIds(@Param("userId") String userId,
+                                          @Param("documentIds") Collection<String> documentIds);
+
     /**
      * 查找收藏指定文档的所有用户ID
      */
@@ -1,11 +1,13 @@
 package com.yunke.backend.document.repository;
 
 import com.yunke.backend.document.domain.entity.DocumentLike;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -62,6 +64,19 @@ public interface DocumentLikeRepository extends JpaRepository<DocumentLike, Long
     @Query("SELECT dl.documentId FROM DocumentLike dl WHERE dl.userId = :userId")
     List<String> findDocumentIdsByUserId(@Param("userId") String userId);
 
+    /**
+     * 查找用户点赞的文档ID（限定条数）
+     */
+    @Query("SELECT dl.documentId FROM DocumentLike dl WHERE dl.userId = :userId")
+    List<String> findDocumentIdsByUserId(@Param("userId") String userId, Pageable pageable);
+
+    /**
+     * 在给定文档中查找用户已点赞的文档ID
+     */
+    @Query("SELECT dl.documentId FROM DocumentLike dl WHERE dl.userId = :userId AND dl.documentId IN :documentIds")
+    List<String> findLikedDocumentIds(@Param("userId") String userId,
+                                      @Param("documentIds") Collection<String> documentIds);
+
     /**
      * 查找点赞指定文档的所有用户ID
      */
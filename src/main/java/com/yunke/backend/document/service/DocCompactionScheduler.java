@@ -0,0 +1,401 @@
+package com.yunke.backend.document.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.yunke.backend.storage.binary.DocBinaryStorageService;
+import com.yunke.backend.system.domain.entity.Snapshot;
+import com.yunke.backend.system.domain.entity.Update;
+import com.yunke.backend.system.repository.SnapshotRepository;
+import com.yunke.backend.system.repository.UpdateRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 快照 + 更新日志压缩调度器
+ *
+ * DatabaseDocReader.getDoc 每次读取都要把快照与其后的全部更新合并一遍，两次合并之间读延迟随更新数线性增长。
+ * 这里按文档跟踪待压缩的更新条数、字节数与最早更新的时间，任一超过阈值即成为压缩候选：
+ * - 周期扫描候选，按读取热度（指数衰减的读取次数）优先，再按待压缩条数排序
+ * - 固定大小的工作线程池 + 有界队列，队列满时本轮剩余候选留待下轮
+ * - 增量压缩：每个任务最多把 batch-updates 条更新并入快照并删除，剩余部分下一轮继续
+ * - 读取时发现待合并条数超过 read-merge-limit，把已合并的结果直接交给压缩任务落为新快照，
+ *   后续读取不再重复合并
+ *
+ * 统计来源：写入（DatabaseDocWriter.pushDocUpdates）累加，读取（getDoc）按实际查询结果校准。
+ *
+ * 水位使用快照的 folded_seq（已并入的最大更新序号），而不是 created_at：created_at 在应用层提交前生成，
+ * 批量写入还会逐条 +1ms，晚提交或时间戳超前的更新会落在已前移的 updated_at 之前而永远不被读取。
+ * 追加更新时先锁快照行再分配 seq，与压缩事务互斥，seq 的分配顺序即提交顺序。
+ */
+@Component
+@Slf4j
+public class DocCompactionScheduler {
+
+    /**
+     * 单个文档的压缩统计
+     */
+    static final class DocStats {
+        final String workspaceId;
+        final String docId;
+        final AtomicInteger pendingUpdates = new AtomicInteger();
+        final LongAdder readsSinceScan = new LongAdder();
+        volatile long pendingBytes;
+        volatile long oldestPendingAt;
+        volatile double heat;
+
+        DocStats(String workspaceId, String docId) {
+            this.workspaceId = workspaceId;
+            this.docId = docId;
+        }
+    }
+
+    private final SnapshotRepository snapshotRepository;
+    private final UpdateRepository updateRepository;
+    private final YjsServiceClient yjsServiceClient;
+    private final DocBinaryStorageService binaryStorageService;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Cache<String, DocStats> stats;
+    private final Set<String> inProgress = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolExecutor workers;
+
+    private final boolean enabled;
+    private final int maxPendingUpdates;
+    private final long maxPendingBytes;
+    private final long maxAgeMillis;
+    private final int batchUpdates;
+    private final int readMergeLimit;
+
+    private final Timer compactionTimer;
+    private final Counter compactedUpdates;
+    private final Counter compactionFailures;
+
+    public DocCompactionScheduler(
+            SnapshotRepository snapshotRepository,
+            UpdateRepository updateRepository,
+            YjsServiceClient yjsServiceClient,
+            DocBinaryStorageService binaryStorageService,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${collaboration.compaction.enabled:true}") boolean enabled,
+            @Value("${collaboration.compaction.workers:2}") int workerCount,
+            @Value("${collaboration.compaction.max-pending-updates:100}") int maxPendingUpdates,
+            @Value("${collaboration.compaction.max-pending-bytes:1048576}") long maxPendingBytes,
+            @Value("${collaboration.compaction.max-age-seconds:600}") long maxAgeSeconds,
+            @Value("${collaboration.compaction.batch-updates:200}") int batchUpdates,
+            @Value("${collaboration.compaction.read-merge-limit:64}") int readMergeLimit,
+            @Value("${collaboration.compaction.max-tracked-docs:100000}") long maxTrackedDocs) {
+        this.snapshotRepository = snapshotRepository;
+        this.updateRepository = updateRepository;
+        this.yjsServiceClient = yjsServiceClient;
+        this.binaryStorageService = binaryStorageService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.maxPendingUpdates = maxPendingUpdates;
+        this.maxPendingBytes = maxPendingBytes;
+        this.maxAgeMillis = TimeUnit.SECONDS.toMillis(maxAgeSeconds);
+        this.batchUpdates = Math.max(1, batchUpdates);
+        this.readMergeLimit = readMergeLimit;
+        this.stats = Caffeine.newBuilder().maximumSize(maxTrackedDocs).build();
+
+        int poolSize = Math.max(1, workerCount);
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(poolSize * 4), runnable -> {
+                    Thread thread = new Thread(runnable, "doc-compaction-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        Gauge.builder("doc_compaction_tracked_docs", stats, cache -> cache.estimatedSize())
+                .description("Docs tracked by the compaction scheduler")
+                .register(meterRegistry);
+        Gauge.builder("doc_compaction_queue", workers, executor -> executor.getQueue().size())
+                .description("Compaction jobs waiting for a worker")
+                .register(meterRegistry);
+        this.compactionTimer = Timer.builder("doc_compaction_duration")
+                .description("Snapshot compaction duration")
+                .register(meterRegistry);
+        this.compactedUpdates = Counter.builder("doc_compaction_updates")
+                .description("Updates folded into snapshots")
+                .register(meterRegistry);
+        this.compactionFailures = Counter.builder("doc_compaction_failures")
+                .description("Failed snapshot compactions")
+                .register(meterRegistry);
+
+        log.info("🗜️ [DocCompactionScheduler] 初始化完成: enabled={}, workers={}, maxPending={}条/{}B/{}s, batch={}, readMergeLimit={}",
+                enabled, poolSize, maxPendingUpdates, maxPendingBytes, maxAgeSeconds, batchUpdates, readMergeLimit);
+    }
+
+    /**
+     * 记录新写入的更新
+     */
+    public void recordWrite(String workspaceId, String docId, int count, long bytes) {
+        if (!enabled || count <= 0) {
+            return;
+        }
+        DocStats docStats = statsOf(workspaceId, docId);
+        docStats.pendingUpdates.addAndGet(count);
+        docStats.pendingBytes += bytes;
+        if (docStats.oldestPendingAt == 0) {
+            docStats.oldestPendingAt = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * 记录一次读取，并用读取到的实际待合并更新校准统计
+     */
+    public void recordRead(String workspaceId, String docId, List<Update> pendingUpdates, long pendingBytes) {
+        if (!enabled) {
+            return;
+        }
+        DocStats docStats = statsOf(workspaceId, docId);
+        docStats.readsSinceScan.increment();
+        docStats.pendingUpdates.set(pendingUpdates.size());
+        docStats.pendingBytes = pendingBytes;
+        docStats.oldestPendingAt = pendingUpdates.isEmpty() ? 0
+                : pendingUpdates.get(0).getCreatedAt().atZone(java.time.ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * 读取时待合并条数超过上限：直接以读取已合并的结果作为新快照，避免后续读取重复合并
+     *
+     * @param snapshot      读取时的快照
+     * @param mergedBlob    快照与 pendingUpdates 合并后的完整文档
+     * @param pendingUpdates 本次合并的更新（按 seq 升序）
+     */
+    public void onReadMerged(Snapshot snapshot, byte[] mergedBlob, List<Update> pendingUpdates) {
+        if (!enabled || pendingUpdates.size() <= readMergeLimit) {
+            return;
+        }
+        String docKey = docKey(snapshot.getWorkspaceId(), snapshot.getId());
+        if (!inProgress.add(docKey)) {
+            return;
+        }
+        try {
+            workers.execute(() -> {
+                try {
+                    compactionTimer.record(() -> persist(snapshot, mergedBlob, pendingUpdates, 0));
+                } finally {
+                    inProgress.remove(docKey);
+                }
+            });
+            log.debug("🗜️ [DocCompactionScheduler] 读取触发压缩: docKey={}, updates={}", docKey, pendingUpdates.size());
+        } catch (RejectedExecutionException e) {
+            inProgress.remove(docKey);
+        }
+    }
+
+    /**
+     * 周期扫描候选并按热度提交压缩任务
+     */
+    @Scheduled(fixedDelayString = "${collaboration.compaction.scan-interval-ms:5000}")
+    public void scan() {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        List<DocStats> candidates = new ArrayList<>();
+        for (DocStats docStats : stats.asMap().values()) {
+            docStats.heat = docStats.heat * 0.5 + docStats.readsSinceScan.sumThenReset();
+            if (isCandidate(docStats, now)) {
+                candidates.add(docStats);
+            } else if (docStats.pendingUpdates.get() == 0 && docStats.heat < 0.01) {
+                stats.invalidate(docKey(docStats.workspaceId, docStats.docId));
+            }
+        }
+        if (candidates.isEmpty()) {
+            return;
+        }
+        candidates.sort(Comparator.<DocStats>comparingDouble(s -> s.heat).reversed()
+                .thenComparing(Comparator.<DocStats>comparingInt(s -> s.pendingUpdates.get()).reversed()));
+
+        int submitted = 0;
+        for (DocStats docStats : candidates) {
+            String docKey = docKey(docStats.workspaceId, docStats.docId);
+            if (!inProgress.add(docKey)) {
+                continue;
+            }
+            try {
+                workers.execute(() -> {
+                    try {
+                        compactionTimer.record(() -> compact(docStats));
+                    } finally {
+                        inProgress.remove(docKey);
+                    }
+                });
+                submitted++;
+            } catch (RejectedExecutionException e) {
+                inProgress.remove(docKey);
+                break;
+            }
+        }
+        log.debug("🗜️ [DocCompactionScheduler] 扫描完成: candidates={}, submitted={}", candidates.size(), submitted);
+    }
+
+    private boolean isCandidate(DocStats docStats, long now) {
+        int pending = docStats.pendingUpdates.get();
+        if (pending <= 0) {
+            return false;
+        }
+        return pending >= maxPendingUpdates
+                || docStats.pendingBytes >= maxPendingBytes
+                || (docStats.oldestPendingAt > 0 && now - docStats.oldestPendingAt >= maxAgeMillis);
+    }
+
+    /**
+     * 增量压缩：把最早的至多 batch-updates 条更新并入快照
+     */
+    private void compact(DocStats docStats) {
+        String workspaceId = docStats.workspaceId;
+        String docId = docStats.docId;
+        try {
+            Optional<Snapshot> snapshotOpt = snapshotRepository.findByWorkspaceIdAndId(workspaceId, docId);
+            if (snapshotOpt.isEmpty()) {
+                stats.invalidate(docKey(workspaceId, docId));
+                return;
+            }
+            Snapshot snapshot = snapshotOpt.get();
+            List<Update> pending = updateRepository.findByWorkspaceIdAndDocIdAfterSeq(
+                    workspaceId, docId, foldedSeq(snapshot));
+            if (pending.isEmpty()) {
+                docStats.pendingUpdates.set(0);
+                docStats.pendingBytes = 0;
+                docStats.oldestPendingAt = 0;
+                return;
+            }
+
+            List<Update> chunk = pending.subList(0, Math.min(batchUpdates, pending.size()));
+            List<byte[]> blobs = new ArrayList<>(chunk.size() + 1);
+            blobs.add(binaryStorageService.resolvePointer(snapshot.getBlob(), workspaceId, docId));
+            for (Update update : chunk) {
+                blobs.add(binaryStorageService.resolvePointer(update.getBlob()));
+            }
+            byte[] merged = yjsServiceClient.mergeUpdates(docKey(workspaceId, docId), blobs);
+            persist(snapshot, merged, chunk, pending.size() - chunk.size());
+        } catch (Exception e) {
+            compactionFailures.increment();
+            log.error("❌ [DocCompactionScheduler] 压缩失败: workspaceId={}, docId={}", workspaceId, docId, e);
+        }
+    }
+
+    /**
+     * 在一个事务中写入新快照并删除已并入的更新；快照行加锁读取，在此期间被其他路径改写
+     * （快照内容或水位变化）时放弃本次结果。
+     * 旧快照与已并入更新的二进制在事务提交后才删除，回滚时删除本次新写入的快照二进制
+     */
+    private void persist(Snapshot base, byte[] merged, List<Update> folded, int remaining) {
+        String workspaceId = base.getWorkspaceId();
+        String docId = base.getId();
+        LocalDateTime baseUpdatedAt = base.getUpdatedAt();
+        int baseFoldedSeq = foldedSeq(base);
+        Update last = folded.get(folded.size() - 1);
+        Boolean applied = transactionTemplate.execute(status -> {
+            Optional<Snapshot> currentOpt = snapshotRepository.findForUpdate(workspaceId, docId);
+            if (currentOpt.isEmpty()
+                    || !currentOpt.get().getUpdatedAt().isEqual(baseUpdatedAt)
+                    || foldedSeq(currentOpt.get()) != baseFoldedSeq) {
+                return false;
+            }
+            Snapshot current = currentOpt.get();
+            byte[] oldBlob = current.getBlob();
+            String pointer = binaryStorageService.saveSnapshot(workspaceId, docId, merged);
+            byte[] newBlob = binaryStorageService.pointerToBytes(pointer);
+            List<byte[]> obsolete = new ArrayList<>(folded.size() + 1);
+            obsolete.add(oldBlob);
+            folded.forEach(update -> obsolete.add(update.getBlob()));
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int completionStatus) {
+                    List<byte[]> toDelete = completionStatus == STATUS_COMMITTED ? obsolete : List.of(newBlob);
+                    toDelete.forEach(blob -> deletePointerQuietly(workspaceId, docId, blob));
+                }
+            });
+
+            current.setBlob(newBlob);
+            current.setFoldedSeq(last.getSeq());
+            current.setUpdatedAt(LocalDateTime.now());
+            current.setUpdatedBy(last.getCreatedBy());
+            current.setSeq(current.getSeq() == null ? 1 : current.getSeq() + 1);
+            snapshotRepository.save(current);
+
+            updateRepository.deleteAll(folded);
+            return true;
+        });
+
+        if (Boolean.TRUE.equals(applied)) {
+            compactedUpdates.increment(folded.size());
+            DocStats docStats = stats.getIfPresent(docKey(workspaceId, docId));
+            if (docStats != null) {
+                docStats.pendingUpdates.set(Math.max(0, remaining));
+                if (remaining == 0) {
+                    docStats.pendingBytes = 0;
+                    docStats.oldestPendingAt = 0;
+                }
+            }
+            log.info("🗜️ [DocCompactionScheduler] 压缩完成: workspaceId={}, docId={}, folded={}, remaining={}, size={}B",
+                    workspaceId, docId, folded.size(), remaining, merged.length);
+        } else {
+            log.debug("🗜️ [DocCompactionScheduler] 快照已被改写，放弃本次压缩: workspaceId={}, docId={}", workspaceId, docId);
+        }
+    }
+
+    private void deletePointerQuietly(String workspaceId, String docId, byte[] blob) {
+        try {
+            binaryStorageService.deletePointer(blob);
+        } catch (Exception e) {
+            log.warn("⚠️ [DocCompactionScheduler] 删除二进制失败: workspaceId={}, docId={}", workspaceId, docId, e);
+        }
+    }
+
+    static int foldedSeq(Snapshot snapshot) {
+        return snapshot.getFoldedSeq() == null ? 0 : snapshot.getFoldedSeq();
+    }
+
+    private DocStats statsOf(String workspaceId, String docId) {
+        return stats.get(docKey(workspaceId, docId), key -> new DocStats(workspaceId, docId));
+    }
+
+    private static String docKey(String workspaceId, String docId) {
+        return workspaceId + ":" + docId;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("⚠️ [DocCompactionScheduler] 压缩任务未在10秒内结束");
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            workers.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.yunke.backend.document.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 文档更新写后日志（write-behind）
+ *
+ * 协作链路每次推送只带一条更新，逐条调用 pushDocUpdates 会产生大量极小的 updates 插入。
+ * 这里先把更新放入内存队列，每隔 flush-interval-ms 或累计 max-batch-updates 条时统一落库：
+ * - 同一文档、同一编辑者的连续更新合并为一次 pushDocUpdates（一次 saveAll / JDBC 批量插入）
+ * - 同一轮中所有文档的写入放在一个事务里提交
+ * - 返回的 Future 在事务提交后才完成，调用方据此回 ack，保证“先落库、后确认”
+ * - 同一文档的更新按入队顺序写入；关闭时刷出剩余队列
+ * - 写入在事务内同步执行（{@link DocWriter#appendUpdates}），任何失败都会回滚并让 Future 异常完成
+ */
+@Component
+@Slf4j
+public class DocUpdateWriteBehindLog {
+
+    private record PendingUpdate(String workspaceId, String docId, byte[] update, String editorId,
+                                 long enqueuedAt, CompletableFuture<Long> future) {
+    }
+
+    private final DocWriter docWriter;
+    private final TransactionTemplate transactionTemplate;
+    private final LinkedBlockingQueue<PendingUpdate> queue = new LinkedBlockingQueue<>();
+    private final AtomicBoolean flushRequested = new AtomicBoolean(false);
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "doc-update-write-behind");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final int maxBatchUpdates;
+    private final Timer flushTimer;
+    private final DistributionSummary batchSizeSummary;
+
+    public DocUpdateWriteBehindLog(
+            @Qualifier("databaseDocWriter") DocWriter docWriter,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${collaboration.write-behind.flush-interval-ms:50}") long flushIntervalMs,
+            @Value("${collaboration.write-behind.max-batch-updates:500}") int maxBatchUpdates) {
+        this.docWriter = docWriter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxBatchUpdates = maxBatchUpdates;
+
+        Gauge.builder("doc_update_write_behind_pending", queue, LinkedBlockingQueue::size)
+                .description("Doc updates waiting to be persisted")
+                .register(meterRegistry);
+        Gauge.builder("doc_update_write_behind_lag_ms", this, DocUpdateWriteBehindLog::lagMillis)
+                .description("Age of the oldest doc update waiting to be persisted")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("doc_update_write_behind_flush")
+                .description("Doc update write-behind flush duration")
+                .register(meterRegistry);
+        this.batchSizeSummary = DistributionSummary.builder("doc_update_write_behind_batch_size")
+                .description("Doc updates persisted per flush")
+                .register(meterRegistry);
+
+        flusher.scheduleWithFixedDelay(this::flushSafely, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("📝 [DocUpdateWriteBehindLog] 初始化完成: flushInterval={}ms, maxBatch={}", flushIntervalMs, maxBatchUpdates);
+    }
+
+    /**
+     * 追加一条更新，Future 在更新落库后以存储时间戳完成
+     */
+    public CompletableFuture<Long> append(String workspaceId, String docId, byte[] update, String editorId) {
+        CompletableFuture<Long> future = new CompletableFuture<>();
+        queue.add(new PendingUpdate(workspaceId, docId, update, editorId, System.currentTimeMillis(), future));
+        if (queue.size() >= maxBatchUpdates && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(this::flushSafely);
+        }
+        return future;
+    }
+
+    /**
+     * 绕过队列立即在独立事务中写入，失败时抛出异常；用于全量文档写回
+     *
+     * @return 存储时间戳
+     */
+    public long persistNow(String workspaceId, String docId, byte[] update, String editorId) {
+        Long ts = transactionTemplate.execute(status ->
+                docWriter.appendUpdates(workspaceId, docId, List.of(update), editorId));
+        return ts != null ? ts : 0L;
+    }
+
+    /**
+     * 当前排队数
+     */
+    public int pendingCount() {
+        return queue.size();
+    }
+
+    /**
+     * 最早一条未落库更新的等待时长
+     */
+    public long lagMillis() {
+        PendingUpdate head = queue.peek();
+        return head == null ? 0 : System.currentTimeMillis() - head.enqueuedAt();
+    }
+
+    private void flushSafely() {
+        flushRequested.set(false);
+        try {
+            while (!queue.isEmpty()) {
+                List<PendingUpdate> batch = new ArrayList<>(Math.min(queue.size(), maxBatchUpdates));
+                queue.drainTo(batch, maxBatchUpdates);
+                if (batch.isEmpty()) {
+                    return;
+                }
+                flushTimer.record(() -> flush(batch));
+                batchSizeSummary.record(batch.size());
+            }
+        } catch (Exception e) {
+            log.error("❌ [DocUpdateWriteBehindLog] 刷写更新失败", e);
+        }
+    }
+
+    /**
+     * 一个事务写入整批；事务失败时退化为逐文档写入，避免单个文档拖垮整批
+     */
+    private void flush(List<PendingUpdate> batch) {
+        Map<String, List<PendingUpdate>> byDoc = new LinkedHashMap<>();
+        for (PendingUpdate update : batch) {
+            byDoc.computeIfAbsent(update.workspaceId() + ":" + update.docId(), key -> new ArrayList<>()).add(update);
+        }
+
+        Map<PendingUpdate, Long> timestamps = new LinkedHashMap<>();
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    byDoc.values().forEach(updates -> timestamps.putAll(persistDoc(updates))));
+            timestamps.forEach((update, ts) -> update.future().complete(ts));
+            log.debug("💾 [DocUpdateWriteBehindLog] 批量落库完成: docs={}, updates={}", byDoc.size(), batch.size());
+            return;
+        } catch (Exception e) {
+            log.warn("⚠️ [DocUpdateWriteBehindLog] 批量事务失败，改为逐文档写入: docs={}, updates={}",
+                    byDoc.size(), batch.size(), e);
+        }
+
+        for (List<PendingUpdate> updates : byDoc.values()) {
+            try {
+                Map<PendingUpdate, Long> docTimestamps = transactionTemplate.execute(status -> persistDoc(updates));
+                docTimestamps.forEach((update, ts) -> update.future().complete(ts));
+            } catch (Exception e) {
+                PendingUpdate first = updates.get(0);
+                log.error("❌ [DocUpdateWriteBehindLog] 文档更新落库失败: docKey={}:{}, count={}",
+                        first.workspaceId(), first.docId(), updates.size(), e);
+                updates.forEach(update -> update.future().completeExceptionally(e));
+            }
+        }
+    }
+
+    /**
+     * 按编辑者切分连续区段，每段一次 pushDocUpdates
+     */
+    private Map<PendingUpdate, Long> persistDoc(List<PendingUpdate> updates) {
+        Map<PendingUpdate, Long> timestamps = new LinkedHashMap<>();
+        int from = 0;
+        while (from < updates.size()) {
+            String editorId = updates.get(from).editorId();
+            int to = from + 1;
+            while (to < updates.size() && Objects.equals(updates.get(to).editorId(), editorId)) {
+                to++;
+            }
+            List<PendingUpdate> run = updates.subList(from, to);
+            List<byte[]> blobs = new ArrayList<>(run.size());
+            run.forEach(update -> blobs.add(update.update()));
+            PendingUpdate first = run.get(0);
+            long ts = docWriter.appendUpdates(first.workspaceId(), first.docId(), blobs, editorId);
+            run.forEach(update -> timestamps.put(update, ts));
+            from = to;
+        }
+        return timestamps;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+        try {
+            if (!flusher.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("⚠️ [DocUpdateWriteBehindLog] 刷写线程未在10秒内结束");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // 刷出剩余更新
+        flushSafely();
+        log.info("🛑 [DocUpdateWriteBehindLog] 已关闭，剩余未落库更新: {}", queue.size());
+    }
+}
@@ -30,6 +30,18 @@ public interface DocWriter {
      * @return 更新数量
      */
     Mono<Integer> pushDocUpdates(String workspaceId, String docId, List<byte[]> updates, String editorId);
+
+    /**
+     * 同步追加文档更新，在调用线程执行，失败时抛出异常
+     * 不自带事务，由调用方的事务包裹
+     *
+     * @param workspaceId 工作空间ID
+     * @param docId 文档ID
+     * @param updates 更新数据列表
+     * @param editorId 编辑者ID
+     * @return 最后一条更新的时间戳（毫秒）
+     */
+    long appendUpdates(String workspaceId, String docId, List<byte[]> updates, String editorId);
     
     /**
      * 删除文档
@@ -1,20 +1,21 @@
 package com.yunke.backend.document.service;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yunke.backend.document.crdt.yjs.YjsEncoder;
+import com.yunke.backend.document.crdt.yjs.YjsUpdates;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.*;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
@@ -22,6 +23,16 @@ import java.util.stream.Collectors;
  *
  * 调用Node.js YJS微服务进行CRDT操作
  * 支持合并、差异计算、状态向量提取等功能
+ *
+ * 通过 yjs.engine 选择后端：
+ * - remote（默认）：调用 yjs-service 微服务
+ * - native：使用 JVM 内置的 Yjs v1 编解码（{@link YjsUpdates}），无网络往返；
+ *   解析失败直接抛出异常，不会退化为完整更新或空状态向量
+ *
+ * remote 模式下经 {@link YjsServiceTransport} 调用：HTTP/2 长连接复用、按 EWMA 延迟选择实例、
+ * 单实例熔断与可选对冲请求。yjs.service.protocol=binary 时 merge/diff/state-vector/apply
+ * 使用 application/octet-stream 帧格式（varUint 条数 + 每条 varUint 长度与字节），响应为原始字节，
+ * 省去 JSON + Base64 的体积与编解码开销。
  */
 @Service
 public class YjsServiceClient {
@@ -40,30 +51,64 @@ public class YjsServiceClient {
     @Value("${yjs.service.retry:3}")
     private int maxRetry;
 
-    private final RestTemplate restTemplate;
+    @Value("${yjs.service.protocol:json}")
+    private String protocol;
+
+    @Value("${yjs.service.hedge-delay-ms:0}")
+    private long hedgeDelayMs;
+
+    @Value("${yjs.service.circuit-breaker.failure-threshold:5}")
+    private int breakerFailureThreshold;
+
+    @Value("${yjs.service.circuit-breaker.open-duration-ms:10000}")
+    private long breakerOpenDurationMs;
+
+    @Value("${yjs.service.routing:affinity}")
+    private String routing;
+
+    @Value("${yjs.service.affinity-load-factor:1.25}")
+    private double affinityLoadFactor;
+
+    @Value("${yjs.engine:remote}")
+    private String engine;
+
+    private static final String JSON = "application/json";
+    private static final String OCTET_STREAM = "application/octet-stream";
+
     private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
 
-    private final AtomicInteger roundRobinCounter = new AtomicInteger();
-    private final CopyOnWriteArrayList<String> serviceUrlPool = new CopyOnWriteArrayList<>();
+    private YjsServiceTransport transport;
 
-    public YjsServiceClient(RestTemplate restTemplate, ObjectMapper objectMapper) {
-        this.restTemplate = restTemplate;
+    public YjsServiceClient(ObjectMapper objectMapper, MeterRegistry meterRegistry) {
         this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
     }
 
     @jakarta.annotation.PostConstruct
     void initServiceUrls() {
+        List<String> serviceUrlPool = new ArrayList<>();
         if (yjsServiceUrls != null && !yjsServiceUrls.isBlank()) {
             java.util.Arrays.stream(yjsServiceUrls.split(","))
                 .map(String::trim)
                 .filter(url -> !url.isEmpty())
                 .map(this::normalizeBaseUrl)
+                .distinct()
                 .forEach(serviceUrlPool::add);
         }
 
         if (serviceUrlPool.isEmpty()) {
             serviceUrlPool.add(normalizeBaseUrl(yjsServiceUrl));
         }
+
+        transport = new YjsServiceTransport(serviceUrlPool, Duration.ofMillis(timeout), maxRetry, hedgeDelayMs,
+                breakerFailureThreshold, breakerOpenDurationMs,
+                "affinity".equalsIgnoreCase(routing) ? affinityLoadFactor : 0,
+                isNativeEngine() ? null : meterRegistry);
+        if (!isNativeEngine()) {
+            logger.info("🔗 [YjsServiceClient] yjs-service 实例: {}, protocol={}, routing={}, hedgeDelay={}ms",
+                    serviceUrlPool, protocol, routing, hedgeDelayMs);
+        }
     }
 
     /**
@@ -73,6 +118,26 @@ public class YjsServiceClient {
      * @return 合并后的更新（二进制）
      */
     public byte[] mergeUpdates(List<byte[]> updates) {
+        return mergeUpdates(null, updates);
+    }
+
+    /**
+     * 合并多个YJS更新，remote 模式下按 docKey 亲和路由到固定的 yjs-service 实例
+     *
+     * @param docKey 文档键（workspaceId:docId），为 null 时按负载选择实例
+     * @param updates 更新列表（二进制）
+     * @return 合并后的更新（二进制）
+     */
+    public byte[] mergeUpdates(String docKey, List<byte[]> updates) {
+        if (isNativeEngine()) {
+            try {
+                return YjsUpdates.mergeUpdates(updates.stream().filter(update -> update != null).toList());
+            } catch (Exception e) {
+                logger.error("❌ [YjsServiceClient] 本地合并失败", e);
+                throw new RuntimeException("YJS本地合并失败: " + e.getMessage(), e);
+            }
+        }
+
         long totalBytes = updates.stream()
             .filter(update -> update != null)
             .mapToLong(update -> update.length)
@@ -90,18 +155,16 @@ public class YjsServiceClient {
         }
 
         try {
+            if (isBinaryProtocol()) {
+                byte[] merged = callBinary("/api/yjs/bin/merge",
+                    updates.stream().filter(update -> update != null).toList(), docKey);
+                logger.info("✅ [YjsServiceClient] 合并成功: {}个 → {}字节", updates.size(), merged.length);
+                return merged;
+            }
+
             // 转换为Base64
             List<String> base64Updates = updates.stream()
-                .map(update -> {
-                    String base64 = Base64.getEncoder().encodeToString(update);
-                    // 显示前16字节的十六进制
-                    StringBuilder hex = new StringBuilder();
-                    for (int i = 0; i < Math.min(16, update.length); i++) {
-                        hex.append(String.format("%02x ", update[i] & 0xFF));
-                    }
-                    logger.info("  📦 更新: {}字节, 前16字节: {}", update.length, hex.toString().trim());
-                    return base64;
-                })
+                .map(update -> Base64.getEncoder().encodeToString(update))
                 .collect(Collectors.toList());
 
             // 构建请求
@@ -109,7 +172,7 @@ public class YjsServiceClient {
             request.put("updates", base64Updates);
 
             // 调用微服务
-            Map<String, Object> response = callServiceWithRetry("/api/yjs/merge", request);
+            Map<String, Object> response = callServiceWithRetry("/api/yjs/merge", request, docKey);
 
             // 解析响应
             if (response != null && Boolean.TRUE.equals(response.get("success"))) {
@@ -139,9 +202,33 @@ public class YjsServiceClient {
      * @return 差异更新
      */
     public byte[] diffUpdate(byte[] update, byte[] stateVector) {
+        return diffUpdate(null, update, stateVector);
+    }
+
+    /**
+     * 计算差异更新，remote 模式下按 docKey 亲和路由
+     */
+    public byte[] diffUpdate(String docKey, byte[] update, byte[] stateVector) {
         logger.debug("🔍 [YjsServiceClient] 计算差异更新");
 
+        if (isNativeEngine()) {
+            if (stateVector == null || stateVector.length == 0) {
+                return update; // 客户端状态为空，返回完整更新
+            }
+            try {
+                return YjsUpdates.diffUpdate(update, stateVector);
+            } catch (Exception e) {
+                logger.error("❌ [YjsServiceClient] 本地差异计算失败", e);
+                throw new RuntimeException("YJS本地差异计算失败: " + e.getMessage(), e);
+            }
+        }
+
         try {
+            if (isBinaryProtocol()) {
+                return callBinary("/api/yjs/bin/diff",
+                    List.of(update, stateVector != null ? stateVector : new byte[0]), docKey);
+            }
+
             Map<String, Object> request = new HashMap<>();
             request.put("update", Base64.getEncoder().encodeToString(update));
 
@@ -149,7 +236,7 @@ public class YjsServiceClient {
                 request.put("stateVector", Base64.getEncoder().encodeToString(stateVector));
             }
 
-            Map<String, Object> response = callServiceWithRetry("/api/yjs/diff", request);
+            Map<String, Object> response = callServiceWithRetry("/api/yjs/diff", request, docKey);
 
             if (response != null && Boolean.TRUE.equals(response.get("success"))) {
                 String diffBase64 = (String) response.get("diff");
@@ -172,13 +259,33 @@ public class YjsServiceClient {
      * @return 状态向量
      */
     public byte[] encodeStateVector(byte[] update) {
+        return encodeStateVector(null, update);
+    }
+
+    /**
+     * 提取状态向量，remote 模式下按 docKey 亲和路由
+     */
+    public byte[] encodeStateVector(String docKey, byte[] update) {
         logger.debug("📊 [YjsServiceClient] 提取状态向量");
 
+        if (isNativeEngine()) {
+            try {
+                return YjsUpdates.encodeStateVectorFromUpdate(update);
+            } catch (Exception e) {
+                logger.error("❌ [YjsServiceClient] 本地状态向量提取失败", e);
+                throw new RuntimeException("YJS本地状态向量提取失败: " + e.getMessage(), e);
+            }
+        }
+
         try {
+            if (isBinaryProtocol()) {
+                return callBinary("/api/yjs/bin/state-vector", List.of(update), docKey);
+            }
+
             Map<String, Object> request = new HashMap<>();
             request.put("update", Base64.getEncoder().encodeToString(update));
 
-            Map<String, Object> response = callServiceWithRetry("/api/yjs/state-vector", request);
+            Map<String, Object> response = callServiceWithRetry("/api/yjs/state-vector", request, docKey);
 
             if (response != null && Boolean.TRUE.equals(response.get("success"))) {
                 String stateVectorBase64 = (String) response.get("stateVector");
@@ -201,9 +308,28 @@ public class YjsServiceClient {
      * @return 应用后的文档
      */
     public byte[] applyUpdate(byte[] currentDoc, byte[] update) {
+        return applyUpdate(null, currentDoc, update);
+    }
+
+    /**
+     * 应用更新到文档，remote 模式下按 docKey 亲和路由
+     */
+    public byte[] applyUpdate(String docKey, byte[] currentDoc, byte[] update) {
         logger.debug("🔄 [YjsServiceClient] 应用更新到文档");
 
+        if (isNativeEngine()) {
+            if (currentDoc == null || currentDoc.length == 0) {
+                return update;
+            }
+            return mergeUpdates(docKey, List.of(currentDoc, update));
+        }
+
         try {
+            if (isBinaryProtocol()) {
+                return callBinary("/api/yjs/bin/apply",
+                    List.of(currentDoc != null ? currentDoc : new byte[0], update), docKey);
+            }
+
             Map<String, Object> request = new HashMap<>();
 
             if (currentDoc != null && currentDoc.length > 0) {
@@ -211,7 +337,7 @@ public class YjsServiceClient {
             }
             request.put("update", Base64.getEncoder().encodeToString(update));
 
-            Map<String, Object> response = callServiceWithRetry("/api/yjs/apply", request);
+            Map<String, Object> response = callServiceWithRetry("/api/yjs/apply", request, docKey);
 
             if (response != null && Boolean.TRUE.equals(response.get("success"))) {
                 String resultBase64 = (String) response.get("result");
@@ -235,6 +361,18 @@ public class YjsServiceClient {
     public List<BatchMergeResult> batchMerge(List<BatchMergeRequest> batches) {
         logger.info("📦 [YjsServiceClient] 批量合并{}个文档", batches.size());
 
+        if (isNativeEngine()) {
+            return batches.stream()
+                .map(batch -> {
+                    try {
+                        return new BatchMergeResult(batch.getDocId(), true, mergeUpdates(batch.getDocId(), batch.getUpdates()), null);
+                    } catch (Exception e) {
+                        return new BatchMergeResult(batch.getDocId(), false, null, e.getMessage());
+                    }
+                })
+                .collect(Collectors.toList());
+        }
+
         try {
             // 构建请求
             List<Map<String, Object>> requestBatches = batches.stream()
@@ -252,7 +390,7 @@ public class YjsServiceClient {
             request.put("batches", requestBatches);
 
             // 调用微服务
-            Map<String, Object> response = callServiceWithRetry("/api/yjs/batch-merge", request);
+            Map<String, Object> response = callServiceWithRetry("/api/yjs/batch-merge", request, null);
 
             // 解析响应
             if (response != null && Boolean.TRUE.equals(response.get("success"))) {
@@ -286,11 +424,11 @@ public class YjsServiceClient {
     /**
      * 创建空的YJS文档
      * 
-     * 通过 yjs-service 使用官方 yjs 库创建标准的空 Y.js 文档
+     * native 模式直接返回空 Y.Doc 的编码；remote 模式通过 yjs-service 使用官方 yjs 库创建
      * 
-     * ⚠️ 重要：不要在 Java 中手动构造 Y.js 二进制格式！
-     * 所有 Y.js CRDT 操作都必须通过官方 yjs 库（Node.js）处理，
-     * 以确保二进制格式 100% 兼容。
+     * ⚠️ 重要：不要在 Java 中手动拼装 Y.js 二进制格式！
+     * 所有 Y.js 二进制操作都必须通过 {@link YjsUpdates}（与 yjs 逐字节一致）
+     * 或官方 yjs 库（Node.js）处理。
      *
      * @param docId 文档ID（可选，用于日志）
      * @return 有效的空 Y.js 文档二进制数据
@@ -298,6 +436,11 @@ public class YjsServiceClient {
     public byte[] createEmptyDoc(String docId) {
         logger.info("📄 [YjsServiceClient] 请求创建空YJS文档: docId={}", docId != null ? docId : "unknown");
 
+        if (isNativeEngine()) {
+            // 与 Y.encodeStateAsUpdate(new Y.Doc()) 完全一致
+            return YjsUpdates.emptyUpdate();
+        }
+
         try {
             // 构建请求
             Map<String, Object> request = new HashMap<>();
@@ -306,7 +449,7 @@ public class YjsServiceClient {
             }
 
             // 调用微服务
-            Map<String, Object> response = callServiceWithRetry("/api/yjs/create-empty", request);
+            Map<String, Object> response = callServiceWithRetry("/api/yjs/create-empty", request, null);
 
             // 解析响应
             if (response != null && Boolean.TRUE.equals(response.get("success"))) {
@@ -338,18 +481,7 @@ public class YjsServiceClient {
      */
     public boolean checkHealth() {
         try {
-            for (String baseUrl : serviceUrlPool) {
-                String url = baseUrl + "/health";
-                try {
-                    Map<String, Object> response = restTemplate.getForObject(url, Map.class);
-                    if (response != null && "ok".equals(response.get("status"))) {
-                        return true;
-                    }
-                } catch (Exception singleError) {
-                    logger.debug("⚠️ [YjsServiceClient] 健康检测节点 {} 失败: {}", baseUrl, singleError.getMessage());
-                }
-            }
-            return false;
+            return transport.checkHealth();
         } catch (Exception e) {
             logger.warn("⚠️ [YjsServiceClient] 健康检查失败: {}", e.getMessage());
             return false;
@@ -357,58 +489,43 @@ public class YjsServiceClient {
     }
 
     /**
-     * 调用微服务（带重试）
+     * 是否使用 JVM 内置的 Yjs 编解码
      */
-    private Map<String, Object> callServiceWithRetry(String path, Map<String, Object> request) {
-        int retryCount = 0;
-        Exception lastException = null;
-
-        while (retryCount < maxRetry) {
-            try {
-                String baseUrl = selectServiceUrl();
-                String url = baseUrl + path;
-
-                HttpHeaders headers = new HttpHeaders();
-                headers.setContentType(MediaType.APPLICATION_JSON);
-
-                HttpEntity<Map<String, Object>> entity = new HttpEntity<>(request, headers);
-
-                ResponseEntity<Map> responseEntity = restTemplate.postForEntity(url, entity, Map.class);
-
-                if (responseEntity.getStatusCode().is2xxSuccessful()) {
-                    return responseEntity.getBody();
-                } else {
-                    throw new RestClientException("HTTP " + responseEntity.getStatusCode());
-                }
-
-            } catch (Exception e) {
-                lastException = e;
-                retryCount++;
+    public boolean isNativeEngine() {
+        return !"remote".equalsIgnoreCase(engine);
+    }
 
-                if (retryCount < maxRetry) {
-                    logger.warn("⚠️ [YjsServiceClient] 调用失败，重试 {}/{}: {}",
-                               retryCount, maxRetry, e.getMessage());
+    private boolean isBinaryProtocol() {
+        return "binary".equalsIgnoreCase(protocol);
+    }
 
-                    try {
-                        Thread.sleep(100 * retryCount); // 指数退避
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        break;
-                    }
-                }
-            }
+    /**
+     * JSON 调用；实例选择、换实例重试、熔断与对冲由 {@link YjsServiceTransport} 负责
+     */
+    private Map<String, Object> callServiceWithRetry(String path, Map<String, Object> request, String docKey) {
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(request);
+            byte[] response = transport.post(path, body, JSON, docKey);
+            return objectMapper.readValue(response, new TypeReference<Map<String, Object>>() {});
+        } catch (java.io.IOException e) {
+            throw new RuntimeException("YJS微服务响应解析失败: " + path, e);
         }
-
-        logger.error("❌ [YjsServiceClient] 调用失败，已重试{}次", maxRetry);
-        throw new RuntimeException("YJS微服务调用失败", lastException);
     }
 
-    private String selectServiceUrl() {
-        int idx = Math.abs(roundRobinCounter.getAndIncrement());
-        if (serviceUrlPool.isEmpty()) {
-            return normalizeBaseUrl(yjsServiceUrl);
+    /**
+     * 二进制帧调用：请求体为 varUint 条数 + 每条 varUint8Array，响应为结果原始字节
+     */
+    private byte[] callBinary(String path, List<byte[]> items, String docKey) {
+        int capacity = 8;
+        for (byte[] item : items) {
+            capacity += item.length + 5;
+        }
+        YjsEncoder encoder = new YjsEncoder(capacity);
+        encoder.writeVarUint(items.size());
+        for (byte[] item : items) {
+            encoder.writeVarUint8Array(item);
         }
-        return serviceUrlPool.get(idx % serviceUrlPool.size());
+        return transport.post(path, encoder.toByteArray(), OCTET_STREAM, docKey);
     }
 
     private String normalizeBaseUrl(String url) {
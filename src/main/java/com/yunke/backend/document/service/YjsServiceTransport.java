@@ -0,0 +1,413 @@
+package com.yunke.backend.document.service;
+
+import com.yunke.backend.common.util.ConsistentHashRing;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * yjs-service 多实例传输层
+ *
+ * - 基于 JDK HttpClient：异步发送、长连接复用，服务端支持时走 HTTP/2
+ * - 每个实例维护 EWMA 延迟与在途请求数，按 power-of-two-choices 选择得分最低的实例
+ * - 带路由键（docKey）的请求按有界负载一致性哈希固定到同一实例，使热文档只在一个实例上保持热度；
+ *   所有者熔断、已尝试或在途请求超过容量时顺时针溢出到下一个实例
+ * - 每个实例一个熔断器：连续失败达到阈值后熔断，冷却期结束放行一个探测请求
+ * - 可选对冲请求：主请求超过 hedge 延迟仍未返回时向另一实例并发请求，先成功者胜出
+ * - 每个接口/实例/结果一个 Micrometer Timer
+ */
+class YjsServiceTransport {
+
+    private static final Logger logger = LoggerFactory.getLogger(YjsServiceTransport.class);
+
+    private static final double EWMA_ALPHA = 0.2;
+
+    /**
+     * 单个 yjs-service 实例的健康状态
+     */
+    static final class Instance {
+        private final String baseUrl;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private volatile double ewmaMillis = 50;
+        private int consecutiveFailures;
+        private long openUntil;
+        private boolean open;
+        private boolean probing;
+
+        Instance(String baseUrl) {
+            this.baseUrl = baseUrl;
+        }
+
+        String baseUrl() {
+            return baseUrl;
+        }
+
+        int inFlight() {
+            return inFlight.get();
+        }
+
+        @Override
+        public String toString() {
+            return baseUrl;
+        }
+
+        double ewmaMillis() {
+            return ewmaMillis;
+        }
+
+        double score() {
+            return ewmaMillis * (inFlight.get() + 1);
+        }
+
+        /**
+         * 熔断状态下只在冷却期结束后放行一个探测请求
+         */
+        synchronized boolean tryAcquire(long now) {
+            if (!open) {
+                return true;
+            }
+            if (now >= openUntil && !probing) {
+                probing = true;
+                return true;
+            }
+            return false;
+        }
+
+        synchronized boolean isOpen() {
+            return open;
+        }
+
+        synchronized void onSuccess(double latencyMillis) {
+            ewmaMillis = ewmaMillis + EWMA_ALPHA * (latencyMillis - ewmaMillis);
+            consecutiveFailures = 0;
+            open = false;
+            probing = false;
+        }
+
+        /**
+         * 失败按不低于超时时间的延迟计入 EWMA，避免快速返回错误的实例反而得分更好
+         */
+        synchronized void onFailure(double penaltyMillis, int threshold, long openMillis) {
+            ewmaMillis = ewmaMillis + EWMA_ALPHA * (penaltyMillis - ewmaMillis);
+            consecutiveFailures++;
+            if (probing || consecutiveFailures >= threshold) {
+                if (!open) {
+                    logger.warn("🔌 [YjsServiceTransport] 实例熔断: {}, 连续失败 {} 次", baseUrl, consecutiveFailures);
+                }
+                open = true;
+                probing = false;
+                openUntil = System.currentTimeMillis() + openMillis;
+            }
+        }
+
+        /**
+         * 被对冲取消的请求不计入熔断，但已耗时作为延迟下界计入 EWMA，使慢实例的得分随之变差
+         */
+        synchronized void onCancelled(double elapsedMillis) {
+            if (elapsedMillis > ewmaMillis) {
+                ewmaMillis = ewmaMillis + EWMA_ALPHA * (elapsedMillis - ewmaMillis);
+            }
+            probing = false;
+        }
+    }
+
+    private final List<Instance> instances;
+    private final HttpClient httpClient;
+    private final Duration timeout;
+    private final int maxAttempts;
+    private final long hedgeDelayMillis;
+    private final int failureThreshold;
+    private final long openMillis;
+    private final MeterRegistry meterRegistry;
+    private final ConsistentHashRing<Instance> ring;
+
+    YjsServiceTransport(List<String> baseUrls, Duration timeout, int maxAttempts, long hedgeDelayMillis,
+                        int failureThreshold, long openMillis, MeterRegistry meterRegistry) {
+        this(baseUrls, timeout, maxAttempts, hedgeDelayMillis, failureThreshold, openMillis, 0, meterRegistry);
+    }
+
+    /**
+     * @param affinityLoadFactor 文档亲和路由的有界负载系数，0 表示不使用亲和路由
+     */
+    YjsServiceTransport(List<String> baseUrls, Duration timeout, int maxAttempts, long hedgeDelayMillis,
+                        int failureThreshold, long openMillis, double affinityLoadFactor,
+                        MeterRegistry meterRegistry) {
+        this.instances = baseUrls.stream().map(Instance::new).toList();
+        if (affinityLoadFactor >= 1.0 && instances.size() > 1) {
+            this.ring = new ConsistentHashRing<>(160, affinityLoadFactor);
+            this.ring.reset(instances);
+        } else {
+            this.ring = null;
+        }
+        this.timeout = timeout;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.hedgeDelayMillis = hedgeDelayMillis;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = openMillis;
+        this.meterRegistry = meterRegistry;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(timeout)
+                .build();
+
+        if (meterRegistry != null) {
+            for (Instance instance : instances) {
+                Gauge.builder("yjs_service_instance_latency_ewma", instance, Instance::ewmaMillis)
+                        .tag("instance", instance.baseUrl())
+                        .baseUnit("milliseconds")
+                        .register(meterRegistry);
+                Gauge.builder("yjs_service_instance_open", instance, i -> i.isOpen() ? 1 : 0)
+                        .tag("instance", instance.baseUrl())
+                        .register(meterRegistry);
+            }
+        }
+    }
+
+    List<Instance> instances() {
+        return instances;
+    }
+
+    /**
+     * POST 请求，按实例得分选择、失败换实例重试，必要时对冲
+     */
+    byte[] post(String path, byte[] body, String contentType) {
+        return post(path, body, contentType, null);
+    }
+
+    /**
+     * POST 请求；routingKey 非空且启用亲和路由时按一致性哈希选择实例
+     */
+    byte[] post(String path, byte[] body, String contentType, String routingKey) {
+        Set<Instance> excluded = new HashSet<>();
+        Exception lastException = null;
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            Instance primary = select(excluded, routingKey);
+            if (primary == null && !excluded.isEmpty()) {
+                // 其余实例都已试过（例如只有一个实例）：允许再次尝试，熔断状态仍由 tryAcquire 把关
+                excluded.clear();
+                primary = select(excluded, routingKey);
+            }
+            if (primary == null) {
+                break;
+            }
+            excluded.add(primary);
+            CompletableFuture<byte[]> primaryCall = send(primary, path, body, contentType);
+            try {
+                return await(path, body, contentType, routingKey, primaryCall, excluded);
+            } catch (Exception e) {
+                lastException = e;
+                if (attempt < maxAttempts) {
+                    logger.warn("⚠️ [YjsServiceTransport] 调用失败，换实例重试 {}/{}: {} {}",
+                            attempt, maxAttempts, primary.baseUrl() + path, rootMessage(e));
+                }
+            }
+        }
+        throw new IllegalStateException("yjs-service 无可用实例或调用失败: " + path, lastException);
+    }
+
+    /**
+     * GET 健康检查，任一实例返回 2xx 即视为健康
+     */
+    boolean checkHealth() {
+        for (Instance instance : instances) {
+            try {
+                HttpRequest request = HttpRequest.newBuilder(URI.create(instance.baseUrl() + "/health"))
+                        .timeout(timeout)
+                        .GET()
+                        .build();
+                HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() / 100 == 2) {
+                    return true;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (Exception e) {
+                logger.debug("⚠️ [YjsServiceTransport] 健康检测节点 {} 失败: {}", instance.baseUrl(), e.getMessage());
+            }
+        }
+        return false;
+    }
+
+    private byte[] await(String path, byte[] body, String contentType, String routingKey,
+                         CompletableFuture<byte[]> primaryCall, Set<Instance> excluded) throws Exception {
+        CompletableFuture<byte[]> winner = primaryCall;
+        if (hedgeDelayMillis > 0 && instances.size() > 1) {
+            try {
+                return unwrap(primaryCall, hedgeDelayMillis);
+            } catch (TimeoutException slow) {
+                Instance hedge = select(excluded, routingKey);
+                if (hedge != null) {
+                    excluded.add(hedge);
+                    logger.debug("🪝 [YjsServiceTransport] 发起对冲请求: {}{}", hedge.baseUrl(), path);
+                    winner = firstSuccess(primaryCall, send(hedge, path, body, contentType));
+                }
+            }
+        }
+        try {
+            return unwrap(winner, timeout.toMillis());
+        } catch (TimeoutException e) {
+            winner.cancel(true);
+            throw e;
+        }
+    }
+
+    /**
+     * 有路由键时走有界负载一致性哈希，否则 power-of-two-choices：随机取两个可用实例，选择得分较低者
+     */
+    private Instance select(Set<Instance> excluded, String routingKey) {
+        long now = System.currentTimeMillis();
+        if (ring != null && routingKey != null) {
+            return ring.route(routingKey, Instance::inFlight,
+                    instance -> !excluded.contains(instance) && instance.tryAcquire(now));
+        }
+        List<Instance> candidates = new ArrayList<>(instances.size());
+        for (Instance instance : instances) {
+            if (!excluded.contains(instance)) {
+                candidates.add(instance);
+            }
+        }
+        while (!candidates.isEmpty()) {
+            Instance chosen;
+            if (candidates.size() == 1) {
+                chosen = candidates.get(0);
+            } else {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                int first = random.nextInt(candidates.size());
+                int second = random.nextInt(candidates.size() - 1);
+                if (second >= first) {
+                    second++;
+                }
+                Instance a = candidates.get(first);
+                Instance b = candidates.get(second);
+                chosen = a.score() <= b.score() ? a : b;
+            }
+            if (chosen.tryAcquire(now)) {
+                return chosen;
+            }
+            candidates.remove(chosen);
+        }
+        return null;
+    }
+
+    private CompletableFuture<byte[]> send(Instance instance, String path, byte[] body, String contentType) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(instance.baseUrl() + path))
+                .timeout(timeout)
+                .header("Content-Type", contentType)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+        long start = System.nanoTime();
+        instance.inFlight.incrementAndGet();
+        CompletableFuture<HttpResponse<byte[]>> exchange =
+                httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray());
+        CompletableFuture<byte[]> call = exchange
+                .handle((response, error) -> {
+                    instance.inFlight.decrementAndGet();
+                    long elapsedNanos = System.nanoTime() - start;
+                    double elapsedMillis = elapsedNanos / 1_000_000.0;
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    if (cause instanceof CancellationException) {
+                        instance.onCancelled(elapsedMillis);
+                        record(path, instance, "cancelled", elapsedNanos);
+                        throw (CancellationException) cause;
+                    }
+                    if (cause == null && response.statusCode() / 100 == 2) {
+                        instance.onSuccess(elapsedMillis);
+                        record(path, instance, "success", elapsedNanos);
+                        return response.body();
+                    }
+                    instance.onFailure(Math.max(elapsedMillis, timeout.toMillis()), failureThreshold, openMillis);
+                    record(path, instance, "failure", elapsedNanos);
+                    if (cause != null) {
+                        throw new CompletionException(cause);
+                    }
+                    throw new CompletionException(new IllegalStateException(
+                            "HTTP " + response.statusCode() + " from " + instance.baseUrl() + path));
+                });
+        // 取消不会沿依赖链向上传递：调用方取消（对冲落败、超时）时显式取消底层请求，释放连接并计入 onCancelled
+        call.whenComplete((value, error) -> {
+            if (error instanceof CancellationException) {
+                exchange.cancel(true);
+            }
+        });
+        return call;
+    }
+
+    private void record(String path, Instance instance, String outcome, long elapsedNanos) {
+        if (meterRegistry == null) {
+            return;
+        }
+        Timer.builder("yjs_service_request")
+                .description("yjs-service request latency")
+                .tag("endpoint", path)
+                .tag("instance", instance.baseUrl())
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 两个请求中先成功者胜出，另一个被取消；两个都失败时才失败
+     */
+    private static CompletableFuture<byte[]> firstSuccess(CompletableFuture<byte[]> a, CompletableFuture<byte[]> b) {
+        CompletableFuture<byte[]> result = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        for (CompletableFuture<byte[]> call : List.of(a, b)) {
+            call.whenComplete((value, error) -> {
+                if (error == null) {
+                    if (result.complete(value)) {
+                        a.cancel(true);
+                        b.cancel(true);
+                    }
+                } else if (failures.incrementAndGet() == 2) {
+                    result.completeExceptionally(error);
+                }
+            });
+        }
+        result.whenComplete((value, error) -> {
+            if (error instanceof CancellationException) {
+                a.cancel(true);
+                b.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    private static byte[] unwrap(CompletableFuture<byte[]> future, long timeoutMillis) throws Exception {
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException && e.getCause().getCause() != null
+                    ? e.getCause().getCause() : e.getCause();
+            throw cause instanceof Exception ex ? ex : e;
+        }
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable current = e;
+        while (current.getCause() != null && current.getCause() != current) {
+            current = current.getCause();
+        }
+        return current.getMessage();
+    }
+}
@@ -5,6 +5,7 @@ import com.yunke.backend.system.domain.entity.Snapshot;
 import com.yunke.backend.system.domain.entity.Update;
 import com.yunke.backend.system.repository.SnapshotRepository;
 import com.yunke.backend.system.repository.UpdateRepository;
+import com.yunke.backend.document.service.DocCompactionScheduler;
 import com.yunke.backend.document.service.DocReader;
 import com.yunke.backend.document.service.YjsServiceClient;
 import com.yunke.backend.storage.binary.DocBinaryStorageService;
@@ -35,6 +36,7 @@ public class DatabaseDocReader implements DocReader {
     private final UpdateRepository updateRepository;
     private final YjsServiceClient yjsServiceClient;  // 🔥 使用YJS微服务（正确的CRDT实现）
     private final DocBinaryStorageService binaryStorageService;
+    private final DocCompactionScheduler compactionScheduler;
     
     @Override
     public Mono<Optional<DocRecord>> getDoc(String workspaceId, String docId) {
@@ -51,15 +53,16 @@ public class DatabaseDocReader implements DocReader {
                 Snapshot snapshot = snapshotOpt.get();
                 byte[] snapshotBytes = binaryStorageService.resolvePointer(snapshot.getBlob(), workspaceId, docId);
 
-                // 获取快照之后的所有更新
-                List<Update> updates = updateRepository.findByWorkspaceIdAndDocIdAfterTimestamp(
-                        workspaceId, docId, snapshot.getUpdatedAt());
+                // 获取快照之后的所有更新（seq 大于快照已并入的序号）
+                List<Update> updates = updateRepository.findByWorkspaceIdAndDocIdAfterSeq(
+                        workspaceId, docId, snapshot.getFoldedSeq() == null ? 0 : snapshot.getFoldedSeq());
 
                 byte[] finalBlob;
                 long finalTimestamp;
                 String finalEditorId;
 
                 if (updates.isEmpty()) {
+                    compactionScheduler.recordRead(workspaceId, docId, updates, 0);
                     // 没有新的更新，直接使用快照
                     finalBlob = snapshotBytes;
                     finalTimestamp = snapshot.getUpdatedAt().toEpochSecond(ZoneOffset.UTC) * 1000;
@@ -69,7 +72,20 @@ public class DatabaseDocReader implements DocReader {
                     log.debug("发现 {} 个待合并的更新，开始合并文档: workspaceId={}, docId={}", 
                             updates.size(), workspaceId, docId);
 
-                    finalBlob = mergeUpdates(snapshotBytes, updates);
+                    List<byte[]> updateBlobs = new ArrayList<>(updates.size());
+                    long pendingBytes = 0;
+                    for (Update update : updates) {
+                        byte[] blob = binaryStorageService.resolvePointer(update.getBlob());
+                        updateBlobs.add(blob);
+                        pendingBytes += blob.length;
+                    }
+                    compactionScheduler.recordRead(workspaceId, docId, updates, pendingBytes);
+
+                    finalBlob = mergeUpdates(workspaceId + ":" + docId, snapshotBytes, updateBlobs);
+                    if (finalBlob != snapshotBytes) {
+                        // 待合并更新过多时把本次合并结果落为新快照，后续读取不再重复合并
+                        compactionScheduler.onReadMerged(snapshot, finalBlob, updates);
+                    }
 
                     // 使用最新更新的时间戳和编辑者
                     Update latestUpdate = updates.get(updates.size() - 1);
@@ -117,7 +133,7 @@ public class DatabaseDocReader implements DocReader {
                 }
                 
                 // 合并所有更新为单一的二进制数据
-                return mergeUpdatesToBinary(updates);
+                return mergeUpdatesToBinary(workspaceId + ":" + docId, updates);
                 
             } catch (Exception e) {
                 log.error("获取文档更新失败: workspaceId={}, docId={}, since={}", 
@@ -141,7 +157,7 @@ public class DatabaseDocReader implements DocReader {
                 byte[] currentBlob = docRecordOpt.get().getBlob();
 
                 // 🔥 使用YJS微服务计算差异（正确的CRDT算法）
-                return yjsServiceClient.diffUpdate(currentBlob, stateVector);
+                return yjsServiceClient.diffUpdate(workspaceId + ":" + docId, currentBlob, stateVector);
                 
             } catch (Exception e) {
                 log.error("计算文档差异失败: workspaceId={}, docId={}", workspaceId, docId, e);
@@ -178,19 +194,16 @@ public class DatabaseDocReader implements DocReader {
     /**
      * 合并快照和更新列表 - 使用YJS微服务
      */
-    private byte[] mergeUpdates(byte[] snapshotBlob, List<Update> updates) {
+    private byte[] mergeUpdates(String docKey, byte[] snapshotBlob, List<byte[]> updateBlobs) {
         try {
             // 构建需要合并的所有更新（包括快照）
-            List<byte[]> allUpdates = new ArrayList<>();
+            List<byte[]> allUpdates = new ArrayList<>(updateBlobs.size() + 1);
             allUpdates.add(snapshotBlob);
-
-            for (Update update : updates) {
-                allUpdates.add(binaryStorageService.resolvePointer(update.getBlob()));
-            }
+            allUpdates.addAll(updateBlobs);
 
             // 使用YJS微服务进行合并
             log.debug("🔧 使用YJS微服务合并 {} 个更新（包括快照）", allUpdates.size());
-            byte[] merged = yjsServiceClient.mergeUpdates(allUpdates);
+            byte[] merged = yjsServiceClient.mergeUpdates(docKey, allUpdates);
 
             log.debug("✅ YJS微服务合并成功: size={}B", merged.length);
             return merged;
@@ -204,7 +217,7 @@ public class DatabaseDocReader implements DocReader {
     /**
      * 将多个更新合并为单一二进制数据 - 使用YJS微服务
      */
-    private byte[] mergeUpdatesToBinary(List<Update> updates) {
+    private byte[] mergeUpdatesToBinary(String docKey, List<Update> updates) {
         try {
             List<byte[]> updateBlobs = new ArrayList<>();
             for (Update update : updates) {
@@ -212,7 +225,7 @@ public class DatabaseDocReader implements DocReader {
             }
 
             // 使用YJS微服务进行合并
-            return yjsServiceClient.mergeUpdates(updateBlobs);
+            return yjsServiceClient.mergeUpdates(docKey, updateBlobs);
 
         } catch (Exception e) {
             log.error("❌ 合并更新为二进制数据失败", e);
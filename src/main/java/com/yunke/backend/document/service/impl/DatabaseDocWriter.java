@@ -5,13 +5,16 @@ import com.yunke.backend.system.domain.entity.Snapshot;
 import com.yunke.backend.system.domain.entity.Update;
 import com.yunke.backend.system.repository.SnapshotRepository;
 import com.yunke.backend.system.repository.UpdateRepository;
+import com.yunke.backend.document.service.DocCompactionScheduler;
 import com.yunke.backend.document.service.DocWriter;
 import com.yunke.backend.storage.binary.DocBinaryStorageService;
 import com.yunke.backend.document.util.YjsUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 
@@ -35,6 +38,8 @@ public class DatabaseDocWriter implements DocWriter {
     private final UpdateRepository updateRepository;
     private final YjsUtils yjsUtils;
     private final DocBinaryStorageService binaryStorageService;
+    private final DocCompactionScheduler compactionScheduler;
+    private final PlatformTransactionManager transactionManager;
 
     @Override
     @Transactional
@@ -95,30 +100,10 @@ public class DatabaseDocWriter implements DocWriter {
     public Mono<Integer> pushDocUpdates(String workspaceId, String docId, List<byte[]> updates, String editorId) {
         return Mono.fromCallable(() -> {
             try {
-                List<Update> updateEntities = new ArrayList<>();
-                LocalDateTime now = LocalDateTime.now();
-
-                // 基于数据库中已存在的最大序号继续递增，避免主键冲突或覆盖
-                int currentMaxSeq = updateRepository.findMaxSeqByWorkspaceIdAndId(workspaceId, docId);
-                int seq = currentMaxSeq + 1;
-                for (byte[] blob : updates) {
-                    Update update = new Update();
-                    update.setWorkspaceId(workspaceId);
-                    update.setId(docId);
-                    String pointer = binaryStorageService.saveUpdate(workspaceId, docId, seq++, blob);
-                    update.setBlob(binaryStorageService.pointerToBytes(pointer));
-                    update.setCreatedAt(now);
-                    update.setCreatedBy(editorId);
-
-                    updateEntities.add(update);
-                    // 每次更新时间增加1毫秒，确保顺序
-                    now = now.plusNanos(1_000_000);
-                }
-                
-                List<Update> savedUpdates = updateRepository.saveAll(updateEntities);
-                log.debug("推送文档更新: workspaceId={}, docId={}, count={}", workspaceId, docId, savedUpdates.size());
-                
-                return savedUpdates.size();
+                // 在订阅线程上执行，方法上的 @Transactional 不会生效，这里显式开启事务以便锁住快照行
+                List<Update> saved = new TransactionTemplate(transactionManager)
+                        .execute(status -> saveUpdates(workspaceId, docId, updates, editorId));
+                return saved == null ? 0 : saved.size();
             } catch (Exception e) {
                 log.error("推送文档更新失败: {}", e.getMessage(), e);
                 return 0;
@@ -126,6 +111,49 @@ public class DatabaseDocWriter implements DocWriter {
         }).subscribeOn(Schedulers.boundedElastic());
     }
 
+    @Override
+    public long appendUpdates(String workspaceId, String docId, List<byte[]> updates, String editorId) {
+        List<Update> savedUpdates = saveUpdates(workspaceId, docId, updates, editorId);
+        LocalDateTime createdAt = savedUpdates.isEmpty()
+                ? LocalDateTime.now()
+                : savedUpdates.get(savedUpdates.size() - 1).getCreatedAt();
+        return createdAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * 须在事务中调用：先锁快照行，同一文档的追加与压缩串行执行，
+     * seq 的分配顺序即提交顺序，压缩前移的 folded_seq 之后不会再出现更小的 seq
+     */
+    private List<Update> saveUpdates(String workspaceId, String docId, List<byte[]> updates, String editorId) {
+        List<Update> updateEntities = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+
+        snapshotRepository.findForUpdate(workspaceId, docId);
+        // 基于已分配的最大序号（含已并入快照的）继续递增，避免主键冲突或落到快照水位以下
+        int currentMaxSeq = updateRepository.findMaxSeqByWorkspaceIdAndId(workspaceId, docId);
+        int seq = currentMaxSeq + 1;
+        for (byte[] blob : updates) {
+            Update update = new Update();
+            update.setWorkspaceId(workspaceId);
+            update.setId(docId);
+            update.setSeq(seq);
+            String pointer = binaryStorageService.saveUpdate(workspaceId, docId, seq++, blob);
+            update.setBlob(binaryStorageService.pointerToBytes(pointer));
+            update.setCreatedAt(now);
+            update.setCreatedBy(editorId);
+
+            updateEntities.add(update);
+            // created_at 仅用于展示，顺序由 seq 决定
+            now = now.plusNanos(1_000_000);
+        }
+
+        List<Update> savedUpdates = updateRepository.saveAll(updateEntities);
+        log.debug("推送文档更新: workspaceId={}, docId={}, count={}", workspaceId, docId, savedUpdates.size());
+        compactionScheduler.recordWrite(workspaceId, docId, savedUpdates.size(),
+                updates.stream().mapToLong(blob -> blob.length).sum());
+        return savedUpdates;
+    }
+
     @Override
     @Transactional
     public Mono<Boolean> deleteDoc(String workspaceId, String docId) {
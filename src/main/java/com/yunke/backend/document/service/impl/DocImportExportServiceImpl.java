@@ -4,6 +4,7 @@ import com.yunke.backend.document.domain.entity.DocExportFormat;
 import com.yunke.backend.document.domain.entity.DocMode;
 import com.yunke.backend.document.domain.entity.DocRole;
 import com.yunke.backend.document.dto.*;
+import com.yunke.backend.document.enums.DocPermission;
 import com.yunke.backend.document.service.DocImportExportService;
 import com.yunke.backend.security.service.PermissionService;
 import com.yunke.backend.security.util.PermissionUtils;
@@ -410,11 +411,13 @@ public class DocImportExportServiceImpl implements DocImportExportService {
                         ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
                         ZipOutputStream zipOut = new ZipOutputStream(outputStream);
                         
+                        // 一次解析全部文档的权限掩码，而不是每个文档各查一次
+                        Map<String, Integer> masks = permissionService.resolveMasks(workspaceId, userId, docIds);
+                        
                         for (String docId : docIds) {
                             try {
                                 // 检查文档访问权限
-                                boolean canAccess = permissionService.checkDocPermission(workspaceId, docId, userId, "Doc.Read")
-                                        .block();
+                                boolean canAccess = DocPermission.has(masks.getOrDefault(docId, 0), DocPermission.Read);
                                 if (!canAccess) {
                                     log.warn("User {} has no access to doc {} in workspace {}", userId, docId, workspaceId);
                                     continue;
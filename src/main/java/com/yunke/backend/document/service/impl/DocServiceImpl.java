@@ -10,6 +10,7 @@ import com.yunke.backend.document.service.DocCopyService;
 import com.yunke.backend.document.service.DocImportExportService;
 import com.yunke.backend.document.service.DocVersionService;
 import com.yunke.backend.security.service.PermissionService;
+import com.yunke.backend.security.service.permission.PermissionChangedEvent;
 import com.yunke.backend.security.util.PermissionUtils;
 import com.yunke.backend.security.constants.PermissionActions;
 import com.yunke.backend.common.exception.PermissionDeniedException;
@@ -31,6 +32,7 @@ import com.yunke.backend.workspace.repository.WorkspaceDocRepository;
 import com.yunke.backend.workspace.repository.WorkspaceDocUserRoleRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
@@ -62,6 +64,7 @@ public class DocServiceImpl implements DocService {
     private final DocCopyService docCopyService;
     private final DocImportExportService docImportExportService;
     private final DocBinaryStorageService binaryStorageService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     @Transactional
@@ -167,6 +170,8 @@ public class DocServiceImpl implements DocService {
                 () -> Mono.fromCallable(() -> {
                     // Delete doc metadata
                     workspaceDocRepository.deleteByWorkspaceIdAndDocId(workspaceId, docId);
+                    // 批量删除不触发实体监听，公开文档缓存需显式失效
+                    eventPublisher.publishEvent(new PermissionChangedEvent(this, workspaceId, null));
                     
                     // Delete snapshots
                     snapshotRepository.deleteByWorkspaceIdAndId(workspaceId, docId);
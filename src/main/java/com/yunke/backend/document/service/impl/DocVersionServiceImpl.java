@@ -512,11 +512,8 @@ public class DocVersionServiceImpl implements DocVersionService {
     }
 
     private int getNextUpdateSequence(String workspaceId, String docId) {
-        return updateRepository.findByWorkspaceIdAndId(workspaceId, docId)
-                .stream()
-                .mapToInt(u -> u.getSeq() != null ? u.getSeq() : 0)
-                .max()
-                .orElse(0) + 1;
+        // 已并入快照并被删除的更新序号不能复用
+        return updateRepository.findMaxSeqByWorkspaceIdAndId(workspaceId, docId) + 1;
     }
 
     private byte[] calculateMissingUpdates(byte[] currentContent, byte[] stateVector) {
@@ -2,6 +2,7 @@ package com.yunke.backend.document.service.impl;
 
 import com.yunke.backend.document.dto.DocRecord;
 import com.yunke.backend.security.service.PermissionService;
+import com.yunke.backend.security.service.permission.PermissionChangedEvent;
 import com.yunke.backend.workspace.domain.entity.WorkspaceDoc;
 import com.yunke.backend.system.domain.entity.Update;
 import com.yunke.backend.system.domain.entity.Snapshot;
@@ -12,6 +13,7 @@ import com.yunke.backend.workspace.service.WorkspaceDocService;
 
 import com.yunke.backend.document.service.DocWriter;
 import com.yunke.backend.document.event.DocCreatedEvent;
+import com.yunke.backend.document.event.DocUpdatedEvent;
 import com.yunke.backend.monitor.MetricsCollector;
 import com.yunke.backend.storage.impl.WorkspaceDocStorageAdapter;
 import com.yunke.backend.storage.binary.DocBinaryStorageService;
@@ -269,6 +271,8 @@ public class WorkspaceDocServiceImpl implements WorkspaceDocService {
         
         // 1. 删除元数据
         docRepository.deleteByWorkspaceIdAndDocId(workspaceId, docId);
+        // 批量删除不触发实体监听，公开文档缓存需显式失效
+        eventPublisher.publishEvent(new PermissionChangedEvent(this, workspaceId, null));
         
         // 2. 删除快照和更新数据
         try {
@@ -624,6 +628,8 @@ public class WorkspaceDocServiceImpl implements WorkspaceDocService {
             // 1. 保存更新记录到 updates 表
             log.info("  💾 开始保存到updates表...");
             try {
+                // 锁住快照行后再分配序号，与压缩任务互斥（见 DocCompactionScheduler）
+                snapshotRepository.findForUpdate(workspaceId, docId);
                 int nextSeq = getNextUpdateSequence(workspaceId, docId);
                 log.info("  🔢 获取下一个序号: {}", nextSeq);
                 
@@ -713,7 +719,10 @@ public class WorkspaceDocServiceImpl implements WorkspaceDocService {
             } catch (Exception countException) {
                 log.warn("  ⚠️ 编辑计数更新失败: {}", countException.getMessage());
             }
-            
+
+            // 6. 通知搜索索引（防抖后异步索引）
+            eventPublisher.publishEvent(new DocUpdatedEvent(this, workspaceId, docId, userId));
+
             // 最终验证 - 检查所有表中的数据
             log.info("  🔍 开始最终验证...");
             try {
@@ -871,12 +880,8 @@ public class WorkspaceDocServiceImpl implements WorkspaceDocService {
      */
     private Integer getNextUpdateSequence(String workspaceId, String docId) {
         try {
-            List<Update> latestUpdates = updateRepository.findTopByWorkspaceIdAndIdOrderBySeqDesc(workspaceId, docId);
-            if (latestUpdates.isEmpty()) {
-                return 1;
-            }
-            Integer lastSeq = latestUpdates.get(0).getSeq();
-            return (lastSeq != null ? lastSeq : 0) + 1;
+            // 已并入快照并被删除的更新序号不能复用
+            return updateRepository.findMaxSeqByWorkspaceIdAndId(workspaceId, docId) + 1;
         } catch (Exception e) {
             log.warn("获取更新序号失败，使用默认值: {}", e.getMessage());
             return 1;
@@ -1033,7 +1038,7 @@ public class WorkspaceDocServiceImpl implements WorkspaceDocService {
 
                 try {
                     java.util.List<byte[]> updates = java.util.List.of(currentBlob, updateData);
-                    mergedBlob = yjsServiceClient.mergeUpdates(updates);
+                    mergedBlob = yjsServiceClient.mergeUpdates(workspaceId + ":" + docId, updates);
                     log.info("【快照更新】✅ YJS微服务合并成功: 合并后={}字节", mergedBlob.length);
                 } catch (Exception mergeException) {
                     log.error("【快照更新】❌ YJS微服务合并失败，使用新数据覆盖: {}", mergeException.getMessage());
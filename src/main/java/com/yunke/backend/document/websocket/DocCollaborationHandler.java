@@ -1,5 +1,6 @@
 package com.yunke.backend.document.websocket;
 
+import com.yunke.backend.document.collaboration.DocActorExecutor;
 import com.yunke.backend.document.collaboration.SpaceSyncGateway;
 import com.yunke.backend.workspace.service.WorkspaceDocService;
 import com.yunke.backend.security.service.PermissionService;
@@ -195,12 +196,25 @@ public class DocCollaborationHandler {
                     }
                     
                 }).exceptionally(throwable -> {
+                    Throwable cause = throwable instanceof java.util.concurrent.CompletionException
+                            && throwable.getCause() != null ? throwable.getCause() : throwable;
+                    if (cause instanceof DocActorExecutor.MailboxFullException) {
+                        // 文档任务队列已满：通知客户端稍后重发，而不是在服务端无限排队
+                        log.warn("⏳ [DocCollaborationHandler] 文档繁忙，通知客户端退避: clientId={}, docKey={}",
+                                clientId, workspaceId + ":" + docId);
+                        client.sendEvent("error", Map.of(
+                            "type", "backpressure",
+                            "message", "文档繁忙，请稍后重试",
+                            "retryAfterMs", 200
+                        ));
+                        return null;
+                    }
                     log.error("❌ [DocCollaborationHandler] 处理文档同步消息失败: clientId={}", 
-                             clientId, throwable);
+                             clientId, cause);
                     try {
                         client.sendEvent("error", Map.of(
                             "type", "sync-error",
-                            "message", "同步失败: " + throwable.getMessage()
+                            "message", "同步失败: " + cause.getMessage()
                         ));
                     } catch (Exception e) {
                         log.error("❌ [DocCollaborationHandler] 发送错误消息失败: clientId={}", clientId, e);
@@ -24,6 +24,15 @@ public class PostController {
         return ApiResponse.success(postService.createPost(request));
     }
 
+    @Operation(summary = "热门帖子")
+    @GetMapping("/hot")
+    public ApiResponse<Page<PostDTO>> getHotPosts(
+            @RequestParam(required = false) Long forumId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        return ApiResponse.success(postService.getHotPosts(forumId, page, size));
+    }
+
     @Operation(summary = "获取帖子详情")
     @GetMapping("/{id}")
     public ApiResponse<PostDTO> getPost(@PathVariable String id) {
@@ -64,19 +64,20 @@ public class ForumPost {
     @Column(name = "is_hot")
     private Boolean isHot = false;
     
-    @Column(name = "view_count")
+    // 计数与热度由 WriteBehindCounterService 以增量 UPDATE 维护，保存实体时不回写，避免覆盖并发增量
+    @Column(name = "view_count", updatable = false)
     private Integer viewCount = 0;
     
-    @Column(name = "reply_count")
+    @Column(name = "reply_count", updatable = false)
     private Integer replyCount = 0;
     
-    @Column(name = "like_count")
+    @Column(name = "like_count", updatable = false)
     private Integer likeCount = 0;
     
-    @Column(name = "collect_count")
+    @Column(name = "collect_count", updatable = false)
     private Integer collectCount = 0;
     
-    @Column(name = "hot_score", precision = 10, scale = 2)
+    @Column(name = "hot_score", precision = 10, scale = 2, updatable = false)
     private BigDecimal hotScore = BigDecimal.ZERO;
     
     @Column(name = "quality_score", precision = 3, scale = 2)
@@ -51,7 +51,8 @@ public class ForumReply {
     @Column(name = "content_type", length = 20)
     private String contentType = "markdown";
     
-    @Column(name = "like_count")
+    // 由 WriteBehindCounterService 以增量 UPDATE 维护
+    @Column(name = "like_count", updatable = false)
     private Integer likeCount = 0;
     
     @Column(name = "is_author")
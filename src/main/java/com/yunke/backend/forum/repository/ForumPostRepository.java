@@ -27,6 +27,12 @@ public interface ForumPostRepository extends JpaRepository<ForumPost, String> {
     @Query("SELECT p FROM ForumPost p WHERE p.status = :status ORDER BY p.hotScore DESC")
     Page<ForumPost> findHotPosts(@Param("status") ForumPost.PostStatus status, Pageable pageable);
     
+    Page<ForumPost> findByForumIdAndStatusOrderByHotScoreDesc(
+        Long forumId, 
+        ForumPost.PostStatus status, 
+        Pageable pageable
+    );
+    
     @Query("SELECT p FROM ForumPost p WHERE (p.title LIKE %:keyword% OR p.content LIKE %:keyword%) AND p.status = :status")
     Page<ForumPost> searchPosts(
         @Param("keyword") String keyword, 
@@ -1,5 +1,9 @@
 package com.yunke.backend.forum.service;
 
+import com.yunke.backend.common.counter.CounterTarget;
+import com.yunke.backend.common.counter.WriteBehindCounterService;
+import com.yunke.backend.common.viewer.ViewerRelation;
+import com.yunke.backend.common.viewer.ViewerStateService;
 import com.yunke.backend.system.domain.entity.EntityCollection;
 import com.yunke.backend.forum.domain.entity.ForumPost;
 import com.yunke.backend.system.repository.EntityCollectionRepository;
@@ -25,6 +29,8 @@ public class CollectionService {
 
     private final EntityCollectionRepository entityCollectionRepository;
     private final ForumPostRepository forumPostRepository;
+    private final WriteBehindCounterService counterService;
+    private final ViewerStateService viewerStateService;
 
     /**
      * 收藏帖子（幂等）
@@ -35,8 +41,9 @@ public class CollectionService {
         if (userId == null || userId.isBlank()) {
             throw new IllegalStateException("未登录或无法获取用户信息");
         }
-        ForumPost post = forumPostRepository.findById(postId)
-                .orElseThrow(() -> new IllegalArgumentException("帖子不存在"));
+        if (!forumPostRepository.existsById(postId)) {
+            throw new IllegalArgumentException("帖子不存在");
+        }
 
         boolean exists = entityCollectionRepository
                 .existsByUserIdAndEntityTypeAndEntityId(userId, ENTITY_TYPE_POST, postId);
@@ -50,9 +57,7 @@ public class CollectionService {
         ec.setEntityId(postId);
         entityCollectionRepository.save(ec);
 
-        Integer count = post.getCollectCount() == null ? 0 : post.getCollectCount();
-        post.setCollectCount(count + 1);
-        forumPostRepository.save(post);
+        counterService.increment(CounterTarget.POST_COLLECTS, postId);
         return true;
     }
 
@@ -65,16 +70,15 @@ public class CollectionService {
         if (userId == null || userId.isBlank()) {
             throw new IllegalStateException("未登录或无法获取用户信息");
         }
-        ForumPost post = forumPostRepository.findById(postId)
-                .orElseThrow(() -> new IllegalArgumentException("帖子不存在"));
+        if (!forumPostRepository.existsById(postId)) {
+            throw new IllegalArgumentException("帖子不存在");
+        }
 
         Optional<EntityCollection> opt = entityCollectionRepository
                 .findByUserIdAndEntityTypeAndEntityId(userId, ENTITY_TYPE_POST, postId);
         if (opt.isPresent()) {
             entityCollectionRepository.deleteByUserIdAndEntityTypeAndEntityId(userId, ENTITY_TYPE_POST, postId);
-            Integer count = post.getCollectCount() == null ? 0 : post.getCollectCount();
-            post.setCollectCount(Math.max(0, count - 1));
-            forumPostRepository.save(post);
+            counterService.decrement(CounterTarget.POST_COLLECTS, postId);
         }
         return true;
     }
@@ -92,6 +96,14 @@ public class CollectionService {
                 .existsByUserIdAndEntityTypeAndEntityId(userId, ENTITY_TYPE_POST, postId);
     }
 
+    /**
+     * 批量查询当前用户已收藏的帖子ID（列表页一次查询）
+     */
+    @Transactional(readOnly = true)
+    public Set<String> findCollectedPostIds(Collection<String> postIds) {
+        return viewerStateService.resolve(ViewerRelation.POST_COLLECT, currentUserId(), postIds);
+    }
+
     /**
      * 分页查询我的帖子收藏列表
      */
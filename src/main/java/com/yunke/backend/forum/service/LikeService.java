@@ -1,5 +1,9 @@
 package com.yunke.backend.forum.service;
 
+import com.yunke.backend.common.counter.CounterTarget;
+import com.yunke.backend.common.counter.WriteBehindCounterService;
+import com.yunke.backend.common.viewer.ViewerRelation;
+import com.yunke.backend.common.viewer.ViewerStateService;
 import com.yunke.backend.forum.repository.ForumReplyRepository;
 import com.yunke.backend.system.domain.entity.EntityLike;
 import com.yunke.backend.system.domain.entity.EntityLike.EntityType;
@@ -17,6 +21,10 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
 @Service
 @RequiredArgsConstructor
 public class LikeService {
@@ -26,6 +34,8 @@ public class LikeService {
     private final ForumReplyRepository forumReplyRepository;
     private final UserRepository userRepository;
     private final NotificationService notificationService;
+    private final WriteBehindCounterService counterService;
+    private final ViewerStateService viewerStateService;
 
     // 通用：点赞
     @Transactional(rollbackFor = Exception.class)
@@ -132,6 +142,17 @@ public class LikeService {
         return entityLikeRepository.existsByUserIdAndEntityTypeAndEntityId(userId, type, entityId);
     }
 
+    // 通用：批量查询已点赞的实体ID（列表页一次查询）
+    @Transactional(readOnly = true)
+    public Set<String> findLikedIds(EntityType type, Collection<String> entityIds, String userId) {
+        if (type == null || userId == null || entityIds == null || entityIds.isEmpty()) return Set.of();
+        ViewerRelation relation = viewerRelation(type);
+        if (relation != null) {
+            return viewerStateService.resolve(relation, userId, entityIds);
+        }
+        return new HashSet<>(entityLikeRepository.findLikedEntityIds(userId, type, entityIds));
+    }
+
     // 便捷方法：帖子点赞
     @Transactional(rollbackFor = Exception.class)
     public boolean likePost(String postId, String userId) {
@@ -156,39 +177,37 @@ public class LikeService {
         return unlike(EntityType.REPLY, String.valueOf(replyId), userId);
     }
 
-    // 内部：计数维护
+    // 内部：计数维护（合并写入，事务提交后计入）
     private void incrementPostLike(String postId) {
-        ForumPost post = forumPostRepository.findById(postId)
-                .orElseThrow(() -> new IllegalArgumentException("帖子不存在"));
-        int current = post.getLikeCount() == null ? 0 : post.getLikeCount();
-        post.setLikeCount(current + 1);
-        forumPostRepository.save(post);
+        if (!forumPostRepository.existsById(postId)) {
+            throw new IllegalArgumentException("帖子不存在");
+        }
+        counterService.increment(CounterTarget.POST_LIKES, postId);
     }
 
     private void decrementPostLike(String postId) {
-        forumPostRepository.findById(postId).ifPresent(post -> {
-            int current = post.getLikeCount() == null ? 0 : post.getLikeCount();
-            post.setLikeCount(Math.max(0, current - 1));
-            forumPostRepository.save(post);
-        });
+        counterService.decrement(CounterTarget.POST_LIKES, postId);
     }
 
     private void incrementReplyLike(String replyIdStr) {
         Long replyId = parseLongOrThrow(replyIdStr);
-        ForumReply reply = forumReplyRepository.findById(replyId)
-                .orElseThrow(() -> new IllegalArgumentException("回复不存在"));
-        int current = reply.getLikeCount() == null ? 0 : reply.getLikeCount();
-        reply.setLikeCount(current + 1);
-        forumReplyRepository.save(reply);
+        if (!forumReplyRepository.existsById(replyId)) {
+            throw new IllegalArgumentException("回复不存在");
+        }
+        counterService.increment(CounterTarget.REPLY_LIKES, String.valueOf(replyId));
     }
 
     private void decrementReplyLike(String replyIdStr) {
         Long replyId = parseLongOrThrow(replyIdStr);
-        forumReplyRepository.findById(replyId).ifPresent(reply -> {
-            int current = reply.getLikeCount() == null ? 0 : reply.getLikeCount();
-            reply.setLikeCount(Math.max(0, current - 1));
-            forumReplyRepository.save(reply);
-        });
+        counterService.decrement(CounterTarget.REPLY_LIKES, String.valueOf(replyId));
+    }
+
+    private ViewerRelation viewerRelation(EntityType type) {
+        return switch (type) {
+            case POST -> ViewerRelation.POST_LIKE;
+            case REPLY -> ViewerRelation.REPLY_LIKE;
+            default -> null;
+        };
     }
 
     private Long parseLongOrThrow(String value) {
@@ -1,10 +1,14 @@
 package com.yunke.backend.forum.service;
 
+import com.yunke.backend.common.counter.CounterTarget;
+import com.yunke.backend.common.counter.WriteBehindCounterService;
+import com.yunke.backend.common.ranking.HotRankingService;
 import com.yunke.backend.forum.dto.CreatePostRequest;
 import com.yunke.backend.forum.dto.PostDTO;
 import com.yunke.backend.forum.dto.UpdatePostRequest;
 import com.yunke.backend.forum.domain.entity.Forum;
 import com.yunke.backend.forum.domain.entity.ForumPost;
+import com.yunke.backend.system.domain.entity.EntityLike.EntityType;
 import com.yunke.backend.user.domain.entity.User;
 import com.yunke.backend.forum.repository.ForumPostRepository;
 import com.yunke.backend.forum.repository.ForumRepository;
@@ -27,6 +31,8 @@ import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -39,6 +45,10 @@ public class PostService {
     private final PostTagService postTagService;
     private final EditHistoryService editHistoryService;
     private final NotificationService notificationService;
+    private final WriteBehindCounterService counterService;
+    private final HotRankingService hotRankingService;
+    private final LikeService likeService;
+    private final CollectionService collectionService;
 
     // 1. 创建帖子，生成UUID作为id
     @Transactional(rollbackFor = Exception.class)
@@ -105,8 +115,8 @@ public class PostService {
         return toDTO(saved);
     }
 
-    // 2. 获取帖子详情，增加浏览次数
-    @Transactional(rollbackFor = Exception.class)
+    // 2. 获取帖子详情，增加浏览次数（合并写入，热度在落库时重算）
+    @Transactional(readOnly = true)
     public PostDTO getPost(String id) {
         if (id == null || id.isBlank()) {
             throw new IllegalArgumentException("帖子ID不能为空");
@@ -117,12 +127,8 @@ public class PostService {
             throw new IllegalArgumentException("帖子不存在或已删除");
         }
 
-        int views = post.getViewCount() == null ? 0 : post.getViewCount();
-        post.setViewCount(views + 1);
-        // 浏览数变化后，重算热度
-        post.setHotScore(calculateHotScore(post));
-        ForumPost updated = forumPostRepository.save(post);
-        return toDTO(updated);
+        counterService.increment(CounterTarget.POST_VIEWS, post.getId());
+        return toDTO(post);
     }
 
     // 3. 更新帖子
@@ -192,6 +198,7 @@ public class PostService {
         post.setStatus(ForumPost.PostStatus.DELETED);
         post.setDeletedAt(LocalDateTime.now());
         forumPostRepository.save(post);
+        hotRankingService.removePost(post.getId(), post.getForumId());
 
         // 维护板块帖子数量（简单减量）
         if (post.getForumId() != null) {
@@ -310,7 +317,9 @@ public class PostService {
         Pageable pageable = PageRequest.of(page, Math.min(size, 100));
 
         Page<ForumPost> p;
-        if (keyword != null && !keyword.isBlank()) {
+        if ("hot".equalsIgnoreCase(sort)) {
+            p = findHotPosts(forumId, pageable);
+        } else if (keyword != null && !keyword.isBlank()) {
             p = forumPostRepository.searchPosts(keyword.trim(), ForumPost.PostStatus.NORMAL, pageable);
         } else if (forumId != null) {
             p = forumPostRepository.findByForumIdAndStatusOrderByIsStickyDescLastReplyAtDesc(
@@ -322,7 +331,7 @@ public class PostService {
                     ForumPost.PostStatus.NORMAL, pageable);
         } else {
             // 默认按热度排序
-            p = forumPostRepository.findHotPosts(ForumPost.PostStatus.NORMAL, pageable);
+            p = findHotPosts(null, pageable);
         }
 
         List<ForumPost> list = p.getContent();
@@ -330,6 +339,7 @@ public class PostService {
             list = list.stream().filter(po -> Boolean.TRUE.equals(po.getIsSticky())).collect(Collectors.toList());
         }
 
+        fillViewerState(list);
         List<PostDTO> dtos = list.stream().map(this::toDTO).collect(Collectors.toList());
         return new PageImpl<>(dtos, pageable, p.getTotalElements());
     }
@@ -340,6 +350,44 @@ public class PostService {
         return listPosts(page, size, forumId, null, null, null, null, null);
     }
 
+    // 热门帖子（全站或指定板块）
+    @Transactional(readOnly = true)
+    public Page<PostDTO> getHotPosts(Long forumId, int page, int size) {
+        return listPosts(page, size, forumId, null, null, null, null, "hot");
+    }
+
+    // 当前用户的点赞/收藏状态：每种关系一次批量查询
+    private void fillViewerState(List<ForumPost> posts) {
+        User current = getCurrentUser();
+        if (current == null || posts.isEmpty()) return;
+        List<String> ids = posts.stream().map(ForumPost::getId).collect(Collectors.toList());
+        Set<String> liked = likeService.findLikedIds(EntityType.POST, ids, current.getId());
+        Set<String> collected = collectionService.findCollectedPostIds(ids);
+        for (ForumPost post : posts) {
+            post.setIsLiked(liked.contains(post.getId()));
+            post.setIsCollected(collected.contains(post.getId()));
+        }
+    }
+
+    // 热门列表优先从榜单取ID再批量加载，榜单不可用时按 hot_score 查库
+    private Page<ForumPost> findHotPosts(Long forumId, Pageable pageable) {
+        HotRankingService.RankPage ranked = hotRankingService.page(
+                HotRankingService.Board.POST_HOT, HotRankingService.forumScope(forumId), pageable);
+        if (ranked == null) {
+            return forumId == null
+                    ? forumPostRepository.findHotPosts(ForumPost.PostStatus.NORMAL, pageable)
+                    : forumPostRepository.findByForumIdAndStatusOrderByHotScoreDesc(
+                            forumId, ForumPost.PostStatus.NORMAL, pageable);
+        }
+        Map<String, ForumPost> byId = forumPostRepository.findAllById(ranked.ids()).stream()
+                .collect(Collectors.toMap(ForumPost::getId, po -> po));
+        List<ForumPost> posts = ranked.ids().stream()
+                .map(byId::get)
+                .filter(po -> po != null && po.getStatus() == ForumPost.PostStatus.NORMAL)
+                .collect(Collectors.toList());
+        return new PageImpl<>(posts, pageable, ranked.total());
+    }
+
     // 9. 计算热度分数
     public BigDecimal calculateHotScore(ForumPost post) {
         if (post == null) return BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP);
@@ -380,10 +428,11 @@ public class PostService {
         dto.setIsEssence(post.getIsEssence());
         dto.setIsLocked(post.getIsLocked());
         dto.setIsHot(post.getIsHot());
-        dto.setViewCount(post.getViewCount());
-        dto.setReplyCount(post.getReplyCount());
-        dto.setLikeCount(post.getLikeCount());
-        dto.setCollectCount(post.getCollectCount());
+        // 计数叠加尚未落库的增量
+        dto.setViewCount(counterService.merged(CounterTarget.POST_VIEWS, post.getId(), post.getViewCount()));
+        dto.setReplyCount(counterService.merged(CounterTarget.POST_REPLIES, post.getId(), post.getReplyCount()));
+        dto.setLikeCount(counterService.merged(CounterTarget.POST_LIKES, post.getId(), post.getLikeCount()));
+        dto.setCollectCount(counterService.merged(CounterTarget.POST_COLLECTS, post.getId(), post.getCollectCount()));
         dto.setHotScore(post.getHotScore());
         dto.setQualityScore(post.getQualityScore());
         dto.setLastReplyAt(post.getLastReplyAt());
@@ -1,5 +1,7 @@
 package com.yunke.backend.forum.service;
 
+import com.yunke.backend.common.counter.CounterTarget;
+import com.yunke.backend.common.counter.WriteBehindCounterService;
 import com.yunke.backend.forum.dto.CreateReplyRequest;
 import com.yunke.backend.forum.dto.ReplyDTO;
 import com.yunke.backend.forum.domain.entity.ForumPost;
@@ -38,6 +40,7 @@ public class ReplyService {
     private final ForumPostRepository forumPostRepository;
     private final MentionParser mentionParser;
     private final NotificationService notificationService;
+    private final WriteBehindCounterService counterService;
     
     // Controller-friendly API: create using current authenticated user
     @Transactional(rollbackFor = Exception.class)
@@ -79,10 +82,9 @@ public class ReplyService {
         ForumReply saved = forumReplyRepository.save(reply);
 
         ForumPost post = forumPostRepository.findById(request.getPostId()).orElseThrow();
-        Integer rc = post.getReplyCount() == null ? 0 : post.getReplyCount();
-        post.setReplyCount(rc + 1);
         post.setLastReplyAt(LocalDateTime.now());
         forumPostRepository.save(post);
+        counterService.increment(CounterTarget.POST_REPLIES, post.getId());
 
         return toDTO(saved);
     }
@@ -146,13 +148,12 @@ public class ReplyService {
 
         ForumReply saved = forumReplyRepository.save(reply);
 
-        // 更新帖子统计：replyCount + 1, lastReplyAt, lastReplyUser
-        Integer count = post.getReplyCount() == null ? 0 : post.getReplyCount();
-        post.setReplyCount(count + 1);
+        // 更新帖子统计：lastReplyAt, lastReplyUser；replyCount + 1 合并写入
         post.setLastReplyAt(LocalDateTime.now());
         post.setLastReplyUserId(userId);
         post.setLastReplyUserName(userName);
         forumPostRepository.save(post);
+        counterService.increment(CounterTarget.POST_REPLIES, post.getId());
 
         // 帖子作者被回复通知（排除自己回复自己的帖子）
         try {
@@ -254,13 +255,9 @@ public class ReplyService {
         String postId = reply.getPostId();
         forumReplyRepository.delete(reply);
 
-        // 维护帖子回复数（简单减量，最小0）
+        // 维护帖子回复数（合并写入，落库时最小0）
         if (postId != null) {
-            forumPostRepository.findById(postId).ifPresent(post -> {
-                Integer cnt = post.getReplyCount() == null ? 0 : post.getReplyCount();
-                post.setReplyCount(Math.max(0, cnt - 1));
-                forumPostRepository.save(post);
-            });
+            counterService.decrement(CounterTarget.POST_REPLIES, postId);
         }
         return true;
     }
@@ -350,7 +347,8 @@ public class ReplyService {
         dto.setFloor(entity.getFloor());
         dto.setParentId(entity.getParentId());
         dto.setContent(entity.getContent());
-        dto.setLikeCount(entity.getLikeCount());
+        dto.setLikeCount(counterService.merged(
+                CounterTarget.REPLY_LIKES, String.valueOf(entity.getId()), entity.getLikeCount()));
         dto.setIsBestAnswer(entity.getIsBestAnswer());
         dto.setCreatedAt(entity.getCreatedAt());
         dto.setUpdatedAt(entity.getUpdatedAt());
@@ -0,0 +1,70 @@
+package com.yunke.backend.infrastructure.config;
+
+import com.yunke.backend.search.index.CjkTextAnalyzer;
+import com.yunke.backend.search.index.EdgeNGramAnalyzer;
+import com.yunke.backend.search.index.SearchAnalyzers;
+import com.yunke.backend.search.index.StandardTextAnalyzer;
+import com.yunke.backend.search.index.TextAnalyzer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 搜索分析链配置
+ * 建索引与查询共用同一个 {@link SearchAnalyzers}，切换分析器后需要重建索引
+ */
+@Configuration
+@Slf4j
+public class SearchAnalyzerConfig {
+
+    @Bean
+    public SearchAnalyzers searchAnalyzers(
+            @Value("${search.analyzer.type:cjk}") String type,
+            @Value("${search.analyzer.stop-words:true}") boolean stopWords,
+            @Value("${search.analyzer.dictionary:}") String dictionary,
+            @Value("${search.analyzer.prefix-fields:title}") String prefixFields,
+            @Value("${search.analyzer.edge-ngram-min:1}") int edgeNGramMin,
+            @Value("${search.analyzer.edge-ngram-max:10}") int edgeNGramMax) {
+        TextAnalyzer analyzer = "standard".equalsIgnoreCase(type)
+                ? new StandardTextAnalyzer()
+                : new CjkTextAnalyzer(stopWords ? CjkTextAnalyzer.DEFAULT_STOP_WORDS : Set.of(), loadDictionary(dictionary));
+        Set<String> fields = Arrays.stream(prefixFields.split(","))
+                .map(String::trim)
+                .filter(field -> !field.isEmpty())
+                .collect(Collectors.toSet());
+        log.info("🔤 [SearchAnalyzer] 分析器: type={}, stopWords={}, prefixFields={}", type, stopWords, fields);
+        return new SearchAnalyzers(analyzer, new EdgeNGramAnalyzer(analyzer, edgeNGramMin, edgeNGramMax), fields);
+    }
+
+    /**
+     * 读取自定义词典（每行一个词，# 开头为注释）；文件不存在时只记录警告
+     */
+    private List<String> loadDictionary(String location) {
+        if (location == null || location.isBlank()) {
+            return List.of();
+        }
+        Path path = Paths.get(location);
+        try {
+            List<String> words = Files.readAllLines(path, StandardCharsets.UTF_8).stream()
+                    .map(String::trim)
+                    .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                    .toList();
+            log.info("🔤 [SearchAnalyzer] 已加载词典: path={}, words={}", path, words.size());
+            return words;
+        } catch (IOException e) {
+            log.warn("⚠️ [SearchAnalyzer] 词典加载失败，仅使用二元切分: path={}", path, e);
+            return List.of();
+        }
+    }
+}
@@ -4,6 +4,9 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * 安全防护配置
  */
@@ -27,11 +30,21 @@ public class SecurityProtectionConfig {
      */
     private BotConfig bot = new BotConfig();
     
+    /**
+     * SQL注入防护配置
+     */
+    private SqlInjectionConfig sqlInjection = new SqlInjectionConfig();
+    
     /**
      * 告警配置
      */
     private AlertConfig alert = new AlertConfig();
     
+    /**
+     * 请求防护引擎配置
+     */
+    private GuardConfig guard = new GuardConfig();
+    
     @Data
     public static class DDoSConfig {
         /**
@@ -96,6 +109,18 @@ public class SecurityProtectionConfig {
         private int blockDurationMinutes = 30;
     }
     
+    @Data
+    public static class SqlInjectionConfig {
+        /**
+         * 不做参数检查的路径（Ant 风格），用于提交二进制/Base64 数据的接口
+         */
+        private List<String> skipPaths = new ArrayList<>(List.of(
+                "/api/workspaces/*/docs/*/updates",
+                "/api/workspaces/*/docs/*/sync/updates",
+                "/api/workspaces/*/docs/*/snapshots",
+                "/api/collaboration/docs/*/snapshot"));
+    }
+    
     @Data
     public static class AlertConfig {
         /**
@@ -118,5 +143,45 @@ public class SecurityProtectionConfig {
          */
         private boolean logEnabled = true;
     }
+    
+    @Data
+    public static class GuardConfig {
+        /**
+         * 本地令牌桶容量（每个IP+路径），实际容量不超过最严阈值的1/10
+         */
+        private int localBurst = 10;
+        
+        /**
+         * 本地累计次数同步到 Redis 的最长间隔（毫秒）
+         */
+        private long syncIntervalMs = 2000;
+        
+        /**
+         * 本地缓存封禁状态的时长（秒）
+         */
+        private int localBlockSeconds = 5;
+        
+        /**
+         * 本地跟踪的客户端数量上限
+         */
+        private long maxTrackedClients = 100000;
+        
+        /**
+         * 按路径前缀的单IP限流，按顺序取第一个匹配项
+         */
+        private List<PathLimit> pathLimits = new ArrayList<>();
+    }
+    
+    @Data
+    public static class PathLimit {
+        /**
+         * 路径前缀
+         */
+        private String prefix;
+        
+        /**
+         * 单IP每分钟最大请求数
+         */
+        private int maxRequestsPerMinute = 60;
+    }
 }
-
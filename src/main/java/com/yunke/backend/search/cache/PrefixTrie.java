@@ -0,0 +1,157 @@
+package com.yunke.backend.search.cache;
+
+import com.yunke.backend.search.index.CjkTextAnalyzer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 标题前缀树（自动补全）
+ *
+ * <p>标题归一化（NFKC + 小写）后，从开头、每个词首以及每个中日韩字符处各插入一次，
+ * 最多 maxDepth 个字符，因此输入标题中间某个词的前缀也能命中。
+ * 每个节点只保留排名最高的 perNode 个候选（标题开头命中优先，其次标题更短），
+ * 查询只需沿前缀走到节点，耗时与标题总数无关。</p>
+ *
+ * <p>构建后只读，可在多个线程间共享；内容变化时整体重建。</p>
+ */
+public final class PrefixTrie {
+
+    /**
+     * 补全候选
+     */
+    public record Entry(String id, String title) {
+    }
+
+    private record Ranked(Entry entry, boolean fromStart) {
+    }
+
+    private static final class Node {
+        final Map<Character, Node> children = new HashMap<>(4);
+        final List<Ranked> top = new ArrayList<>(2);
+    }
+
+    private final Node root = new Node();
+    private final int perNode;
+    private final int maxDepth;
+    private int size;
+
+    public PrefixTrie(int perNode, int maxDepth) {
+        this.perNode = Math.max(1, perNode);
+        this.maxDepth = Math.max(1, maxDepth);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 插入一个标题；空标题忽略
+     */
+    public void put(String id, String title) {
+        if (title == null || title.isBlank()) {
+            return;
+        }
+        String normalized = CjkTextAnalyzer.normalize(title);
+        Entry entry = new Entry(id, title);
+        size++;
+        for (int start = 0; start < normalized.length(); start++) {
+            if (isInsertionPoint(normalized, start)) {
+                insert(normalized, start, new Ranked(entry, start == 0));
+            }
+        }
+    }
+
+    /**
+     * 前缀对应的候选，最多 limit 个；前缀超过 maxDepth 时按前 maxDepth 个字符查找后再过滤
+     */
+    public List<Entry> suggest(String prefix, int limit) {
+        String normalized = CjkTextAnalyzer.normalize(prefix == null ? "" : prefix).strip();
+        if (normalized.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        Node node = root;
+        int depth = Math.min(normalized.length(), maxDepth);
+        for (int i = 0; i < depth && node != null; i++) {
+            node = node.children.get(normalized.charAt(i));
+        }
+        if (node == null) {
+            return List.of();
+        }
+        List<Entry> result = new ArrayList<>(Math.min(limit, node.top.size()));
+        for (Ranked ranked : node.top) {
+            if (normalized.length() > maxDepth
+                    && !CjkTextAnalyzer.normalize(ranked.entry().title()).contains(normalized)) {
+                continue;
+            }
+            result.add(ranked.entry());
+            if (result.size() >= limit) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    private void insert(String normalized, int start, Ranked ranked) {
+        Node node = root;
+        int end = Math.min(normalized.length(), start + maxDepth);
+        for (int i = start; i < end; i++) {
+            char c = normalized.charAt(i);
+            if (i == start && Character.isWhitespace(c)) {
+                return;
+            }
+            node = node.children.computeIfAbsent(c, key -> new Node());
+            offer(node.top, ranked);
+        }
+    }
+
+    /**
+     * 按排名插入有界列表；同一 id 只保留排名更高的一次
+     */
+    private void offer(List<Ranked> top, Ranked candidate) {
+        for (int i = 0; i < top.size(); i++) {
+            if (top.get(i).entry().id().equals(candidate.entry().id())) {
+                if (compare(candidate, top.get(i)) >= 0) {
+                    return;
+                }
+                top.remove(i);
+                break;
+            }
+        }
+        int index = 0;
+        while (index < top.size() && compare(top.get(index), candidate) <= 0) {
+            index++;
+        }
+        if (index >= perNode) {
+            return;
+        }
+        top.add(index, candidate);
+        if (top.size() > perNode) {
+            top.remove(top.size() - 1);
+        }
+    }
+
+    private static int compare(Ranked a, Ranked b) {
+        if (a.fromStart() != b.fromStart()) {
+            return a.fromStart() ? -1 : 1;
+        }
+        int byLength = Integer.compare(a.entry().title().length(), b.entry().title().length());
+        return byLength != 0 ? byLength : a.entry().title().compareTo(b.entry().title());
+    }
+
+    /**
+     * 标题开头、词首（前一个字符不是字母或数字）或中日韩字符
+     */
+    private static boolean isInsertionPoint(String text, int index) {
+        char c = text.charAt(index);
+        if (index == 0) {
+            return true;
+        }
+        if (CjkTextAnalyzer.isCjk(c)) {
+            return true;
+        }
+        return Character.isLetterOrDigit(c) && !Character.isLetterOrDigit(text.charAt(index - 1));
+    }
+}
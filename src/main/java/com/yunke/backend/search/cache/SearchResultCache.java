@@ -0,0 +1,229 @@
+package com.yunke.backend.search.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.yunke.backend.search.index.CjkTextAnalyzer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * 搜索结果两级缓存（本地 Caffeine + Redis）
+ *
+ * 键为 (工作空间, 纪元, 查询类型, 查询参数的规范化 JSON 摘要)。每个工作空间在 Redis 中有一个
+ * 纪元计数器 {@code search:epoch:<workspaceId>}，任何索引写入都会递增它：旧纪元的条目不再被命中，
+ * 由 TTL 自然淘汰，失效不需要扫描键。
+ *
+ * 纪元在本地缓存 epoch-refresh-ms，本节点的写入立即更新本地纪元；
+ * 其他节点写入后最多 epoch-refresh-ms 内仍可能返回旧结果。
+ * Redis 不可用时直接执行查询，不影响搜索本身。
+ */
+@Slf4j
+@Component
+public class SearchResultCache {
+
+    private static final String EPOCH_PREFIX = "search:epoch:";
+    private static final String ENTRY_PREFIX = "search:cache:";
+
+    private final ReactiveRedisTemplate<String, Object> reactiveRedisTemplate;
+    private final ObjectMapper objectMapper;
+    private final ObjectMapper keyMapper;
+    private final Cache<String, String> local;
+    private final Cache<String, Long> epochs;
+    private final boolean enabled;
+    private final Duration remoteTtl;
+    private final Duration redisTimeout;
+
+    private final Counter localHits;
+    private final Counter remoteHits;
+    private final Counter misses;
+
+    public SearchResultCache(
+            ReactiveRedisTemplate<String, Object> reactiveRedisTemplate,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${search.cache.enabled:true}") boolean enabled,
+            @Value("${search.cache.local-max-entries:10000}") long localMaxEntries,
+            @Value("${search.cache.local-ttl-seconds:30}") long localTtlSeconds,
+            @Value("${search.cache.remote-ttl-seconds:300}") long remoteTtlSeconds,
+            @Value("${search.cache.epoch-refresh-ms:1000}") long epochRefreshMillis,
+            @Value("${search.cache.redis-timeout-ms:50}") long redisTimeoutMillis) {
+        this.reactiveRedisTemplate = reactiveRedisTemplate;
+        this.objectMapper = objectMapper;
+        this.keyMapper = objectMapper.copy()
+                .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+        this.enabled = enabled;
+        this.remoteTtl = Duration.ofSeconds(remoteTtlSeconds);
+        this.redisTimeout = Duration.ofMillis(redisTimeoutMillis);
+        this.local = Caffeine.newBuilder()
+                .maximumSize(localMaxEntries)
+                .expireAfterWrite(Duration.ofSeconds(localTtlSeconds))
+                .build();
+        this.epochs = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(Duration.ofMillis(epochRefreshMillis))
+                .build();
+
+        this.localHits = Counter.builder("search_cache_requests").tag("tier", "l1")
+                .description("Search cache lookups by serving tier")
+                .register(meterRegistry);
+        this.remoteHits = Counter.builder("search_cache_requests").tag("tier", "l2")
+                .description("Search cache lookups by serving tier")
+                .register(meterRegistry);
+        this.misses = Counter.builder("search_cache_requests").tag("tier", "miss")
+                .description("Search cache lookups by serving tier")
+                .register(meterRegistry);
+
+        log.info("🗃️ [SearchResultCache] 初始化完成: enabled={}, localMax={}, localTtl={}s, remoteTtl={}s",
+                enabled, localMaxEntries, localTtlSeconds, remoteTtlSeconds);
+    }
+
+    /**
+     * 查询缓存，未命中时执行 loader 并回填两级缓存
+     *
+     * @param kind      查询类型（search / advanced / blocks / aggregate），不同类型的结果互不复用
+     * @param keyParts  决定结果的全部参数（查询、过滤条件、分页），按规范化 JSON 计算摘要
+     * @param cacheable 结果是否可缓存（如超出延迟预算的部分结果不缓存）
+     */
+    public <T> Mono<T> get(String workspaceId, String kind, Object keyParts, Class<T> type,
+                           Supplier<Mono<T>> loader, Predicate<T> cacheable) {
+        if (!enabled || workspaceId == null) {
+            return Mono.defer(loader);
+        }
+        String digest = digest(keyParts);
+        if (digest == null) {
+            return Mono.defer(loader);
+        }
+        return currentEpoch(workspaceId)
+                .flatMap(epoch -> {
+                    if (epoch < 0) {
+                        // 纪元读取失败时无法判断条目是否过期，直接查询
+                        return loader.get();
+                    }
+                    String key = ENTRY_PREFIX + workspaceId + ":" + epoch + ":" + kind + ":" + digest;
+                    String cached = local.getIfPresent(key);
+                    if (cached != null) {
+                        T value = decode(cached, type);
+                        if (value != null) {
+                            localHits.increment();
+                            return Mono.just(value);
+                        }
+                    }
+                    return readRemote(key)
+                            .flatMap(json -> Mono.justOrEmpty(decode(json, type))
+                                    .doOnNext(value -> {
+                                        remoteHits.increment();
+                                        local.put(key, json);
+                                    }))
+                            .switchIfEmpty(Mono.defer(() -> {
+                                misses.increment();
+                                return loader.get().doOnNext(value -> {
+                                    if (cacheable.test(value)) {
+                                        store(key, value);
+                                    }
+                                });
+                            }));
+                });
+    }
+
+    /**
+     * 工作空间有索引写入：递增纪元，本工作空间的全部缓存条目随即失效
+     */
+    public Mono<Long> bumpEpoch(String workspaceId) {
+        if (!enabled || workspaceId == null) {
+            return Mono.empty();
+        }
+        return reactiveRedisTemplate.opsForValue().increment(EPOCH_PREFIX + workspaceId)
+                .doOnNext(epoch -> epochs.put(workspaceId, epoch))
+                .onErrorResume(e -> {
+                    // 计数器不可用时至少让本节点的缓存失效
+                    log.warn("⚠️ [SearchResultCache] 递增纪元失败: workspace={}, error={}", workspaceId, e.getMessage());
+                    epochs.invalidate(workspaceId);
+                    local.invalidateAll();
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * 查询文本归一化：NFKC、小写、合并空白，使仅大小写或空白不同的查询共享缓存
+     */
+    public static String normalizeQuery(String query) {
+        if (query == null) {
+            return "";
+        }
+        return CjkTextAnalyzer.normalize(query).strip().replaceAll("\\s+", " ");
+    }
+
+    private Mono<Long> currentEpoch(String workspaceId) {
+        Long cached = epochs.getIfPresent(workspaceId);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        return reactiveRedisTemplate.opsForValue().get(EPOCH_PREFIX + workspaceId)
+                .map(value -> value instanceof Number number ? number.longValue() : Long.parseLong(value.toString()))
+                .defaultIfEmpty(0L)
+                .timeout(redisTimeout)
+                .doOnNext(epoch -> epochs.put(workspaceId, epoch))
+                .onErrorResume(e -> {
+                    log.debug("读取搜索缓存纪元失败，本次不使用缓存: workspace={}, error={}", workspaceId, e.getMessage());
+                    return Mono.just(-1L);
+                });
+    }
+
+    private Mono<String> readRemote(String key) {
+        return reactiveRedisTemplate.opsForValue().get(key)
+                .map(Object::toString)
+                .timeout(redisTimeout)
+                .onErrorResume(e -> Mono.empty());
+    }
+
+    private void store(String key, Object value) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(value);
+        } catch (Exception e) {
+            log.debug("搜索结果序列化失败，不缓存: {}", e.getMessage());
+            return;
+        }
+        local.put(key, json);
+        reactiveRedisTemplate.opsForValue().set(key, json, remoteTtl)
+                .subscribe(ok -> { }, e -> log.debug("写入远端搜索缓存失败: {}", e.getMessage()));
+    }
+
+    private <T> T decode(String json, Class<T> type) {
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (Exception e) {
+            log.debug("搜索缓存条目无法解析，按未命中处理: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 查询参数的 SHA-256；map 按键排序，参数无法序列化时返回 null（不使用缓存）
+     */
+    private String digest(Object keyParts) {
+        try {
+            byte[] canonical = keyMapper.writeValueAsBytes(keyParts);
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(canonical));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } catch (Exception e) {
+            log.debug("搜索参数无法序列化，不使用缓存: {}", e.getMessage());
+            return null;
+        }
+    }
+}
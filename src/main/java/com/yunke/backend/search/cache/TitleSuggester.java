@@ -0,0 +1,133 @@
+package com.yunke.backend.search.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.yunke.backend.workspace.domain.entity.WorkspaceDoc;
+import com.yunke.backend.workspace.service.WorkspaceDocService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按工作空间的标题自动补全
+ *
+ * 每个工作空间的文档标题在本地保存一份 {@link PrefixTrie}，输入一个字符只需一次树上查找，
+ * 不再对工作空间的全部文档做一次搜索。标题表首次使用时从数据库加载，之后：
+ * - 本节点索引管道写入文档时通过 {@link #onTitleChanged} / {@link #onDocRemoved} 增量更新
+ * - 每 refresh-seconds 后台重新加载一次，覆盖其他节点与非编辑器路径的改名
+ * 前缀树在标题变化后的下一次查询时整体重建，查询本身不加锁。
+ */
+@Slf4j
+@Component
+public class TitleSuggester {
+
+    private record BuiltTrie(PrefixTrie trie, long version) {
+    }
+
+    /**
+     * 单个工作空间的标题表与前缀树；标题每变化一次版本号加一，查询时发现版本落后才重建
+     */
+    private final class WorkspaceTitles {
+        private final Map<String, String> titles = new ConcurrentHashMap<>();
+        private final AtomicLong version = new AtomicLong();
+        private volatile BuiltTrie built;
+
+        PrefixTrie trie() {
+            BuiltTrie current = built;
+            if (current != null && current.version() == version.get()) {
+                return current.trie();
+            }
+            synchronized (this) {
+                long target = version.get();
+                current = built;
+                if (current == null || current.version() != target) {
+                    PrefixTrie trie = new PrefixTrie(perNode, maxDepth);
+                    for (Map.Entry<String, String> entry : titles.entrySet()) {
+                        trie.put(entry.getKey(), entry.getValue());
+                    }
+                    current = new BuiltTrie(trie, target);
+                    built = current;
+                }
+                return current.trie();
+            }
+        }
+
+        void put(String docId, String title) {
+            boolean changed = title == null || title.isBlank()
+                    ? titles.remove(docId) != null
+                    : !title.equals(titles.put(docId, title));
+            if (changed) {
+                version.incrementAndGet();
+            }
+        }
+
+        void remove(String docId) {
+            if (titles.remove(docId) != null) {
+                version.incrementAndGet();
+            }
+        }
+    }
+
+    private final WorkspaceDocService docService;
+    private final LoadingCache<String, WorkspaceTitles> workspaces;
+    private final int perNode;
+    private final int maxDepth;
+
+    public TitleSuggester(
+            WorkspaceDocService docService,
+            @Value("${search.suggest.max-workspaces:1000}") long maxWorkspaces,
+            @Value("${search.suggest.expire-after-access-seconds:1800}") long expireSeconds,
+            @Value("${search.suggest.refresh-seconds:60}") long refreshSeconds,
+            @Value("${search.suggest.candidates-per-node:10}") int perNode,
+            @Value("${search.suggest.max-prefix-length:16}") int maxDepth) {
+        this.docService = docService;
+        this.perNode = perNode;
+        this.maxDepth = maxDepth;
+        this.workspaces = Caffeine.newBuilder()
+                .maximumSize(maxWorkspaces)
+                .expireAfterAccess(Duration.ofSeconds(expireSeconds))
+                .refreshAfterWrite(Duration.ofSeconds(refreshSeconds))
+                .build(this::load);
+    }
+
+    /**
+     * 标题前缀补全；首次访问某个工作空间时会同步加载标题表（阻塞，调用方应在弹性线程上执行）
+     */
+    public List<PrefixTrie.Entry> suggest(String workspaceId, String prefix, int limit) {
+        return workspaces.get(workspaceId).trie().suggest(prefix, limit);
+    }
+
+    /**
+     * 文档标题变化；工作空间尚未加载时忽略，加载时会读到最新标题
+     */
+    public void onTitleChanged(String workspaceId, String docId, String title) {
+        WorkspaceTitles titles = workspaces.getIfPresent(workspaceId);
+        if (titles != null) {
+            titles.put(docId, title);
+        }
+    }
+
+    public void onDocRemoved(String workspaceId, String docId) {
+        WorkspaceTitles titles = workspaces.getIfPresent(workspaceId);
+        if (titles != null) {
+            titles.remove(docId);
+        }
+    }
+
+    private WorkspaceTitles load(String workspaceId) {
+        long start = System.currentTimeMillis();
+        WorkspaceTitles titles = new WorkspaceTitles();
+        for (WorkspaceDoc doc : docService.getWorkspaceDocs(workspaceId)) {
+            titles.put(doc.getId(), doc.getTitle());
+        }
+        log.debug("加载工作空间标题表: workspace={}, titles={}, took={}ms",
+                workspaceId, titles.titles.size(), System.currentTimeMillis() - start);
+        return titles;
+    }
+}
@@ -7,7 +7,8 @@ package com.yunke.backend.search.enums;
 public enum SearchProviderType {
     ELASTICSEARCH("elasticsearch"),
     MANTICORE_SEARCH("manticoresearch"),
-    REDIS("redis");
+    REDIS("redis"),
+    EMBEDDED("embedded");
 
     private final String value;
 
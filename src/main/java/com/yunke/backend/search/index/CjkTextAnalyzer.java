@@ -0,0 +1,155 @@
+package com.yunke.backend.search.index;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 中日韩文本分析器
+ *
+ * <p>处理链：NFKC 规范化（全角转半角）并转小写 → 按字符类别切分 →
+ * 拉丁字母/数字连续串作为一个词；中日韩连续串在停用字处断开后切为二元组（bigram），
+ * 单字串保留为单字；配置了词典时，再用正向最大匹配补充长度 ≥3 的词典词 → 停用词过滤。</p>
+ *
+ * <p>二元切分不依赖词典即可召回任意中文子串（"搜索引擎" 可被 "搜索"、"引擎" 命中），
+ * 词典词用于提高整词匹配的得分。</p>
+ */
+public class CjkTextAnalyzer implements TextAnalyzer {
+
+    /** 过长的词项（如 base64 串）不进入索引 */
+    private static final int MAX_TOKEN_LENGTH = 64;
+
+    public static final Set<String> DEFAULT_STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "but", "by", "for", "if", "in", "into", "is", "it",
+            "no", "not", "of", "on", "or", "such", "that", "the", "their", "then", "there", "these",
+            "they", "this", "to", "was", "will", "with",
+            "的", "了", "和", "是", "在", "也", "就", "都", "而", "及", "与", "着", "或", "之", "啊", "吧", "呢", "吗");
+
+    private final Set<String> stopWords;
+    private final Set<String> dictionary;
+    private final int maxWordLength;
+
+    public CjkTextAnalyzer() {
+        this(DEFAULT_STOP_WORDS, List.of());
+    }
+
+    /**
+     * @param stopWords  停用词（单个中文字在切分时作为断点）
+     * @param dictionary 自定义词典，长度不足 3 个字的词已由二元组覆盖，会被忽略
+     */
+    public CjkTextAnalyzer(Set<String> stopWords, Collection<String> dictionary) {
+        this.stopWords = Set.copyOf(stopWords);
+        Set<String> words = new HashSet<>();
+        int longest = 0;
+        for (String word : dictionary) {
+            String normalized = normalize(word.trim());
+            int length = normalized.codePointCount(0, normalized.length());
+            if (length >= 3) {
+                words.add(normalized);
+                longest = Math.max(longest, length);
+            }
+        }
+        this.dictionary = words;
+        this.maxWordLength = longest;
+    }
+
+    /**
+     * 全角转半角、兼容字符规范化并转小写
+     */
+    public static String normalize(String text) {
+        return Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+    }
+
+    public static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+
+    @Override
+    public List<String> analyze(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        String normalized = normalize(text);
+        StringBuilder word = new StringBuilder();
+        List<Integer> cjkRun = new ArrayList<>();
+        int i = 0;
+        while (i < normalized.length()) {
+            int codePoint = normalized.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (isCjk(codePoint)) {
+                flushWord(word, tokens);
+                if (stopWords.contains(new String(Character.toChars(codePoint)))) {
+                    flushCjk(cjkRun, tokens);
+                } else {
+                    cjkRun.add(codePoint);
+                }
+            } else if (Character.isLetterOrDigit(codePoint)) {
+                flushCjk(cjkRun, tokens);
+                word.appendCodePoint(codePoint);
+            } else {
+                flushWord(word, tokens);
+                flushCjk(cjkRun, tokens);
+            }
+        }
+        flushWord(word, tokens);
+        flushCjk(cjkRun, tokens);
+        return tokens;
+    }
+
+    private void flushWord(StringBuilder word, List<String> tokens) {
+        if (word.isEmpty()) {
+            return;
+        }
+        String token = word.toString();
+        if (token.length() <= MAX_TOKEN_LENGTH && !stopWords.contains(token)) {
+            tokens.add(token);
+        }
+        word.setLength(0);
+    }
+
+    private void flushCjk(List<Integer> run, List<String> tokens) {
+        int n = run.size();
+        if (n == 0) {
+            return;
+        }
+        if (n == 1) {
+            tokens.add(substring(run, 0, 1));
+        }
+        for (int i = 0; i + 1 < n; i++) {
+            tokens.add(substring(run, i, i + 2));
+        }
+        if (maxWordLength > 0) {
+            int i = 0;
+            while (i < n) {
+                int matched = 0;
+                for (int length = Math.min(maxWordLength, n - i); length >= 3; length--) {
+                    String candidate = substring(run, i, i + length);
+                    if (dictionary.contains(candidate)) {
+                        tokens.add(candidate);
+                        matched = length;
+                        break;
+                    }
+                }
+                i += matched > 0 ? matched : 1;
+            }
+        }
+        run.clear();
+    }
+
+    private static String substring(List<Integer> run, int from, int to) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            builder.appendCodePoint(run.get(i));
+        }
+        return builder.toString();
+    }
+}
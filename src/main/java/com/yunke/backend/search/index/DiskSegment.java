@@ -0,0 +1,451 @@
+package com.yunke.backend.search.index;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * 不可变磁盘段，文件以只读方式内存映射
+ *
+ * <p>文件布局（大端）：</p>
+ * <pre>
+ * header   : magic, version, docCount, fieldCount, termCount, idsOff, lengthsOff, termsOff, postingsOff, storedOff
+ * fields   : name, totalLength(long), docCount(int)             × fieldCount
+ * ids      : id, storedOff(long), storedLen(int)                × docCount
+ * lengths  : int                                                × fieldCount × docCount
+ * terms    : term, docFreq(int), postingsOff(long)              × termCount（按字典序）
+ * postings : (varint ordDelta, varint termFreq)                 × docFreq
+ * stored   : JSON 字节
+ * </pre>
+ *
+ * <p>词典、文档ID 常驻堆内（用于二分查找与 ID 映射），倒排表、字段长度与存储字段直接从映射区读取，
+ * 由操作系统页缓存决定冷热，不占用堆。</p>
+ */
+final class DiskSegment implements Segment {
+
+    private static final int MAGIC = 0x59534958;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 5 * Integer.BYTES + 5 * Long.BYTES;
+    private static final TypeReference<Map<String, Object>> FIELDS_TYPE = new TypeReference<>() {};
+
+    private final Path path;
+    private final ByteBuffer buffer;
+    private final ObjectMapper objectMapper;
+    private final int docCount;
+    private final String[] fields;
+    private final Map<String, Integer> fieldIndex;
+    private final long[] fieldTotalLengths;
+    private final int[] fieldDocCounts;
+    private final String[] ids;
+    private final Map<String, Integer> ordById;
+    private final long[] storedOffsets;
+    private final int[] storedLengths;
+    private final String[] terms;
+    private final int[] docFreqs;
+    private final long[] postingOffsets;
+    private final int lengthsOff;
+    private final int postingsOff;
+    private final int storedOff;
+
+    private DiskSegment(Path path, ByteBuffer buffer, ObjectMapper objectMapper) throws IOException {
+        this.path = path;
+        this.buffer = buffer;
+        this.objectMapper = objectMapper;
+
+        Cursor in = new Cursor(buffer, 0);
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Not a search segment: " + path);
+        }
+        docCount = in.readInt();
+        int fieldCount = in.readInt();
+        int termCount = in.readInt();
+        int idsOff = (int) in.readLong();
+        lengthsOff = (int) in.readLong();
+        int termsOff = (int) in.readLong();
+        postingsOff = (int) in.readLong();
+        storedOff = (int) in.readLong();
+
+        fields = new String[fieldCount];
+        fieldIndex = new HashMap<>(fieldCount * 2);
+        fieldTotalLengths = new long[fieldCount];
+        fieldDocCounts = new int[fieldCount];
+        for (int f = 0; f < fieldCount; f++) {
+            fields[f] = in.readString();
+            fieldIndex.put(fields[f], f);
+            fieldTotalLengths[f] = in.readLong();
+            fieldDocCounts[f] = in.readInt();
+        }
+
+        in.position = idsOff;
+        ids = new String[docCount];
+        ordById = new HashMap<>(docCount * 2);
+        storedOffsets = new long[docCount];
+        storedLengths = new int[docCount];
+        for (int ord = 0; ord < docCount; ord++) {
+            ids[ord] = in.readString();
+            ordById.put(ids[ord], ord);
+            storedOffsets[ord] = in.readLong();
+            storedLengths[ord] = in.readInt();
+        }
+
+        in.position = termsOff;
+        terms = new String[termCount];
+        docFreqs = new int[termCount];
+        postingOffsets = new long[termCount];
+        for (int t = 0; t < termCount; t++) {
+            terms[t] = in.readString();
+            docFreqs[t] = in.readInt();
+            postingOffsets[t] = in.readLong();
+        }
+    }
+
+    /**
+     * 内存映射打开段文件
+     */
+    static DiskSegment open(Path path, ObjectMapper objectMapper) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Search segment too large: " + path);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return new DiskSegment(path, mapped, objectMapper);
+        }
+    }
+
+    Path path() {
+        return path;
+    }
+
+    String idAt(int ord) {
+        return ids[ord];
+    }
+
+    @Override
+    public int docCount() {
+        return docCount;
+    }
+
+    @Override
+    public boolean contains(String id) {
+        return ordById.containsKey(id);
+    }
+
+    @Override
+    public int docFreq(String term) {
+        int t = Arrays.binarySearch(terms, term);
+        return t < 0 ? 0 : docFreqs[t];
+    }
+
+    @Override
+    public long fieldTotalLength(String field) {
+        Integer f = fieldIndex.get(field);
+        return f == null ? 0 : fieldTotalLengths[f];
+    }
+
+    @Override
+    public int fieldDocCount(String field) {
+        Integer f = fieldIndex.get(field);
+        return f == null ? 0 : fieldDocCounts[f];
+    }
+
+    @Override
+    public void forEachPosting(String term, String field, PostingVisitor visitor) {
+        int t = Arrays.binarySearch(terms, term);
+        if (t < 0) {
+            return;
+        }
+        Integer f = field == null ? null : fieldIndex.get(field);
+        Cursor in = new Cursor(buffer, postingsOff + (int) postingOffsets[t]);
+        int ord = 0;
+        for (int i = 0; i < docFreqs[t]; i++) {
+            ord += in.readVarInt();
+            int tf = in.readVarInt();
+            visitor.visit(ids[ord], ord, tf, f == null ? 0 : fieldLength(f, ord));
+        }
+    }
+
+    @Override
+    public void forEachDoc(Consumer<String> visitor) {
+        for (String id : ids) {
+            visitor.accept(id);
+        }
+    }
+
+    @Override
+    public Map<String, Object> storedFields(String id) {
+        Integer ord = ordById.get(id);
+        return ord == null ? null : storedFields(ord);
+    }
+
+    private Map<String, Object> storedFields(int ord) {
+        try {
+            return objectMapper.readValue(storedBytes(ord), FIELDS_TYPE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private byte[] storedBytes(int ord) {
+        byte[] bytes = new byte[storedLengths[ord]];
+        buffer.get(storedOff + (int) storedOffsets[ord], bytes);
+        return bytes;
+    }
+
+    private int fieldLength(int field, int ord) {
+        return buffer.getInt(lengthsOff + (int) (((long) field * docCount + ord) * Integer.BYTES));
+    }
+
+    /**
+     * 合并写出新段：base 中未被 tombstones 删除的文档在前（保持原顺序，倒排表可直接重映射），
+     * delta 中的文档在后。合并只搬运倒排与存储字节，不重新分词。
+     */
+    static void write(Path target, DiskSegment base, Set<String> tombstones, MemorySegment delta,
+                      ObjectMapper objectMapper) throws IOException {
+        // 1. 分配新序号
+        int baseCount = base == null ? 0 : base.docCount;
+        int[] baseToNew = new int[baseCount];
+        List<String> newIds = new ArrayList<>(baseCount + delta.docCount());
+        for (int ord = 0; ord < baseCount; ord++) {
+            if (tombstones.contains(base.ids[ord])) {
+                baseToNew[ord] = -1;
+            } else {
+                baseToNew[ord] = newIds.size();
+                newIds.add(base.ids[ord]);
+            }
+        }
+        List<String> deltaIds = new ArrayList<>(delta.docs().keySet());
+        Collections.sort(deltaIds);
+        Map<String, Integer> deltaOrd = new HashMap<>(deltaIds.size() * 2);
+        for (String id : deltaIds) {
+            deltaOrd.put(id, newIds.size());
+            newIds.add(id);
+        }
+        int docCount = newIds.size();
+
+        // 2. 字段与字段长度
+        Set<String> fieldSet = new LinkedHashSet<>();
+        if (base != null) {
+            fieldSet.addAll(Arrays.asList(base.fields));
+        }
+        fieldSet.addAll(delta.fields());
+        String[] fields = fieldSet.toArray(new String[0]);
+        int[][] lengths = new int[fields.length][docCount];
+        long[] totalLengths = new long[fields.length];
+        int[] fieldDocCounts = new int[fields.length];
+        for (int f = 0; f < fields.length; f++) {
+            Integer baseField = base == null ? null : base.fieldIndex.get(fields[f]);
+            for (int ord = 0; ord < baseCount; ord++) {
+                if (baseToNew[ord] >= 0 && baseField != null) {
+                    lengths[f][baseToNew[ord]] = base.fieldLength(baseField, ord);
+                }
+            }
+            for (String id : deltaIds) {
+                lengths[f][deltaOrd.get(id)] = delta.docs().get(id).fieldLengths.getOrDefault(fields[f], 0);
+            }
+            for (int length : lengths[f]) {
+                if (length > 0) {
+                    totalLengths[f] += length;
+                    fieldDocCounts[f]++;
+                }
+            }
+        }
+
+        // 3. 归并词典并写倒排
+        List<String> deltaTerms = new ArrayList<>(delta.postings().keySet());
+        Collections.sort(deltaTerms);
+        String[] baseTerms = base == null ? new String[0] : base.terms;
+        ByteArrayOutputStream termsBytes = new ByteArrayOutputStream();
+        DataOutputStream termsOut = new DataOutputStream(termsBytes);
+        ByteArrayOutputStream postingsBytes = new ByteArrayOutputStream();
+        int termCount = 0;
+        int i = 0;
+        int j = 0;
+        List<int[]> postings = new ArrayList<>();
+        while (i < baseTerms.length || j < deltaTerms.size()) {
+            int cmp = i >= baseTerms.length ? 1
+                    : j >= deltaTerms.size() ? -1
+                    : baseTerms[i].compareTo(deltaTerms.get(j));
+            String term = cmp <= 0 ? baseTerms[i] : deltaTerms.get(j);
+            postings.clear();
+            if (cmp <= 0) {
+                base.forEachPosting(term, null, (id, ord, tf, length) -> {
+                    if (baseToNew[ord] >= 0) {
+                        postings.add(new int[]{baseToNew[ord], tf});
+                    }
+                });
+                i++;
+            }
+            if (cmp >= 0) {
+                int from = postings.size();
+                delta.postings().get(term).forEach((id, tf) -> postings.add(new int[]{deltaOrd.get(id), tf}));
+                postings.subList(from, postings.size()).sort((a, b) -> Integer.compare(a[0], b[0]));
+                j++;
+            }
+            if (postings.isEmpty()) {
+                continue;
+            }
+            writeString(termsOut, term);
+            termsOut.writeInt(postings.size());
+            termsOut.writeLong(postingsBytes.size());
+            int previous = 0;
+            for (int[] posting : postings) {
+                writeVarInt(postingsBytes, posting[0] - previous);
+                writeVarInt(postingsBytes, posting[1]);
+                previous = posting[0];
+            }
+            termCount++;
+        }
+        termsOut.flush();
+
+        // 4. 存储字段与文档ID
+        ByteArrayOutputStream storedBytes = new ByteArrayOutputStream();
+        ByteArrayOutputStream idsBytes = new ByteArrayOutputStream();
+        DataOutputStream idsOut = new DataOutputStream(idsBytes);
+        for (int ord = 0; ord < baseCount; ord++) {
+            if (baseToNew[ord] >= 0) {
+                writeDoc(idsOut, storedBytes, base.ids[ord], base.storedBytes(ord));
+            }
+        }
+        for (String id : deltaIds) {
+            writeDoc(idsOut, storedBytes, id, objectMapper.writeValueAsBytes(delta.docs().get(id).fields));
+        }
+        idsOut.flush();
+
+        ByteArrayOutputStream fieldsBytes = new ByteArrayOutputStream();
+        DataOutputStream fieldsOut = new DataOutputStream(fieldsBytes);
+        for (int f = 0; f < fields.length; f++) {
+            writeString(fieldsOut, fields[f]);
+            fieldsOut.writeLong(totalLengths[f]);
+            fieldsOut.writeInt(fieldDocCounts[f]);
+        }
+        fieldsOut.flush();
+
+        // 5. 组装文件
+        long idsOff = HEADER_SIZE + fieldsBytes.size();
+        long lengthsOff = idsOff + idsBytes.size();
+        long termsOff = lengthsOff + (long) fields.length * docCount * Integer.BYTES;
+        long postingsOff = termsOff + termsBytes.size();
+        long storedOff = postingsOff + postingsBytes.size();
+        if (storedOff + storedBytes.size() > Integer.MAX_VALUE) {
+            throw new IOException("Search segment too large: " + target);
+        }
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(docCount);
+            out.writeInt(fields.length);
+            out.writeInt(termCount);
+            out.writeLong(idsOff);
+            out.writeLong(lengthsOff);
+            out.writeLong(termsOff);
+            out.writeLong(postingsOff);
+            out.writeLong(storedOff);
+            fieldsBytes.writeTo(out);
+            idsBytes.writeTo(out);
+            for (int[] fieldLengths : lengths) {
+                for (int length : fieldLengths) {
+                    out.writeInt(length);
+                }
+            }
+            termsBytes.writeTo(out);
+            postingsBytes.writeTo(out);
+            storedBytes.writeTo(out);
+            out.flush();
+            // 落盘后才允许调用方把临时文件改名为正式段，否则掉电后可能留下改名成功但内容为空的段
+            channel.force(true);
+        }
+    }
+
+    private static void writeDoc(DataOutputStream idsOut, ByteArrayOutputStream storedBytes,
+                                 String id, byte[] stored) throws IOException {
+        writeString(idsOut, id);
+        idsOut.writeLong(storedBytes.size());
+        idsOut.writeInt(stored.length);
+        storedBytes.write(stored);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeVarInt(OutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /**
+     * 映射区上的顺序读取游标（只用绝对位置读取，多线程共享同一个 buffer）
+     */
+    private static final class Cursor {
+        private final ByteBuffer buffer;
+        private int position;
+
+        Cursor(ByteBuffer buffer, int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        int readInt() {
+            int value = buffer.getInt(position);
+            position += Integer.BYTES;
+            return value;
+        }
+
+        long readLong() {
+            long value = buffer.getLong(position);
+            position += Long.BYTES;
+            return value;
+        }
+
+        int readVarInt() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer.get(position++);
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+
+        String readString() {
+            int length = readVarInt();
+            byte[] bytes = new byte[length];
+            buffer.get(position, bytes);
+            position += length;
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
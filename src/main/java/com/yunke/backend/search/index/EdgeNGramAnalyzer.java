@@ -0,0 +1,37 @@
+package com.yunke.backend.search.index;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 前缀（edge n-gram）分析器：对基础分析器的每个词项输出长度 min..max 的前缀，用于输入即搜的自动补全
+ *
+ * 只在建索引时使用；查询时仍用基础分析器，输入的半个词直接命中某个前缀词项。
+ */
+public class EdgeNGramAnalyzer implements TextAnalyzer {
+
+    private final TextAnalyzer delegate;
+    private final int minGram;
+    private final int maxGram;
+
+    public EdgeNGramAnalyzer(TextAnalyzer delegate, int minGram, int maxGram) {
+        if (minGram < 1 || maxGram < minGram) {
+            throw new IllegalArgumentException("invalid edge n-gram range: " + minGram + ".." + maxGram);
+        }
+        this.delegate = delegate;
+        this.minGram = minGram;
+        this.maxGram = maxGram;
+    }
+
+    @Override
+    public List<String> analyze(String text) {
+        List<String> grams = new ArrayList<>();
+        for (String token : delegate.analyze(text)) {
+            int length = token.codePointCount(0, token.length());
+            for (int n = minGram; n <= Math.min(maxGram, length); n++) {
+                grams.add(token.substring(0, token.offsetByCodePoints(0, n)));
+            }
+        }
+        return grams;
+    }
+}
@@ -0,0 +1,165 @@
+package com.yunke.backend.search.index;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 可变内存段：接收增量写入，刷盘时与磁盘段合并为新的磁盘段
+ *
+ * 非线程安全，由 {@link WorkspaceIndex} 的读写锁保护。
+ */
+final class MemorySegment implements Segment {
+
+    static final class Doc {
+        final Map<String, Object> fields;
+        final Map<String, Integer> fieldLengths;
+        final Map<String, Integer> termFreqs;
+
+        Doc(Map<String, Object> fields, Map<String, Integer> fieldLengths, Map<String, Integer> termFreqs) {
+            this.fields = fields;
+            this.fieldLengths = fieldLengths;
+            this.termFreqs = termFreqs;
+        }
+    }
+
+    private final Map<String, Doc> docs = new HashMap<>();
+    /** 词项 -> (文档ID -> 词频) */
+    private final Map<String, Map<String, Integer>> postings = new HashMap<>();
+    /** 字段 -> {词项总数, 非空文档数} */
+    private final Map<String, long[]> fieldStats = new HashMap<>();
+
+    /**
+     * 写入或覆盖文档
+     */
+    void put(String id, Map<String, Object> fields, SearchAnalyzers analyzers) {
+        remove(id);
+        Map<String, Integer> fieldLengths = new HashMap<>();
+        Map<String, Integer> termFreqs = new HashMap<>();
+        for (Map.Entry<String, Object> entry : fields.entrySet()) {
+            if (entry.getValue() == null) {
+                continue;
+            }
+            termFreqs.put(Segment.exists(entry.getKey()), 1);
+            analyzers.analyzeForIndex(entry.getKey(), textOf(entry.getValue()), (field, tokens) -> {
+                if (tokens.isEmpty()) {
+                    return;
+                }
+                fieldLengths.put(field, tokens.size());
+                for (String token : tokens) {
+                    termFreqs.merge(Segment.term(field, token), 1, Integer::sum);
+                }
+            });
+        }
+
+        docs.put(id, new Doc(fields, fieldLengths, termFreqs));
+        termFreqs.forEach((term, tf) -> postings.computeIfAbsent(term, t -> new HashMap<>()).put(id, tf));
+        fieldLengths.forEach((field, length) -> {
+            long[] stats = fieldStats.computeIfAbsent(field, f -> new long[2]);
+            stats[0] += length;
+            stats[1]++;
+        });
+    }
+
+    boolean remove(String id) {
+        Doc doc = docs.remove(id);
+        if (doc == null) {
+            return false;
+        }
+        doc.termFreqs.keySet().forEach(term -> {
+            Map<String, Integer> docsOfTerm = postings.get(term);
+            if (docsOfTerm != null) {
+                docsOfTerm.remove(id);
+                if (docsOfTerm.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        });
+        doc.fieldLengths.forEach((field, length) -> {
+            long[] stats = fieldStats.get(field);
+            stats[0] -= length;
+            stats[1]--;
+        });
+        return true;
+    }
+
+    Map<String, Doc> docs() {
+        return docs;
+    }
+
+    Map<String, Map<String, Integer>> postings() {
+        return postings;
+    }
+
+    Collection<String> fields() {
+        return fieldStats.keySet();
+    }
+
+    @Override
+    public int docCount() {
+        return docs.size();
+    }
+
+    @Override
+    public boolean contains(String id) {
+        return docs.containsKey(id);
+    }
+
+    @Override
+    public int docFreq(String term) {
+        Map<String, Integer> docsOfTerm = postings.get(term);
+        return docsOfTerm == null ? 0 : docsOfTerm.size();
+    }
+
+    @Override
+    public long fieldTotalLength(String field) {
+        long[] stats = fieldStats.get(field);
+        return stats == null ? 0 : stats[0];
+    }
+
+    @Override
+    public int fieldDocCount(String field) {
+        long[] stats = fieldStats.get(field);
+        return stats == null ? 0 : (int) stats[1];
+    }
+
+    @Override
+    public void forEachPosting(String term, String field, PostingVisitor visitor) {
+        Map<String, Integer> docsOfTerm = postings.get(term);
+        if (docsOfTerm == null) {
+            return;
+        }
+        docsOfTerm.forEach((id, tf) -> {
+            int length = field == null ? 0 : docs.get(id).fieldLengths.getOrDefault(field, 0);
+            visitor.visit(id, -1, tf, length);
+        });
+    }
+
+    @Override
+    public void forEachDoc(Consumer<String> visitor) {
+        docs.keySet().forEach(visitor);
+    }
+
+    @Override
+    public Map<String, Object> storedFields(String id) {
+        Doc doc = docs.get(id);
+        return doc == null ? null : doc.fields;
+    }
+
+    /**
+     * 字段值转为待分析文本：集合按空格拼接
+     */
+    static String textOf(Object value) {
+        if (value instanceof Collection<?> values) {
+            StringBuilder text = new StringBuilder();
+            for (Object item : values) {
+                if (item != null) {
+                    text.append(item).append(' ');
+                }
+            }
+            return text.toString();
+        }
+        return value.toString();
+    }
+}
@@ -0,0 +1,63 @@
+package com.yunke.backend.search.index;
+
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * 搜索分析链：建索引与查询共用同一个基础分析器
+ *
+ * 配置为自动补全的字段（如 title）在建索引时额外派生 {@code <field>.prefix} 字段，
+ * 用前缀分析器切分；查询 {@code <field>.prefix} 时仍用基础分析器。
+ */
+public final class SearchAnalyzers {
+
+    public static final String PREFIX_SUFFIX = ".prefix";
+
+    private final TextAnalyzer analyzer;
+    private final TextAnalyzer prefixAnalyzer;
+    private final Set<String> prefixFields;
+
+    public SearchAnalyzers(TextAnalyzer analyzer, TextAnalyzer prefixAnalyzer, Set<String> prefixFields) {
+        this.analyzer = analyzer;
+        this.prefixAnalyzer = prefixAnalyzer;
+        this.prefixFields = Set.copyOf(prefixFields);
+    }
+
+    /**
+     * 标准分析器，不派生前缀字段
+     */
+    public static SearchAnalyzers standard() {
+        StandardTextAnalyzer analyzer = new StandardTextAnalyzer();
+        return new SearchAnalyzers(analyzer, analyzer, Set.of());
+    }
+
+    public static String prefixField(String field) {
+        return field + PREFIX_SUFFIX;
+    }
+
+    public TextAnalyzer analyzer() {
+        return analyzer;
+    }
+
+    public Set<String> prefixFields() {
+        return prefixFields;
+    }
+
+    /**
+     * 建索引：输出字段本身的词项，以及派生前缀字段的词项
+     */
+    public void analyzeForIndex(String field, String text, BiConsumer<String, List<String>> sink) {
+        sink.accept(field, analyzer.analyze(text));
+        if (prefixFields.contains(field)) {
+            sink.accept(prefixField(field), prefixAnalyzer.analyze(text));
+        }
+    }
+
+    /**
+     * 查询：普通字段与前缀字段都使用基础分析器
+     */
+    public List<String> analyzeForQuery(String text) {
+        return analyzer.analyze(text);
+    }
+}
@@ -0,0 +1,56 @@
+package com.yunke.backend.search.index;
+
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 只读段视图：倒排表、字段长度统计与存储字段
+ *
+ * 词项键为 {@code field + '\0' + token}；字段存在性用 {@code field + '\1'} 记一条倒排，
+ * 使 EXISTS 查询同样走倒排表。
+ */
+interface Segment {
+
+    char TERM_SEPARATOR = '\u0000';
+    char EXISTS_MARKER = '\u0001';
+
+    static String term(String field, String token) {
+        return field + TERM_SEPARATOR + token;
+    }
+
+    static String exists(String field) {
+        return field + EXISTS_MARKER;
+    }
+
+    /**
+     * 倒排访问器：文档ID、段内序号、词频、该文档此字段的词项数
+     */
+    @FunctionalInterface
+    interface PostingVisitor {
+        void visit(String id, int ord, int termFreq, int fieldLength);
+    }
+
+    int docCount();
+
+    boolean contains(String id);
+
+    int docFreq(String term);
+
+    /** 字段在段内的词项总数，用于计算 BM25 的平均字段长度 */
+    long fieldTotalLength(String field);
+
+    /** 字段非空的文档数 */
+    int fieldDocCount(String field);
+
+    /**
+     * 遍历词项的倒排表；field 用于取字段长度，存在性词项传 null
+     */
+    void forEachPosting(String term, String field, PostingVisitor visitor);
+
+    void forEachDoc(Consumer<String> visitor);
+
+    /**
+     * 存储字段，不存在时返回 null
+     */
+    Map<String, Object> storedFields(String id);
+}
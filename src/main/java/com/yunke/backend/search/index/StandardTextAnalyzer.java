@@ -0,0 +1,35 @@
+package com.yunke.backend.search.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 标准分析器：按非字母数字字符切分并转小写
+ */
+public class StandardTextAnalyzer implements TextAnalyzer {
+
+    /** 过长的词项（如 base64 串）不进入索引 */
+    private static final int MAX_TOKEN_LENGTH = 64;
+
+    @Override
+    public List<String> analyze(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                if (i - start <= MAX_TOKEN_LENGTH) {
+                    tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                }
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+}
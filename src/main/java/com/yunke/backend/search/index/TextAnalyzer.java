@@ -0,0 +1,16 @@
+package com.yunke.backend.search.index;
+
+import java.util.List;
+
+/**
+ * 文本分析器：把字段值切分为索引词项
+ *
+ * 建索引与查询必须使用同一个分析器，否则词项对不上。
+ */
+public interface TextAnalyzer {
+
+    /**
+     * 分词并归一化，返回按出现顺序排列的词项（允许重复，用于统计词频与字段长度）
+     */
+    List<String> analyze(String text);
+}
@@ -0,0 +1,406 @@
+package com.yunke.backend.search.index;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yunke.backend.search.enums.SearchQueryOccur;
+import com.yunke.backend.system.dto.SearchQueryDto;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 单个工作空间的倒排索引
+ *
+ * <p>由一个内存映射的磁盘段（base）、一个可变内存段（delta）和 base 的删除标记（tombstones）组成：
+ * 写入与删除只改 delta/tombstones，查询同时读取两者；{@link #flush()} 把两者合并写成新一代段文件，
+ * 原子替换后删除旧文件。</p>
+ *
+ * <p>评分使用 BM25（k1=1.2, b=0.75），文档频率与平均字段长度取 base + delta 之和，
+ * 与 Lucene 一样不扣除已删除文档，合并后自然校正。</p>
+ */
+public final class WorkspaceIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".idx";
+    private static final TypeReference<Map<String, Object>> FIELDS_TYPE = new TypeReference<>() {};
+
+    private final Path directory;
+    private final SearchAnalyzers analyzers;
+    private final ObjectMapper objectMapper;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private DiskSegment base;
+    private MemorySegment delta = new MemorySegment();
+    private final Set<String> tombstones = new HashSet<>();
+    private long generation;
+
+    private WorkspaceIndex(Path directory, SearchAnalyzers analyzers, ObjectMapper objectMapper) {
+        this.directory = directory;
+        this.analyzers = analyzers;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 打开目录下最新一代段文件（没有则为空索引），清理未完成的临时文件与旧段
+     */
+    public static WorkspaceIndex open(Path directory, SearchAnalyzers analyzers, ObjectMapper objectMapper)
+            throws IOException {
+        WorkspaceIndex index = new WorkspaceIndex(directory, analyzers, objectMapper);
+        if (!Files.isDirectory(directory)) {
+            return index;
+        }
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    segments.add(file);
+                } else if (name.endsWith(".tmp")) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+        segments.sort(Comparator.comparingLong(WorkspaceIndex::generationOf));
+        if (!segments.isEmpty()) {
+            Path latest = segments.get(segments.size() - 1);
+            index.base = DiskSegment.open(latest, objectMapper);
+            index.generation = generationOf(latest);
+            for (Path stale : segments.subList(0, segments.size() - 1)) {
+                Files.deleteIfExists(stale);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * 写入或覆盖文档；字段值先规整为 JSON 形态，保证刷盘前后读到的存储字段一致
+     */
+    public void upsert(String id, Map<String, Object> fields) {
+        Map<String, Object> normalized = objectMapper.convertValue(fields, FIELDS_TYPE);
+        lock.writeLock().lock();
+        try {
+            if (base != null && base.contains(id)) {
+                tombstones.add(id);
+            }
+            delta.put(id, normalized, analyzers);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean delete(String id) {
+        lock.writeLock().lock();
+        try {
+            boolean removed = delta.remove(id);
+            if (base != null && base.contains(id)) {
+                removed |= tombstones.add(id);
+            }
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean contains(String id) {
+        lock.readLock().lock();
+        try {
+            return delta.contains(id) || (base != null && base.contains(id) && !tombstones.contains(id));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 存活文档数
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveCount();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 尚未刷盘的变更数（内存段文档数 + 删除标记数）
+     */
+    public int pendingChanges() {
+        lock.readLock().lock();
+        try {
+            return delta.docCount() + tombstones.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 执行查询，返回命中文档ID -> 得分；query 为 null 时返回全部文档
+     */
+    public Map<String, Double> search(SearchQueryDto query) {
+        lock.readLock().lock();
+        try {
+            return query == null ? allDocs() : evaluate(query);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 读取存储字段，文档不存在时返回 null
+     */
+    public Map<String, Object> storedFields(String id) {
+        lock.readLock().lock();
+        try {
+            Map<String, Object> fields = delta.storedFields(id);
+            if (fields == null && base != null && !tombstones.contains(id)) {
+                fields = base.storedFields(id);
+            }
+            return fields;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 合并 base 与 delta 写出新一代段文件并切换；无变更时直接返回
+     */
+    public void flush() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (delta.docCount() == 0 && tombstones.isEmpty()) {
+                return;
+            }
+            Files.createDirectories(directory);
+            long next = generation + 1;
+            Path target = directory.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, next, SEGMENT_SUFFIX));
+            Path temp = directory.resolve(target.getFileName() + ".tmp");
+            DiskSegment.write(temp, base, tombstones, delta, objectMapper);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            syncDirectory();
+
+            DiskSegment previous = base;
+            base = DiskSegment.open(target, objectMapper);
+            delta = new MemorySegment();
+            tombstones.clear();
+            generation = next;
+            if (previous != null) {
+                // 旧映射在 GC 回收前仍有效，删除文件不影响正在进行的读取
+                Files.deleteIfExists(previous.path());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 目录项落盘，保证改名在掉电后仍然可见；不支持打开目录的平台（Windows）跳过
+     */
+    private void syncDirectory() throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (AccessDeniedException e) {
+            if (!System.getProperty("os.name", "").startsWith("Windows")) {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * 清空索引并删除目录下的段文件
+     */
+    public void destroy() throws IOException {
+        lock.writeLock().lock();
+        try {
+            base = null;
+            delta = new MemorySegment();
+            tombstones.clear();
+            if (Files.isDirectory(directory)) {
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+                    for (Path file : files) {
+                        Files.deleteIfExists(file);
+                    }
+                }
+                Files.deleteIfExists(directory);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ==================== 查询求值 ====================
+
+    private Map<String, Double> evaluate(SearchQueryDto query) {
+        if (query.getType() == null) {
+            return new HashMap<>();
+        }
+        Map<String, Double> scores = switch (query.getType()) {
+            case MATCH -> match(query.getField(), query.getMatch());
+            case BOOST -> query.getQuery() == null ? new HashMap<>() : evaluate(query.getQuery());
+            case BOOLEAN -> bool(query.getOccur(), query.getQueries());
+            case EXISTS -> query.getField() == null ? new HashMap<>() : exists(query.getField());
+            case ALL -> allDocs();
+        };
+        if (query.getBoost() != null) {
+            double boost = query.getBoost();
+            scores.replaceAll((id, score) -> score * boost);
+        }
+        return scores;
+    }
+
+    /**
+     * 查询文本分词后所有词项都须出现（AND），得分为各词项 BM25 之和；从文档频率最低的词项开始求交
+     */
+    private Map<String, Double> match(String field, String text) {
+        if (field == null || text == null) {
+            return new HashMap<>();
+        }
+        List<String> terms = new ArrayList<>();
+        for (String token : new LinkedHashSet<>(analyzers.analyzeForQuery(text))) {
+            terms.add(Segment.term(field, token));
+        }
+        if (terms.isEmpty()) {
+            return new HashMap<>();
+        }
+        terms.sort(Comparator.comparingInt(this::docFreq));
+
+        int docCount = liveCount();
+        double avgFieldLength = averageFieldLength(field);
+        Map<String, Double> result = null;
+        for (String term : terms) {
+            int df = docFreq(term);
+            if (df == 0) {
+                return new HashMap<>();
+            }
+            double idf = Math.log(1 + (docCount - df + 0.5) / (df + 0.5));
+            Map<String, Double> previous = result;
+            Map<String, Double> next = new HashMap<>(previous == null ? df * 2 : previous.size() * 2);
+            forEachLivePosting(term, field, (id, tf, length) -> {
+                if (previous != null && !previous.containsKey(id)) {
+                    return;
+                }
+                double norm = tf + K1 * (1 - B + B * length / avgFieldLength);
+                double score = idf * tf * (K1 + 1) / norm;
+                next.put(id, previous == null ? score : previous.get(id) + score);
+            });
+            if (next.isEmpty()) {
+                return next;
+            }
+            result = next;
+        }
+        return result;
+    }
+
+    private Map<String, Double> bool(SearchQueryOccur occur, List<SearchQueryDto> queries) {
+        if (queries == null || queries.isEmpty() || occur == null) {
+            return allDocs();
+        }
+        switch (occur) {
+            case MUST -> {
+                Map<String, Double> result = null;
+                for (SearchQueryDto clause : queries) {
+                    Map<String, Double> scores = evaluate(clause);
+                    if (result == null) {
+                        result = scores;
+                    } else {
+                        result.keySet().retainAll(scores.keySet());
+                        result.replaceAll((id, score) -> score + scores.get(id));
+                    }
+                    if (result.isEmpty()) {
+                        break;
+                    }
+                }
+                return result;
+            }
+            case SHOULD -> {
+                Map<String, Double> result = new HashMap<>();
+                for (SearchQueryDto clause : queries) {
+                    evaluate(clause).forEach((id, score) -> result.merge(id, score, Double::sum));
+                }
+                return result;
+            }
+            default -> {
+                Map<String, Double> result = allDocs();
+                for (SearchQueryDto clause : queries) {
+                    result.keySet().removeAll(evaluate(clause).keySet());
+                }
+                return result;
+            }
+        }
+    }
+
+    private Map<String, Double> exists(String field) {
+        Map<String, Double> result = new HashMap<>();
+        forEachLivePosting(Segment.exists(field), null, (id, tf, length) -> result.put(id, 1.0));
+        return result;
+    }
+
+    private Map<String, Double> allDocs() {
+        Map<String, Double> result = new HashMap<>(liveCount() * 2);
+        if (base != null) {
+            base.forEachDoc(id -> {
+                if (!tombstones.contains(id)) {
+                    result.put(id, 1.0);
+                }
+            });
+        }
+        delta.forEachDoc(id -> result.put(id, 1.0));
+        return result;
+    }
+
+    @FunctionalInterface
+    private interface LivePostingVisitor {
+        void visit(String id, int termFreq, int fieldLength);
+    }
+
+    private void forEachLivePosting(String term, String field, LivePostingVisitor visitor) {
+        if (base != null) {
+            base.forEachPosting(term, field, (id, ord, tf, length) -> {
+                if (!tombstones.contains(id)) {
+                    visitor.visit(id, tf, length);
+                }
+            });
+        }
+        delta.forEachPosting(term, field, (id, ord, tf, length) -> visitor.visit(id, tf, length));
+    }
+
+    private int liveCount() {
+        return (base == null ? 0 : base.docCount() - tombstones.size()) + delta.docCount();
+    }
+
+    private int docFreq(String term) {
+        return (base == null ? 0 : base.docFreq(term)) + delta.docFreq(term);
+    }
+
+    private double averageFieldLength(String field) {
+        long total = (base == null ? 0 : base.fieldTotalLength(field)) + delta.fieldTotalLength(field);
+        int docs = (base == null ? 0 : base.fieldDocCount(field)) + delta.fieldDocCount(field);
+        return docs == 0 ? 1.0 : Math.max(1.0, (double) total / docs);
+    }
+
+    private static long generationOf(Path segment) {
+        String name = segment.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
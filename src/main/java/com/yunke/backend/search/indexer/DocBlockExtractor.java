@@ -0,0 +1,144 @@
+package com.yunke.backend.search.indexer;
+
+import com.yunke.backend.document.crdt.yjs.YjsDocView;
+import com.yunke.backend.document.crdt.yjs.YjsId;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32C;
+
+/**
+ * 从合并后的 Yjs 文档状态中提取块级文本
+ *
+ * AFFiNE 文档的根 YMap {@code blocks} 以 blockId 为键，每个块是一个 YMap：
+ * {@code sys:flavour} 为块类型，{@code sys:children} 为子块 ID 的 YArray，
+ * 文本位于 {@code prop:text}（YText）或 {@code prop:title} 等属性中。
+ * 从页面块开始按 sys:children 深度优先遍历，得到与编辑器一致的阅读顺序；
+ * 未挂在树上的块是已删除的残留，不参与索引。
+ */
+public final class DocBlockExtractor {
+
+    public static final String PAGE_FLAVOUR = "affine:page";
+
+    private static final Set<String> SKIPPED_FLAVOURS = Set.of("affine:surface");
+    private static final int SUMMARY_LENGTH = 200;
+
+    /**
+     * 单个块的文本
+     */
+    public record Block(String blockId, String flavour, String parentId, String content) {
+
+        /**
+         * 块类型 + 文本的 CRC32C（十六进制），用于判断块是否需要重新索引
+         */
+        public String contentHash() {
+            CRC32C crc = new CRC32C();
+            crc.update(flavour.getBytes(StandardCharsets.UTF_8));
+            crc.update(0);
+            crc.update(content.getBytes(StandardCharsets.UTF_8));
+            return Long.toHexString(crc.getValue());
+        }
+    }
+
+    /**
+     * 文档的标题、摘要与块列表（按阅读顺序）
+     */
+    public record Extracted(String title, String summary, List<Block> blocks) {
+    }
+
+    private DocBlockExtractor() {
+    }
+
+    public static Extracted extract(byte[] docState) {
+        if (docState == null || docState.length == 0) {
+            return new Extracted("", "", List.of());
+        }
+        YjsDocView model = YjsDocView.fromUpdate(docState);
+        Map<String, Object> blocks = model.map("blocks");
+
+        String rootId = null;
+        for (Map.Entry<String, Object> entry : blocks.entrySet()) {
+            if (model.isMap(entry.getValue())
+                    && PAGE_FLAVOUR.equals(model.map((YjsId) entry.getValue()).get("sys:flavour"))) {
+                rootId = entry.getKey();
+                break;
+            }
+        }
+        if (rootId == null) {
+            return new Extracted("", "", List.of());
+        }
+
+        List<Block> result = new ArrayList<>();
+        String title = "";
+        StringBuilder summary = new StringBuilder();
+        Set<String> visited = new HashSet<>();
+        Deque<String[]> stack = new ArrayDeque<>();
+        stack.push(new String[]{rootId, null});
+        while (!stack.isEmpty()) {
+            String[] next = stack.pop();
+            String blockId = next[0];
+            Object value = blocks.get(blockId);
+            if (!visited.add(blockId) || !model.isMap(value)) {
+                continue;
+            }
+            Map<String, Object> props = model.map((YjsId) value);
+            String flavour = String.valueOf(props.getOrDefault("sys:flavour", ""));
+            if (SKIPPED_FLAVOURS.contains(flavour)) {
+                continue;
+            }
+            String content = textOf(model, props);
+            if (PAGE_FLAVOUR.equals(flavour)) {
+                title = content;
+            } else if (!content.isEmpty() && summary.length() < SUMMARY_LENGTH) {
+                if (summary.length() > 0) {
+                    summary.append(' ');
+                }
+                summary.append(content, 0, Math.min(content.length(), SUMMARY_LENGTH - summary.length()));
+            }
+            result.add(new Block(blockId, flavour, next[1], content));
+
+            Object children = props.get("sys:children");
+            if (model.isArray(children)) {
+                List<Object> childIds = model.array((YjsId) children);
+                for (int i = childIds.size() - 1; i >= 0; i--) {
+                    if (childIds.get(i) instanceof String childId) {
+                        stack.push(new String[]{childId, blockId});
+                    }
+                }
+            }
+        }
+        return new Extracted(title, summary.toString(), result);
+    }
+
+    /**
+     * 块内所有 prop:* 文本属性（YText 或字符串），按属性名顺序以换行连接
+     */
+    private static String textOf(YjsDocView model, Map<String, Object> props) {
+        StringBuilder text = new StringBuilder();
+        props.entrySet().stream()
+                .filter(entry -> entry.getKey().startsWith("prop:"))
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> {
+                    String part = null;
+                    if (model.isText(entry.getValue())) {
+                        part = model.text((YjsId) entry.getValue());
+                    } else if (entry.getValue() instanceof String str
+                            && (entry.getKey().equals("prop:title") || entry.getKey().equals("prop:caption"))) {
+                        part = str;
+                    }
+                    if (part != null && !part.isBlank()) {
+                        if (text.length() > 0) {
+                            text.append('\n');
+                        }
+                        text.append(part.strip());
+                    }
+                });
+        return text.toString();
+    }
+}
@@ -0,0 +1,581 @@
+package com.yunke.backend.search.indexer;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.yunke.backend.document.dto.DocRecord;
+import com.yunke.backend.document.event.DocCreatedEvent;
+import com.yunke.backend.document.event.DocUpdatedEvent;
+import com.yunke.backend.document.service.DocReader;
+import com.yunke.backend.search.cache.SearchResultCache;
+import com.yunke.backend.search.cache.TitleSuggester;
+import com.yunke.backend.search.dto.OperationOptionsDto;
+import com.yunke.backend.search.enums.SearchQueryOccur;
+import com.yunke.backend.search.enums.SearchQueryType;
+import com.yunke.backend.search.enums.SearchTable;
+import com.yunke.backend.search.provider.SearchProvider;
+import com.yunke.backend.system.dto.SearchInputDto;
+import com.yunke.backend.system.dto.SearchNodeDto;
+import com.yunke.backend.system.dto.SearchOptionsDto;
+import com.yunke.backend.system.dto.SearchPaginationDto;
+import com.yunke.backend.system.dto.SearchQueryDto;
+import com.yunke.backend.system.dto.SearchResultDto;
+import com.yunke.backend.workspace.domain.entity.WorkspaceDoc;
+import com.yunke.backend.workspace.service.WorkspaceDocService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 块级增量索引管道
+ *
+ * 文档更新成功落库后（{@link DocUpdatedEvent} / {@link DocCreatedEvent}）把文档放入待索引表：
+ * - 按文档防抖：最后一次更新后静默 debounce-ms 才索引，连续编辑最多延迟 max-delay-ms
+ * - 工作线程读取合并后的 Yjs 状态，用 {@link DocBlockExtractor} 提取块文本，
+ *   按块内容哈希与上次索引的结果比较，只批量写入变化的块、删除消失的块
+ * - 上次的块哈希缓存在本地，未命中时从 BLOCK 表读回，重启后同样只写变化部分
+ * - 同一文档同一时刻只有一个索引任务，执行期间的新更新留在待索引表等下一轮
+ * - 读取失败（超时、数据库或 yjs-service 异常）按指数退避重试，超过 max-attempts 次后放弃；
+ *   只有文档元数据确认不存在时才删除其索引
+ *
+ * 全量回填按工作空间分页进行，进度（下一页页码）记录在 Redis，
+ * 中断或重启后从上次的页继续；已索引且内容未变的文档只做哈希比较，不产生写入。
+ *
+ * 有写入或删除时同步更新标题补全，并递增工作空间的搜索缓存纪元（{@link SearchResultCache}）。
+ */
+@Component
+@Slf4j
+public class DocIndexingPipeline {
+
+    static final String BACKFILL_KEY_PREFIX = "search:backfill:";
+    static final String BACKFILL_ACTIVE_KEY = "search:backfill:active";
+
+    /**
+     * 待索引的文档
+     */
+    private static final class PendingDoc {
+        final String workspaceId;
+        final String docId;
+        final long firstAt;
+        volatile long lastAt;
+        /** 已失败的次数 */
+        final int attempts;
+        /** 重试前不会被分派 */
+        final long notBefore;
+
+        PendingDoc(String workspaceId, String docId, long now) {
+            this(workspaceId, docId, now, 0, 0);
+        }
+
+        PendingDoc(String workspaceId, String docId, long now, int attempts, long notBefore) {
+            this.workspaceId = workspaceId;
+            this.docId = docId;
+            this.firstAt = now;
+            this.lastAt = now;
+            this.attempts = attempts;
+            this.notBefore = notBefore;
+        }
+    }
+
+    private final SearchProvider searchProvider;
+    private final DocReader docReader;
+    private final WorkspaceDocService docService;
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final SearchResultCache resultCache;
+    private final TitleSuggester titleSuggester;
+
+    private final ConcurrentHashMap<String, PendingDoc> pending = new ConcurrentHashMap<>();
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    private final Set<String> backfilling = ConcurrentHashMap.newKeySet();
+    private final AtomicLong backfillRemaining = new AtomicLong();
+    private final Cache<String, Map<String, String>> indexedHashes;
+    private final ThreadPoolExecutor workers;
+    private final ExecutorService backfillExecutor;
+
+    private final boolean enabled;
+    private final long debounceMillis;
+    private final long maxDelayMillis;
+    private final int batchSize;
+    private final int maxBlocksPerDoc;
+    private final int backfillPageSize;
+    private final Duration readTimeout;
+    private final int maxAttempts;
+    private final long retryBackoffMillis;
+
+    private final Timer lagTimer;
+    private final Timer indexTimer;
+    private final Counter blocksWritten;
+    private final Counter blocksDeleted;
+    private final Counter blocksUnchanged;
+    private final Counter failures;
+    private final Counter abandoned;
+
+    public DocIndexingPipeline(
+            SearchProvider searchProvider,
+            DocReader docReader,
+            WorkspaceDocService docService,
+            RedisTemplate<String, Object> redisTemplate,
+            SearchResultCache resultCache,
+            TitleSuggester titleSuggester,
+            MeterRegistry meterRegistry,
+            @Value("${search.indexer.enabled:true}") boolean enabled,
+            @Value("${search.indexer.debounce-ms:2000}") long debounceMillis,
+            @Value("${search.indexer.max-delay-ms:30000}") long maxDelayMillis,
+            @Value("${search.indexer.workers:2}") int workerCount,
+            @Value("${search.indexer.batch-size:200}") int batchSize,
+            @Value("${search.indexer.max-blocks-per-doc:10000}") int maxBlocksPerDoc,
+            @Value("${search.indexer.backfill-page-size:100}") int backfillPageSize,
+            @Value("${search.indexer.read-timeout-ms:10000}") long readTimeoutMillis,
+            @Value("${search.indexer.max-cached-docs:20000}") long maxCachedDocs,
+            @Value("${search.indexer.max-attempts:5}") int maxAttempts,
+            @Value("${search.indexer.retry-backoff-ms:1000}") long retryBackoffMillis) {
+        this.searchProvider = searchProvider;
+        this.docReader = docReader;
+        this.docService = docService;
+        this.redisTemplate = redisTemplate;
+        this.resultCache = resultCache;
+        this.titleSuggester = titleSuggester;
+        this.enabled = enabled;
+        this.debounceMillis = debounceMillis;
+        this.maxDelayMillis = Math.max(debounceMillis, maxDelayMillis);
+        this.batchSize = Math.max(1, batchSize);
+        this.maxBlocksPerDoc = maxBlocksPerDoc;
+        this.backfillPageSize = Math.max(1, backfillPageSize);
+        this.readTimeout = Duration.ofMillis(readTimeoutMillis);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBackoffMillis = Math.max(0, retryBackoffMillis);
+        this.indexedHashes = Caffeine.newBuilder().maximumSize(maxCachedDocs).build();
+
+        int poolSize = Math.max(1, workerCount);
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "search-indexer-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.backfillExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "search-backfill");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("search_index_queue_size", this, pipeline -> pipeline.pending.size() + pipeline.workers.getQueue().size())
+                .description("Docs waiting to be indexed")
+                .register(meterRegistry);
+        Gauge.builder("search_index_backfill_remaining", backfillRemaining, AtomicLong::get)
+                .description("Docs left in running backfills")
+                .register(meterRegistry);
+        this.lagTimer = Timer.builder("search_index_lag")
+                .description("Time from the first unindexed update to the doc being searchable")
+                .register(meterRegistry);
+        this.indexTimer = Timer.builder("search_index_duration")
+                .description("Per-doc block indexing duration")
+                .register(meterRegistry);
+        this.blocksWritten = Counter.builder("search_index_blocks").tag("op", "write")
+                .description("Indexed blocks by operation")
+                .register(meterRegistry);
+        this.blocksDeleted = Counter.builder("search_index_blocks").tag("op", "delete")
+                .description("Indexed blocks by operation")
+                .register(meterRegistry);
+        this.blocksUnchanged = Counter.builder("search_index_blocks").tag("op", "unchanged")
+                .description("Indexed blocks by operation")
+                .register(meterRegistry);
+        this.failures = Counter.builder("search_index_failures")
+                .description("Failed doc indexing attempts")
+                .register(meterRegistry);
+        this.abandoned = Counter.builder("search_index_abandoned")
+                .description("Docs dropped after exhausting indexing retries")
+                .register(meterRegistry);
+
+        log.info("🔎 [DocIndexingPipeline] 初始化完成: enabled={}, workers={}, debounce={}ms, maxDelay={}ms, batch={}",
+                enabled, poolSize, debounceMillis, this.maxDelayMillis, this.batchSize);
+    }
+
+    @EventListener
+    public void onDocUpdated(DocUpdatedEvent event) {
+        enqueue(event.getWorkspaceId(), event.getDocId());
+    }
+
+    @EventListener
+    public void onDocCreated(DocCreatedEvent event) {
+        enqueue(event.getWorkspaceId(), event.getDocId());
+    }
+
+    /**
+     * 标记文档待索引；已在待索引表中时只刷新最后更新时间
+     */
+    public void enqueue(String workspaceId, String docId) {
+        if (!enabled || workspaceId == null || docId == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        pending.compute(docKey(workspaceId, docId), (key, existing) -> {
+            if (existing == null) {
+                return new PendingDoc(workspaceId, docId, now);
+            }
+            existing.lastAt = now;
+            return existing;
+        });
+    }
+
+    /**
+     * 把静默期已过或等待超过 max-delay 的文档交给工作线程
+     */
+    @Scheduled(fixedDelayString = "${search.indexer.tick-ms:500}")
+    public void dispatch() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (PendingDoc doc : pending.values()) {
+            if (now < doc.notBefore) {
+                continue;
+            }
+            boolean quiet = now - doc.lastAt >= debounceMillis;
+            boolean overdue = now - doc.firstAt >= maxDelayMillis;
+            if (!quiet && !overdue) {
+                continue;
+            }
+            String key = docKey(doc.workspaceId, doc.docId);
+            if (!inFlight.add(key)) {
+                continue;
+            }
+            // 先移出待索引表：执行期间的新更新会重新登记，下一轮再处理
+            pending.remove(key, doc);
+            workers.execute(() -> {
+                try {
+                    indexDoc(doc.workspaceId, doc.docId);
+                    lagTimer.record(System.currentTimeMillis() - doc.firstAt, TimeUnit.MILLISECONDS);
+                } catch (Exception e) {
+                    failures.increment();
+                    scheduleRetry(key, doc, e);
+                } finally {
+                    inFlight.remove(key);
+                }
+            });
+        }
+    }
+
+    /**
+     * 失败后按指数退避重新登记；超过 max-attempts 次放弃，等待下一次更新或回填
+     */
+    private void scheduleRetry(String key, PendingDoc doc, Exception error) {
+        int attempts = doc.attempts + 1;
+        if (attempts >= maxAttempts) {
+            abandoned.increment();
+            log.error("❌ [DocIndexingPipeline] 文档索引连续失败 {} 次，已放弃: {}/{}",
+                    attempts, doc.workspaceId, doc.docId, error);
+            return;
+        }
+        long delay = retryBackoffMillis << Math.min(attempts - 1, 16);
+        long now = System.currentTimeMillis();
+        log.warn("⚠️ [DocIndexingPipeline] 文档索引失败，{}ms 后重试（第{}次）: {}/{}, {}",
+                delay, attempts, doc.workspaceId, doc.docId, error.getMessage());
+        // 执行期间已有新更新登记时保留它，新的更新会重新触发索引
+        pending.putIfAbsent(key, new PendingDoc(doc.workspaceId, doc.docId, now, attempts, now + delay));
+    }
+
+    /**
+     * 立即索引单个文档（同步），返回写入和删除的块数
+     */
+    public int indexDoc(String workspaceId, String docId) {
+        return indexTimer.record(() -> doIndex(workspaceId, docId));
+    }
+
+    private int doIndex(String workspaceId, String docId) {
+        String key = docKey(workspaceId, docId);
+        Optional<DocRecord> record = docReader.getDoc(workspaceId, docId).block(readTimeout);
+        if (record == null || record.isEmpty() || record.get().getBlob() == null) {
+            // 读取器在异常时同样返回空结果：只有元数据确认文档已删除才清理索引，否则交给重试
+            if (docService.findById(docId).filter(doc -> workspaceId.equals(doc.getWorkspaceId())).isPresent()) {
+                throw new IllegalStateException("文档内容暂不可读: " + key);
+            }
+            removeDoc(workspaceId, docId);
+            return 0;
+        }
+
+        DocBlockExtractor.Extracted extracted = DocBlockExtractor.extract(record.get().getBlob());
+        Map<String, String> previous = indexedHashes.getIfPresent(key);
+        if (previous == null) {
+            previous = loadIndexedHashes(workspaceId, docId);
+        }
+
+        long updatedAt = record.get().getTimestamp() != null ? record.get().getTimestamp() : System.currentTimeMillis();
+        Map<String, String> current = new HashMap<>();
+        List<Map<String, Object>> changed = new ArrayList<>();
+        for (DocBlockExtractor.Block block : extracted.blocks()) {
+            if (block.content().isEmpty() || current.size() >= maxBlocksPerDoc) {
+                continue;
+            }
+            String hash = block.contentHash();
+            current.put(block.blockId(), hash);
+            if (!hash.equals(previous.get(block.blockId()))) {
+                changed.add(toBlockDocument(workspaceId, docId, block, hash, updatedAt));
+            }
+        }
+        List<String> removed = new ArrayList<>();
+        for (String blockId : previous.keySet()) {
+            if (!current.containsKey(blockId)) {
+                removed.add(blockId);
+            }
+        }
+
+        OperationOptionsDto options = OperationOptionsDto.builder().refresh(false).build();
+        for (int from = 0; from < changed.size(); from += batchSize) {
+            searchProvider.write(SearchTable.BLOCK, changed.subList(from, Math.min(changed.size(), from + batchSize)), options)
+                    .block(readTimeout);
+        }
+        for (String blockId : removed) {
+            searchProvider.deleteDocument(SearchTable.BLOCK, blockDocumentId(docId, blockId)).block(readTimeout);
+        }
+        if (!changed.isEmpty() || !removed.isEmpty() || previous.isEmpty()) {
+            Map<String, Object> docDocument = toDocDocument(workspaceId, docId, extracted, updatedAt);
+            searchProvider.write(SearchTable.DOC, List.of(docDocument), options).block(readTimeout);
+            titleSuggester.onTitleChanged(workspaceId, docId, (String) docDocument.get("title"));
+            resultCache.bumpEpoch(workspaceId).block(readTimeout);
+        }
+        indexedHashes.put(key, current);
+
+        blocksWritten.increment(changed.size());
+        blocksDeleted.increment(removed.size());
+        blocksUnchanged.increment(current.size() - changed.size());
+        if (!changed.isEmpty() || !removed.isEmpty()) {
+            log.debug("🔎 [DocIndexingPipeline] 文档已索引: {}/{}, 写入={}, 删除={}, 未变={}",
+                    workspaceId, docId, changed.size(), removed.size(), current.size() - changed.size());
+        }
+        return changed.size() + removed.size();
+    }
+
+    /**
+     * 文档已不存在：删除其 DOC 行与全部块
+     */
+    private void removeDoc(String workspaceId, String docId) {
+        Map<String, Object> query = Map.of("workspace_id", workspaceId, "doc_id", docId);
+        OperationOptionsDto options = OperationOptionsDto.builder().refresh(false).build();
+        searchProvider.deleteByQuery(SearchTable.BLOCK, query, options).block(readTimeout);
+        searchProvider.deleteDocument(SearchTable.DOC, docId).block(readTimeout);
+        indexedHashes.invalidate(docKey(workspaceId, docId));
+        titleSuggester.onDocRemoved(workspaceId, docId);
+        resultCache.bumpEpoch(workspaceId).block(readTimeout);
+    }
+
+    /**
+     * 本地缓存未命中时，从 BLOCK 表读回该文档已索引块的内容哈希
+     */
+    private Map<String, String> loadIndexedHashes(String workspaceId, String docId) {
+        SearchInputDto input = SearchInputDto.builder()
+                .table(SearchTable.BLOCK)
+                .query(SearchQueryDto.builder()
+                        .type(SearchQueryType.BOOLEAN)
+                        .occur(SearchQueryOccur.MUST)
+                        .queries(List.of(
+                                match("workspace_id", workspaceId),
+                                match("doc_id", docId)))
+                        .build())
+                .options(SearchOptionsDto.builder()
+                        .fields(List.of("doc_id", "block_id", "content_hash"))
+                        .pagination(SearchPaginationDto.builder().skip(0).limit(maxBlocksPerDoc).build())
+                        .build())
+                .build();
+        SearchResultDto result = searchProvider.search(SearchTable.BLOCK, input).block(readTimeout);
+        Map<String, String> hashes = new HashMap<>();
+        if (result == null || result.getNodes() == null) {
+            return hashes;
+        }
+        for (SearchNodeDto node : result.getNodes()) {
+            Map<String, Object> fields = node.getFields();
+            // 分词匹配可能命中其他文档，按原值再过滤一次
+            if (fields != null && docId.equals(fields.get("doc_id")) && fields.get("block_id") != null) {
+                hashes.put(String.valueOf(fields.get("block_id")), String.valueOf(fields.get("content_hash")));
+            }
+        }
+        return hashes;
+    }
+
+    // ==================== 回填 ====================
+
+    /**
+     * 启动（或继续）工作空间的全量回填；已在进行时直接返回 false
+     */
+    public boolean startBackfill(String workspaceId) {
+        if (!enabled || !backfilling.add(workspaceId)) {
+            return false;
+        }
+        redisTemplate.opsForSet().add(BACKFILL_ACTIVE_KEY, workspaceId);
+        backfillExecutor.execute(() -> {
+            try {
+                runBackfill(workspaceId);
+            } catch (Exception e) {
+                log.error("❌ [DocIndexingPipeline] 回填中断，重启后将从断点继续: workspace={}", workspaceId, e);
+            } finally {
+                backfilling.remove(workspaceId);
+            }
+        });
+        return true;
+    }
+
+    public boolean isBackfilling(String workspaceId) {
+        return backfilling.contains(workspaceId);
+    }
+
+    /**
+     * 启动时继续上次未完成的回填
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeBackfills() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Set<Object> active = redisTemplate.opsForSet().members(BACKFILL_ACTIVE_KEY);
+            if (active == null || active.isEmpty()) {
+                return;
+            }
+            log.info("🔎 [DocIndexingPipeline] 继续未完成的回填: {}", active);
+            active.forEach(workspaceId -> startBackfill(String.valueOf(workspaceId)));
+        } catch (Exception e) {
+            log.warn("⚠️ [DocIndexingPipeline] 读取回填进度失败", e);
+        }
+    }
+
+    private void runBackfill(String workspaceId) {
+        String progressKey = BACKFILL_KEY_PREFIX + workspaceId;
+        Object saved = redisTemplate.opsForValue().get(progressKey);
+        int page = saved == null ? 0 : Integer.parseInt(String.valueOf(saved));
+        log.info("🔎 [DocIndexingPipeline] 开始回填: workspace={}, fromPage={}", workspaceId, page);
+
+        long counted = 0;
+        int indexed = 0;
+        try {
+            while (true) {
+                Page<WorkspaceDoc> docs = docService.getWorkspaceDocs(workspaceId,
+                        PageRequest.of(page, backfillPageSize, Sort.by("docId")));
+                if (counted == 0) {
+                    counted = Math.max(0, docs.getTotalElements() - (long) page * backfillPageSize);
+                    backfillRemaining.addAndGet(counted);
+                }
+                for (WorkspaceDoc doc : docs.getContent()) {
+                    String key = docKey(workspaceId, doc.getId());
+                    // 实时管道正在处理的文档跳过，它会写入最新内容
+                    if (inFlight.add(key)) {
+                        try {
+                            indexDoc(workspaceId, doc.getId());
+                            indexed++;
+                        } catch (Exception e) {
+                            failures.increment();
+                            log.warn("⚠️ [DocIndexingPipeline] 回填文档失败，已跳过: {}/{}", workspaceId, doc.getId(), e);
+                        } finally {
+                            inFlight.remove(key);
+                        }
+                    }
+                    backfillRemaining.decrementAndGet();
+                    counted--;
+                }
+                if (!docs.hasNext()) {
+                    break;
+                }
+                page++;
+                redisTemplate.opsForValue().set(progressKey, page);
+            }
+            redisTemplate.delete(progressKey);
+            redisTemplate.opsForSet().remove(BACKFILL_ACTIVE_KEY, workspaceId);
+            log.info("✅ [DocIndexingPipeline] 回填完成: workspace={}, 文档数={}", workspaceId, indexed);
+        } finally {
+            backfillRemaining.addAndGet(-Math.max(0, counted));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        backfillExecutor.shutdownNow();
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(5, TimeUnit.SECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            workers.shutdownNow();
+        }
+    }
+
+    // ==================== 文档转换 ====================
+
+    static String blockDocumentId(String docId, String blockId) {
+        return docId + ":" + blockId;
+    }
+
+    private static Map<String, Object> toBlockDocument(String workspaceId, String docId,
+                                                       DocBlockExtractor.Block block, String hash, long updatedAt) {
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("id", blockDocumentId(docId, block.blockId()));
+        document.put("workspace_id", workspaceId);
+        document.put("doc_id", docId);
+        document.put("block_id", block.blockId());
+        document.put("flavour", block.flavour());
+        document.put("parent_block_id", block.parentId());
+        document.put("content", block.content());
+        document.put("content_hash", hash);
+        document.put("updated_at", updatedAt);
+        return document;
+    }
+
+    private Map<String, Object> toDocDocument(String workspaceId, String docId,
+                                              DocBlockExtractor.Extracted extracted, long updatedAt) {
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("id", docId);
+        document.put("doc_id", docId);
+        document.put("workspace_id", workspaceId);
+        document.put("title", extracted.title());
+        document.put("summary", extracted.summary());
+        document.put("updated_at", updatedAt);
+        docService.findById(docId)
+                .filter(doc -> workspaceId.equals(doc.getWorkspaceId()))
+                .ifPresent(doc -> {
+                    if (extracted.title().isEmpty() && doc.getTitle() != null) {
+                        document.put("title", doc.getTitle());
+                    }
+                    document.put("created_at", doc.getCreatedAt());
+                    document.put("is_public", doc.getPublic() != null ? doc.getPublic() : false);
+                    document.put("mode", doc.getMode() != null ? doc.getMode() : 0);
+                });
+        return document;
+    }
+
+    private static SearchQueryDto match(String field, String value) {
+        return SearchQueryDto.builder().type(SearchQueryType.MATCH).field(field).match(value).build();
+    }
+
+    private static String docKey(String workspaceId, String docId) {
+        return workspaceId + ":" + docId;
+    }
+}
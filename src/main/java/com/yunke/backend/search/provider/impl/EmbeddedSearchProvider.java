@@ -0,0 +1,533 @@
+package com.yunke.backend.search.provider.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yunke.backend.search.dto.AggregateBucketDto;
+import com.yunke.backend.search.dto.AggregateInputDto;
+import com.yunke.backend.search.dto.AggregateResultDto;
+import com.yunke.backend.search.dto.OperationOptionsDto;
+import com.yunke.backend.search.enums.SearchProviderType;
+import com.yunke.backend.search.enums.SearchQueryOccur;
+import com.yunke.backend.search.enums.SearchQueryType;
+import com.yunke.backend.search.enums.SearchTable;
+import com.yunke.backend.search.index.SearchAnalyzers;
+import com.yunke.backend.search.index.WorkspaceIndex;
+import com.yunke.backend.search.provider.SearchProvider;
+import com.yunke.backend.system.dto.*;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 内嵌倒排索引搜索提供者
+ *
+ * <p>不依赖外部搜索引擎：每张表下按 workspace_id 切分为独立的 {@link WorkspaceIndex}，
+ * 索引持久化到 {@code search.embedded.path}，段文件以内存映射方式读取。
+ * 查询中的 workspace_id 过滤条件直接用于定位工作空间索引，其余条件在倒排表上求值并按 BM25 排序。</p>
+ *
+ * <p>写入先进入内存段即可被搜索，达到 {@code flush-threshold} 条、定时任务或 refresh 时合并刷盘；
+ * 进程异常退出会丢失未刷盘的增量，可通过重建工作空间索引恢复。</p>
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "search.provider", havingValue = "embedded")
+public class EmbeddedSearchProvider implements SearchProvider {
+
+    private static final String WORKSPACE_FIELD = "workspace_id";
+    /** 没有 workspace_id 的文档归入此分区 */
+    private static final String NO_WORKSPACE = "_";
+    private static final int DEFAULT_LIMIT = 20;
+    private static final int MAX_BUCKET_HITS = 5;
+
+    private final ObjectMapper objectMapper;
+    private final Path basePath;
+    private final int flushThreshold;
+    private final SearchAnalyzers analyzers;
+    private final Map<SearchTable, ConcurrentMap<String, WorkspaceIndex>> indexes = new EnumMap<>(SearchTable.class);
+
+    public EmbeddedSearchProvider(
+            ObjectMapper objectMapper,
+            SearchAnalyzers analyzers,
+            @Value("${search.embedded.path:./data/search-index}") String basePath,
+            @Value("${search.embedded.flush-threshold:1000}") int flushThreshold) {
+        this.objectMapper = objectMapper;
+        this.analyzers = analyzers;
+        this.basePath = Paths.get(basePath);
+        this.flushThreshold = flushThreshold;
+        for (SearchTable table : SearchTable.values()) {
+            indexes.put(table, new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * 启动时打开已有的工作空间索引（只映射文件并加载词典）
+     */
+    @PostConstruct
+    public void init() throws IOException {
+        for (SearchTable table : SearchTable.values()) {
+            Path tableDir = tableDir(table);
+            if (!Files.isDirectory(tableDir)) {
+                continue;
+            }
+            try (DirectoryStream<Path> dirs = Files.newDirectoryStream(tableDir, Files::isDirectory)) {
+                for (Path dir : dirs) {
+                    String workspaceId = URLDecoder.decode(dir.getFileName().toString(), StandardCharsets.UTF_8);
+                    indexes.get(table).put(workspaceId, WorkspaceIndex.open(dir, analyzers, objectMapper));
+                }
+            }
+            log.info("📚 [EmbeddedSearch] 已加载索引: table={}, workspaces={}", table.getValue(), indexes.get(table).size());
+        }
+    }
+
+    @Override
+    public SearchProviderType getType() {
+        return SearchProviderType.EMBEDDED;
+    }
+
+    @Override
+    public Mono<Void> createTable(SearchTable table, String mapping) {
+        return Mono.fromRunnable(() -> {
+            try {
+                Files.createDirectories(tableDir(table));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }).subscribeOn(Schedulers.boundedElastic()).then();
+    }
+
+    @Override
+    public Mono<SearchResultDto> search(SearchTable table, SearchInputDto searchInput) {
+        return Mono.fromCallable(() -> {
+            SearchOptionsDto options = searchInput.getOptions();
+            SearchPaginationDto pagination = options != null ? options.getPagination() : null;
+            int skip = pagination != null && pagination.getSkip() != null ? pagination.getSkip() : 0;
+            int limit = pagination != null && pagination.getLimit() != null ? pagination.getLimit() : DEFAULT_LIMIT;
+
+            List<Hit> hits = execute(table, searchInput.getQuery());
+            List<SearchNodeDto> nodes = new ArrayList<>();
+            for (Hit hit : topK(hits, skip + limit).stream().skip(skip).toList()) {
+                Map<String, Object> fields = hit.index.storedFields(hit.id);
+                if (fields != null) {
+                    nodes.add(toNode(fields, hit.score, options, searchInput.getQuery()));
+                }
+            }
+
+            return SearchResultDto.builder()
+                    .nodes(nodes)
+                    .pagination(SearchResultPaginationDto.builder()
+                            .skip(skip)
+                            .limit(limit)
+                            .total((long) hits.size())
+                            .hasNext(skip + limit < hits.size())
+                            .build())
+                    .build();
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * 按字段值分桶，桶按文档数降序；每个桶只返回得分最高的若干条命中
+     */
+    @Override
+    public Mono<AggregateResultDto> aggregate(SearchTable table, AggregateInputDto aggregateInput) {
+        return Mono.fromCallable(() -> {
+            String field = aggregateInput.getField();
+            List<Hit> hits = execute(table, aggregateInput.getQuery());
+            Map<String, List<Hit>> groups = new HashMap<>();
+            Map<Hit, Map<String, Object>> fieldsByHit = new HashMap<>();
+            for (Hit hit : hits) {
+                Map<String, Object> fields = hit.index.storedFields(hit.id);
+                if (fields == null) {
+                    continue;
+                }
+                fieldsByHit.put(hit, fields);
+                String key = String.valueOf(fields.getOrDefault(field, "unknown"));
+                groups.computeIfAbsent(key, k -> new ArrayList<>()).add(hit);
+            }
+
+            int size = aggregateInput.getOptions() != null && aggregateInput.getOptions().getSize() != null
+                    ? aggregateInput.getOptions().getSize() : Integer.MAX_VALUE;
+            List<AggregateBucketDto> buckets = groups.entrySet().stream()
+                    .sorted((a, b) -> Integer.compare(b.getValue().size(), a.getValue().size()))
+                    .limit(size)
+                    .map(entry -> AggregateBucketDto.builder()
+                            .key(entry.getKey())
+                            .docCount((long) entry.getValue().size())
+                            .hits(topK(entry.getValue(), MAX_BUCKET_HITS).stream()
+                                    .map(hit -> toNode(fieldsByHit.get(hit), hit.score, null, null))
+                                    .toList())
+                            .build())
+                    .toList();
+
+            return AggregateResultDto.builder()
+                    .buckets(buckets)
+                    .totalDocs((long) fieldsByHit.size())
+                    .build();
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public Mono<Void> write(SearchTable table, List<Map<String, Object>> documents, OperationOptionsDto options) {
+        return Mono.fromRunnable(() -> {
+            Set<WorkspaceIndex> touched = new HashSet<>();
+            for (Map<String, Object> document : documents) {
+                Object workspaceId = document.get(WORKSPACE_FIELD);
+                WorkspaceIndex index = indexOf(table, workspaceId == null ? NO_WORKSPACE : workspaceId.toString());
+                index.upsert(extractDocumentId(document), document);
+                touched.add(index);
+            }
+            boolean refresh = options != null && Boolean.TRUE.equals(options.getRefresh());
+            for (WorkspaceIndex index : touched) {
+                if (refresh || index.pendingChanges() >= flushThreshold) {
+                    flush(table, index);
+                }
+            }
+        }).subscribeOn(Schedulers.boundedElastic()).then();
+    }
+
+    /**
+     * 只含 workspace_id 的条件直接删除整个工作空间索引；
+     * 其他条件先在倒排表上取候选，再按与 Redis 实现相同的"包含"语义逐条校验
+     */
+    @Override
+    public Mono<Void> deleteByQuery(SearchTable table, Map<String, Object> query, OperationOptionsDto options) {
+        return Mono.fromRunnable(() -> {
+            Map<String, WorkspaceIndex> tableIndexes = indexes.get(table);
+            Object workspaceId = query.get(WORKSPACE_FIELD);
+            if (workspaceId != null && query.size() == 1) {
+                WorkspaceIndex index = tableIndexes.remove(workspaceId.toString());
+                if (index != null) {
+                    destroy(index);
+                    log.info("🗑️ [EmbeddedSearch] 删除工作空间索引: table={}, workspaceId={}", table.getValue(), workspaceId);
+                }
+                return;
+            }
+
+            List<SearchQueryDto> clauses = new ArrayList<>();
+            query.forEach((field, value) -> {
+                if (!WORKSPACE_FIELD.equals(field)) {
+                    clauses.add(SearchQueryDto.builder()
+                            .type(SearchQueryType.MATCH).field(field).match(String.valueOf(value)).build());
+                }
+            });
+            SearchQueryDto filter = SearchQueryDto.builder()
+                    .type(SearchQueryType.BOOLEAN).occur(SearchQueryOccur.MUST).queries(clauses).build();
+            Collection<WorkspaceIndex> targets = workspaceId == null
+                    ? tableIndexes.values()
+                    : Optional.ofNullable(tableIndexes.get(workspaceId.toString())).map(List::of).orElse(List.of());
+
+            int deleted = 0;
+            for (WorkspaceIndex index : targets) {
+                for (String id : index.search(filter).keySet()) {
+                    Map<String, Object> fields = index.storedFields(id);
+                    if (fields != null && containsAll(fields, query) && index.delete(id)) {
+                        deleted++;
+                    }
+                }
+                if (options != null && Boolean.TRUE.equals(options.getRefresh())) {
+                    flush(table, index);
+                }
+            }
+            log.debug("[EmbeddedSearch] deleteByQuery: table={}, deleted={}", table.getValue(), deleted);
+        }).subscribeOn(Schedulers.boundedElastic()).then();
+    }
+
+    @Override
+    public Mono<Void> deleteDocument(SearchTable table, String documentId) {
+        return Mono.fromRunnable(() -> {
+            for (WorkspaceIndex index : indexes.get(table).values()) {
+                if (index.delete(documentId)) {
+                    return;
+                }
+            }
+        }).subscribeOn(Schedulers.boundedElastic()).then();
+    }
+
+    @Override
+    public Mono<Boolean> tableExists(SearchTable table) {
+        // 目录在首次刷盘时按需创建，表总是可用
+        return Mono.just(true);
+    }
+
+    @Override
+    public Mono<Void> deleteTable(SearchTable table) {
+        return Mono.fromRunnable(() -> {
+            Map<String, WorkspaceIndex> tableIndexes = indexes.get(table);
+            for (String workspaceId : new ArrayList<>(tableIndexes.keySet())) {
+                WorkspaceIndex index = tableIndexes.remove(workspaceId);
+                if (index != null) {
+                    destroy(index);
+                }
+            }
+        }).subscribeOn(Schedulers.boundedElastic()).then();
+    }
+
+    @Override
+    public Mono<Long> getDocumentCount(SearchTable table) {
+        return Mono.fromCallable(() -> indexes.get(table).values().stream()
+                .mapToLong(WorkspaceIndex::size)
+                .sum());
+    }
+
+    @Override
+    public Mono<Void> refresh(SearchTable table) {
+        return Mono.fromRunnable(() -> indexes.get(table).values().forEach(index -> flush(table, index)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .then();
+    }
+
+    @Override
+    public Mono<Boolean> isHealthy() {
+        return Mono.fromCallable(() -> {
+            Files.createDirectories(basePath);
+            return Files.isWritable(basePath);
+        }).onErrorReturn(false);
+    }
+
+    /**
+     * 定时把内存段合并刷盘
+     */
+    @Scheduled(fixedDelayString = "${search.embedded.flush-interval-ms:30000}")
+    public void flushPending() {
+        indexes.forEach((table, tableIndexes) -> tableIndexes.values().forEach(index -> {
+            if (index.pendingChanges() > 0) {
+                flush(table, index);
+            }
+        }));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushPending();
+    }
+
+    // ==================== 私有方法 ====================
+
+    private record Hit(WorkspaceIndex index, String id, double score) {
+    }
+
+    /**
+     * 工作空间过滤与剩余查询
+     */
+    private record Scope(String workspaceId, SearchQueryDto query) {
+    }
+
+    private List<Hit> execute(SearchTable table, SearchQueryDto query) {
+        Scope scope = scopeOf(query);
+        Collection<WorkspaceIndex> targets;
+        if (scope.workspaceId != null) {
+            WorkspaceIndex index = indexes.get(table).get(scope.workspaceId);
+            targets = index == null ? List.of() : List.of(index);
+        } else {
+            targets = indexes.get(table).values();
+        }
+
+        List<Hit> hits = new ArrayList<>();
+        for (WorkspaceIndex index : targets) {
+            index.search(scope.query).forEach((id, score) -> hits.add(new Hit(index, id, score)));
+        }
+        return hits;
+    }
+
+    /**
+     * 提取顶层（或顶层 MUST 中）的 workspace_id 精确过滤，用于直接选择工作空间索引
+     */
+    private static Scope scopeOf(SearchQueryDto query) {
+        if (query == null) {
+            return new Scope(null, null);
+        }
+        if (isWorkspaceFilter(query)) {
+            return new Scope(query.getMatch(), null);
+        }
+        if (query.getType() == SearchQueryType.BOOLEAN && query.getOccur() == SearchQueryOccur.MUST
+                && query.getQueries() != null && query.getBoost() == null) {
+            for (SearchQueryDto clause : query.getQueries()) {
+                if (isWorkspaceFilter(clause)) {
+                    List<SearchQueryDto> rest = new ArrayList<>(query.getQueries());
+                    rest.remove(clause);
+                    SearchQueryDto residual = rest.isEmpty() ? null : SearchQueryDto.builder()
+                            .type(SearchQueryType.BOOLEAN).occur(SearchQueryOccur.MUST).queries(rest).build();
+                    return new Scope(clause.getMatch(), residual);
+                }
+            }
+        }
+        return new Scope(null, query);
+    }
+
+    private static boolean isWorkspaceFilter(SearchQueryDto query) {
+        return query.getType() == SearchQueryType.MATCH
+                && WORKSPACE_FIELD.equals(query.getField())
+                && query.getMatch() != null;
+    }
+
+    /**
+     * 有界小顶堆取得分最高的 k 条，按得分降序返回
+     */
+    private static List<Hit> topK(List<Hit> hits, int k) {
+        if (k <= 0) {
+            return List.of();
+        }
+        Comparator<Hit> byScore = Comparator.comparingDouble(Hit::score).thenComparing(Hit::id, Comparator.reverseOrder());
+        PriorityQueue<Hit> heap = new PriorityQueue<>(Math.min(k, Math.max(1, hits.size())), byScore);
+        for (Hit hit : hits) {
+            if (heap.size() < k) {
+                heap.add(hit);
+            } else if (byScore.compare(hit, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(hit);
+            }
+        }
+        List<Hit> top = new ArrayList<>(heap);
+        top.sort(byScore.reversed());
+        return top;
+    }
+
+    private SearchNodeDto toNode(Map<String, Object> fields, double score, SearchOptionsDto options, SearchQueryDto query) {
+        Map<String, Object> projected = fields;
+        if (options != null && options.getFields() != null && !options.getFields().isEmpty()) {
+            projected = new LinkedHashMap<>();
+            for (String field : options.getFields()) {
+                if (fields.containsKey(field)) {
+                    projected.put(field, fields.get(field));
+                }
+            }
+        }
+        Map<String, Object> highlights = null;
+        if (options != null && options.getHighlights() != null && !options.getHighlights().isEmpty()) {
+            highlights = new LinkedHashMap<>();
+            for (SearchHighlightDto highlight : options.getHighlights()) {
+                Object value = fields.get(highlight.getField());
+                if (value != null) {
+                    highlights.put(highlight.getField(), highlight(value.toString(), matchTokens(query, highlight.getField()),
+                            highlight.getBefore(), highlight.getEnd()));
+                }
+            }
+        }
+        return SearchNodeDto.builder()
+                .fields(projected)
+                .highlights(highlights)
+                .score(score)
+                .build();
+    }
+
+    /**
+     * 查询中针对该字段的 MATCH 词项
+     */
+    private Set<String> matchTokens(SearchQueryDto query, String field) {
+        Set<String> tokens = new HashSet<>();
+        if (query == null) {
+            return tokens;
+        }
+        if (query.getType() == SearchQueryType.MATCH && query.getMatch() != null
+                && (field.equals(query.getField()) || SearchAnalyzers.prefixField(field).equals(query.getField()))) {
+            tokens.addAll(analyzers.analyzeForQuery(query.getMatch()));
+        }
+        if (query.getQuery() != null) {
+            tokens.addAll(matchTokens(query.getQuery(), field));
+        }
+        if (query.getQueries() != null && query.getOccur() != SearchQueryOccur.MUST_NOT) {
+            query.getQueries().forEach(clause -> tokens.addAll(matchTokens(clause, field)));
+        }
+        return tokens;
+    }
+
+    /**
+     * 用 before/end 包裹文本中出现的查询词项（忽略大小写），重叠或相邻的片段合并为一段；
+     * 中文二元组逐个命中后会连成完整短语
+     */
+    private String highlight(String text, Set<String> tokens, String before, String end) {
+        if (tokens.isEmpty()) {
+            return text;
+        }
+        boolean[] marked = new boolean[text.length()];
+        for (String token : tokens) {
+            for (int from = 0; from <= text.length() - token.length(); from++) {
+                if (text.regionMatches(true, from, token, 0, token.length())) {
+                    Arrays.fill(marked, from, from + token.length(), true);
+                }
+            }
+        }
+        String open = before == null ? "<b>" : before;
+        String close = end == null ? "</b>" : end;
+        StringBuilder result = new StringBuilder(text.length() + 16);
+        for (int i = 0; i < text.length(); i++) {
+            if (marked[i] && (i == 0 || !marked[i - 1])) {
+                result.append(open);
+            }
+            result.append(text.charAt(i));
+            if (marked[i] && (i == text.length() - 1 || !marked[i + 1])) {
+                result.append(close);
+            }
+        }
+        return result.toString();
+    }
+
+    private static boolean containsAll(Map<String, Object> fields, Map<String, Object> query) {
+        return query.entrySet().stream().allMatch(entry -> {
+            Object value = fields.get(entry.getKey());
+            return value != null && value.toString().contains(String.valueOf(entry.getValue()));
+        });
+    }
+
+    private WorkspaceIndex indexOf(SearchTable table, String workspaceId) {
+        return indexes.get(table).computeIfAbsent(workspaceId, id -> {
+            try {
+                return WorkspaceIndex.open(workspaceDir(table, id), analyzers, objectMapper);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private void flush(SearchTable table, WorkspaceIndex index) {
+        try {
+            index.flush();
+        } catch (IOException e) {
+            log.error("❌ [EmbeddedSearch] 索引刷盘失败: table={}", table.getValue(), e);
+        }
+    }
+
+    private void destroy(WorkspaceIndex index) {
+        try {
+            index.destroy();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path tableDir(SearchTable table) {
+        return basePath.resolve(table.getValue());
+    }
+
+    private Path workspaceDir(SearchTable table, String workspaceId) {
+        // 点号也转义，避免 "." / ".." 之类的 ID 逃逸出表目录
+        return tableDir(table).resolve(URLEncoder.encode(workspaceId, StandardCharsets.UTF_8).replace(".", "%2E"));
+    }
+
+    private String extractDocumentId(Map<String, Object> document) {
+        for (String key : List.of("id", "docId", "blockId")) {
+            Object id = document.get(key);
+            if (id != null) {
+                return id.toString();
+            }
+        }
+        return UUID.randomUUID().toString();
+    }
+}
@@ -9,9 +9,13 @@ import com.yunke.backend.search.enums.SearchProviderType;
 import com.yunke.backend.search.enums.SearchQueryOccur;
 import com.yunke.backend.search.enums.SearchQueryType;
 import com.yunke.backend.search.enums.SearchTable;
+import com.yunke.backend.search.index.SearchAnalyzers;
 import com.yunke.backend.search.provider.SearchProvider;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Flux;
@@ -26,14 +30,21 @@ import java.util.stream.Collectors;
  */
 @Slf4j
 @Component
+@ConditionalOnProperty(name = "search.provider", havingValue = "redis", matchIfMissing = true)
 @RequiredArgsConstructor
 public class RedisSearchProvider implements SearchProvider {
 
     private final ReactiveRedisTemplate<String, Object> redisTemplate;
+    private final SearchAnalyzers analyzers;
     
     private static final String INDEX_PREFIX = "search:index:";
     private static final String DOC_PREFIX = "search:doc:";
     private static final int MAX_RESULTS = 1000;
+    /**
+     * 关键词索引的分词版本；与 Redis 中记录的版本不一致时启动后重建索引
+     */
+    private static final String INDEX_VERSION_KEY = "search:index-version";
+    private static final String INDEX_VERSION = "analyzer-v1";
 
     @Override
     public SearchProviderType getType() {
@@ -161,27 +172,92 @@ public class RedisSearchProvider implements SearchProvider {
                 .onErrorReturn(false);
     }
 
+    /**
+     * 旧版本按正则切分并丢弃短词建立的关键词索引查不到分析链产生的词项，启动后按当前分析链补建。
+     * 旧词项留在索引中无害：候选文档仍会经过 matchesQuery 过滤
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @SuppressWarnings("unchecked")
+    public void reindexIfOutdated() {
+        redisTemplate.opsForValue().get(INDEX_VERSION_KEY)
+                .map(Object::toString)
+                .defaultIfEmpty("")
+                .filter(version -> !INDEX_VERSION.equals(version))
+                .flatMap(version -> Flux.fromArray(SearchTable.values())
+                        .concatMap(table -> redisTemplate.keys(getDocumentKey(table, "*"))
+                                .flatMap(key -> redisTemplate.opsForValue().get(key)
+                                        .cast(Map.class)
+                                        .flatMap(doc -> indexKeywords(table,
+                                                key.substring(getDocumentKey(table, "").length()),
+                                                (Map<String, Object>) doc)), 16)
+                                .then())
+                        .then(redisTemplate.opsForValue().set(INDEX_VERSION_KEY, INDEX_VERSION))
+                        .doOnSuccess(ignored -> log.info("🔎 [RedisSearchProvider] 关键词索引已按当前分析链重建: {} -> {}",
+                                version, INDEX_VERSION)))
+                .subscribe(ignored -> { },
+                        e -> log.warn("⚠️ [RedisSearchProvider] 重建关键词索引失败，查询仍可回退全表扫描", e));
+    }
+
     // ==================== 私有方法 ====================
 
     private Mono<List<SearchNodeDto>> performSearch(SearchTable table, SearchQueryDto query, SearchOptionsDto options) {
-        String pattern = getDocumentKey(table, "*");
-        
-        return redisTemplate.keys(pattern)
-                .flatMap(key -> redisTemplate.opsForValue().get(key)
-                        .cast(Map.class)
-                        .map(doc -> {
-                            Map<String, Object> docMap = (Map<String, Object>) doc;
-                            return SearchNodeDto.builder()
-                                    .fields(docMap)
-                                    .score(calculateScore(docMap, query))
-                                    .build();
-                        }))
+        return candidateDocuments(table, query)
+                .map(doc -> SearchNodeDto.builder()
+                        .fields(doc)
+                        .score(calculateScore(doc, query))
+                        .build())
                 .filter(node -> matchesQuery(node.getFields(), query))
                 .sort((node1, node2) -> Double.compare(node2.getScore(), node1.getScore()))
                 .take(MAX_RESULTS)
                 .collectList();
     }
 
+    /**
+     * 查询中必须出现的词项可由关键词索引求交得到候选文档，只加载候选；
+     * 没有必需词项，或求交为空（可能只有子串命中，如 "doc" 命中 "documentation"）时退回全表扫描
+     */
+    @SuppressWarnings("unchecked")
+    private Flux<Map<String, Object>> candidateDocuments(SearchTable table, SearchQueryDto query) {
+        Set<String> required = requiredTokens(query);
+        Flux<Map<String, Object>> scan = redisTemplate.keys(getDocumentKey(table, "*"))
+                .flatMap(key -> redisTemplate.opsForValue().get(key))
+                .map(doc -> (Map<String, Object>) doc);
+        if (required.isEmpty()) {
+            return scan;
+        }
+        List<String> indexKeys = required.stream()
+                .map(token -> getIndexKey(table, token))
+                .collect(Collectors.toList());
+        return redisTemplate.opsForSet().intersect(indexKeys)
+                .map(documentId -> getDocumentKey(table, documentId.toString()))
+                .collectList()
+                .filter(keys -> !keys.isEmpty())
+                .flatMap(keys -> redisTemplate.opsForValue().multiGet(keys))
+                .flatMapMany(Flux::fromIterable)
+                .filter(Objects::nonNull)
+                .map(doc -> (Map<String, Object>) doc)
+                .switchIfEmpty(scan);
+    }
+
+    /**
+     * 顶层 MATCH 或 MUST 子句中 MATCH 的分词结果；这些词项在命中文档中一定出现
+     */
+    private Set<String> requiredTokens(SearchQueryDto query) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (query == null || query.getType() == null) {
+            return tokens;
+        }
+        if (query.getType() == SearchQueryType.MATCH && query.getMatch() != null) {
+            tokens.addAll(analyzers.analyzeForQuery(query.getMatch()));
+        } else if (query.getType() == SearchQueryType.BOOST) {
+            tokens.addAll(requiredTokens(query.getQuery()));
+        } else if (query.getType() == SearchQueryType.BOOLEAN && query.getOccur() == SearchQueryOccur.MUST
+                && query.getQueries() != null) {
+            query.getQueries().forEach(clause -> tokens.addAll(requiredTokens(clause)));
+        }
+        return tokens;
+    }
+
     private Mono<Void> indexDocument(SearchTable table, Map<String, Object> document) {
         String documentId = extractDocumentId(document);
         String key = getDocumentKey(table, documentId);
@@ -236,7 +312,13 @@ public class RedisSearchProvider implements SearchProvider {
             return false;
         }
         
-        return fieldValue.toString().toLowerCase().contains(value.toLowerCase());
+        if (fieldValue.toString().toLowerCase().contains(value.toLowerCase())) {
+            return true;
+        }
+        // 全角/半角、停用词等差异按分词结果比较
+        List<String> queryTokens = analyzers.analyzeForQuery(value);
+        return !queryTokens.isEmpty()
+                && new HashSet<>(analyzers.analyzeForQuery(fieldValue.toString())).containsAll(queryTokens);
     }
 
     private boolean matchesBooleanQuery(Map<String, Object> document, SearchQueryDto query) {
@@ -297,19 +379,10 @@ public class RedisSearchProvider implements SearchProvider {
     private Set<String> extractKeywords(Map<String, Object> document) {
         Set<String> keywords = new HashSet<>();
         
+        // 与查询共用分析链，中文按二元组切分，不再丢弃短词
         document.values().forEach(value -> {
-            if (value instanceof String) {
-                String text = (String) value;
-                // 简单的分词：按空格和标点符号分割
-                String[] words = text.toLowerCase()
-                        .replaceAll("[^\\w\\s]", " ")
-                        .split("\\s+");
-                
-                for (String word : words) {
-                    if (word.length() > 2) { // 忽略过短的词
-                        keywords.add(word);
-                    }
-                }
+            if (value instanceof String || value instanceof Number || value instanceof Boolean) {
+                keywords.addAll(analyzers.analyzer().analyze(value.toString()));
             }
         });
         
@@ -0,0 +1,314 @@
+package com.yunke.backend.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.yunke.backend.infrastructure.config.SecurityProtectionConfig;
+import com.yunke.backend.security.dto.security.SecurityEvent;
+import com.yunke.backend.security.enums.SecurityEventType;
+import com.yunke.backend.security.enums.SecurityLevel;
+import com.yunke.backend.security.service.SecurityMonitorService;
+import com.yunke.backend.security.service.guard.RequestGuard;
+import jakarta.servlet.*;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 🛡️ 请求防护过滤器（DDoS/CC + 反爬虫）
+ *
+ * 防护策略：
+ * 1. 黑名单、单IP请求频率、页面访问频率、路径限流由 {@link RequestGuard} 一次判定（所有请求都计数）
+ * 2. 超过阈值自动封禁IP并记录安全事件
+ * 3. User-Agent 特征检查（本地），爬虫事件每个IP每分钟最多记录一条
+ * 4. 无 Referer 访问数据接口只记录，每个IP每分钟最多一条
+ */
+@Component
+@Order(1)  // 最高优先级，第一个执行
+@RequiredArgsConstructor
+@Slf4j
+public class RequestGuardFilter implements Filter {
+
+    private final RequestGuard requestGuard;
+    private final SecurityMonitorService securityMonitor;
+    private final SecurityProtectionConfig config;
+    private final ObjectMapper objectMapper;
+
+    private final Cache<String, Boolean> suspiciousLogged = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(Duration.ofMinutes(1))
+            .build();
+
+    private final Cache<String, Boolean> botLogged = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(Duration.ofMinutes(1))
+            .build();
+
+    // 已知爬虫User-Agent特征（小写）
+    private static final Set<String> BOT_PATTERNS = Set.of(
+        "bot", "spider", "crawl", "scraper", "scraping",
+        "curl", "wget", "python", "java", "go-http",
+        "httpclient", "okhttp", "requests", "axios"
+    );
+
+    // 数据接口路径（容易被爬取）
+    private static final Set<String> DATA_API_PATTERNS = Set.of(
+        "/api/community/documents",
+        "/api/search",
+        "/api/workspaces",
+        "/list",
+        "/export"
+    );
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest req = (HttpServletRequest) request;
+        HttpServletResponse resp = (HttpServletResponse) response;
+        String path = req.getRequestURI();
+
+        // 跳过健康检查和静态资源
+        boolean countRequest = config.getDdos().isEnabled() && !isStaticResource(path)
+                && !path.startsWith("/actuator/health");
+        boolean countPage = config.getBot().isEnabled() && !isStaticResource(path)
+                && !path.startsWith("/actuator/");
+        boolean pathLimited = !config.getGuard().getPathLimits().isEmpty() && !isStaticResource(path);
+        if (!countRequest && !countPage && !pathLimited) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        String ip = getClientIp(req);
+        try {
+            if (!admit(req, resp, ip, path, countRequest, countPage)) {
+                return;
+            }
+        } catch (Exception e) {
+            // 发生异常时继续处理请求，避免影响正常用户
+            log.error("请求防护过滤器异常: {}", e.getMessage(), e);
+        }
+
+        chain.doFilter(request, response);
+    }
+
+    /**
+     * @return 是否放行；拒绝时已写好响应
+     */
+    private boolean admit(HttpServletRequest req, HttpServletResponse resp, String ip, String path,
+                          boolean countRequest, boolean countPage) throws IOException {
+        String userAgent = req.getHeader("User-Agent");
+
+        // 1. 黑名单与频率：先计数，爬虫与空 UA 的洪泛同样会被限流和封禁
+        RequestGuard.Verdict verdict = requestGuard.check(ip, path, countRequest, countPage);
+        switch (verdict.outcome()) {
+            case BLOCKED -> {
+                log.warn("🚫 拦截被封禁IP: {}, 路径: {}", ip, path);
+                sendTooManyRequests(resp, "您的IP已被临时封禁，请稍后再试", verdict);
+                return false;
+            }
+            case RATE_LIMITED -> {
+                requestGuard.block(ip, "DDoS攻击 - 请求频率: " + verdict.count() + "/分钟",
+                        config.getDdos().getBlockDurationMinutes());
+
+                securityMonitor.recordSecurityEvent(SecurityEvent.builder()
+                    .type(SecurityEventType.DDOS)
+                    .level(SecurityLevel.HIGH)
+                    .ip(ip)
+                    .requestPath(path)
+                    .requestMethod(req.getMethod())
+                    .userAgent(userAgent)
+                    .details(String.format("请求频率过高: %d次/分钟（限制: %d次）",
+                            verdict.count(), verdict.limit()))
+                    .action("IP_BLOCKED")
+                    .build());
+
+                log.error("🔴 检测到DDoS攻击！IP: {}, 请求次数: {}/分钟, 已封禁", ip, verdict.count());
+                sendTooManyRequests(resp, "请求过于频繁，您的IP已被临时封禁", verdict);
+                return false;
+            }
+            case BOT_LIMITED -> {
+                requestGuard.block(ip, "疑似爬虫 - 访问频率: " + verdict.count() + "页/分钟",
+                        config.getBot().getBlockDurationMinutes());
+                handleBot(req, resp, ip,
+                    String.format("访问频率过高: %d页/分钟（限制: %d页）", verdict.count(), verdict.limit()));
+                return false;
+            }
+            case PATH_LIMITED -> {
+                log.warn("⚠️ 路径限流: IP: {}, Path: {}, {}/{}/分钟", ip, path, verdict.count(), verdict.limit());
+                sendTooManyRequests(resp, "请求过于频繁，请稍后再试", verdict);
+                return false;
+            }
+            default -> {
+            }
+        }
+
+        // 2. 检测User-Agent
+        if (countPage && isBot(userAgent)) {
+            handleBot(req, resp, ip, "检测到爬虫User-Agent: " + userAgent);
+            return false;
+        }
+
+        // 3. 检测可疑行为：记录但不拦截，给一次机会
+        if (countPage && isSuspiciousBehavior(req)
+                && suspiciousLogged.asMap().putIfAbsent(ip, Boolean.TRUE) == null) {
+            log.warn("⚠️ 可疑访问：IP: {}, Path: {}, UA: {}, Referer: {}",
+                    ip, path, userAgent, req.getHeader("Referer"));
+
+            securityMonitor.recordSecurityEvent(SecurityEvent.builder()
+                .type(SecurityEventType.BOT)
+                .level(SecurityLevel.MEDIUM)
+                .ip(ip)
+                .requestPath(path)
+                .requestMethod(req.getMethod())
+                .userAgent(userAgent)
+                .details("可疑访问行为：无Referer直接访问数据接口")
+                .action("LOGGED")
+                .build());
+        }
+        return true;
+    }
+
+    /**
+     * 判断是否是爬虫
+     */
+    private boolean isBot(String userAgent) {
+        // 没有User-Agent很可疑
+        if (userAgent == null || userAgent.trim().isEmpty()) {
+            return true;
+        }
+
+        String ua = userAgent.toLowerCase();
+        for (String pattern : BOT_PATTERNS) {
+            if (ua.contains(pattern)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 判断是否是可疑行为
+     */
+    private boolean isSuspiciousBehavior(HttpServletRequest req) {
+        String path = req.getRequestURI();
+        String referer = req.getHeader("Referer");
+
+        // 检查是否是数据接口
+        boolean isDataApi = DATA_API_PATTERNS.stream()
+            .anyMatch(path::contains);
+
+        if (!isDataApi) {
+            return false;
+        }
+
+        // 数据接口没有Referer或Referer不是本站
+        if (referer == null || referer.isEmpty()) {
+            return true;
+        }
+
+        return !referer.contains(req.getServerName());
+    }
+
+    /**
+     * 处理爬虫请求：每次都拒绝，安全事件与告警每个IP每分钟最多一条
+     */
+    private void handleBot(HttpServletRequest req, HttpServletResponse resp, String ip, String details)
+            throws IOException {
+        if (botLogged.asMap().putIfAbsent(ip, Boolean.TRUE) == null) {
+            String path = req.getRequestURI();
+            String userAgent = req.getHeader("User-Agent");
+
+            securityMonitor.recordSecurityEvent(SecurityEvent.builder()
+                .type(SecurityEventType.BOT)
+                .level(SecurityLevel.HIGH)
+                .ip(ip)
+                .requestPath(path)
+                .requestMethod(req.getMethod())
+                .userAgent(userAgent)
+                .details(details)
+                .action("REQUEST_BLOCKED")
+                .build());
+
+            log.warn("🤖 检测到爬虫！IP: {}, Path: {}, UA: {}, 详情: {}",
+                    ip, path, userAgent, details);
+        }
+
+        resp.setStatus(HttpServletResponse.SC_FORBIDDEN);
+        writeJson(resp, 403, "Access Denied");
+    }
+
+    /**
+     * 获取客户端真实IP
+     * 考虑代理和负载均衡的情况
+     */
+    private String getClientIp(HttpServletRequest request) {
+        String ip = request.getHeader("X-Real-IP");
+        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
+            ip = request.getHeader("X-Forwarded-For");
+        }
+        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
+            ip = request.getHeader("Proxy-Client-IP");
+        }
+        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
+            ip = request.getHeader("WL-Proxy-Client-IP");
+        }
+        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
+            ip = request.getRemoteAddr();
+        }
+
+        // X-Forwarded-For 可能包含多个IP，取第一个
+        if (ip != null && ip.contains(",")) {
+            ip = ip.split(",")[0].trim();
+        }
+
+        return ip;
+    }
+
+    /**
+     * 静态资源不参与防护
+     */
+    private boolean isStaticResource(String path) {
+        return path.startsWith("/static/") ||
+               path.startsWith("/public/") ||
+               path.endsWith(".css") ||
+               path.endsWith(".js") ||
+               path.endsWith(".png") ||
+               path.endsWith(".jpg") ||
+               path.endsWith(".ico");
+    }
+
+    /**
+     * 发送 429 响应
+     */
+    private void sendTooManyRequests(HttpServletResponse response, String message, RequestGuard.Verdict verdict)
+            throws IOException {
+        response.setStatus(429);  // Too Many Requests
+        response.setHeader("X-RateLimit-Limit", String.valueOf(
+                verdict.limit() > 0 ? verdict.limit() : config.getDdos().getMaxRequestsPerMinute()));
+        response.setHeader("X-RateLimit-Remaining", "0");
+        response.setHeader("Retry-After", String.valueOf(verdict.retryAfterSeconds()));
+        writeJson(response, 429, message);
+    }
+
+    private void writeJson(HttpServletResponse response, int code, String message) throws IOException {
+        response.setContentType("application/json;charset=UTF-8");
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", false);
+        result.put("code", code);
+        result.put("message", message);
+        result.put("timestamp", System.currentTimeMillis());
+
+        response.getWriter().write(objectMapper.writeValueAsString(result));
+    }
+}
@@ -0,0 +1,234 @@
+package com.yunke.backend.filter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * SQL注入/脚本注入特征检测（Aho–Corasick 多模式匹配）
+ *
+ * 输入先做一次线性的规范化（URL解码、ASCII转小写），再在自动机上单遍扫描，耗时与输入长度成正比，
+ * 不存在正则回溯。匹配规则：
+ * - 关键词（select、union、onerror 等）必须是完整的词，"selection"、"updated_at" 不再命中
+ * - xp_、sp_ 必须出现在词首，0x 必须是完整的十六进制字面量（Base64 中偶尔出现的 "/0xAb..." 不算）
+ * - 符号（'、--、;、||、/*、*&#47;）与 &lt;script 在任意位置命中；与原实现一致，
+ *   只含字母、数字、空白和单引号的值（如 "it's"）不算注入
+ */
+public final class SqlInjectionDetector {
+
+    private static final int ALPHABET = 128;
+
+    private static final String[] KEYWORDS = {
+        "union", "select", "insert", "update", "delete", "drop", "create", "alter", "exec", "execute",
+        "script", "javascript", "alert", "onerror", "onclick", "onfocus", "onload", "onmouseover",
+        "eval", "expression", "vbscript", "behaviour"
+    };
+
+    private static final String[] WORD_PREFIXES = {"xp_", "sp_"};
+
+    private static final String[] HEX_LITERALS = {"0x"};
+
+    private static final String[] SYMBOLS = {"'", "--", ";", "||", "/*", "*/"};
+
+    private static final String[] MARKUP = {"<script", "</script>"};
+
+    private static final int KIND_KEYWORD = 0;
+    private static final int KIND_PREFIX = 1;
+    private static final int KIND_SYMBOL = 2;
+    private static final int KIND_MARKUP = 3;
+    private static final int KIND_HEX = 4;
+
+    private static final int[][] GOTO;
+    private static final int[][] OUTPUT;
+    private static final int[] PATTERN_LENGTH;
+    private static final int[] PATTERN_KIND;
+
+    static {
+        List<String> patterns = new ArrayList<>();
+        List<Integer> kinds = new ArrayList<>();
+        addAll(patterns, kinds, KEYWORDS, KIND_KEYWORD);
+        addAll(patterns, kinds, WORD_PREFIXES, KIND_PREFIX);
+        addAll(patterns, kinds, SYMBOLS, KIND_SYMBOL);
+        addAll(patterns, kinds, MARKUP, KIND_MARKUP);
+        addAll(patterns, kinds, HEX_LITERALS, KIND_HEX);
+
+        // 字典树
+        List<int[]> next = new ArrayList<>();
+        List<int[]> output = new ArrayList<>();
+        next.add(newRow());
+        output.add(new int[0]);
+        for (int p = 0; p < patterns.size(); p++) {
+            int state = 0;
+            for (char c : patterns.get(p).toCharArray()) {
+                if (next.get(state)[c] < 0) {
+                    next.get(state)[c] = next.size();
+                    next.add(newRow());
+                    output.add(new int[0]);
+                }
+                state = next.get(state)[c];
+            }
+            output.set(state, append(output.get(state), p));
+        }
+
+        // 按层构造失败指针，并把失败链上的输出合并进来，得到完整的转移表
+        int[] fail = new int[next.size()];
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < ALPHABET; c++) {
+            int child = next.get(0)[c];
+            if (child < 0) {
+                next.get(0)[c] = 0;
+            } else {
+                fail[child] = 0;
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int out : output.get(fail[state])) {
+                output.set(state, append(output.get(state), out));
+            }
+            for (int c = 0; c < ALPHABET; c++) {
+                int child = next.get(state)[c];
+                if (child < 0) {
+                    next.get(state)[c] = next.get(fail[state])[c];
+                } else {
+                    fail[child] = next.get(fail[state])[c];
+                    queue.add(child);
+                }
+            }
+        }
+
+        GOTO = next.toArray(new int[0][]);
+        OUTPUT = output.toArray(new int[0][]);
+        PATTERN_LENGTH = patterns.stream().mapToInt(String::length).toArray();
+        PATTERN_KIND = kinds.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private SqlInjectionDetector() {
+    }
+
+    /**
+     * 判断是否包含SQL注入特征
+     */
+    public static boolean isSqlInjection(String value) {
+        if (value == null || value.isEmpty()) {
+            return false;
+        }
+
+        char[] text = normalize(value);
+        int length = text.length;
+        int state = 0;
+        boolean symbol = false;
+        // 原实现的例外：只由字母、数字、空白、单引号组成的值
+        boolean plain = true;
+
+        for (int i = 0; i < length; i++) {
+            char c = text[i];
+            if (plain && !(isAsciiAlnum(c) || Character.isWhitespace(c) || c == '\'')) {
+                plain = false;
+            }
+            if (c >= ALPHABET) {
+                state = 0;
+                continue;
+            }
+            state = GOTO[state][c];
+            for (int p : OUTPUT[state]) {
+                int start = i - PATTERN_LENGTH[p] + 1;
+                switch (PATTERN_KIND[p]) {
+                    case KIND_KEYWORD:
+                        if (isBoundary(text, start - 1) && isBoundary(text, i + 1)) {
+                            return true;
+                        }
+                        break;
+                    case KIND_PREFIX:
+                        if (isBoundary(text, start - 1)) {
+                            symbol = true;
+                        }
+                        break;
+                    case KIND_HEX:
+                        if (isBoundary(text, start - 1) && isHexLiteral(text, i + 1)) {
+                            symbol = true;
+                        }
+                        break;
+                    case KIND_SYMBOL:
+                        symbol = true;
+                        break;
+                    default:
+                        return true;
+                }
+            }
+        }
+
+        return symbol && !plain;
+    }
+
+    /**
+     * URL解码（%XX 与 +）并把 ASCII 字母转为小写；非法的转义原样保留
+     */
+    static char[] normalize(String value) {
+        int length = value.length();
+        char[] out = new char[length];
+        int n = 0;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == '%' && i + 2 < length) {
+                int hi = Character.digit(value.charAt(i + 1), 16);
+                int lo = Character.digit(value.charAt(i + 2), 16);
+                if (hi >= 0 && lo >= 0) {
+                    c = (char) ((hi << 4) | lo);
+                    i += 2;
+                }
+            } else if (c == '+') {
+                c = ' ';
+            }
+            if (c >= 'A' && c <= 'Z') {
+                c = (char) (c + ('a' - 'A'));
+            }
+            out[n++] = c;
+        }
+        return n == length ? out : Arrays.copyOf(out, n);
+    }
+
+    private static boolean isBoundary(char[] text, int index) {
+        return index < 0 || index >= text.length || !(isAsciiAlnum(text[index]) || text[index] == '_');
+    }
+
+    /**
+     * from 起至词尾全部是十六进制数字（至少一位）
+     */
+    private static boolean isHexLiteral(char[] text, int from) {
+        int end = from;
+        while (end < text.length && !isBoundary(text, end)) {
+            if (Character.digit(text[end], 16) < 0 || text[end] >= ALPHABET) {
+                return false;
+            }
+            end++;
+        }
+        return end > from;
+    }
+
+    private static boolean isAsciiAlnum(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+    }
+
+    private static void addAll(List<String> patterns, List<Integer> kinds, String[] values, int kind) {
+        for (String value : values) {
+            patterns.add(value);
+            kinds.add(kind);
+        }
+    }
+
+    private static int[] newRow() {
+        int[] row = new int[ALPHABET];
+        Arrays.fill(row, -1);
+        return row;
+    }
+
+    private static int[] append(int[] values, int value) {
+        int[] result = Arrays.copyOf(values, values.length + 1);
+        result[values.length] = value;
+        return result;
+    }
+}
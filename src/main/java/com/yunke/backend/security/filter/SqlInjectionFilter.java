@@ -1,6 +1,7 @@
 package com.yunke.backend.filter;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yunke.backend.infrastructure.config.SecurityProtectionConfig;
 import com.yunke.backend.security.dto.security.SecurityEvent;
 import com.yunke.backend.security.enums.SecurityEventType;
 import com.yunke.backend.security.enums.SecurityLevel;
@@ -12,16 +13,17 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
 
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.regex.Pattern;
 
 /**
  * 🛡️ SQL注入防护过滤器
  * 
- * 检测并拦截SQL注入攻击尝试
+ * 检测并拦截SQL注入攻击尝试；特征匹配见 {@link SqlInjectionDetector}（线性时间，无正则回溯）。
+ * security.protection.sql-injection.skip-paths 中的二进制/Base64 数据接口不做参数检查。
  */
 @Component
 @Order(2)
@@ -32,18 +34,9 @@ public class SqlInjectionFilter implements Filter {
     private final SecurityMonitorService securityMonitor;
     private final ObjectMapper objectMapper;
     
-    // SQL注入特征关键词正则表达式
-    private static final Pattern SQL_INJECTION_PATTERN = Pattern.compile(
-        ".*(union|select|insert|update|delete|drop|create|alter|exec|execute|" +
-        "script|javascript|alert|onerror|onclick|onfocus|onload|onmouseover|" +
-        "eval|expression|vbscript|behaviour|<script|</script>).*",
-        Pattern.CASE_INSENSITIVE
-    );
+    private final SecurityProtectionConfig config;
     
-    // 常见SQL注入符号
-    private static final Pattern SQL_SYMBOL_PATTERN = Pattern.compile(
-        ".*('|(--|;|\\|\\||/\\*|\\*/|xp_|sp_|0x)).*"
-    );
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
     
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
@@ -64,7 +57,7 @@ public class SqlInjectionFilter implements Filter {
         try {
             // 检查URL参数
             if (req.getQueryString() != null && 
-                isSqlInjection(req.getQueryString())) {
+                SqlInjectionDetector.isSqlInjection(req.getQueryString())) {
                 handleSqlInjection(req, resp, "QueryString", req.getQueryString());
                 return;
             }
@@ -73,51 +66,19 @@ public class SqlInjectionFilter implements Filter {
             Map<String, String[]> params = req.getParameterMap();
             for (Map.Entry<String, String[]> entry : params.entrySet()) {
                 for (String value : entry.getValue()) {
-                    if (isSqlInjection(value)) {
+                    if (SqlInjectionDetector.isSqlInjection(value)) {
                         handleSqlInjection(req, resp, entry.getKey(), value);
                         return;
                     }
                 }
             }
-            
-            // 继续处理请求
-            chain.doFilter(request, response);
-            
         } catch (Exception e) {
+            // 检查失败时放行，避免影响正常用户
             log.error("SQL注入过滤器异常: {}", e.getMessage(), e);
-            chain.doFilter(request, response);
-        }
-    }
-    
-    /**
-     * 判断是否包含SQL注入特征
-     */
-    private boolean isSqlInjection(String value) {
-        if (value == null || value.trim().isEmpty()) {
-            return false;
-        }
-        
-        String decoded = value;
-        try {
-            // 尝试URL解码
-            decoded = java.net.URLDecoder.decode(value, "UTF-8");
-        } catch (Exception ignored) {
-        }
-        
-        // 检查SQL关键词
-        if (SQL_INJECTION_PATTERN.matcher(decoded).matches()) {
-            return true;
         }
         
-        // 检查SQL符号
-        if (SQL_SYMBOL_PATTERN.matcher(decoded).matches()) {
-            // 排除正常的单引号使用（如搜索"it's"）
-            if (!decoded.matches("^[a-zA-Z0-9\\s']+$")) {
-                return true;
-            }
-        }
-        
-        return false;
+        // 继续处理请求
+        chain.doFilter(request, response);
     }
     
     /**
@@ -168,10 +129,18 @@ public class SqlInjectionFilter implements Filter {
      * 判断是否应该跳过检查
      */
     private boolean shouldSkip(String path) {
-        return path.startsWith("/actuator/") ||
-               path.startsWith("/static/") ||
-               path.startsWith("/public/") ||
-               path.startsWith("/uploads/");
+        if (path.startsWith("/actuator/") ||
+            path.startsWith("/static/") ||
+            path.startsWith("/public/") ||
+            path.startsWith("/uploads/")) {
+            return true;
+        }
+        for (String pattern : config.getSqlInjection().getSkipPaths()) {
+            if (pathMatcher.match(pattern, path)) {
+                return true;
+            }
+        }
+        return false;
     }
     
     /**
@@ -0,0 +1,108 @@
+package com.yunke.backend.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yunke.backend.security.AffineUserDetails;
+import com.yunke.backend.security.service.ThrottleService;
+import jakarta.servlet.*;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * ⏱️ 访问限流过滤器
+ *
+ * 按管理端配置的默认/严格限流器限制请求频率；已登录用户按用户ID计数，匿名请求按IP计数。
+ * 限流关闭时不访问 Redis。
+ */
+@Component
+@Order(4)
+@RequiredArgsConstructor
+@Slf4j
+public class ThrottleFilter implements Filter {
+
+    private final ThrottleService throttleService;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest req = (HttpServletRequest) request;
+        String path = req.getRequestURI();
+        if (!throttleService.isEnabled() || !path.startsWith("/api/")) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        ThrottleService.ThrottleDecision decision;
+        try {
+            String ip = getClientIp(req);
+            String userId = getCurrentUserId();
+            decision = throttleService.tryAcquire(userId != null ? "user:" + userId : "ip:" + ip,
+                    ip, path, req.getHeader("User-Agent"));
+        } catch (Exception e) {
+            // 发生异常时继续处理请求，避免影响正常用户
+            log.error("限流过滤器异常: {}", e.getMessage(), e);
+            chain.doFilter(request, response);
+            return;
+        }
+
+        if (!decision.allowed()) {
+            sendThrottledResponse((HttpServletResponse) response, decision);
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+
+    private String getCurrentUserId() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.isAuthenticated() && auth.getPrincipal() instanceof AffineUserDetails user) {
+            return user.getUserId();
+        }
+        return null;
+    }
+
+    /**
+     * 获取客户端IP
+     */
+    private String getClientIp(HttpServletRequest request) {
+        String ip = request.getHeader("X-Real-IP");
+        if (ip == null || ip.isEmpty()) {
+            ip = request.getHeader("X-Forwarded-For");
+        }
+        if (ip == null || ip.isEmpty()) {
+            ip = request.getRemoteAddr();
+        }
+        if (ip != null && ip.contains(",")) {
+            ip = ip.split(",")[0].trim();
+        }
+        return ip;
+    }
+
+    private void sendThrottledResponse(HttpServletResponse response, ThrottleService.ThrottleDecision decision)
+            throws IOException {
+        response.setStatus(429);  // Too Many Requests
+        response.setContentType("application/json;charset=UTF-8");
+        response.setHeader("X-RateLimit-Limit", String.valueOf(decision.limit()));
+        response.setHeader("X-RateLimit-Remaining", "0");
+        response.setHeader("Retry-After", String.valueOf(decision.retryAfterSeconds()));
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", false);
+        result.put("code", 429);
+        result.put("message", "请求过于频繁，请稍后再试");
+        result.put("rule", decision.rule());
+        result.put("timestamp", System.currentTimeMillis());
+
+        response.getWriter().write(objectMapper.writeValueAsString(result));
+    }
+}
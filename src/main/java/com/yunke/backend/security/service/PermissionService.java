@@ -4,7 +4,9 @@ import com.yunke.backend.document.dto.DocPermissionsDto;
 import com.yunke.backend.workspace.domain.entity.WorkspacePagePermission;
 import reactor.core.publisher.Mono;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -24,6 +26,16 @@ public interface PermissionService {
      */
     int resolveEffectiveDocMask(String workspaceId, String docId, String userId);
 
+    /**
+     * Resolve effective masks for many docs of one workspace at once.
+     * Loads the user's role and all per-doc grants in a single query (cached), instead of one lookup per doc.
+     * @param workspaceId workspace id
+     * @param userId user id (nullable for anonymous)
+     * @param docIds document ids
+     * @return docId to effective bitmask, in input order
+     */
+    Map<String, Integer> resolveMasks(String workspaceId, String userId, Collection<String> docIds);
+
     /**
      * 检查文档权限
      */
@@ -1,5 +1,7 @@
 package com.yunke.backend.security.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.yunke.backend.common.dto.PaginatedResponse;
 import com.yunke.backend.security.dto.throttle.ThrottleConfigDto;
 import com.yunke.backend.security.dto.throttle.ThrottleConfigDto.Throttlers;
@@ -9,6 +11,11 @@ import com.yunke.backend.security.dto.throttle.ThrottleStatsDto;
 import com.yunke.backend.security.dto.throttle.ThrottleTestResultDto;
 import com.yunke.backend.security.dto.throttle.ThrottleValidationResultDto;
 import com.yunke.backend.security.dto.throttle.ThrottlerConfigDto;
+import com.yunke.backend.security.service.guard.ThrottleEngine;
+import com.yunke.backend.security.service.guard.ThrottleLogBuffer;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -16,26 +23,134 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
-import java.util.concurrent.ThreadLocalRandom;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
 /**
- * 提供访问限流相关的模拟数据与状态管理，确保前端在缺少真实限流实现时也能正常运行。
+ * 访问限流：配置管理、请求判定、统计与日志。
+ *
+ * 配置保存在 Redis 并通过 {@code throttle:config:changed} 频道广播，各节点收到后重新加载，无需重启。
+ * 匹配 strict-paths 前缀的请求使用严格限流器，其余使用默认限流器；判定由 {@link ThrottleEngine} 完成。
+ * 统计基于 LongAdder 并以 {@code throttle_requests{rule,outcome}} 导出到 Micrometer，
+ * 阻断与配置变更写入环形缓冲区供 {@link #getLogs} 查询（仅本节点）。
+ * {@code skipIf} 表达式目前只做保存，不参与判定。
  */
 @Service
 @Slf4j
 public class ThrottleService {
 
-    private static final List<String> SUPPORTED_LEVELS = Arrays.asList("INFO", "WARN", "ERROR");
+    public static final String RULE_DEFAULT = "default";
+    public static final String RULE_STRICT = "strict";
+
+    private static final String CONFIG_KEY = "throttle:config";
+    private static final String CONFIG_CHANNEL = "throttle:config:changed";
+
+    /**
+     * 判定结果
+     *
+     * @param limit 对应规则的窗口上限
+     */
+    public record ThrottleDecision(boolean allowed, String rule, int limit, long retryAfterSeconds) {
+
+        static final ThrottleDecision ALLOWED = new ThrottleDecision(true, null, 0, 0);
+    }
+
+    private final ThrottleEngine engine;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final ObjectMapper objectMapper;
+    private final List<String> strictPaths;
+    private final ThrottleLogBuffer logBuffer;
 
     private final AtomicReference<ThrottleConfigDto> configRef = new AtomicReference<>(createDefaultConfig());
     private final List<ThrottlePresetDto> presetList = createPresets();
-    private final AtomicLong totalRequestCounter = new AtomicLong(12_480);
-    private final AtomicLong blockedRequestCounter = new AtomicLong(132);
+    private final LongAdder defaultAllowed = new LongAdder();
+    private final LongAdder defaultBlocked = new LongAdder();
+    private final LongAdder strictAllowed = new LongAdder();
+    private final LongAdder strictBlocked = new LongAdder();
+    private final MinuteRate requestRate = new MinuteRate();
+
+    public ThrottleService(ThrottleEngine engine,
+                           StringRedisTemplate redisTemplate,
+                           RedisMessageListenerContainer listenerContainer,
+                           ObjectMapper objectMapper,
+                           MeterRegistry meterRegistry,
+                           @Value("${throttle.strict-paths:/api/auth/sign-in,/api/auth/register}") List<String> strictPaths,
+                           @Value("${throttle.log-capacity:1000}") int logCapacity) {
+        this.engine = engine;
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.objectMapper = objectMapper;
+        this.strictPaths = List.copyOf(strictPaths);
+        this.logBuffer = new ThrottleLogBuffer(logCapacity);
+        registerCounter(meterRegistry, RULE_DEFAULT, "allowed", defaultAllowed);
+        registerCounter(meterRegistry, RULE_DEFAULT, "blocked", defaultBlocked);
+        registerCounter(meterRegistry, RULE_STRICT, "allowed", strictAllowed);
+        registerCounter(meterRegistry, RULE_STRICT, "blocked", strictBlocked);
+    }
+
+    @PostConstruct
+    public void init() {
+        loadFromRedis();
+        listenerContainer.addMessageListener(this::onConfigChanged, new ChannelTopic(CONFIG_CHANNEL));
+    }
+
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(configRef.get().getEnabled());
+    }
+
+    /**
+     * 判定一次请求；限流关闭、命中忽略的 User-Agent 时直接放行
+     *
+     * @param client 客户端标识（已登录用户ID，否则为IP）
+     */
+    public ThrottleDecision tryAcquire(String client, String clientIp, String path, String userAgent) {
+        ThrottleConfigDto current = configRef.get();
+        if (!Boolean.TRUE.equals(current.getEnabled())) {
+            return ThrottleDecision.ALLOWED;
+        }
+
+        boolean strict = isStrictPath(path);
+        String rule = strict ? RULE_STRICT : RULE_DEFAULT;
+        ThrottlerConfigDto throttler = strict
+                ? current.getThrottlers().getStrict()
+                : current.getThrottlers().getDefaultConfig();
+        if (isIgnoredUserAgent(throttler, userAgent)) {
+            return ThrottleDecision.ALLOWED;
+        }
+
+        int blockSeconds = throttler.getBlockDuration() != null ? throttler.getBlockDuration() : 0;
+        ThrottleEngine.Decision decision = engine.acquire(rule, client,
+                throttler.getLimit(), throttler.getTtl(), blockSeconds);
+        requestRate.record(System.currentTimeMillis() / 1000);
+
+        if (decision.allowed()) {
+            (strict ? strictAllowed : defaultAllowed).increment();
+            if (decision.failed()) {
+                appendLog("ERROR", rule, clientIp, path, null, "ALLOWED", "限流存储不可用，已放行");
+            }
+            return ThrottleDecision.ALLOWED;
+        }
+
+        (strict ? strictBlocked : defaultBlocked).increment();
+        long retryAfterSeconds = Math.max(1, (decision.retryAfterMs() + 999) / 1000);
+        // 本地缓存阻断期间的重复请求只计数，不逐条写日志
+        if (decision.remote()) {
+            appendLog("WARN", rule, clientIp, path, throttler.getLimit(), "BLOCKED",
+                    String.format(Locale.ROOT, "超过 %d 次/%d 秒，%d 秒后重试",
+                            throttler.getLimit(), throttler.getTtl(), retryAfterSeconds));
+        }
+        return new ThrottleDecision(false, rule, throttler.getLimit(), retryAfterSeconds);
+    }
 
     public ThrottleConfigDto getCurrentConfig() {
         return deepCopy(configRef.get());
@@ -49,6 +164,9 @@ public class ThrottleService {
 
         ThrottleConfigDto sanitized = sanitize(newConfig);
         configRef.set(sanitized);
+        publish(sanitized);
+        appendLog("INFO", null, null, null, null, "CONFIG_UPDATED",
+                "限流配置已更新: enabled=" + sanitized.getEnabled());
         log.info("Throttle configuration updated: enabled={}, defaultLimit={}, strictLimit={}",
                 sanitized.getEnabled(),
                 Optional.ofNullable(sanitized.getThrottlers())
@@ -80,15 +198,22 @@ public class ThrottleService {
     public ThrottleTestResultDto testConfig(ThrottleConfigDto config) {
         ThrottleConfigDto sanitized = sanitize(config);
         ThrottlerConfigDto defaultConfig = sanitized.getThrottlers().getDefaultConfig();
-        int simulatedRequests = defaultConfig.getLimit() != null ? defaultConfig.getLimit() : 60;
-        int simulatedBlocked = Math.max(0, simulatedRequests / 10);
+        int ttl = defaultConfig.getTtl() != null && defaultConfig.getTtl() > 0 ? defaultConfig.getTtl() : 60;
+        int limit = defaultConfig.getLimit() != null && defaultConfig.getLimit() > 0 ? defaultConfig.getLimit() : 60;
+        int blockDuration = defaultConfig.getBlockDuration() != null ? defaultConfig.getBlockDuration() : 0;
+
+        // 以两倍于上限的速率持续发送三个窗口
+        int windows = 3;
+        int simulatedRequests = limit * 2 * windows;
+        int simulatedBlocked = ThrottleEngine.simulate(limit, ttl, blockDuration, simulatedRequests,
+                ttl * 1000L * windows);
 
         return ThrottleTestResultDto.builder()
                 .success(true)
                 .message(String.format(Locale.ROOT,
-                        "模拟在 %d 秒窗口内发送 %d 次请求，预计阻断 %d 次请求。",
-                        defaultConfig.getTtl(), simulatedRequests, simulatedBlocked))
-                .details("此结果基于当前配置的简单模拟，用于验证阈值是否符合预期。")
+                        "模拟在 %d 秒内以两倍上限的速率发送 %d 次请求，预计阻断 %d 次请求。",
+                        ttl * windows, simulatedRequests, simulatedBlocked))
+                .details("按与线上相同的 GCRA 算法模拟：窗口内最多突发 limit 次，之后按 ttl/limit 的间隔放行。")
                 .testRequests(simulatedRequests)
                 .blockedRequests(simulatedBlocked)
                 .build();
@@ -96,19 +221,15 @@ public class ThrottleService {
 
     public ThrottleStatsDto getStats() {
         ThrottleConfigDto current = configRef.get();
-        long additionalRequests = ThreadLocalRandom.current().nextLong(25, 90);
-        long additionalBlocked = ThreadLocalRandom.current().nextLong(0, 6);
-
-        long total = totalRequestCounter.addAndGet(additionalRequests);
-        long blocked = blockedRequestCounter.addAndGet(additionalBlocked);
-        int rpm = (int) Math.max(40, additionalRequests * 2 + ThreadLocalRandom.current().nextInt(80, 160));
+        long blocked = defaultBlocked.sum() + strictBlocked.sum();
+        long total = defaultAllowed.sum() + strictAllowed.sum() + blocked;
 
         return ThrottleStatsDto.builder()
                 .enabled(current.getEnabled())
                 .activeThrottlers(Boolean.TRUE.equals(current.getEnabled()) ? 2 : 0)
                 .totalRequests(total)
                 .blockedRequests(blocked)
-                .requestsPerMinute(rpm)
+                .requestsPerMinute((int) requestRate.lastMinute(System.currentTimeMillis() / 1000))
                 .build();
     }
 
@@ -120,40 +241,130 @@ public class ThrottleService {
         return presetList.stream().filter(preset -> preset.getId().equalsIgnoreCase(id)).findFirst();
     }
 
+    /**
+     * 从 Redis 重新加载配置
+     */
     public void reload() {
-        // 在真实实现中此处会刷新限流配置，本地模拟直接重置统计数据的抖动。
-        totalRequestCounter.addAndGet(ThreadLocalRandom.current().nextLong(10, 40));
-        blockedRequestCounter.addAndGet(ThreadLocalRandom.current().nextLong(0, 4));
-        log.info("Throttle configuration reloaded (simulated).");
+        loadFromRedis();
+        appendLog("INFO", null, null, null, null, "CONFIG_RELOADED", "限流配置已重新加载");
+        log.info("Throttle configuration reloaded: enabled={}", configRef.get().getEnabled());
     }
 
     public PaginatedResponse<ThrottleLogEntryDto> getLogs(int page, int size, String level) {
         int pageIndex = Math.max(page - 1, 0);
         int pageSize = Math.min(Math.max(size, 1), 100);
-        String normalizedLevel = StringUtils.hasText(level) ? level.toUpperCase(Locale.ROOT) : "ALL";
-
-        List<ThrottleLogEntryDto> entries = new ArrayList<>();
-        for (int i = 0; i < pageSize; i++) {
-            Instant timestamp = Instant.now().minusSeconds((long) (pageIndex * pageSize + i) * 45);
-            String computedLevel = SUPPORTED_LEVELS.get(i % SUPPORTED_LEVELS.size());
-            if (!"ALL".equals(normalizedLevel) && !computedLevel.equalsIgnoreCase(normalizedLevel)) {
-                continue;
+        String normalizedLevel = StringUtils.hasText(level) && !"ALL".equalsIgnoreCase(level)
+                ? level.toUpperCase(Locale.ROOT) : null;
+
+        List<ThrottleLogEntryDto> entries = logBuffer.snapshot(normalizedLevel);
+        int from = Math.min(pageIndex * pageSize, entries.size());
+        int to = Math.min(from + pageSize, entries.size());
+        return PaginatedResponse.of(new ArrayList<>(entries.subList(from, to)), entries.size(), pageIndex, pageSize);
+    }
+
+    private boolean isStrictPath(String path) {
+        if (path == null) {
+            return false;
+        }
+        for (String prefix : strictPaths) {
+            if (path.startsWith(prefix)) {
+                return true;
             }
-            entries.add(ThrottleLogEntryDto.builder()
-                    .id("log-" + (pageIndex * pageSize + i + 1))
-                    .timestamp(timestamp)
-                    .level(computedLevel)
-                    .rule(i % 2 == 0 ? "default" : "strict")
-                    .clientIp(String.format(Locale.ROOT, "203.0.113.%d", 10 + (i % 50)))
-                    .requestPath(i % 2 == 0 ? "/api/documents" : "/api/admin/settings")
-                    .requestCount(20 + i)
-                    .action(i % 3 == 0 ? "BLOCKED" : "ALLOWED")
-                    .message(i % 3 == 0 ? "超过阈值，已触发限流" : "请求计数更新")
-                    .build());
         }
+        return false;
+    }
+
+    private static boolean isIgnoredUserAgent(ThrottlerConfigDto throttler, String userAgent) {
+        if (userAgent == null || throttler.getIgnoreUserAgents().isEmpty()) {
+            return false;
+        }
+        String ua = userAgent.toLowerCase(Locale.ROOT);
+        for (String ignored : throttler.getIgnoreUserAgents()) {
+            if (StringUtils.hasText(ignored) && ua.contains(ignored.toLowerCase(Locale.ROOT))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void appendLog(String level, String rule, String clientIp, String path, Integer requestCount,
+                           String action, String message) {
+        logBuffer.append(ThrottleLogEntryDto.builder()
+                .timestamp(Instant.now())
+                .level(level)
+                .rule(rule)
+                .clientIp(clientIp)
+                .requestPath(path)
+                .requestCount(requestCount)
+                .action(action)
+                .message(message)
+                .build());
+    }
+
+    /**
+     * 保存到 Redis 并通知其他节点；Redis 不可用时只在本节点生效
+     */
+    private void publish(ThrottleConfigDto config) {
+        try {
+            redisTemplate.opsForValue().set(CONFIG_KEY, objectMapper.writeValueAsString(config));
+            redisTemplate.convertAndSend(CONFIG_CHANNEL, "reload");
+        } catch (Exception e) {
+            log.warn("保存限流配置失败，仅本节点生效: {}", e.getMessage());
+        }
+    }
 
-        long total = 180L;
-        return PaginatedResponse.of(entries, total, pageIndex, pageSize);
+    private void loadFromRedis() {
+        try {
+            String json = redisTemplate.opsForValue().get(CONFIG_KEY);
+            if (json != null) {
+                configRef.set(sanitize(objectMapper.readValue(json, ThrottleConfigDto.class)));
+            }
+        } catch (JsonProcessingException e) {
+            log.warn("限流配置格式错误，沿用当前配置: {}", e.getMessage());
+        } catch (Exception e) {
+            log.warn("读取限流配置失败，沿用当前配置: {}", e.getMessage());
+        }
+    }
+
+    private void onConfigChanged(Message message, byte[] pattern) {
+        loadFromRedis();
+        log.debug("收到限流配置变更通知，已重新加载");
+    }
+
+    private static void registerCounter(MeterRegistry registry, String rule, String outcome, LongAdder adder) {
+        FunctionCounter.builder("throttle_requests", adder, LongAdder::sum)
+                .tag("rule", rule)
+                .tag("outcome", outcome)
+                .description("限流判定次数")
+                .register(registry);
+    }
+
+    /**
+     * 最近一分钟请求数：60 个按秒轮转的槽位
+     */
+    private static final class MinuteRate {
+
+        private final AtomicLongArray counts = new AtomicLongArray(60);
+        private final AtomicLongArray seconds = new AtomicLongArray(60);
+
+        void record(long epochSecond) {
+            int slot = (int) (epochSecond % 60);
+            long stamp = seconds.get(slot);
+            if (stamp != epochSecond && seconds.compareAndSet(slot, stamp, epochSecond)) {
+                counts.set(slot, 0);
+            }
+            counts.incrementAndGet(slot);
+        }
+
+        long lastMinute(long epochSecond) {
+            long total = 0;
+            for (int slot = 0; slot < 60; slot++) {
+                if (epochSecond - seconds.get(slot) < 60) {
+                    total += counts.get(slot);
+                }
+            }
+            return total;
+        }
     }
 
     private void validateThrottler(String label, ThrottlerConfigDto config, ThrottleValidationResultDto result) {
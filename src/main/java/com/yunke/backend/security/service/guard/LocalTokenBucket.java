@@ -0,0 +1,60 @@
+package com.yunke.backend.security.service.guard;
+
+/**
+ * 本地令牌桶
+ *
+ * 令牌充足、未上报次数未满且距上次同步不足 syncIntervalMs 时在本地放行，只累计未上报次数；
+ * 否则由调用方走 Redis，并通过 {@link #drain} 把累计次数一并写入计数器。
+ * 因此每个节点对同一个桶最多漏计 capacity 次、最长 syncIntervalMs。
+ */
+final class LocalTokenBucket {
+
+    private final int capacity;
+    private final long syncIntervalMs;
+    private final double refillPerMs;
+
+    private double tokens;
+    private long refilledAt;
+    private long syncedAt;
+    private int unsynced;
+
+    LocalTokenBucket(int capacity, long syncIntervalMs, long now) {
+        this.capacity = capacity;
+        this.syncIntervalMs = syncIntervalMs;
+        this.refillPerMs = syncIntervalMs > 0 ? (double) capacity / syncIntervalMs : 0;
+        this.tokens = capacity;
+        this.refilledAt = now;
+        // 新桶的第一个请求必须经过 Redis（检查封禁状态）
+        this.syncedAt = now - syncIntervalMs;
+    }
+
+    /**
+     * 尝试在本地放行
+     */
+    synchronized boolean tryAbsorb(long now) {
+        refill(now);
+        if (tokens < 1 || unsynced >= capacity || now - syncedAt >= syncIntervalMs) {
+            return false;
+        }
+        tokens -= 1;
+        unsynced++;
+        return true;
+    }
+
+    /**
+     * 取走未上报次数并记为已同步
+     */
+    synchronized int drain(long now) {
+        int pending = unsynced;
+        unsynced = 0;
+        syncedAt = now;
+        return pending;
+    }
+
+    private void refill(long now) {
+        if (now > refilledAt) {
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * refillPerMs);
+            refilledAt = now;
+        }
+    }
+}
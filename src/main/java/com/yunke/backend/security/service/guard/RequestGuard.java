@@ -0,0 +1,268 @@
+package com.yunke.backend.security.service.guard;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.yunke.backend.infrastructure.config.SecurityProtectionConfig;
+import com.yunke.backend.security.service.SecurityMonitorService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 🛡️ 请求防护引擎
+ *
+ * 把封禁检查、单IP请求频率、页面访问频率、按路径限流合并为一次 Lua 调用（原来每个请求 4~6 次往返）。
+ * 前面再加一层本地令牌桶：明显低于阈值的流量在本地放行，攒下的次数在下一次 Lua 调用中一并计入。
+ * 本节点判定封禁后，封禁状态在本地缓存 local-block-seconds，攻击期间被封IP的请求不再访问 Redis。
+ *
+ * 计数键与 {@link SecurityMonitorService} 保持一致，解封时照常清除。
+ */
+@Slf4j
+@Component
+public class RequestGuard {
+
+    private static final String BLOCK_PREFIX = "security:blocked:ip:";
+    private static final String REQUEST_COUNT_PREFIX = "security:req_count:";
+    private static final String PAGE_VISIT_PREFIX = "security:page_visit:";
+    private static final String PATH_COUNT_PREFIX = "security:path_count:";
+    private static final long WINDOW_MS = Duration.ofMinutes(1).toMillis();
+
+    /**
+     * KEYS: 封禁键、请求计数、页面计数、路径计数；ARGV: 三个增量与窗口毫秒数。
+     * 返回 {是否封禁, 封禁剩余毫秒, 请求数, 页面数, 路径数}，增量为 0 的计数器不读写
+     */
+    private static final String CHECK_SCRIPT =
+            "local blockTtl = redis.call('PTTL', KEYS[1]) " +
+            "if blockTtl ~= -2 then return {1, blockTtl, 0, 0, 0} end " +
+            "local window = tonumber(ARGV[4]) " +
+            "local function hit(key, delta) " +
+            "  if delta <= 0 then return 0 end " +
+            "  local count = redis.call('INCRBY', key, delta) " +
+            "  if redis.call('PTTL', key) < 0 then redis.call('PEXPIRE', key, window) end " +
+            "  return count " +
+            "end " +
+            "return {0, 0, hit(KEYS[2], tonumber(ARGV[1])), hit(KEYS[3], tonumber(ARGV[2])), hit(KEYS[4], tonumber(ARGV[3]))}";
+
+    /**
+     * 单计数器：INCR 与过期设置在一次调用内完成
+     */
+    private static final String HIT_SCRIPT =
+            "local count = redis.call('INCR', KEYS[1]) " +
+            "if redis.call('PTTL', KEYS[1]) < 0 then redis.call('PEXPIRE', KEYS[1], ARGV[1]) end " +
+            "return count";
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> CHECK = RedisScript.of(CHECK_SCRIPT, List.class);
+    private static final RedisScript<Long> HIT = RedisScript.of(HIT_SCRIPT, Long.class);
+
+    /**
+     * 判定结果
+     */
+    public enum Outcome {
+        ALLOW,
+        /** IP 已在黑名单中 */
+        BLOCKED,
+        /** 超过单IP请求频率 */
+        RATE_LIMITED,
+        /** 超过页面访问频率（疑似爬虫） */
+        BOT_LIMITED,
+        /** 超过路径限流 */
+        PATH_LIMITED
+    }
+
+    /**
+     * @param count 触发判定的计数（本地判定或封禁时为 0）
+     * @param limit 对应的阈值
+     * @param retryAfterSeconds 建议的重试间隔
+     */
+    public record Verdict(Outcome outcome, long count, int limit, long retryAfterSeconds) {
+
+        static final Verdict ALLOWED = new Verdict(Outcome.ALLOW, 0, 0, 0);
+
+        public boolean allowed() {
+            return outcome == Outcome.ALLOW;
+        }
+    }
+
+    private final StringRedisTemplate redisTemplate;
+    private final SecurityProtectionConfig config;
+    private final SecurityMonitorService securityMonitor;
+    private final Cache<String, LocalTokenBucket> buckets;
+    private final Cache<String, Long> localBlocks;
+    private final Counter localChecks;
+    private final Counter remoteChecks;
+    private final Counter localRejects;
+
+    public RequestGuard(StringRedisTemplate redisTemplate,
+                        SecurityProtectionConfig config,
+                        SecurityMonitorService securityMonitor,
+                        MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.config = config;
+        this.securityMonitor = securityMonitor;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(config.getGuard().getMaxTrackedClients())
+                .expireAfterAccess(Duration.ofMinutes(1))
+                .build();
+        this.localBlocks = Caffeine.newBuilder()
+                .maximumSize(config.getGuard().getMaxTrackedClients())
+                .expireAfterWrite(Duration.ofSeconds(Math.max(1, config.getGuard().getLocalBlockSeconds())))
+                .build();
+        this.localChecks = Counter.builder("request_guard_checks").tag("tier", "local")
+                .description("本地令牌桶放行的请求数").register(meterRegistry);
+        this.remoteChecks = Counter.builder("request_guard_checks").tag("tier", "redis")
+                .description("经 Redis 判定的请求数").register(meterRegistry);
+        this.localRejects = Counter.builder("request_guard_checks").tag("tier", "local_block")
+                .description("命中本地封禁缓存的请求数").register(meterRegistry);
+    }
+
+    /**
+     * 判定一个请求
+     *
+     * @param countRequest 是否计入单IP请求频率（DDoS 防护）
+     * @param countPage 是否计入页面访问频率（爬虫防护）
+     */
+    public Verdict check(String ip, String path, boolean countRequest, boolean countPage) {
+        long now = System.currentTimeMillis();
+        Long blockedUntil = localBlocks.getIfPresent(ip);
+        if (blockedUntil != null && blockedUntil > now) {
+            localRejects.increment();
+            return new Verdict(Outcome.BLOCKED, 0, 0, (blockedUntil - now) / 1000 + 1);
+        }
+
+        SecurityProtectionConfig.PathLimit pathLimit = matchPathLimit(path);
+        if (!countRequest && !countPage && pathLimit == null) {
+            return Verdict.ALLOWED;
+        }
+
+        int capacity = localCapacity(countRequest, countPage, pathLimit);
+        LocalTokenBucket bucket = null;
+        if (capacity > 0) {
+            String bucketKey = ip + (countPage ? "|" : "#") + (pathLimit != null ? pathLimit.getPrefix() : "");
+            bucket = buckets.get(bucketKey,
+                    k -> new LocalTokenBucket(capacity, config.getGuard().getSyncIntervalMs(), now));
+            if (bucket.tryAbsorb(now)) {
+                localChecks.increment();
+                return Verdict.ALLOWED;
+            }
+        }
+
+        long delta = 1 + (bucket != null ? bucket.drain(now) : 0);
+        remoteChecks.increment();
+        List<?> result;
+        try {
+            result = redisTemplate.execute(CHECK,
+                    List.of(BLOCK_PREFIX + ip,
+                            REQUEST_COUNT_PREFIX + ip,
+                            PAGE_VISIT_PREFIX + ip,
+                            pathLimit != null ? PATH_COUNT_PREFIX + pathLimit.getPrefix() + ":" + ip
+                                    : PATH_COUNT_PREFIX + ip),
+                    String.valueOf(countRequest ? delta : 0),
+                    String.valueOf(countPage ? delta : 0),
+                    String.valueOf(pathLimit != null ? delta : 0),
+                    String.valueOf(WINDOW_MS));
+        } catch (Exception e) {
+            // Redis 不可用时放行，避免误伤正常用户
+            log.error("请求防护检查失败: {}", e.getMessage());
+            return Verdict.ALLOWED;
+        }
+        if (result == null || result.size() < 5) {
+            return Verdict.ALLOWED;
+        }
+
+        if (toLong(result.get(0)) == 1) {
+            long ttlMs = toLong(result.get(1));
+            long retryAfter = ttlMs > 0 ? ttlMs / 1000 + 1
+                    : config.getDdos().getBlockDurationMinutes() * 60L;
+            cacheBlock(ip, ttlMs > 0 ? ttlMs : retryAfter * 1000, now);
+            return new Verdict(Outcome.BLOCKED, 0, 0, retryAfter);
+        }
+
+        long requests = toLong(result.get(2));
+        long pages = toLong(result.get(3));
+        long pathHits = toLong(result.get(4));
+
+        if (countRequest) {
+            int maxRequests = config.getDdos().getMaxRequestsPerMinute();
+            if (requests >= (long) maxRequests * config.getDdos().getWarningThreshold() / 100) {
+                log.warn("⚠️ IP {} 请求频率较高: {}/{}/分钟", ip, requests, maxRequests);
+            }
+            if (requests > maxRequests) {
+                return new Verdict(Outcome.RATE_LIMITED, requests, maxRequests,
+                        config.getDdos().getBlockDurationMinutes() * 60L);
+            }
+        }
+        if (countPage && pages > config.getBot().getMaxPagesPerMinute()) {
+            return new Verdict(Outcome.BOT_LIMITED, pages, config.getBot().getMaxPagesPerMinute(),
+                    config.getBot().getBlockDurationMinutes() * 60L);
+        }
+        if (pathLimit != null && pathHits > pathLimit.getMaxRequestsPerMinute()) {
+            return new Verdict(Outcome.PATH_LIMITED, pathHits, pathLimit.getMaxRequestsPerMinute(),
+                    Math.max(1, (WINDOW_MS - now % WINDOW_MS) / 1000));
+        }
+        return Verdict.ALLOWED;
+    }
+
+    /**
+     * 封禁IP，并在本地缓存封禁状态
+     */
+    public void block(String ip, String reason, int durationMinutes) {
+        securityMonitor.blockIp(ip, reason, durationMinutes);
+        cacheBlock(ip, Duration.ofMinutes(durationMinutes).toMillis(), System.currentTimeMillis());
+    }
+
+    /**
+     * 固定窗口计数：一次往返完成自增与过期设置
+     *
+     * @return 当前窗口内的计数；Redis 不可用时返回 null
+     */
+    public Long hit(String key, Duration window) {
+        try {
+            return redisTemplate.execute(HIT, List.of(key), String.valueOf(window.toMillis()));
+        } catch (Exception e) {
+            log.error("频率计数失败: key={}, {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    private void cacheBlock(String ip, long durationMs, long now) {
+        // 只缓存较短时间，管理员解封后最多延迟 local-block-seconds 生效
+        localBlocks.put(ip, now + durationMs);
+    }
+
+    /**
+     * 本地令牌桶容量：不超过最严阈值的 1/10，阈值过小时不做本地放行
+     */
+    private int localCapacity(boolean countRequest, boolean countPage, SecurityProtectionConfig.PathLimit pathLimit) {
+        int strictest = Integer.MAX_VALUE;
+        if (countRequest) {
+            strictest = Math.min(strictest, config.getDdos().getMaxRequestsPerMinute());
+        }
+        if (countPage) {
+            strictest = Math.min(strictest, config.getBot().getMaxPagesPerMinute());
+        }
+        if (pathLimit != null) {
+            strictest = Math.min(strictest, pathLimit.getMaxRequestsPerMinute());
+        }
+        return Math.min(config.getGuard().getLocalBurst(), strictest / 10);
+    }
+
+    private SecurityProtectionConfig.PathLimit matchPathLimit(String path) {
+        for (SecurityProtectionConfig.PathLimit limit : config.getGuard().getPathLimits()) {
+            if (limit.getPrefix() != null && path.startsWith(limit.getPrefix())) {
+                return limit;
+            }
+        }
+        return null;
+    }
+
+    private static long toLong(Object value) {
+        return value instanceof Number number ? number.longValue() : 0L;
+    }
+}
@@ -0,0 +1,199 @@
+package com.yunke.backend.security.service.guard;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 分布式限流引擎（GCRA）
+ *
+ * 每个 (规则, 客户端) 在 Redis 中只保存一个理论到达时间 TAT：请求间隔 T = ttl/limit，
+ * 容忍度 τ = ttl - T，即窗口内最多突发 limit 次、之后按 T 的速率放行。
+ * TAT 基于 Redis 服务器时钟（脚本内 TIME），各节点之间的时钟偏差不会影响判定。
+ * 被拒绝且配置了阻断时长时，同一脚本内写入阻断键，阻断期间直接拒绝。
+ *
+ * 本地令牌桶在阈值较宽时先行放行，放行次数在下一次 Redis 调用时计入 TAT；
+ * 本节点判定的阻断缓存在本地，阻断期间的请求不访问 Redis。
+ */
+@Slf4j
+@Component
+public class ThrottleEngine {
+
+    private static final String TAT_PREFIX = "throttle:tat:";
+    private static final String BLOCK_PREFIX = "throttle:block:";
+
+    /**
+     * KEYS: TAT 键、阻断键；ARGV: 间隔 T、容忍度 τ、本地已放行次数、阻断毫秒。
+     * 当前时间取 Redis 的 TIME（Redis 5 起脚本按效果复制，先读 TIME 再写入是安全的；
+     * 3.2~4.x 需要显式开启 replicate_commands）。
+     * 返回 {是否放行, 建议重试毫秒}
+     */
+    private static final String GCRA_SCRIPT =
+            "redis.replicate_commands() " +
+            "local blockTtl = redis.call('PTTL', KEYS[2]) " +
+            "if blockTtl > 0 then return {0, blockTtl} end " +
+            "local time = redis.call('TIME') " +
+            "local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000) " +
+            "local interval = tonumber(ARGV[1]) " +
+            "local tolerance = tonumber(ARGV[2]) " +
+            "local tat = tonumber(redis.call('GET', KEYS[1]) or now) " +
+            "if tat < now then tat = now end " +
+            "tat = tat + tonumber(ARGV[3]) * interval " +
+            "if now < tat - tolerance then " +
+            "  if tonumber(ARGV[3]) > 0 then " +
+            "    redis.call('SET', KEYS[1], string.format('%d', tat), 'PX', math.max(1, tat - now)) " +
+            "  end " +
+            "  local blockMs = tonumber(ARGV[4]) " +
+            "  if blockMs > 0 then " +
+            "    redis.call('SET', KEYS[2], '1', 'PX', blockMs) " +
+            "    return {0, blockMs} " +
+            "  end " +
+            "  return {0, tat - tolerance - now} " +
+            "end " +
+            "tat = tat + interval " +
+            "redis.call('SET', KEYS[1], string.format('%d', tat), 'PX', tat - now) " +
+            "return {1, 0}";
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> GCRA = RedisScript.of(GCRA_SCRIPT, List.class);
+
+    /**
+     * @param remote 是否经过 Redis 判定
+     * @param failed Redis 调用失败（按放行处理）
+     */
+    public record Decision(boolean allowed, long retryAfterMs, boolean remote, boolean failed) {
+
+        static final Decision LOCAL = new Decision(true, 0, false, false);
+        static final Decision FAILED_OPEN = new Decision(true, 0, true, true);
+    }
+
+    private final StringRedisTemplate redisTemplate;
+    private final int localBurst;
+    private final long syncIntervalMs;
+    private final Cache<String, LocalTokenBucket> buckets;
+    private final Cache<String, Long> localBlocks;
+
+    public ThrottleEngine(
+            StringRedisTemplate redisTemplate,
+            @Value("${throttle.local-burst:10}") int localBurst,
+            @Value("${throttle.sync-interval-ms:1000}") long syncIntervalMs,
+            @Value("${throttle.max-tracked-clients:100000}") long maxTrackedClients) {
+        this.redisTemplate = redisTemplate;
+        this.localBurst = localBurst;
+        this.syncIntervalMs = syncIntervalMs;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxTrackedClients)
+                .expireAfterAccess(Duration.ofMinutes(5))
+                .build();
+        this.localBlocks = Caffeine.newBuilder()
+                .maximumSize(maxTrackedClients)
+                .expireAfterWrite(Duration.ofMinutes(10))
+                .build();
+    }
+
+    /**
+     * 判定一次请求
+     *
+     * @param rule 限流规则名（default / strict）
+     * @param client 客户端标识（用户ID或IP）
+     * @param limit 窗口内允许的请求数
+     * @param ttlSeconds 窗口长度（秒）
+     * @param blockSeconds 超限后的阻断时长（秒），0 表示不阻断
+     */
+    public Decision acquire(String rule, String client, int limit, int ttlSeconds, int blockSeconds) {
+        // 本地时钟只用于本节点的令牌桶与阻断缓存（都是相对时长），限流判定的时间以 Redis TIME 为准
+        long now = System.currentTimeMillis();
+        String key = rule + ":" + client;
+
+        Long blockedUntil = localBlocks.getIfPresent(key);
+        if (blockedUntil != null) {
+            if (blockedUntil > now) {
+                return new Decision(false, blockedUntil - now, false, false);
+            }
+            localBlocks.invalidate(key);
+        }
+
+        long interval = emissionInterval(limit, ttlSeconds);
+        long tolerance = ttlSeconds * 1000L - interval;
+
+        // 同一规则的限额可能被热更新，桶键带上限额，旧桶自然过期
+        int capacity = Math.min(localBurst, limit / 10);
+        LocalTokenBucket bucket = null;
+        if (capacity > 0) {
+            bucket = buckets.get(key + ":" + limit + "/" + ttlSeconds,
+                    k -> new LocalTokenBucket(capacity, syncIntervalMs, now));
+            if (bucket.tryAbsorb(now)) {
+                return Decision.LOCAL;
+            }
+        }
+        int pending = bucket != null ? bucket.drain(now) : 0;
+
+        List<?> result;
+        try {
+            result = redisTemplate.execute(GCRA,
+                    List.of(TAT_PREFIX + key, BLOCK_PREFIX + key),
+                    String.valueOf(interval),
+                    String.valueOf(tolerance),
+                    String.valueOf(pending),
+                    String.valueOf(Math.max(0, blockSeconds) * 1000L));
+        } catch (Exception e) {
+            log.error("限流判定失败: key={}, {}", key, e.getMessage());
+            return Decision.FAILED_OPEN;
+        }
+        if (result == null || result.size() < 2) {
+            return Decision.FAILED_OPEN;
+        }
+
+        boolean allowed = toLong(result.get(0)) == 1;
+        long retryAfterMs = Math.max(0, toLong(result.get(1)));
+        if (!allowed && retryAfterMs > 0) {
+            localBlocks.put(key, now + retryAfterMs);
+        }
+        return new Decision(allowed, retryAfterMs, true, false);
+    }
+
+    /**
+     * 用与 Redis 脚本相同的算法在本地模拟：span 毫秒内均匀发送 requests 次请求，返回被拒绝的次数
+     */
+    public static int simulate(int limit, int ttlSeconds, int blockSeconds, int requests, long spanMs) {
+        long interval = emissionInterval(limit, ttlSeconds);
+        long tolerance = ttlSeconds * 1000L - interval;
+        long step = requests > 1 ? spanMs / (requests - 1) : 0;
+
+        long tat = 0;
+        long blockedUntil = Long.MIN_VALUE;
+        int rejected = 0;
+        for (int i = 0; i < requests; i++) {
+            long now = i * step;
+            if (now < blockedUntil) {
+                rejected++;
+                continue;
+            }
+            tat = Math.max(tat, now);
+            if (now < tat - tolerance) {
+                rejected++;
+                if (blockSeconds > 0) {
+                    blockedUntil = now + blockSeconds * 1000L;
+                }
+                continue;
+            }
+            tat += interval;
+        }
+        return rejected;
+    }
+
+    private static long emissionInterval(int limit, int ttlSeconds) {
+        return Math.max(1, ttlSeconds * 1000L / Math.max(1, limit));
+    }
+
+    private static long toLong(Object value) {
+        return value instanceof Number number ? number.longValue() : 0L;
+    }
+}
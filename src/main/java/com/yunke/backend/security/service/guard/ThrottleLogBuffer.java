@@ -0,0 +1,53 @@
+package com.yunke.backend.security.service.guard;
+
+import com.yunke.backend.security.dto.throttle.ThrottleLogEntryDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 限流日志环形缓冲区
+ *
+ * 固定容量，写满后覆盖最旧的条目；写入无锁，攻击期间大量阻断也不会占用更多内存。
+ */
+public class ThrottleLogBuffer {
+
+    private final AtomicReferenceArray<ThrottleLogEntryDto> slots;
+    private final AtomicLong sequence = new AtomicLong();
+
+    public ThrottleLogBuffer(int capacity) {
+        this.slots = new AtomicReferenceArray<>(Math.max(1, capacity));
+    }
+
+    /**
+     * 追加一条日志，id 按写入顺序递增
+     */
+    public void append(ThrottleLogEntryDto entry) {
+        long seq = sequence.incrementAndGet();
+        entry.setId("log-" + seq);
+        slots.set((int) ((seq - 1) % slots.length()), entry);
+    }
+
+    /**
+     * 按时间倒序返回当前保留的条目
+     *
+     * @param level 为空时不过滤
+     */
+    public List<ThrottleLogEntryDto> snapshot(String level) {
+        long last = sequence.get();
+        int capacity = slots.length();
+        List<ThrottleLogEntryDto> result = new ArrayList<>((int) Math.min(last, capacity));
+        for (long seq = last; seq > 0 && seq > last - capacity; seq--) {
+            ThrottleLogEntryDto entry = slots.get((int) ((seq - 1) % capacity));
+            if (entry == null) {
+                continue;
+            }
+            if (level == null || level.equalsIgnoreCase(entry.getLevel())) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+}
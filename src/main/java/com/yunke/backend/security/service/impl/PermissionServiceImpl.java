@@ -3,12 +3,9 @@ package com.yunke.backend.security.service.impl;
 import com.yunke.backend.document.dto.DocPermissionsDto;
 import com.yunke.backend.document.enums.DocPermission;
 import com.yunke.backend.security.service.PermissionService;
-import com.yunke.backend.workspace.domain.entity.WorkspaceDoc;
-import com.yunke.backend.workspace.domain.entity.WorkspaceDocUserRole;
+import com.yunke.backend.security.service.permission.DocPermissionResolver;
 import com.yunke.backend.workspace.domain.entity.WorkspaceUserRole;
 import com.yunke.backend.workspace.domain.entity.WorkspacePagePermission;
-import com.yunke.backend.workspace.repository.WorkspaceDocRepository;
-import com.yunke.backend.workspace.repository.WorkspaceDocUserRoleRepository;
 import com.yunke.backend.workspace.repository.WorkspacePagePermissionRepository;
 import com.yunke.backend.workspace.repository.WorkspaceUserRoleRepository;
 import com.yunke.backend.workspace.service.WorkspaceService;
@@ -20,7 +17,9 @@ import org.springframework.transaction.annotation.Transactional;
 import reactor.core.publisher.Mono;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -34,33 +33,9 @@ import java.util.UUID;
 public class PermissionServiceImpl implements PermissionService {
 
     private final WorkspaceUserRoleRepository workspaceUserRoleRepository;
-    private final WorkspaceDocUserRoleRepository workspaceDocUserRoleRepository;
-    private final WorkspaceDocRepository workspaceDocRepository;
     private final WorkspaceService workspaceService;
     private final WorkspacePagePermissionRepository pagePermissionRepository;
-
-    /**
-     * 将工作空间角色转换为权限位掩码
-     */
-    private static int roleToMask(WorkspaceUserRole.WorkspaceRole role) {
-        if (role == null) {
-            return 0;
-        }
-        switch (role) {
-            case OWNER:
-            case ADMIN:
-                return DocPermission.Read.bit | DocPermission.Comment.bit | DocPermission.Add.bit |
-                        DocPermission.Modify.bit | DocPermission.Delete.bit | DocPermission.Export.bit |
-                        DocPermission.Share.bit | DocPermission.Invite.bit | DocPermission.Manage.bit;
-            case COLLABORATOR:
-                return DocPermission.Read.bit | DocPermission.Comment.bit | DocPermission.Add.bit |
-                        DocPermission.Modify.bit | DocPermission.Export.bit;
-            case EXTERNAL:
-                return DocPermission.Read.bit;
-            default:
-                return 0;
-        }
-    }
+    private final DocPermissionResolver docPermissionResolver;
 
     /**
      * 将权限动作字符串转换为 DocPermission 枚举
@@ -86,47 +61,12 @@ public class PermissionServiceImpl implements PermissionService {
 
     @Override
     public int resolveEffectiveDocMask(String workspaceId, String docId, String userId) {
-        int mask = 0;
-
-        // 1) Public link (anonymous) baseline
-        Optional<WorkspaceDoc> docOpt = workspaceDocRepository.findByWorkspaceIdAndDocId(workspaceId, docId);
-        if (docOpt.isPresent()) {
-            WorkspaceDoc doc = docOpt.get();
-            if (Boolean.TRUE.equals(doc.getPublic())) {
-                mask = DocPermission.Read.bit;
-                if ("append-only".equalsIgnoreCase(doc.getPublicPermission())) {
-                    mask |= DocPermission.Add.bit;
-                }
-            }
-            // default permission mask for members (optional)
-            if (doc.getDefaultPermissionMask() != null) {
-                // we do not merge here—member grants and workspace roles will override below
-            }
-        }
-
-        if (userId == null || userId.isBlank()) {
-            return mask; // anonymous users only get public permissions
-        }
-
-        // 2) Workspace role baseline
-        WorkspaceUserRole.WorkspaceRole role = workspaceUserRoleRepository
-                .getUserWorkspaceRole(workspaceId, userId)
-                .orElse(null);
-        if (role != null) {
-            mask = roleToMask(role);
-        }
-
-        // 3) Per-doc override (grant)
-        Optional<WorkspaceDocUserRole> grantOpt = workspaceDocUserRoleRepository
-                .findByWorkspaceIdAndDocIdAndUserId(workspaceId, docId, userId);
-        if (grantOpt.isPresent()) {
-            WorkspaceDocUserRole grant = grantOpt.get();
-            if (grant.getPermissionMask() != null) {
-                mask = grant.getPermissionMask();
-            }
-        }
+        return docPermissionResolver.resolveMask(workspaceId, docId, userId);
+    }
 
-        return mask;
+    @Override
+    public Map<String, Integer> resolveMasks(String workspaceId, String userId, Collection<String> docIds) {
+        return docPermissionResolver.resolveMasks(workspaceId, userId, docIds);
     }
 
     @Override
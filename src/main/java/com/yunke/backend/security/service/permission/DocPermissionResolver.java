@@ -0,0 +1,238 @@
+package com.yunke.backend.security.service.permission;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.yunke.backend.document.enums.DocPermission;
+import com.yunke.backend.workspace.domain.entity.WorkspaceDoc;
+import com.yunke.backend.workspace.domain.entity.WorkspaceUserRole;
+import com.yunke.backend.workspace.repository.WorkspaceDocRepository;
+import com.yunke.backend.workspace.repository.WorkspaceDocUserRoleRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 文档有效权限解析（带缓存）
+ *
+ * 有效掩码按以下顺序得出，后者覆盖前者：
+ * 1) 公开文档基线（只读，append-only 模式额外可添加）
+ * 2) 用户的工作空间角色
+ * 3) 用户在该文档上的单独授权（permission_mask）
+ *
+ * 用户在某个工作空间的角色与全部文档授权用一次查询取回，缓存为 docId→掩码 的映射；
+ * 工作空间的公开文档单独缓存，与用户无关。相关实体写入提交后经 {@link PermissionChangedEvent} 失效，
+ * 并通过 Redis 频道通知其他节点；广播丢失时由 expire-after-write 兜底。
+ * 绕过实体生命周期的批量 @Modifying 写入需由调用方显式发布 {@link PermissionChangedEvent}。
+ */
+@Slf4j
+@Component
+public class DocPermissionResolver {
+
+    private static final int NO_ROLE = -1;
+    private static final String INVALIDATE_CHANNEL = "permission:doc:invalidate";
+
+    /**
+     * 用户在一个工作空间内的权限快照；roleMask 为 -1 表示不是成员
+     */
+    private record UserGrants(int roleMask, Map<String, Integer> docMasks) {
+    }
+
+    private final WorkspaceDocUserRoleRepository docUserRoleRepository;
+    private final WorkspaceDocRepository workspaceDocRepository;
+    private final Cache<String, UserGrants> userGrants;
+    private final Cache<String, Map<String, Integer>> publicMasks;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public DocPermissionResolver(
+            WorkspaceDocUserRoleRepository docUserRoleRepository,
+            WorkspaceDocRepository workspaceDocRepository,
+            StringRedisTemplate redisTemplate,
+            RedisMessageListenerContainer listenerContainer,
+            @Value("${permission.resolver.max-users:50000}") long maxUsers,
+            @Value("${permission.resolver.max-workspaces:10000}") long maxWorkspaces,
+            @Value("${permission.resolver.expire-after-write-seconds:300}") long expireSeconds) {
+        this.docUserRoleRepository = docUserRoleRepository;
+        this.workspaceDocRepository = workspaceDocRepository;
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.userGrants = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterWrite(Duration.ofSeconds(expireSeconds))
+                .build();
+        this.publicMasks = Caffeine.newBuilder()
+                .maximumSize(maxWorkspaces)
+                .expireAfterWrite(Duration.ofSeconds(expireSeconds))
+                .build();
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        listenerContainer.addMessageListener(this::onInvalidateMessage, new ChannelTopic(INVALIDATE_CHANNEL));
+        log.info("🔐 [DocPermissionResolver] 已订阅文档权限失效频道: {}", INVALIDATE_CHANNEL);
+    }
+
+    /**
+     * 将工作空间角色转换为权限位掩码
+     */
+    public static int roleToMask(WorkspaceUserRole.WorkspaceRole role) {
+        if (role == null) {
+            return 0;
+        }
+        switch (role) {
+            case OWNER:
+            case ADMIN:
+                return DocPermission.Read.bit | DocPermission.Comment.bit | DocPermission.Add.bit |
+                        DocPermission.Modify.bit | DocPermission.Delete.bit | DocPermission.Export.bit |
+                        DocPermission.Share.bit | DocPermission.Invite.bit | DocPermission.Manage.bit;
+            case COLLABORATOR:
+                return DocPermission.Read.bit | DocPermission.Comment.bit | DocPermission.Add.bit |
+                        DocPermission.Modify.bit | DocPermission.Export.bit;
+            case EXTERNAL:
+                return DocPermission.Read.bit;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * 单个文档的有效掩码；userId 为空（匿名）时只有公开权限
+     */
+    public int resolveMask(String workspaceId, String docId, String userId) {
+        int mask = publicMasks(workspaceId).getOrDefault(docId, 0);
+        if (userId == null || userId.isBlank()) {
+            return mask;
+        }
+        UserGrants grants = userGrants(workspaceId, userId);
+        if (grants.roleMask() != NO_ROLE) {
+            mask = grants.roleMask();
+        }
+        Integer grant = grants.docMasks().get(docId);
+        return grant != null ? grant : mask;
+    }
+
+    /**
+     * 批量解析：整个集合最多两次查询（公开文档、用户角色与授权），缓存命中时不查库
+     *
+     * @return docId→掩码，顺序与输入一致
+     */
+    public Map<String, Integer> resolveMasks(String workspaceId, String userId, Collection<String> docIds) {
+        Map<String, Integer> publicDocs = publicMasks(workspaceId);
+        boolean anonymous = userId == null || userId.isBlank();
+        UserGrants grants = anonymous ? null : userGrants(workspaceId, userId);
+
+        Map<String, Integer> masks = new LinkedHashMap<>();
+        for (String docId : docIds) {
+            int mask = publicDocs.getOrDefault(docId, 0);
+            if (grants != null) {
+                if (grants.roleMask() != NO_ROLE) {
+                    mask = grants.roleMask();
+                }
+                mask = grants.docMasks().getOrDefault(docId, mask);
+            }
+            masks.put(docId, mask);
+        }
+        return masks;
+    }
+
+    /**
+     * 权限数据写入提交后失效并通知其他节点；没有事务的写入立即失效
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPermissionChanged(PermissionChangedEvent event) {
+        invalidate(event.getWorkspaceId(), event.getUserId());
+        String userId = event.getUserId() != null ? event.getUserId() : "";
+        try {
+            redisTemplate.convertAndSend(INVALIDATE_CHANNEL, nodeId + "|" + event.getWorkspaceId() + "|" + userId);
+        } catch (Exception e) {
+            log.warn("发布文档权限失效消息失败: workspaceId={}, userId={}", event.getWorkspaceId(), event.getUserId(), e);
+        }
+    }
+
+    private void onInvalidateMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", -1);
+        if (parts.length != 3) {
+            userGrants.invalidateAll();
+            publicMasks.invalidateAll();
+            return;
+        }
+        // 本节点已在提交后直接失效
+        if (!parts[0].equals(nodeId)) {
+            invalidate(parts[1], parts[2].isEmpty() ? null : parts[2]);
+        }
+    }
+
+    private void invalidate(String workspaceId, String userId) {
+        if (userId == null) {
+            publicMasks.invalidate(workspaceId);
+        } else {
+            userGrants.invalidate(grantsKey(workspaceId, userId));
+        }
+        log.debug("权限缓存失效: workspaceId={}, userId={}", workspaceId, userId);
+    }
+
+    private UserGrants userGrants(String workspaceId, String userId) {
+        return userGrants.get(grantsKey(workspaceId, userId), key -> loadUserGrants(workspaceId, userId));
+    }
+
+    private Map<String, Integer> publicMasks(String workspaceId) {
+        return publicMasks.get(workspaceId, this::loadPublicMasks);
+    }
+
+    private UserGrants loadUserGrants(String workspaceId, String userId) {
+        int roleMask = NO_ROLE;
+        Map<String, Integer> docMasks = new HashMap<>();
+        List<Object[]> rows = docUserRoleRepository.findUserPermissionRows(workspaceId, userId);
+        for (Object[] row : rows) {
+            if (row[0] == null) {
+                if (row[1] != null) {
+                    roleMask = parseRoleMask(row[1].toString());
+                }
+            } else if (row[2] instanceof Number mask) {
+                docMasks.put(row[0].toString(), mask.intValue());
+            }
+        }
+        return new UserGrants(roleMask, docMasks.isEmpty() ? Map.of() : docMasks);
+    }
+
+    private Map<String, Integer> loadPublicMasks(String workspaceId) {
+        Map<String, Integer> masks = new HashMap<>();
+        for (WorkspaceDoc doc : workspaceDocRepository.findPublicDocsByWorkspace(workspaceId)) {
+            int mask = DocPermission.Read.bit;
+            if ("append-only".equalsIgnoreCase(doc.getPublicPermission())) {
+                mask |= DocPermission.Add.bit;
+            }
+            masks.put(doc.getDocId(), mask);
+        }
+        return masks.isEmpty() ? Map.of() : masks;
+    }
+
+    private static int parseRoleMask(String role) {
+        try {
+            return roleToMask(WorkspaceUserRole.WorkspaceRole.valueOf(role));
+        } catch (IllegalArgumentException e) {
+            log.warn("未知的工作空间角色: {}", role);
+            return 0;
+        }
+    }
+
+    private static String grantsKey(String workspaceId, String userId) {
+        return workspaceId + ":" + userId;
+    }
+}
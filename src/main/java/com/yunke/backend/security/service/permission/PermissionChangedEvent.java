@@ -0,0 +1,27 @@
+package com.yunke.backend.security.service.permission;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * 权限数据变化事件
+ * 工作空间角色、文档授权或文档公开设置写入后触发；userId 为空表示影响整个工作空间（公开文档）
+ */
+public class PermissionChangedEvent extends ApplicationEvent {
+
+    private final String workspaceId;
+    private final String userId;
+
+    public PermissionChangedEvent(Object source, String workspaceId, String userId) {
+        super(source);
+        this.workspaceId = workspaceId;
+        this.userId = userId;
+    }
+
+    public String getWorkspaceId() {
+        return workspaceId;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+}
@@ -0,0 +1,44 @@
+package com.yunke.backend.security.service.permission;
+
+import com.yunke.backend.workspace.domain.entity.WorkspaceDoc;
+import com.yunke.backend.workspace.domain.entity.WorkspaceDocUserRole;
+import com.yunke.backend.workspace.domain.entity.WorkspaceUserRole;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * 权限相关实体的 JPA 生命周期监听
+ *
+ * 挂在 {@link WorkspaceUserRole}、{@link WorkspaceDocUserRole}、{@link WorkspaceDoc} 上，
+ * 任何经由 save/delete 的写入都会发布 {@link PermissionChangedEvent}，
+ * 不依赖各业务写入点逐个记得清缓存。由 Hibernate 的 Spring Bean 容器创建。
+ */
+@Component
+@RequiredArgsConstructor
+public class PermissionEntityListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity) {
+        if (entity instanceof WorkspaceUserRole role) {
+            publish(role.getWorkspaceId(), role.getUserId());
+        } else if (entity instanceof WorkspaceDocUserRole grant) {
+            publish(grant.getWorkspaceId(), grant.getUserId());
+        } else if (entity instanceof WorkspaceDoc doc) {
+            publish(doc.getWorkspaceId(), null);
+        }
+    }
+
+    private void publish(String workspaceId, String userId) {
+        if (workspaceId != null) {
+            eventPublisher.publishEvent(new PermissionChangedEvent(this, workspaceId, userId));
+        }
+    }
+}
@@ -1,143 +1,253 @@
 package com.yunke.backend.security.service.permission.cache;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.yunke.backend.infrastructure.config.RedisConfig;
-import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
 
 /**
  * 权限缓存实现类
- * 使用Redis缓存用户权限信息
+ *
+ * 两级缓存：本地 Caffeine（短 TTL）在前，Redis 在后，认证请求的常见路径不再访问 Redis。
+ * - Redis 键带全局代号：{@code permission:user:v<代号>:<userId>}，{@link #invalidateAll} 只递增代号，
+ *   旧代号的键由 TTL 淘汰，不再 KEYS 扫描
+ * - 失效通过 {@code permission:invalidate} 频道广播，各节点订阅后清除本地条目（"*" 表示全部）
+ * - 事务内的失效在提交后再执行一次，避免并发读在提交前把旧权限重新写回缓存
+ * 广播丢失时，本地条目最多保留 local-ttl-seconds。
  */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class PermissionCacheImpl implements PermissionCache {
-    
-    private final RedisTemplate<String, Object> redisTemplate;
-    
+
     private static final String CACHE_KEY_PREFIX = RedisConfig.CacheKeys.PERMISSION_PREFIX + "user:";
+    private static final String GENERATION_KEY = CACHE_KEY_PREFIX + "gen";
+    private static final String INVALIDATE_CHANNEL = "permission:invalidate";
+    private static final String INVALIDATE_ALL = "*";
     private static final Duration CACHE_TTL = Duration.ofHours(1);
-    
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final Cache<String, List<String>> local;
+    private final long generationRefreshMillis;
+
+    private volatile long generation;
+    private volatile long generationCheckedAt;
+
+    public PermissionCacheImpl(
+            RedisTemplate<String, Object> redisTemplate,
+            RedisMessageListenerContainer listenerContainer,
+            @Value("${permission.cache.local-max-entries:100000}") long localMaxEntries,
+            @Value("${permission.cache.local-ttl-seconds:30}") long localTtlSeconds,
+            @Value("${permission.cache.generation-refresh-seconds:30}") long generationRefreshSeconds) {
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.generationRefreshMillis = Duration.ofSeconds(generationRefreshSeconds).toMillis();
+        this.local = Caffeine.newBuilder()
+                .maximumSize(localMaxEntries)
+                .expireAfterWrite(Duration.ofSeconds(localTtlSeconds))
+                .build();
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        listenerContainer.addMessageListener(this::onInvalidateMessage, new ChannelTopic(INVALIDATE_CHANNEL));
+        log.info("🔐 [PermissionCache] 已订阅权限失效频道: {}", INVALIDATE_CHANNEL);
+    }
+
     @Override
     public List<GrantedAuthority> getUserAuthorities(String userId) {
         if (userId == null || userId.isBlank()) {
             return null;
         }
-        
-        String key = CACHE_KEY_PREFIX + userId;
+
+        List<String> cached = local.getIfPresent(userId);
+        if (cached != null) {
+            return toAuthorities(cached);
+        }
+
+        String key = userKey(userId);
         try {
-            Object cached = redisTemplate.opsForValue().get(key);
-            
-            if (cached != null) {
-                if (cached instanceof List) {
-                    @SuppressWarnings("unchecked")
-                    List<Object> authoritiesList = (List<Object>) cached;
-                    
-                    // 转换为GrantedAuthority列表
-                    List<GrantedAuthority> authorities = new ArrayList<>();
-                    for (Object authObj : authoritiesList) {
-                        if (authObj instanceof String) {
-                            authorities.add(new SimpleGrantedAuthority((String) authObj));
-                        } else if (authObj instanceof GrantedAuthority) {
-                            authorities.add((GrantedAuthority) authObj);
-                        }
+            Object value = redisTemplate.opsForValue().get(key);
+
+            if (value instanceof List<?> authoritiesList) {
+                // 转换为字符串列表，兼容以 GrantedAuthority 形式存储的旧数据
+                List<String> authorityStrings = new ArrayList<>(authoritiesList.size());
+                for (Object authObj : authoritiesList) {
+                    if (authObj instanceof String authority) {
+                        authorityStrings.add(authority);
+                    } else if (authObj instanceof GrantedAuthority authority) {
+                        authorityStrings.add(authority.getAuthority());
                     }
-                    
-                    log.debug("从缓存获取用户权限 - userId: {}, 权限数量: {}", userId, authorities.size());
-                    return authorities;
                 }
+
+                local.put(userId, List.copyOf(authorityStrings));
+                log.debug("从缓存获取用户权限 - userId: {}, 权限数量: {}", userId, authorityStrings.size());
+                return toAuthorities(authorityStrings);
             }
         } catch (Exception e) {
             log.warn("从缓存获取用户权限失败 - userId: {}", userId, e);
         }
-        
+
         return null;
     }
-    
+
     @Override
     public void cacheUserAuthorities(String userId, List<GrantedAuthority> authorities) {
         if (userId == null || userId.isBlank() || authorities == null) {
             return;
         }
-        
-        String key = CACHE_KEY_PREFIX + userId;
+
+        // 将GrantedAuthority转换为字符串列表存储
+        List<String> authorityStrings = new ArrayList<>();
+        for (GrantedAuthority authority : authorities) {
+            authorityStrings.add(authority.getAuthority());
+        }
+        local.put(userId, List.copyOf(authorityStrings));
+
+        String key = userKey(userId);
         try {
-            // 将GrantedAuthority转换为字符串列表存储
-            List<String> authorityStrings = new ArrayList<>();
-            for (GrantedAuthority authority : authorities) {
-                authorityStrings.add(authority.getAuthority());
-            }
-            
             redisTemplate.opsForValue().set(key, authorityStrings, CACHE_TTL);
-            log.debug("缓存用户权限 - userId: {}, 权限数量: {}, TTL: {}小时", 
+            log.debug("缓存用户权限 - userId: {}, 权限数量: {}, TTL: {}小时",
                     userId, authorities.size(), CACHE_TTL.toHours());
         } catch (Exception e) {
             log.warn("缓存用户权限失败 - userId: {}", userId, e);
         }
     }
-    
+
     @Override
     public void invalidateUserAuthorities(String userId) {
         if (userId == null || userId.isBlank()) {
             return;
         }
-        
-        String key = CACHE_KEY_PREFIX + userId;
-        try {
-            redisTemplate.delete(key);
-            log.debug("清除用户权限缓存 - userId: {}", userId);
-            
-            // 发布缓存失效事件（分布式环境，通知其他节点）
-            redisTemplate.convertAndSend("permission:invalidate", userId);
-        } catch (Exception e) {
-            log.warn("清除用户权限缓存失败 - userId: {}", userId, e);
-        }
+
+        evictUser(userId);
+        afterCommit(() -> evictUser(userId));
     }
-    
+
     @Override
     public void invalidateAll() {
+        local.invalidateAll();
         try {
-            String pattern = CACHE_KEY_PREFIX + "*";
-            Set<String> keys = redisTemplate.keys(pattern);
-            
-            if (keys != null && !keys.isEmpty()) {
-                redisTemplate.delete(keys);
-                log.info("清除所有权限缓存 - 共清除 {} 个缓存项", keys.size());
+            Long next = redisTemplate.opsForValue().increment(GENERATION_KEY);
+            if (next != null) {
+                generation = next;
+                generationCheckedAt = System.currentTimeMillis();
             }
+            redisTemplate.convertAndSend(INVALIDATE_CHANNEL, INVALIDATE_ALL);
+            log.info("清除所有权限缓存 - 新代号: {}", next);
         } catch (Exception e) {
             log.warn("清除所有权限缓存失败", e);
         }
     }
-    
+
     @Override
     public boolean hasRole(String userId, String roleName) {
         List<GrantedAuthority> authorities = getUserAuthorities(userId);
         if (authorities == null) {
             return false;
         }
-        
+
         String roleAuthority = "ROLE_" + roleName;
         return authorities.stream()
                 .anyMatch(auth -> auth.getAuthority().equals(roleAuthority));
     }
-    
+
     @Override
     public boolean isAdmin(String userId) {
         return hasRole(userId, "ADMIN") || hasRole(userId, "SUPER_ADMIN");
     }
-    
+
     @Override
     public boolean isSuperAdmin(String userId) {
         return hasRole(userId, "SUPER_ADMIN");
     }
-}
 
+    /**
+     * 清除本地与 Redis 中的用户条目，并通知其他节点
+     */
+    private void evictUser(String userId) {
+        local.invalidate(userId);
+        try {
+            redisTemplate.delete(userKey(userId));
+            log.debug("清除用户权限缓存 - userId: {}", userId);
+
+            // 发布缓存失效事件（分布式环境，通知其他节点）
+            redisTemplate.convertAndSend(INVALIDATE_CHANNEL, userId);
+        } catch (Exception e) {
+            log.warn("清除用户权限缓存失败 - userId: {}", userId, e);
+        }
+    }
+
+    private void onInvalidateMessage(Message message, byte[] pattern) {
+        Object payload;
+        try {
+            payload = redisTemplate.getValueSerializer().deserialize(message.getBody());
+        } catch (Exception e) {
+            log.warn("无法解析权限失效消息，清空本地缓存", e);
+            payload = INVALIDATE_ALL;
+        }
+        if (payload == null || INVALIDATE_ALL.equals(payload)) {
+            local.invalidateAll();
+            // 下次访问重新读取代号
+            generationCheckedAt = 0;
+        } else {
+            local.invalidate(payload.toString());
+        }
+    }
+
+    private String userKey(String userId) {
+        return CACHE_KEY_PREFIX + "v" + currentGeneration() + ":" + userId;
+    }
+
+    /**
+     * 全局代号，本地缓存 generation-refresh-seconds；读取失败时沿用上次的值
+     */
+    private long currentGeneration() {
+        long now = System.currentTimeMillis();
+        if (now - generationCheckedAt > generationRefreshMillis) {
+            try {
+                Object value = redisTemplate.opsForValue().get(GENERATION_KEY);
+                generation = value instanceof Number number ? number.longValue()
+                        : value != null ? Long.parseLong(value.toString()) : 0L;
+            } catch (Exception e) {
+                log.debug("读取权限缓存代号失败: {}", e.getMessage());
+            }
+            generationCheckedAt = now;
+        }
+        return generation;
+    }
+
+    private static List<GrantedAuthority> toAuthorities(List<String> authorityStrings) {
+        List<GrantedAuthority> authorities = new ArrayList<>(authorityStrings.size());
+        for (String authority : authorityStrings) {
+            authorities.add(new SimpleGrantedAuthority(authority));
+        }
+        return authorities;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        }
+    }
+}
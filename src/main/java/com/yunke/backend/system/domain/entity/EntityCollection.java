@@ -1,5 +1,6 @@
 package com.yunke.backend.system.domain.entity;
 
+import com.yunke.backend.common.viewer.ViewerRelationEntityListener;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import org.hibernate.annotations.CreationTimestamp;
@@ -12,6 +13,7 @@ import java.time.LocalDateTime;
  * 使用 entity_type 区分收藏的目标类型（POST / DOCUMENT / ...）
  */
 @Entity
+@EntityListeners(ViewerRelationEntityListener.class)
 @Table(
     name = "entity_collections",
     uniqueConstraints = {
@@ -1,5 +1,6 @@
 package com.yunke.backend.system.domain.entity;
 
+import com.yunke.backend.common.viewer.ViewerRelationEntityListener;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -12,6 +13,7 @@ import java.time.LocalDateTime;
  * 统一存储帖子/回复/文档等点赞关系，避免为每种类型建立独立表
  */
 @Entity
+@EntityListeners(ViewerRelationEntityListener.class)
 @Table(name = "entity_likes",
         uniqueConstraints = {
                 @UniqueConstraint(name = "uk_user_entity", columnNames = {"user_id", "entity_type", "entity_id"})
@@ -58,6 +58,13 @@ public class Snapshot {
     @Builder.Default
     private Integer seq = 0;
 
+    /**
+     * 已并入快照的最大更新序号，读取与压缩只处理 seq 大于该值的更新
+     */
+    @Column(name = "folded_seq", nullable = false)
+    @Builder.Default
+    private Integer foldedSeq = 0;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "created_by", referencedColumnName = "id", insertable = false, updatable = false)
     private User createdByUser;
@@ -4,8 +4,12 @@ import com.yunke.backend.system.domain.entity.EntityCollection;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -18,5 +22,14 @@ public interface EntityCollectionRepository extends JpaRepository<EntityCollecti
     void deleteByUserIdAndEntityTypeAndEntityId(String userId, String entityType, String entityId);
 
     Page<EntityCollection> findByUserIdAndEntityTypeOrderByCreatedAtDesc(String userId, String entityType, Pageable pageable);
+
+    @Query("SELECT ec.entityId FROM EntityCollection ec WHERE ec.userId = :userId AND ec.entityType = :entityType")
+    List<String> findEntityIds(@Param("userId") String userId, @Param("entityType") String entityType,
+                               Pageable pageable);
+
+    @Query("SELECT ec.entityId FROM EntityCollection ec " +
+           "WHERE ec.userId = :userId AND ec.entityType = :entityType AND ec.entityId IN :entityIds")
+    List<String> findCollectedEntityIds(@Param("userId") String userId, @Param("entityType") String entityType,
+                                        @Param("entityIds") Collection<String> entityIds);
 }
 
@@ -2,9 +2,14 @@ package com.yunke.backend.system.repository;
 
 import com.yunke.backend.system.domain.entity.EntityLike;
 import com.yunke.backend.system.domain.entity.EntityLike.EntityType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -17,5 +22,14 @@ public interface EntityLikeRepository extends JpaRepository<EntityLike, Long> {
     long countByEntityTypeAndEntityId(EntityType entityType, String entityId);
 
     void deleteByUserIdAndEntityTypeAndEntityId(String userId, EntityType entityType, String entityId);
+
+    @Query("SELECT el.entityId FROM EntityLike el WHERE el.userId = :userId AND el.entityType = :entityType")
+    List<String> findEntityIds(@Param("userId") String userId, @Param("entityType") EntityType entityType,
+                               Pageable pageable);
+
+    @Query("SELECT el.entityId FROM EntityLike el " +
+           "WHERE el.userId = :userId AND el.entityType = :entityType AND el.entityId IN :entityIds")
+    List<String> findLikedEntityIds(@Param("userId") String userId, @Param("entityType") EntityType entityType,
+                                    @Param("entityIds") Collection<String> entityIds);
 }
 
@@ -3,7 +3,9 @@ package com.yunke.backend.system.repository;
 import com.yunke.backend.system.domain.entity.Snapshot;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -22,6 +24,13 @@ public interface SnapshotRepository extends JpaRepository<Snapshot, Snapshot.Sna
      */
     Optional<Snapshot> findByWorkspaceIdAndId(String workspaceId, String id);
 
+    /**
+     * 加行锁读取快照（SELECT ... FOR UPDATE），需在事务中调用
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM Snapshot s WHERE s.workspaceId = :workspaceId AND s.id = :docId")
+    Optional<Snapshot> findForUpdate(@Param("workspaceId") String workspaceId, @Param("docId") String docId);
+
     /**
      * 检查工作空间ID和文档ID的快照是否存在
      */
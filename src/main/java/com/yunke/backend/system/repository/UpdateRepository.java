@@ -109,6 +109,14 @@ public interface UpdateRepository extends JpaRepository<Update, Update.UpdateId>
                                                         @Param("docId") String docId, 
                                                         @Param("timestamp") LocalDateTime timestamp);
 
+    /**
+     * 快照之后待合并的更新：按插入时分配的 seq 选取并排序
+     */
+    @Query("SELECT u FROM Update u WHERE u.workspaceId = :workspaceId AND u.id = :docId AND u.seq > :seq ORDER BY u.seq ASC")
+    List<Update> findByWorkspaceIdAndDocIdAfterSeq(@Param("workspaceId") String workspaceId,
+                                                   @Param("docId") String docId,
+                                                   @Param("seq") int seq);
+
     /**
      * 查找工作空间和文档的最新更新 - DatabaseDocReader需要
      */
@@ -136,7 +144,14 @@ public interface UpdateRepository extends JpaRepository<Update, Update.UpdateId>
     @Query("SELECT u FROM Update u WHERE u.workspaceId = :workspaceId AND u.id = :docId ORDER BY u.seq DESC")
     List<Update> findTopByWorkspaceIdAndIdOrderBySeqDesc(@Param("workspaceId") String workspaceId, @Param("docId") String docId);
 
-    @Query("SELECT COALESCE(MAX(u.seq), 0) FROM Update u WHERE u.workspaceId = :workspaceId AND u.id = :docId")
+    /**
+     * 文档已分配的最大更新序号：现存更新与快照已并入的序号取大。
+     * 压缩删除已并入的更新后，新序号仍从 folded_seq 之后继续，不会落到快照水位以下
+     */
+    @Query(value = "SELECT GREATEST(" +
+            "COALESCE((SELECT MAX(u.seq) FROM updates u WHERE u.workspace_id = :workspaceId AND u.id = :docId), 0), " +
+            "COALESCE((SELECT s.folded_seq FROM snapshots s WHERE s.workspace_id = :workspaceId AND s.id = :docId), 0))",
+            nativeQuery = true)
     int findMaxSeqByWorkspaceIdAndId(@Param("workspaceId") String workspaceId, @Param("docId") String docId);
     
     /**
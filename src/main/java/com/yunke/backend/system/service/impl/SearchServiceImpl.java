@@ -2,12 +2,15 @@ package com.yunke.backend.system.service.impl;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.yunke.backend.system.dto.*;
+import com.yunke.backend.search.cache.PrefixTrie;
+import com.yunke.backend.search.cache.SearchResultCache;
+import com.yunke.backend.search.cache.TitleSuggester;
 import com.yunke.backend.search.enums.SearchProviderType;
 import com.yunke.backend.search.enums.SearchTable;
+import com.yunke.backend.search.indexer.DocIndexingPipeline;
 import com.yunke.backend.search.provider.SearchProvider;
 import com.yunke.backend.security.service.PermissionService;
 import com.yunke.backend.system.service.SearchService;
-import com.yunke.backend.workspace.domain.entity.WorkspaceDoc;
 import com.yunke.backend.workspace.service.WorkspaceDocService;
 import com.yunke.backend.common.dto.PaginatedResponse;
 import com.yunke.backend.common.dto.PaginationInput;
@@ -22,6 +25,8 @@ import com.yunke.backend.security.constants.PermissionActions;
 import com.yunke.backend.security.util.PermissionUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
@@ -32,6 +37,9 @@ import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.Arrays;
 
@@ -49,6 +57,18 @@ public class SearchServiceImpl implements SearchService {
     private final PermissionService permissionService;
     private final ObjectMapper objectMapper;
     private final SearchProvider searchProvider;
+    private final DocIndexingPipeline indexingPipeline;
+    private final SearchResultCache resultCache;
+    private final TitleSuggester titleSuggester;
+
+    @Value("${search.redis.mget-chunk-size:200}")
+    private int mgetChunkSize;
+
+    @Value("${search.redis.mget-concurrency:4}")
+    private int mgetConcurrency;
+
+    @Value("${search.redis.latency-budget-ms:300}")
+    private long latencyBudgetMs;
 
     private static final String INDEX_PREFIX = "search_index:";
     private static final String DOC_PREFIX = "search_doc:";
@@ -95,7 +115,9 @@ public class SearchServiceImpl implements SearchService {
             }
             return query;
         })
-        .flatMap(q -> performSearch(q, options))
+        .flatMap(q -> resultCache.get(options.workspaceId(), "search", searchCacheKey(q, options), SearchResult.class,
+                () -> performSearch(q, options),
+                result -> !Boolean.TRUE.equals(result.aggregations().get("partial"))))
         .doOnSuccess(result -> log.debug("Search completed: {} hits", result.totalHits()))
         .doOnError(error -> log.error("Search failed", error));
     }
@@ -124,7 +146,7 @@ public class SearchServiceImpl implements SearchService {
                 String workspaceId = (String) metadata.get("workspaceId");
                 String workspaceIndexKey = workspaceId != null ? WORKSPACE_INDEX_PREFIX + workspaceId : null;
                 
-                return new IndexData(docKey, docJson, workspaceIndexKey, docId, title, content);
+                return new IndexData(docKey, docJson, workspaceId, workspaceIndexKey, docId, title, content);
             } catch (Exception e) {
                 throw new BusinessException("Failed to prepare index data", e);
             }
@@ -142,7 +164,7 @@ public class SearchServiceImpl implements SearchService {
             Mono<Void> createKeywordMono = createKeywordIndex(data.docId, data.title + " " + data.content);
             
             return Mono.when(saveDocMono, addToWorkspaceMono, createKeywordMono)
-                .thenReturn((Void) null);
+                .then(Mono.defer(() -> invalidateWorkspace(data.workspaceId, data.docId, data.title)));
         })
         .doOnSuccess(v -> log.debug("Document indexed successfully: {}", docId))
         .doOnError(error -> log.error("Failed to index document: {}", docId, error));
@@ -157,11 +179,23 @@ public class SearchServiceImpl implements SearchService {
             return docKey;
         })
         .flatMap(docKey -> 
-            Mono.when(
-                reactiveRedisTemplate.delete(docKey),
-                deleteKeywordIndex(docId)
-            )
-            .thenReturn((Void) null)
+            // 先读出所属工作空间，删除后递增其缓存纪元
+            reactiveRedisTemplate.opsForValue().get(docKey)
+                .mapNotNull(this::parseSearchDocument)
+                .mapNotNull(doc -> doc.metadata() != null ? (String) doc.metadata().get("workspaceId") : null)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(workspaceId -> Mono.when(
+                        reactiveRedisTemplate.delete(docKey),
+                        deleteKeywordIndex(docId)
+                    )
+                    .then(Mono.defer(() -> workspaceId
+                        .map(id -> {
+                            titleSuggester.onDocRemoved(id, docId);
+                            return resultCache.bumpEpoch(id).then();
+                        })
+                        .orElse(Mono.empty()))))
+                .thenReturn((Void) null)
         )
         .doOnSuccess(v -> log.debug("Document index deleted successfully: {}", docId))
         .doOnError(error -> log.error("Failed to delete document index: {}", docId, error));
@@ -194,6 +228,7 @@ public class SearchServiceImpl implements SearchService {
         })
         .then(
             reactiveRedisTemplate.delete(WORKSPACE_INDEX_PREFIX + workspaceId)
+                .then(resultCache.bumpEpoch(workspaceId))
                 .then()
         )
         .doOnSuccess(v -> log.info("Search index rebuilt successfully for workspace: {}", workspaceId))
@@ -204,136 +239,101 @@ public class SearchServiceImpl implements SearchService {
     public Mono<List<String>> getSuggestions(String query, String workspaceId) {
         log.debug("Getting search suggestions: query={}, workspace={}", query, workspaceId);
         
-        return Mono.fromCallable(() -> {
-            // 简化的建议实现 - 基于关键词匹配
-            String workspaceIndexKey = WORKSPACE_INDEX_PREFIX + workspaceId;
-            
-            return reactiveRedisTemplate.opsForSet().members(workspaceIndexKey)
-                    .cast(String.class)
-                    .flatMap(docId -> {
-                        String docKey = DOC_PREFIX + docId;
-                        return reactiveRedisTemplate.opsForValue().get(docKey);
-                    })
-                    .cast(String.class)
-                    .flatMap(docJson -> {
-                        try {
-                            SearchDocument doc = objectMapper.readValue(docJson, SearchDocument.class);
-                            return Mono.just(doc);
-                        } catch (Exception e) {
-                            return Mono.empty();
-                        }
-                    })
-                    .filter(doc -> doc.title().toLowerCase().contains(query.toLowerCase()))
-                    .map(SearchDocument::title)
-                    .distinct()
-                    .take(10)
-                    .collectList()
-                    .block();
-        })
-        .doOnSuccess(suggestions -> log.debug("Generated {} suggestions", suggestions.size()))
-        .doOnError(error -> log.error("Failed to get suggestions", error));
+        // 工作空间标题前缀树，每次输入只做一次树上查找
+        return Mono.fromCallable(() -> titleSuggester.suggest(workspaceId, query, 10).stream()
+                        .map(PrefixTrie.Entry::title)
+                        .distinct()
+                        .toList())
+                .subscribeOn(Schedulers.boundedElastic())
+                .doOnSuccess(suggestions -> log.debug("Generated {} suggestions", suggestions.size()))
+                .doOnError(error -> log.error("Failed to get suggestions", error));
     }
 
     /**
      * 执行搜索
+     *
+     * 候选文档按 mget-chunk-size 分块 MGET（有限并发），边读边打分，只在大小为 from+size 的
+     * 最小堆中保留候选，不对全部命中排序；高亮只为最终返回的命中生成。
+     * 超过 latency-budget-ms 时停止读取，返回已打分部分（aggregations.partial=true）。
      */
     private Mono<SearchResult> performSearch(String query, SearchOptions options) {
-        return Mono.fromCallable(() -> {
+        return Mono.defer(() -> {
             long startTime = System.currentTimeMillis();
+            int from = Math.max(0, options.from());
+            int size = Math.max(0, options.size());
+            AtomicBoolean partial = new AtomicBoolean();
             
-            List<String> docIds = getWorkspaceDocIds(options.workspaceId());
-            if (docIds == null || docIds.isEmpty()) {
-                return new SearchResult(List.of(), 0, 0.0, System.currentTimeMillis() - startTime, Map.of());
-            }
-            
-            List<SearchHit> hits = searchMatchingDocuments(query, docIds);
-            List<SearchHit> sortedHits = sortAndPageHits(hits, options);
-            
-            long took = System.currentTimeMillis() - startTime;
-            double maxScore = hits.stream().mapToDouble(SearchHit::score).max().orElse(0.0);
-            
-            return new SearchResult(sortedHits, hits.size(), maxScore, took, Map.of());
+            return loadDocuments(workspaceDocIds(options.workspaceId()))
+                    .doOnCancel(() -> partial.set(true))
+                    .take(Duration.ofMillis(latencyBudgetMs))
+                    .collect(() -> new TopHits(from + size), (top, doc) -> top.offer(doc, calculateScore(query, doc)))
+                    .map(top -> {
+                        List<SearchHit> hits = top.sortedDescending().stream()
+                                .skip(from)
+                                .limit(size)
+                                .map(scored -> toSearchHit(query, scored.doc(), scored.score()))
+                                .collect(Collectors.toList());
+                        long took = System.currentTimeMillis() - startTime;
+                        if (partial.get()) {
+                            log.warn("Search exceeded latency budget ({}ms), returning partial results: workspace={}, scored={}",
+                                    latencyBudgetMs, options.workspaceId(), top.scanned);
+                        }
+                        Map<String, Object> aggregations = partial.get() ? Map.of("partial", true) : Map.of();
+                        return new SearchResult(hits, top.total, top.maxScore, took, aggregations);
+                    });
         });
     }
     
     /**
-     * 获取工作空间的文档ID列表
+     * 工作空间的文档ID
      */
-    private List<String> getWorkspaceDocIds(String workspaceId) {
-        String workspaceIndexKey = WORKSPACE_INDEX_PREFIX + workspaceId;
-        return reactiveRedisTemplate.opsForSet().members(workspaceIndexKey)
-                .cast(String.class)
-                .collectList()
-                .block();
+    private Flux<String> workspaceDocIds(String workspaceId) {
+        return reactiveRedisTemplate.opsForSet().members(WORKSPACE_INDEX_PREFIX + workspaceId)
+                .cast(String.class);
     }
     
     /**
-     * 搜索匹配的文档
+     * 按固定大小分块 MGET 读取搜索文档，每块一次往返，块之间有限并发
      */
-    private List<SearchHit> searchMatchingDocuments(String query, List<String> docIds) {
-        List<SearchHit> hits = new ArrayList<>();
-        
-        for (String docId : docIds) {
-            SearchHit hit = createSearchHitIfMatches(query, docId);
-            if (hit != null) {
-                hits.add(hit);
-            }
-        }
-        
-        return hits;
+    private Flux<SearchDocument> loadDocuments(Flux<String> docIds) {
+        return docIds
+                .map(docId -> DOC_PREFIX + docId)
+                .buffer(Math.max(1, mgetChunkSize))
+                .flatMap(keys -> reactiveRedisTemplate.opsForValue().multiGet(keys)
+                                .flatMapIterable(values -> values.stream().filter(Objects::nonNull).toList()),
+                        Math.max(1, mgetConcurrency))
+                .mapNotNull(this::parseSearchDocument);
     }
     
-    /**
-     * 如果文档匹配查询，则创建 SearchHit
-     */
-    private SearchHit createSearchHitIfMatches(String query, String docId) {
-        String docKey = DOC_PREFIX + docId;
-        Object docJson = reactiveRedisTemplate.opsForValue().get(docKey).block();
-        
-        if (docJson == null) {
-            return null;
-        }
-        
+    private SearchDocument parseSearchDocument(Object docJson) {
         try {
             SearchDocument doc = objectMapper.readValue(docJson.toString(), SearchDocument.class);
-            double score = calculateScore(query, doc);
-            
-            if (score > 0) {
-                Map<String, List<String>> highlights = generateHighlights(query, doc);
-                String summary = doc.content().length() > 200 ? 
-                        doc.content().substring(0, 200) + "..." : doc.content();
-                
-                return new SearchHit(
-                        doc.id(),
-                        doc.title(),
-                        summary,
-                        doc.type(),
-                        score,
-                        doc.metadata(),
-                        highlights
-                );
+            if (doc.id() == null) {
+                return null;
             }
+            return new SearchDocument(doc.id(),
+                    doc.title() != null ? doc.title() : "",
+                    doc.content() != null ? doc.content() : "",
+                    doc.type(), doc.metadata(), doc.indexedAt());
         } catch (Exception e) {
-            log.warn("Failed to parse search document: {}", docId, e);
+            log.warn("Failed to parse search document: {}", e.getMessage());
+            return null;
         }
-        
-        return null;
     }
     
-    /**
-     * 排序和分页搜索结果
-     */
-    private List<SearchHit> sortAndPageHits(List<SearchHit> hits, SearchOptions options) {
-        // 排序结果
-        hits.sort((a, b) -> Double.compare(b.score(), a.score()));
-        
-        // 分页
-        int from = options.from();
-        int size = options.size();
-        return hits.stream()
-                .skip(from)
-                .limit(size)
-                .collect(Collectors.toList());
+    private SearchHit toSearchHit(String query, SearchDocument doc, double score) {
+        Map<String, List<String>> highlights = generateHighlights(query, doc);
+        String summary = doc.content().length() > 200 ?
+                doc.content().substring(0, 200) + "..." : doc.content();
+        return new SearchHit(
+                doc.id(),
+                doc.title(),
+                summary,
+                doc.type(),
+                score,
+                doc.metadata(),
+                highlights
+        );
     }
 
     /**
@@ -381,7 +381,7 @@ public class SearchServiceImpl implements SearchService {
         // 标题高亮
         if (doc.title().toLowerCase().contains(lowerQuery)) {
             String highlightedTitle = doc.title().replaceAll(
-                    "(?i)" + query, "<mark>" + query + "</mark>"
+                    "(?i)" + Pattern.quote(query), Matcher.quoteReplacement("<mark>" + query + "</mark>")
             );
             highlights.put("title", List.of(highlightedTitle));
         }
@@ -389,7 +389,7 @@ public class SearchServiceImpl implements SearchService {
         // 内容高亮
         if (doc.content().toLowerCase().contains(lowerQuery)) {
             String highlightedContent = doc.content().replaceAll(
-                    "(?i)" + query, "<mark>" + query + "</mark>"
+                    "(?i)" + Pattern.quote(query), Matcher.quoteReplacement("<mark>" + query + "</mark>")
             );
             // 截取包含关键词的片段
             String snippet = extractSnippet(highlightedContent, query, 200);
@@ -459,11 +459,11 @@ public class SearchServiceImpl implements SearchService {
     public Mono<SearchResultDto> advancedSearch(String workspaceId, SearchInputDto searchInput, String userId) {
         return PermissionUtils.requireWorkspacePermission(permissionService, workspaceId, userId, 
                 PermissionActions.WORKSPACE_READ,
-                () -> {
+                () -> resultCache.get(workspaceId, "advanced", searchInput, SearchResultDto.class, () -> {
                     // 添加工作空间过滤条件
                     addWorkspaceFilter(searchInput, workspaceId);
                     return searchProvider.search(searchInput.getTable(), searchInput);
-                })
+                }, result -> true))
                 .doOnSuccess(result -> 
                     addSearchHistory(userId, extractQueryText(searchInput.getQuery()), workspaceId)
                         .subscribeOn(Schedulers.boundedElastic())
@@ -476,11 +476,11 @@ public class SearchServiceImpl implements SearchService {
     public Mono<AggregateResultDto> aggregate(String workspaceId, AggregateInputDto aggregateInput, String userId) {
         return PermissionUtils.requireWorkspacePermission(permissionService, workspaceId, userId, 
                 PermissionActions.WORKSPACE_READ,
-                () -> {
+                () -> resultCache.get(workspaceId, "aggregate", aggregateInput, AggregateResultDto.class, () -> {
                     // 添加工作空间过滤条件
                     addWorkspaceFilterToAggregate(aggregateInput, workspaceId);
                     return searchProvider.aggregate(aggregateInput.getTable(), aggregateInput);
-                });
+                }, result -> true));
     }
 
     @Override
@@ -488,29 +488,16 @@ public class SearchServiceImpl implements SearchService {
         return PermissionUtils.requireWorkspacePermission(permissionService, workspaceId, userId, 
                 "Workspace.ManageIndex",
                 () -> Mono.fromCallable(() -> {
-                    log.info("Starting workspace indexing: {}", workspaceId);
-                    
-                    // 获取工作空间的所有文档
-                    List<WorkspaceDoc> docs = docService.getWorkspaceDocs(workspaceId);
-                    
-                    // 索引文档
-                    List<Map<String, Object>> docMaps = docs.stream()
-                            .map(doc -> convertDocToSearchDocument(doc, workspaceId))
-                            .collect(Collectors.toList());
-                    
-                    OperationOptionsDto options = OperationOptionsDto.builder()
-                            .refresh(true)
-                            .build();
-                    
-                    searchProvider.write(SearchTable.DOC, docMaps, options).block();
+                    // 交给索引管道分页回填（可断点续跑），不在请求线程里同步重建
+                    boolean started = indexingPipeline.startBackfill(workspaceId);
+                    log.info("Workspace backfill requested: {}, started={}", workspaceId, started);
                     
+                    long totalDocs = docService.getWorkspaceDocs(workspaceId, PageRequest.of(0, 1)).getTotalElements();
                     return IndexStatsDto.builder()
                             .workspaceId(workspaceId)
-                            .totalDocs((long) docs.size())
-                            .indexedDocs((long) docs.size())
-                            .lastIndexed(LocalDateTime.now())
-                            .isIndexing(false)
-                            .status("completed")
+                            .totalDocs(totalDocs)
+                            .isIndexing(indexingPipeline.isBackfilling(workspaceId))
+                            .status(started ? "indexing" : "already_indexing")
                             .build();
                 })
                 .subscribeOn(Schedulers.boundedElastic()));
@@ -521,21 +508,9 @@ public class SearchServiceImpl implements SearchService {
         return PermissionUtils.requireDocPermission(permissionService, workspaceId, docId, userId, 
                 PermissionActions.DOC_READ,
                 () -> Mono.fromCallable(() -> {
-                    // 获取文档详细信息 - simplified implementation
-                    WorkspaceDoc doc = new WorkspaceDoc();
-                    doc.setWorkspaceId(workspaceId);
-                    doc.setId(docId);
-                    doc.setTitle("Document " + docId);
-                    Map<String, Object> docMap = convertDocToSearchDocument(doc, workspaceId);
-                    
-                    OperationOptionsDto options = OperationOptionsDto.builder()
-                            .refresh(true)
-                            .build();
-                    
-                    searchProvider.write(SearchTable.DOC, List.of(docMap), options).block();
-                    
-                    log.info("Document indexed: {}/{}", workspaceId, docId);
-                    return null;
+                    int changed = indexingPipeline.indexDoc(workspaceId, docId);
+                    log.info("Document indexed: {}/{}, changedBlocks={}", workspaceId, docId, changed);
+                    return changed;
                 })
                 .subscribeOn(Schedulers.boundedElastic()))
                 .then();
@@ -552,7 +527,9 @@ public class SearchServiceImpl implements SearchService {
                             .build();
                     
                     return searchProvider.deleteByQuery(SearchTable.DOC, query, options)
-                            .then(searchProvider.deleteByQuery(SearchTable.BLOCK, query, options));
+                            .then(searchProvider.deleteByQuery(SearchTable.BLOCK, query, options))
+                            .then(resultCache.bumpEpoch(workspaceId))
+                            .then();
                 });
     }
 
@@ -569,8 +546,8 @@ public class SearchServiceImpl implements SearchService {
                             .totalDocs(docCount)
                             .indexedDocs(docCount)
                             .lastIndexed(LocalDateTime.now())
-                            .isIndexing(false)
-                            .status("healthy")
+                            .isIndexing(indexingPipeline.isBackfilling(workspaceId))
+                            .status(indexingPipeline.isBackfilling(workspaceId) ? "indexing" : "healthy")
                             .build();
                 })
                 .subscribeOn(Schedulers.boundedElastic()));
@@ -583,8 +560,10 @@ public class SearchServiceImpl implements SearchService {
                 () -> {
                     // 设置搜索表为BLOCK
                     searchInput.setTable(SearchTable.BLOCK);
-                    addWorkspaceFilter(searchInput, workspaceId);
-                    return searchProvider.search(SearchTable.BLOCK, searchInput);
+                    return resultCache.get(workspaceId, "blocks", searchInput, SearchResultDto.class, () -> {
+                        addWorkspaceFilter(searchInput, workspaceId);
+                        return searchProvider.search(SearchTable.BLOCK, searchInput);
+                    }, result -> true);
                 });
     }
 
@@ -592,16 +571,16 @@ public class SearchServiceImpl implements SearchService {
     public Mono<List<SearchSuggestionDto>> autoComplete(String workspaceId, String query, int limit, String userId) {
         return PermissionUtils.requireWorkspacePermission(permissionService, workspaceId, userId, 
                 PermissionActions.WORKSPACE_READ,
-                () -> getSuggestions(query, workspaceId)
-                        .map(suggestions -> suggestions.stream()
-                                .limit(limit)
-                                .map(text -> SearchSuggestionDto.builder()
-                                        .text(text)
+                () -> Mono.fromCallable(() -> titleSuggester.suggest(workspaceId, query, limit).stream()
+                                .map(entry -> SearchSuggestionDto.builder()
+                                        .text(entry.title())
                                         .type("document")
                                         .score(1.0)
-                                            .workspaceId(workspaceId)
-                                            .build())
-                                    .collect(Collectors.toList()))
+                                        .docId(entry.id())
+                                        .workspaceId(workspaceId)
+                                        .build())
+                                .collect(Collectors.toList()))
+                        .subscribeOn(Schedulers.boundedElastic())
                 );
     }
 
@@ -686,6 +665,33 @@ public class SearchServiceImpl implements SearchService {
 
     // ==================== 辅助方法 ====================
 
+    /**
+     * search 的缓存键：归一化查询 + 影响结果的选项（不含 userId，权限已在此之前校验）
+     */
+    private Map<String, Object> searchCacheKey(String query, SearchOptions options) {
+        Map<String, Object> key = new LinkedHashMap<>();
+        key.put("query", SearchResultCache.normalizeQuery(query));
+        key.put("types", options.types());
+        key.put("from", options.from());
+        key.put("size", options.size());
+        key.put("sortBy", options.sortBy());
+        key.put("sortOrder", options.sortOrder());
+        key.put("filters", options.filters());
+        key.put("highlight", options.highlight());
+        return key;
+    }
+
+    /**
+     * 单个文档索引写入后：更新标题补全并递增工作空间缓存纪元
+     */
+    private Mono<Void> invalidateWorkspace(String workspaceId, String docId, String title) {
+        if (workspaceId == null) {
+            return Mono.empty();
+        }
+        titleSuggester.onTitleChanged(workspaceId, docId, title);
+        return resultCache.bumpEpoch(workspaceId).then();
+    }
+
     private void addWorkspaceFilter(SearchInputDto searchInput, String workspaceId) {
         // 简化实现：在查询中添加工作空间过滤条件
         SearchQueryDto workspaceFilter = SearchQueryDto.builder()
@@ -747,20 +753,45 @@ public class SearchServiceImpl implements SearchService {
         return "";
     }
 
-    private Map<String, Object> convertDocToSearchDocument(WorkspaceDoc doc, String workspaceId) {
-        Map<String, Object> docMap = new HashMap<>();
-        docMap.put("id", doc.getId());
-        docMap.put("doc_id", doc.getId());
-        docMap.put("workspace_id", workspaceId);
-        docMap.put("title", doc.getTitle() != null ? doc.getTitle() : "");
-        docMap.put("summary", doc.getSummary() != null ? doc.getSummary() : "");
-        docMap.put("created_at", doc.getCreatedAt());
-        docMap.put("updated_at", doc.getUpdatedAt());
-        docMap.put("is_public", doc.getPublic() != null ? doc.getPublic() : false);
-        docMap.put("mode", doc.getMode() != null ? doc.getMode() : 0);
-        return docMap;
+    /**
+     * 流式 top-K：最小堆只保留分数最高的 capacity 个候选
+     */
+    private static final class TopHits {
+        private final int capacity;
+        private final PriorityQueue<ScoredDocument> heap;
+        private long scanned;
+        private long total;
+        private double maxScore;
+
+        TopHits(int capacity) {
+            this.capacity = capacity;
+            this.heap = new PriorityQueue<>(Math.max(1, capacity), Comparator.comparingDouble(ScoredDocument::score));
+        }
+
+        void offer(SearchDocument doc, double score) {
+            scanned++;
+            if (score <= 0) {
+                return;
+            }
+            total++;
+            maxScore = Math.max(maxScore, score);
+            if (heap.size() < capacity) {
+                heap.add(new ScoredDocument(doc, score));
+            } else if (capacity > 0 && score > heap.peek().score()) {
+                heap.poll();
+                heap.add(new ScoredDocument(doc, score));
+            }
+        }
+
+        List<ScoredDocument> sortedDescending() {
+            List<ScoredDocument> sorted = new ArrayList<>(heap);
+            sorted.sort(Comparator.comparingDouble(ScoredDocument::score).reversed());
+            return sorted;
+        }
     }
 
+    private record ScoredDocument(SearchDocument doc, double score) {}
+
     /**
      * 搜索文档内部类
      */
@@ -779,6 +810,7 @@ public class SearchServiceImpl implements SearchService {
     private record IndexData(
             String docKey,
             String docJson,
+            String workspaceId,
             String workspaceIndexKey,
             String docId,
             String title,
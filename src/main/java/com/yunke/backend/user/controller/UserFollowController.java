@@ -1,5 +1,6 @@
 package com.yunke.backend.user.controller;
 
+import com.yunke.backend.common.dto.CursorPage;
 import com.yunke.backend.user.dto.response.UserInfo;
 import com.yunke.backend.user.service.UserFollowService;
 import lombok.RequiredArgsConstructor;
@@ -13,6 +14,7 @@ import org.springframework.data.domain.Pageable;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * 用户关注控制器
@@ -152,6 +154,30 @@ public class UserFollowController {
         return ResponseEntity.ok(response);
     }
     
+    /**
+     * 游标分页获取关注列表
+     */
+    @GetMapping("/following/cursor")
+    public ResponseEntity<Map<String, Object>> getFollowingByCursor(
+            @RequestHeader("X-User-Id") String userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+
+        return cursorResponse(() -> userFollowService.getFollowing(userId, cursor, size));
+    }
+
+    /**
+     * 游标分页获取粉丝列表
+     */
+    @GetMapping("/followers/cursor")
+    public ResponseEntity<Map<String, Object>> getFollowersByCursor(
+            @RequestHeader("X-User-Id") String userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+
+        return cursorResponse(() -> userFollowService.getFollowers(userId, cursor, size));
+    }
+
     /**
      * 获取关注统计
      */
@@ -203,4 +229,18 @@ public class UserFollowController {
         
         return ResponseEntity.ok(response);
     }
+
+    private ResponseEntity<Map<String, Object>> cursorResponse(Supplier<CursorPage<UserInfo>> query) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            CursorPage<UserInfo> result = query.get();
+            response.put("success", true);
+            response.put("data", result);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.yunke.backend.user.domain.entity;
 
+import com.yunke.backend.common.viewer.ViewerRelationEntityListener;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import org.hibernate.annotations.CreationTimestamp;
@@ -12,6 +13,7 @@ import java.time.LocalDateTime;
  * 用户关注关系实体
  */
 @Entity
+@EntityListeners(ViewerRelationEntityListener.class)
 @Table(name = "user_follows")
 @Data
 @EqualsAndHashCode(callSuper = false)
@@ -1,11 +1,13 @@
 package com.yunke.backend.user.repository;
 
 import com.yunke.backend.user.domain.entity.UserFollow;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -14,6 +16,14 @@ import java.util.List;
 @Repository
 public interface UserFollowRepository extends JpaRepository<UserFollow, Long> {
 
+    /**
+     * 关注关系投影：关系ID（游标）与对端用户ID
+     */
+    interface FollowEdge {
+        Long getId();
+        String getUserId();
+    }
+
     /**
      * 根据关注者ID和被关注者ID查找关注记录
      */
@@ -67,12 +77,62 @@ public interface UserFollowRepository extends JpaRepository<UserFollow, Long> {
     @Query("SELECT uf.followingId FROM UserFollow uf WHERE uf.followerId = :followerId")
     List<String> findFollowingIdsByFollowerId(@Param("followerId") String followerId);
 
+    /**
+     * 查找用户关注的用户ID（限定条数）
+     */
+    @Query("SELECT uf.followingId FROM UserFollow uf WHERE uf.followerId = :followerId")
+    List<String> findFollowingIdsByFollowerId(@Param("followerId") String followerId, Pageable pageable);
+
+    /**
+     * 在给定用户中查找已被关注的用户ID
+     */
+    @Query("SELECT uf.followingId FROM UserFollow uf WHERE uf.followerId = :followerId AND uf.followingId IN :followingIds")
+    List<String> findFollowedIds(@Param("followerId") String followerId,
+                                 @Param("followingIds") Collection<String> followingIds);
+
     /**
      * 查找用户的所有粉丝ID
      */
     @Query("SELECT uf.followerId FROM UserFollow uf WHERE uf.followingId = :followingId")
     List<String> findFollowerIdsByFollowingId(@Param("followingId") String followingId);
 
+    /**
+     * 在给定用户中查找关注了 followingId 的用户ID
+     */
+    @Query("SELECT uf.followerId FROM UserFollow uf WHERE uf.followingId = :followingId AND uf.followerId IN :followerIds")
+    List<String> findFollowerIdsIn(@Param("followingId") String followingId,
+                                   @Param("followerIds") Collection<String> followerIds);
+
+    /**
+     * 关注列表（按关注时间倒序）
+     */
+    @Query("SELECT uf.id AS id, uf.followingId AS userId FROM UserFollow uf " +
+           "WHERE uf.followerId = :followerId ORDER BY uf.id DESC")
+    List<FollowEdge> findFollowingEdges(@Param("followerId") String followerId, Pageable pageable);
+
+    /**
+     * 关注列表游标翻页：只取关系ID小于游标的记录
+     */
+    @Query("SELECT uf.id AS id, uf.followingId AS userId FROM UserFollow uf " +
+           "WHERE uf.followerId = :followerId AND uf.id < :cursor ORDER BY uf.id DESC")
+    List<FollowEdge> findFollowingEdgesBefore(@Param("followerId") String followerId,
+                                              @Param("cursor") Long cursor, Pageable pageable);
+
+    /**
+     * 粉丝列表（按关注时间倒序）
+     */
+    @Query("SELECT uf.id AS id, uf.followerId AS userId FROM UserFollow uf " +
+           "WHERE uf.followingId = :followingId ORDER BY uf.id DESC")
+    List<FollowEdge> findFollowerEdges(@Param("followingId") String followingId, Pageable pageable);
+
+    /**
+     * 粉丝列表游标翻页：只取关系ID小于游标的记录
+     */
+    @Query("SELECT uf.id AS id, uf.followerId AS userId FROM UserFollow uf " +
+           "WHERE uf.followingId = :followingId AND uf.id < :cursor ORDER BY uf.id DESC")
+    List<FollowEdge> findFollowerEdgesBefore(@Param("followingId") String followingId,
+                                             @Param("cursor") Long cursor, Pageable pageable);
+
     /**
      * 查找互相关注的用户（双向关注）
      */
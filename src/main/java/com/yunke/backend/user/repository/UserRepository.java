@@ -9,6 +9,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,6 +19,23 @@ import java.util.Optional;
 @Repository
 public interface UserRepository extends JpaRepository<User, String> {
 
+    /**
+     * 用户卡片投影（列表展示所需字段）
+     */
+    interface UserCard {
+        String getId();
+        String getName();
+        String getEmail();
+        String getAvatarUrl();
+    }
+
+    /**
+     * 批量查询用户卡片，只读取列表展示需要的列
+     */
+    @Query("SELECT u.id AS id, u.name AS name, u.email AS email, u.avatarUrl AS avatarUrl " +
+           "FROM User u WHERE u.id IN :ids")
+    List<UserCard> findCardsByIdIn(@Param("ids") Collection<String> ids);
+
     /**
      * 根据邮箱查找用户
      */
@@ -0,0 +1,26 @@
+package com.yunke.backend.user.service;
+
+/**
+ * 关注数 / 粉丝数缓存服务
+ */
+public interface FollowCountService {
+
+    /**
+     * 获取用户的关注数
+     */
+    long getFollowingCount(String userId);
+
+    /**
+     * 获取用户的粉丝数
+     */
+    long getFollowersCount(String userId);
+
+    /**
+     * 关注关系变更后调用；在事务中调用时，提交后才更新计数
+     *
+     * @param followerId 关注者ID
+     * @param followingId 被关注者ID
+     * @param followed true 为关注，false 为取消关注
+     */
+    void onFollowChanged(String followerId, String followingId, boolean followed);
+}
@@ -1,5 +1,6 @@
 package com.yunke.backend.user.service;
 
+import com.yunke.backend.common.dto.CursorPage;
 import com.yunke.backend.user.dto.response.UserInfo;
 import com.yunke.backend.user.domain.entity.UserFollow;
 import org.springframework.data.domain.Page;
@@ -57,6 +58,28 @@ public interface UserFollowService {
      */
     Page<UserInfo> getFollowersList(String userId, Pageable pageable);
     
+    /**
+     * 游标分页获取用户的关注列表（按关注时间倒序）
+     *
+     * @param userId 用户ID
+     * @param cursor 上一页返回的 nextCursor，首页为空
+     * @param size 每页条数
+     * @return 关注的用户列表
+     * @throws IllegalArgumentException 如果游标无效
+     */
+    CursorPage<UserInfo> getFollowing(String userId, String cursor, int size);
+
+    /**
+     * 游标分页获取用户的粉丝列表（按关注时间倒序）
+     *
+     * @param userId 用户ID
+     * @param cursor 上一页返回的 nextCursor，首页为空
+     * @param size 每页条数
+     * @return 粉丝用户列表
+     * @throws IllegalArgumentException 如果游标无效
+     */
+    CursorPage<UserInfo> getFollowers(String userId, String cursor, int size);
+
     /**
      * 获取用户的关注统计
      * 
@@ -0,0 +1,144 @@
+package com.yunke.backend.user.service.impl;
+
+import com.yunke.backend.user.repository.UserFollowRepository;
+import com.yunke.backend.user.service.FollowCountService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+/**
+ * 关注数 / 粉丝数缓存服务实现
+ *
+ * 每个用户一个 Redis 哈希（following / followers 两个字段）：
+ * - 字段缺失时 COUNT 一次并写入，键带 TTL，过期后重新统计以修正漂移
+ * - 关注 / 取消关注在事务提交后对已缓存的字段 HINCRBY，未缓存的字段不创建
+ * - Redis 不可用时直接 COUNT
+ */
+@Slf4j
+@Service
+public class FollowCountServiceImpl implements FollowCountService {
+
+    private static final String KEY_PREFIX = "follow:count:";
+    private static final String FOLLOWING = "following";
+    private static final String FOLLOWERS = "followers";
+
+    /**
+     * KEYS: 计数哈希；ARGV: 字段, 值, TTL 秒
+     * 只在字段不存在时写入；键没有 TTL 时补上
+     */
+    private static final RedisScript<Long> FILL_SCRIPT = RedisScript.of(
+            "redis.call('HSETNX', KEYS[1], ARGV[1], ARGV[2]) " +
+            "if redis.call('TTL', KEYS[1]) < 0 then redis.call('EXPIRE', KEYS[1], ARGV[3]) end " +
+            "return tonumber(redis.call('HGET', KEYS[1], ARGV[1]))",
+            Long.class);
+
+    /**
+     * KEYS: 计数哈希；ARGV: 字段, 增量
+     * 字段已缓存时才累加，结果不低于 0
+     */
+    private static final RedisScript<Long> INCREMENT_SCRIPT = RedisScript.of(
+            "if redis.call('HEXISTS', KEYS[1], ARGV[1]) == 0 then return nil end " +
+            "local value = redis.call('HINCRBY', KEYS[1], ARGV[1], ARGV[2]) " +
+            "if value < 0 then redis.call('HSET', KEYS[1], ARGV[1], 0) return 0 end " +
+            "return value",
+            Long.class);
+
+    private final UserFollowRepository userFollowRepository;
+    private final StringRedisTemplate redisTemplate;
+    private final long ttlSeconds;
+
+    public FollowCountServiceImpl(
+            UserFollowRepository userFollowRepository,
+            StringRedisTemplate redisTemplate,
+            @Value("${follow.count.ttl-seconds:3600}") long ttlSeconds) {
+        this.userFollowRepository = userFollowRepository;
+        this.redisTemplate = redisTemplate;
+        this.ttlSeconds = ttlSeconds;
+    }
+
+    @Override
+    public long getFollowingCount(String userId) {
+        return get(userId, FOLLOWING);
+    }
+
+    @Override
+    public long getFollowersCount(String userId) {
+        return get(userId, FOLLOWERS);
+    }
+
+    @Override
+    public void onFollowChanged(String followerId, String followingId, boolean followed) {
+        long delta = followed ? 1 : -1;
+        afterCommit(() -> {
+            increment(followerId, FOLLOWING, delta);
+            increment(followingId, FOLLOWERS, delta);
+        });
+    }
+
+    private long get(String userId, String field) {
+        if (userId == null) {
+            return 0;
+        }
+        String key = KEY_PREFIX + userId;
+        try {
+            Object cached = redisTemplate.opsForHash().get(key, field);
+            if (cached != null) {
+                return Long.parseLong(cached.toString());
+            }
+        } catch (Exception e) {
+            log.warn("读取关注计数缓存失败 - userId: {}, field: {}", userId, field, e);
+            return count(userId, field);
+        }
+
+        long counted = count(userId, field);
+        try {
+            redisTemplate.execute(FILL_SCRIPT, List.of(key), field, String.valueOf(counted), String.valueOf(ttlSeconds));
+        } catch (Exception e) {
+            log.warn("写入关注计数缓存失败 - userId: {}, field: {}", userId, field, e);
+        }
+        return counted;
+    }
+
+    private long count(String userId, String field) {
+        Long value = FOLLOWING.equals(field)
+                ? userFollowRepository.countByFollowerId(userId)
+                : userFollowRepository.countByFollowingId(userId);
+        return value != null ? value : 0;
+    }
+
+    private void increment(String userId, String field, long delta) {
+        if (userId == null) {
+            return;
+        }
+        String key = KEY_PREFIX + userId;
+        try {
+            redisTemplate.execute(INCREMENT_SCRIPT, List.of(key), field, String.valueOf(delta));
+        } catch (Exception e) {
+            log.warn("更新关注计数缓存失败，删除缓存 - userId: {}", userId, e);
+            try {
+                redisTemplate.delete(key);
+            } catch (Exception ignored) {
+                // Redis 不可用时依赖 TTL 修正
+            }
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
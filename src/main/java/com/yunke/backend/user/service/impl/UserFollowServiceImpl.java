@@ -1,16 +1,22 @@
 package com.yunke.backend.user.service.impl;
 
+import com.yunke.backend.common.dto.CursorPage;
+import com.yunke.backend.common.viewer.ViewerRelation;
+import com.yunke.backend.common.viewer.ViewerStateService;
+import com.yunke.backend.community.service.ActivityFeedService;
 import com.yunke.backend.user.dto.response.UserInfo;
 import com.yunke.backend.user.domain.entity.User;
 import com.yunke.backend.user.domain.entity.UserFollow;
 import com.yunke.backend.user.repository.UserFollowRepository;
 import com.yunke.backend.user.repository.UserRepository;
 import com.yunke.backend.notification.service.NotificationService;
+import com.yunke.backend.user.service.FollowCountService;
 import com.yunke.backend.user.service.UserFollowService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -18,8 +24,11 @@ import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * 用户关注服务实现类
@@ -29,9 +38,16 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class UserFollowServiceImpl implements UserFollowService {
 
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int INTERSECT_BATCH_SIZE = 500;
+
     private final UserFollowRepository userFollowRepository;
     private final NotificationService notificationService;
     private final UserRepository userRepository;
+    private final FollowCountService followCountService;
+    private final ViewerStateService viewerStateService;
+    private final ActivityFeedService activityFeedService;
     
     @Override
     @Transactional(rollbackFor = Exception.class)
@@ -52,6 +68,8 @@ public class UserFollowServiceImpl implements UserFollowService {
         userFollow.setCreatedAt(LocalDateTime.now());
 
         userFollowRepository.save(userFollow);
+        followCountService.onFollowChanged(followerId, followingId, true);
+        activityFeedService.onFollowChanged(followerId);
         log.info("用户 {} 关注了用户 {}", followerId, followingId);
 
         User follower = userRepository.findById(followerId).orElse(null);
@@ -74,6 +92,8 @@ public class UserFollowServiceImpl implements UserFollowService {
 
         // 删除关注记录
         userFollowRepository.deleteByFollowerIdAndFollowingId(followerId, followingId);
+        followCountService.onFollowChanged(followerId, followingId, false);
+        activityFeedService.onFollowChanged(followerId);
         log.info("用户 {} 取消关注了用户 {}", followerId, followingId);
     }
     
@@ -85,90 +105,148 @@ public class UserFollowServiceImpl implements UserFollowService {
     @Override
     public Page<UserInfo> getFollowingList(String userId, Pageable pageable) {
         try {
-            List<String> followingIds = userFollowRepository.findFollowingIdsByFollowerId(userId);
-
-            List<UserInfo> userInfos = new ArrayList<>();
-            int start = (int) pageable.getOffset();
-            int end = Math.min(start + pageable.getPageSize(), followingIds.size());
-
-            if (start < followingIds.size()) {
-                List<String> pageUserIds = followingIds.subList(start, end);
-                for (String followingId : pageUserIds) {
-                    User user = userRepository.findById(followingId).orElse(null);
-                    if (user != null) {
-                        UserInfo userInfo = new UserInfo();
-                        userInfo.setId(user.getId());
-                        userInfo.setNickname(user.getName());
-                        userInfo.setEmail(user.getEmail());
-                        userInfo.setAvatar(user.getAvatarUrl() != null ? user.getAvatarUrl() : "/avatars/default.png");
-                        userInfos.add(userInfo);
-                    }
-                }
-            }
-
-            return new PageImpl<>(userInfos, pageable, followingIds.size());
+            List<UserFollowRepository.FollowEdge> edges = userFollowRepository.findFollowingEdges(userId, pageable);
+            return new PageImpl<>(toUserInfos(edges), pageable, followCountService.getFollowingCount(userId));
         } catch (Exception e) {
             log.error("获取关注列表失败", e);
             return new PageImpl<>(new ArrayList<>(), pageable, 0);
         }
     }
-    
+
     @Override
     public Page<UserInfo> getFollowersList(String userId, Pageable pageable) {
         try {
-            List<String> followerIds = userFollowRepository.findFollowerIdsByFollowingId(userId);
-
-            List<UserInfo> userInfos = new ArrayList<>();
-            int start = (int) pageable.getOffset();
-            int end = Math.min(start + pageable.getPageSize(), followerIds.size());
-
-            if (start < followerIds.size()) {
-                List<String> pageUserIds = followerIds.subList(start, end);
-                for (String followerId : pageUserIds) {
-                    User user = userRepository.findById(followerId).orElse(null);
-                    if (user != null) {
-                        UserInfo userInfo = new UserInfo();
-                        userInfo.setId(user.getId());
-                        userInfo.setNickname(user.getName());
-                        userInfo.setEmail(user.getEmail());
-                        userInfo.setAvatar(user.getAvatarUrl() != null ? user.getAvatarUrl() : "/avatars/default.png");
-                        userInfos.add(userInfo);
-                    }
-                }
-            }
-
-            return new PageImpl<>(userInfos, pageable, followerIds.size());
+            List<UserFollowRepository.FollowEdge> edges = userFollowRepository.findFollowerEdges(userId, pageable);
+            return new PageImpl<>(toUserInfos(edges), pageable, followCountService.getFollowersCount(userId));
         } catch (Exception e) {
             log.error("获取粉丝列表失败", e);
             return new PageImpl<>(new ArrayList<>(), pageable, 0);
         }
     }
-    
+
     @Override
-    public FollowStats getFollowStats(String userId) {
-        Long followingCount = userFollowRepository.countByFollowerId(userId);
-        Long followersCount = userFollowRepository.countByFollowingId(userId);
+    public CursorPage<UserInfo> getFollowing(String userId, String cursor, int size) {
+        Long before = parseCursor(cursor);
+        int limit = clampSize(size);
+        Pageable probe = PageRequest.of(0, limit + 1);
+        List<UserFollowRepository.FollowEdge> edges = before == null
+                ? userFollowRepository.findFollowingEdges(userId, probe)
+                : userFollowRepository.findFollowingEdgesBefore(userId, before, probe);
+        return toCursorPage(edges, limit);
+    }
+
+    @Override
+    public CursorPage<UserInfo> getFollowers(String userId, String cursor, int size) {
+        Long before = parseCursor(cursor);
+        int limit = clampSize(size);
+        Pageable probe = PageRequest.of(0, limit + 1);
+        List<UserFollowRepository.FollowEdge> edges = before == null
+                ? userFollowRepository.findFollowerEdges(userId, probe)
+                : userFollowRepository.findFollowerEdgesBefore(userId, before, probe);
+        return toCursorPage(edges, limit);
+    }
 
+    @Override
+    public FollowStats getFollowStats(String userId) {
         return new FollowStats(
-            followingCount != null ? followingCount.intValue() : 0,
-            followersCount != null ? followersCount.intValue() : 0
+            (int) followCountService.getFollowingCount(userId),
+            (int) followCountService.getFollowersCount(userId)
         );
     }
-    
+
+    /**
+     * 互相关注 = 关注集合 ∩ 粉丝集合
+     * 只加载较小的一侧，再按批用 IN 查询到另一侧探测，代价与较小集合成正比
+     */
     @Override
     public List<String> getMutualFollows(String userId) {
-        return userFollowRepository.findMutualFollows(userId);
+        boolean probeFollowers = followCountService.getFollowingCount(userId)
+                <= followCountService.getFollowersCount(userId);
+        List<String> smaller = probeFollowers
+                ? userFollowRepository.findFollowingIdsByFollowerId(userId)
+                : userFollowRepository.findFollowerIdsByFollowingId(userId);
+
+        List<String> mutual = new ArrayList<>();
+        for (int from = 0; from < smaller.size(); from += INTERSECT_BATCH_SIZE) {
+            List<String> batch = smaller.subList(from, Math.min(from + INTERSECT_BATCH_SIZE, smaller.size()));
+            Set<String> matched = new HashSet<>(probeFollowers
+                    ? userFollowRepository.findFollowerIdsIn(userId, batch)
+                    : userFollowRepository.findFollowedIds(userId, batch));
+            for (String id : batch) {
+                if (matched.contains(id)) {
+                    mutual.add(id);
+                }
+            }
+        }
+        return mutual;
     }
-    
+
     @Override
     public Map<String, Boolean> batchCheckFollowStatus(String followerId, List<String> followingIds) {
         Map<String, Boolean> result = new HashMap<>();
+        if (followingIds == null || followingIds.isEmpty()) {
+            return result;
+        }
 
+        Set<String> followed = viewerStateService.resolve(ViewerRelation.AUTHOR_FOLLOW, followerId, followingIds);
         for (String followingId : followingIds) {
-            boolean isFollowing = userFollowRepository.existsByFollowerIdAndFollowingId(followerId, followingId);
-            result.put(followingId, isFollowing);
+            result.put(followingId, followed.contains(followingId));
         }
 
         return result;
     }
+
+    /**
+     * 按关系顺序组装用户信息，用户资料一次批量查询
+     */
+    private List<UserInfo> toUserInfos(List<UserFollowRepository.FollowEdge> edges) {
+        if (edges.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<String> userIds = edges.stream().map(UserFollowRepository.FollowEdge::getUserId).toList();
+        Map<String, UserRepository.UserCard> cards = userRepository.findCardsByIdIn(userIds).stream()
+                .collect(Collectors.toMap(UserRepository.UserCard::getId, card -> card, (a, b) -> a));
+
+        List<UserInfo> userInfos = new ArrayList<>(edges.size());
+        for (String userId : userIds) {
+            UserRepository.UserCard card = cards.get(userId);
+            if (card != null) {
+                UserInfo userInfo = new UserInfo();
+                userInfo.setId(card.getId());
+                userInfo.setNickname(card.getName());
+                userInfo.setEmail(card.getEmail());
+                userInfo.setAvatar(card.getAvatarUrl() != null ? card.getAvatarUrl() : "/avatars/default.png");
+                userInfos.add(userInfo);
+            }
+        }
+        return userInfos;
+    }
+
+    /**
+     * 多取一条判断是否还有下一页，游标为本页最后一条关系的ID
+     */
+    private CursorPage<UserInfo> toCursorPage(List<UserFollowRepository.FollowEdge> edges, int limit) {
+        if (edges.isEmpty()) {
+            return CursorPage.empty();
+        }
+        boolean hasMore = edges.size() > limit;
+        List<UserFollowRepository.FollowEdge> page = hasMore ? edges.subList(0, limit) : edges;
+        String nextCursor = hasMore ? String.valueOf(page.get(page.size() - 1).getId()) : null;
+        return CursorPage.of(toUserInfos(page), nextCursor);
+    }
+
+    private static Long parseCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(cursor.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("无效的游标: " + cursor);
+        }
+    }
+
+    private static int clampSize(int size) {
+        return size <= 0 ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
+    }
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package com.yunke.backend.workspace.domain.entity;
 
 import com.yunke.backend.community.enums.CommunityPermission;
+import com.yunke.backend.security.service.permission.PermissionEntityListener;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -14,6 +15,7 @@ import java.time.ZoneId;
 
 @Entity
 @Table(name = "workspace_pages")
+@EntityListeners(PermissionEntityListener.class)
 @IdClass(WorkspaceDoc.WorkspaceDocId.class)
 @Data
 @Builder
@@ -9,11 +9,13 @@ import org.hibernate.annotations.CreationTimestamp;
 
 import java.io.Serializable;
 import java.time.LocalDateTime;
+import com.yunke.backend.security.service.permission.PermissionEntityListener;
 import com.yunke.backend.user.domain.entity.User;
 import com.yunke.backend.workspace.domain.entity.Workspace;
 
 @Entity
 @Table(name = "workspace_page_user_permissions")
+@EntityListeners(PermissionEntityListener.class)
 @IdClass(WorkspaceDocUserRole.WorkspaceDocUserRoleId.class)
 @Data
 @Builder
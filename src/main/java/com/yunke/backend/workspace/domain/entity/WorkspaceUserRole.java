@@ -8,6 +8,7 @@ import lombok.Builder;
 import jakarta.persistence.*;
 import java.time.Instant;
 import java.util.UUID;
+import com.yunke.backend.security.service.permission.PermissionEntityListener;
 import com.yunke.backend.user.domain.entity.User;
 import com.yunke.backend.workspace.domain.entity.Workspace;
 
@@ -16,6 +17,7 @@ import com.yunke.backend.workspace.domain.entity.Workspace;
  */
 @Entity
 @Table(name = "workspace_user_roles")
+@EntityListeners(PermissionEntityListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -42,6 +42,17 @@ public interface WorkspaceDocUserRoleRepository extends JpaRepository<WorkspaceD
      */
     List<WorkspaceDocUserRole> findByWorkspaceIdAndUserId(String workspaceId, String userId);
 
+    /**
+     * 一次查询取回用户在工作空间中的角色与全部文档授权
+     * 角色行：[null, 角色名, null]；授权行：[文档ID, null, 权限掩码]
+     */
+    @Query(value = "SELECT NULL AS page_id, r.type AS role, NULL AS permission_mask FROM workspace_user_roles r " +
+           "WHERE r.workspace_id = :workspaceId AND r.user_id = :userId AND r.status = 'ACCEPTED' " +
+           "UNION ALL " +
+           "SELECT p.page_id, NULL, p.permission_mask FROM workspace_page_user_permissions p " +
+           "WHERE p.workspace_id = :workspaceId AND p.user_id = :userId", nativeQuery = true)
+    List<Object[]> findUserPermissionRows(@Param("workspaceId") String workspaceId, @Param("userId") String userId);
+
     /**
      * 根据工作空间ID查找所有文档权限
      */
@@ -0,0 +1,6 @@
+-- 关注列表按关系ID倒序游标翻页
+-- 粉丝列表使用 idx_following（InnoDB 二级索引隐含主键，等价于 following_id, id）
+-- 关注列表此前只有 uk_follower_following (follower_id, following_id)（见 community_full_schema.sql），
+-- 按 id 排序需要对该用户的全部关注做 filesort，游标翻页无法走索引范围扫描
+ALTER TABLE `user_follows`
+ADD INDEX `idx_follower_id_id` (`follower_id`, `id`);
@@ -0,0 +1,7 @@
+-- 快照已并入的更新序号
+-- 读取与压缩按 updates.seq > snapshots.folded_seq 选取待合并更新，取代按 created_at 比较：
+-- created_at 在应用层提交前生成，晚提交的更新可能早于已前移的 updated_at 而永远不被读取
+-- 现有快照从 0 开始：剩余更新会被重新合并一次（Yjs 合并幂等），之后由压缩任务并入
+
+ALTER TABLE `snapshots`
+ADD COLUMN `folded_seq` INT NOT NULL DEFAULT 0 COMMENT '已并入快照的最大更新序号';
@@ -0,0 +1,79 @@
+package com.yunke.backend.common.counter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 计数缓冲：刷新期间读取不回退、失败重试、并发累加与刷新不丢增量
+ */
+class CounterBufferTest {
+
+    @Test
+    void drainedDeltasStayPendingUntilCompleted() {
+        CounterBuffer buffer = new CounterBuffer(4);
+        buffer.add("p1", 3);
+        buffer.add("p2", 1);
+        buffer.add("p2", -1);
+
+        Map<String, Long> drained = buffer.drain();
+        assertThat(drained).containsOnly(Map.entry("p1", 3L));
+
+        buffer.add("p1", 2);
+        assertThat(buffer.pending("p1")).isEqualTo(5);
+
+        buffer.complete(true);
+        assertThat(buffer.pending("p1")).isEqualTo(2);
+        assertThat(buffer.drain()).containsOnly(Map.entry("p1", 2L));
+    }
+
+    @Test
+    void failedFlushIsRetried() {
+        CounterBuffer buffer = new CounterBuffer(4);
+        buffer.add("p1", 3);
+
+        buffer.drain();
+        buffer.add("p1", 1);
+        buffer.complete(false);
+
+        assertThat(buffer.pending("p1")).isEqualTo(4);
+        assertThat(buffer.drain()).containsOnly(Map.entry("p1", 4L));
+    }
+
+    @Test
+    void concurrentAddsAreNeverLostAcrossFlushes() throws Exception {
+        CounterBuffer buffer = new CounterBuffer(2);
+        int threads = 4;
+        int perThread = 50_000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            pool.execute(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    buffer.add("hot", 1);
+                }
+                done.countDown();
+            });
+        }
+
+        AtomicLong flushed = new AtomicLong();
+        while (done.getCount() > 0) {
+            flushed.addAndGet(buffer.drain().getOrDefault("hot", 0L));
+            buffer.complete(true);
+        }
+        flushed.addAndGet(buffer.drain().getOrDefault("hot", 0L));
+        buffer.complete(true);
+        pool.shutdown();
+        assertThat(pool.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(flushed.get()).isEqualTo((long) threads * perThread);
+        assertThat(buffer.size()).isZero();
+    }
+}
@@ -0,0 +1,116 @@
+package com.yunke.backend.common.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 多节点模拟：节点加入/离开时的键迁移量、分布均衡度与有界负载
+ */
+class ConsistentHashRingTest {
+
+    private static final int KEYS = 50_000;
+
+    @Test
+    void distributesKeysEvenly() {
+        ConsistentHashRing<String> ring = ringOf(8);
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            counts.merge(ring.primary(docKey(i)), 1, Integer::sum);
+        }
+
+        double average = (double) KEYS / 8;
+        assertThat(counts).hasSize(8);
+        assertThat(counts.values()).allSatisfy(count ->
+                assertThat(count).isBetween((int) (average * 0.8), (int) (average * 1.2)));
+    }
+
+    @Test
+    void nodeJoinOnlyMovesKeysToNewNode() {
+        ConsistentHashRing<String> ring = ringOf(8);
+        Map<String, String> before = assign(ring);
+
+        ring.add("node-8");
+        Map<String, String> after = assign(ring);
+
+        int moved = 0;
+        for (Map.Entry<String, String> entry : before.entrySet()) {
+            String owner = after.get(entry.getKey());
+            if (!owner.equals(entry.getValue())) {
+                assertThat(owner).isEqualTo("node-8");
+                moved++;
+            }
+        }
+        assertThat((double) moved / KEYS).isBetween(0.08, 0.15);
+    }
+
+    @Test
+    void nodeLeaveOnlyMovesKeysOfLeavingNode() {
+        ConsistentHashRing<String> ring = ringOf(8);
+        Map<String, String> before = assign(ring);
+
+        ring.remove("node-3");
+        Map<String, String> after = assign(ring);
+
+        for (Map.Entry<String, String> entry : before.entrySet()) {
+            if (!entry.getValue().equals("node-3")) {
+                assertThat(after.get(entry.getKey())).isEqualTo(entry.getValue());
+            } else {
+                assertThat(after.get(entry.getKey())).isNotEqualTo("node-3");
+            }
+        }
+        assertThat(ring.nodes()).doesNotContain("node-3").hasSize(7);
+    }
+
+    @Test
+    void boundedLoadCapsEveryNode() {
+        ConsistentHashRing<String> ring = ringOf(5);
+        Map<String, Integer> load = new HashMap<>();
+        // 热点：大量请求集中在少数文档上
+        for (int i = 0; i < 10_000; i++) {
+            String key = docKey(i % 7);
+            String node = ring.route(key, n -> load.getOrDefault(n, 0), n -> true);
+            load.merge(node, 1, Integer::sum);
+        }
+
+        int capacity = (int) Math.ceil(1.25 * 10_000 / 5);
+        assertThat(load.values()).allSatisfy(count -> assertThat(count).isLessThanOrEqualTo(capacity));
+    }
+
+    @Test
+    void routeSkipsUnavailableNodesInRingOrder() {
+        ConsistentHashRing<String> ring = ringOf(4);
+        String key = docKey(42);
+        String owner = ring.primary(key);
+
+        String fallback = ring.route(key, n -> 0, n -> !n.equals(owner));
+        assertThat(fallback).isNotNull().isNotEqualTo(owner);
+        // 所有者离开后，键落到顺时针的下一个节点，即此前的回退节点
+        ring.remove(owner);
+        assertThat(ring.primary(key)).isEqualTo(fallback);
+
+        assertThat(ring.route(key, n -> 0, n -> false)).isNull();
+        assertThat(new ConsistentHashRing<String>(16, 1.25).primary(key)).isNull();
+    }
+
+    private static ConsistentHashRing<String> ringOf(int nodes) {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<>(160, 1.25);
+        ring.reset(java.util.stream.IntStream.range(0, nodes).mapToObj(i -> "node-" + i).toList());
+        return ring;
+    }
+
+    private static Map<String, String> assign(ConsistentHashRing<String> ring) {
+        Map<String, String> owners = new HashMap<>(KEYS * 2);
+        for (int i = 0; i < KEYS; i++) {
+            owners.put(docKey(i), ring.primary(docKey(i)));
+        }
+        return owners;
+    }
+
+    private static String docKey(int i) {
+        return "workspace-" + (i % 97) + ":doc-" + i;
+    }
+}
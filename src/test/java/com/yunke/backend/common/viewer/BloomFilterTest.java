@@ -0,0 +1,38 @@
+package com.yunke.backend.common.viewer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 布隆过滤器：无假阴性，误判率接近配置值
+ */
+class BloomFilterTest {
+
+    @Test
+    void addedIdsAreAlwaysReported() {
+        BloomFilter bloom = new BloomFilter(5_000, 0.01);
+        for (int i = 0; i < 5_000; i++) {
+            bloom.add("doc-" + i);
+        }
+        for (int i = 0; i < 5_000; i++) {
+            assertThat(bloom.mightContain("doc-" + i)).isTrue();
+        }
+    }
+
+    @Test
+    void falsePositiveRateStaysNearTarget() {
+        BloomFilter bloom = new BloomFilter(5_000, 0.01);
+        for (int i = 0; i < 5_000; i++) {
+            bloom.add("doc-" + i);
+        }
+        int falsePositives = 0;
+        int probes = 50_000;
+        for (int i = 0; i < probes; i++) {
+            if (bloom.mightContain("other-" + i)) {
+                falsePositives++;
+            }
+        }
+        assertThat((double) falsePositives / probes).isLessThan(0.03);
+    }
+}
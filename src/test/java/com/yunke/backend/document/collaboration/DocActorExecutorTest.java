@@ -0,0 +1,66 @@
+package com.yunke.backend.document.collaboration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DocActorExecutorTest {
+
+    private final DocActorExecutor executor = new DocActorExecutor(4, 64);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void coalescesQueuedItemsBehindARunningTask() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<List<Integer>> batches = new ArrayList<>();
+        DocActorExecutor.Coalescer<Integer, Integer> coalescer = batch -> {
+            batches.add(List.copyOf(batch));
+            return batch.stream().map(i -> i * 10).toList();
+        };
+
+        CompletableFuture<Object> blocker = executor.submit("ws:doc", () -> release.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Integer> first = executor.submitCoalescing("ws:doc", 1, coalescer);
+        CompletableFuture<Integer> second = executor.submitCoalescing("ws:doc", 2, coalescer);
+        CompletableFuture<Integer> third = executor.submitCoalescing("ws:doc", 3, coalescer);
+        release.countDown();
+
+        assertThat(blocker.get(5, TimeUnit.SECONDS)).isEqualTo(true);
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo(10);
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo(20);
+        assertThat(third.get(5, TimeUnit.SECONDS)).isEqualTo(30);
+        assertThat(batches).containsExactly(List.of(1, 2, 3));
+    }
+
+    @Test
+    void rejectsWhenMailboxIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        executor.submit("ws:doc", () -> release.await(5, TimeUnit.SECONDS));
+        // 等待首个任务出队开始执行
+        while (executor.queueDepth("ws:doc") > 0) {
+            Thread.sleep(1);
+        }
+        for (int i = 0; i < 4; i++) {
+            executor.submit("ws:doc", () -> null);
+        }
+
+        CompletableFuture<Object> overflow = executor.submit("ws:doc", () -> null);
+        release.countDown();
+
+        assertThatThrownBy(() -> overflow.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(DocActorExecutor.MailboxFullException.class);
+        // 其他文档不受影响
+        assertThat(executor.submit("ws:other", () -> "ok").get(5, TimeUnit.SECONDS)).isEqualTo("ok");
+    }
+}
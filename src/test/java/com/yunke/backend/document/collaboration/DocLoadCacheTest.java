@@ -0,0 +1,71 @@
+package com.yunke.backend.document.collaboration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * 加载缓存失效：本地立即生效，跨节点广播按周期合并
+ */
+@ExtendWith(MockitoExtension.class)
+class DocLoadCacheTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private RedisMessageListenerContainer listenerContainer;
+
+    private DocLoadCache cache;
+
+    @BeforeEach
+    void setUp() {
+        // 广播周期足够长，由测试手动触发
+        cache = new DocLoadCache(redisTemplate, listenerContainer, 1 << 20, 30, 4, Long.MAX_VALUE / 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cache.shutdown();
+    }
+
+    @Test
+    void invalidatesLocallyWithoutPublishing() {
+        cache.get("ws", "doc", () -> cache.newEntry(new byte[]{1}, new byte[]{2}, 1L));
+
+        cache.invalidate("ws", "doc");
+
+        DocLoadCache.Entry reloaded = cache.get("ws", "doc", () -> cache.newEntry(new byte[]{3}, new byte[]{4}, 2L));
+        assertThat(reloaded.timestamp()).isEqualTo(2L);
+        verify(redisTemplate, never()).convertAndSend(anyString(), anyString());
+    }
+
+    @Test
+    void coalescesRepeatedWritesIntoOneBroadcast() {
+        for (int i = 0; i < 100; i++) {
+            cache.invalidate("ws", "doc-a");
+        }
+        cache.invalidate("ws", "doc-b");
+
+        cache.broadcastPending();
+        cache.broadcastPending();
+
+        ArgumentCaptor<String> payload = ArgumentCaptor.forClass(String.class);
+        verify(redisTemplate, times(1)).convertAndSend(eq("doc:load:invalidate"), payload.capture());
+        String keys = payload.getValue().substring(payload.getValue().indexOf('|') + 1);
+        assertThat(keys.split("\n")).containsExactlyInAnyOrder("ws:doc-a", "ws:doc-b");
+    }
+}
@@ -0,0 +1,91 @@
+package com.yunke.backend.document.crdt.yjs;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 增量结构体存储与 mergeUpdates 的一致性测试
+ */
+class YjsStructStoreTest {
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    static Stream<Arguments> mergeCases() throws Exception {
+        try (InputStream in = YjsStructStoreTest.class.getResourceAsStream("/yjs/golden-v1.json")) {
+            JsonNode root = new ObjectMapper().readTree(in);
+            List<Arguments> cases = new ArrayList<>();
+            root.forEach(node -> {
+                if ("merge".equals(node.get("op").asText())) {
+                    cases.add(Arguments.of(node.get("name").asText(), node));
+                }
+            });
+            return cases.stream();
+        }
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("mergeCases")
+    void incrementalApplyMatchesMerge(String name, JsonNode golden) {
+        List<byte[]> inputs = new ArrayList<>();
+        golden.get("inputs").forEach(input -> inputs.add(HEX.parseHex(input.asText())));
+
+        YjsStructStore store = new YjsStructStore();
+        inputs.forEach(store::applyUpdate);
+
+        byte[] merged = YjsUpdates.mergeUpdates(inputs);
+        assertThat(HEX.formatHex(store.encode())).isEqualTo(HEX.formatHex(merged));
+        assertThat(HEX.formatHex(store.encodeStateVector()))
+            .isEqualTo(HEX.formatHex(YjsUpdates.encodeStateVectorFromUpdate(merged)));
+    }
+
+    @Test
+    void reapplyingEncodedStoreIsIdempotent() throws Exception {
+        Arguments first = mergeCases().findFirst().orElseThrow();
+        JsonNode golden = (JsonNode) first.get()[1];
+        YjsStructStore store = new YjsStructStore();
+        golden.get("inputs").forEach(input -> store.applyUpdate(HEX.parseHex(input.asText())));
+
+        byte[] encoded = store.encode();
+        Map<Long, Long> stateVector = store.stateVector();
+        long size = store.approximateSize();
+        store.applyUpdate(encoded);
+
+        assertThat(store.encode()).isEqualTo(encoded);
+        assertThat(store.stateVector()).isEqualTo(stateVector);
+        assertThat(store.approximateSize()).isEqualTo(size);
+    }
+
+    @Test
+    void truncatedUpdateLeavesStoreUnchanged() throws Exception {
+        List<byte[]> inputs = new ArrayList<>();
+        JsonNode golden = (JsonNode) mergeCases().findFirst().orElseThrow().get()[1];
+        golden.get("inputs").forEach(input -> inputs.add(HEX.parseHex(input.asText())));
+        YjsStructStore store = new YjsStructStore();
+        store.applyUpdate(inputs.get(0));
+        byte[] encoded = store.encode();
+        long size = store.approximateSize();
+
+        byte[] other = inputs.get(inputs.size() - 1);
+        byte[] truncated = Arrays.copyOf(other, other.length - 2);
+        assertThatThrownBy(() -> store.applyUpdate(truncated)).isInstanceOf(RuntimeException.class);
+
+        assertThat(store.encode()).isEqualTo(encoded);
+        assertThat(store.approximateSize()).isEqualTo(size);
+        assertThat(store.appliedUpdates()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,53 @@
+package com.yunke.backend.document.crdt.yjs;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Yjs v1 编解码一致性测试
+ *
+ * golden-v1.json 中每个用例给出输入更新与 Y.mergeUpdates / Y.diffUpdate /
+ * Y.encodeStateVectorFromUpdate 的期望输出（十六进制）。
+ * 期望输出由 scripts/yjs-golden/generate.mjs 调用 yjs 13.6 计算（npm run generate 重写，npm run check 只比对）；
+ * 当前文件中的期望值仍是按 Yjs v1 编码规则手工构造的，用脚本重新生成并通过本测试前 yjs.engine 默认保持 remote。
+ */
+class YjsUpdatesGoldenTest {
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    static Stream<Arguments> goldenCases() throws Exception {
+        try (InputStream in = YjsUpdatesGoldenTest.class.getResourceAsStream("/yjs/golden-v1.json")) {
+            JsonNode root = new ObjectMapper().readTree(in);
+            List<Arguments> cases = new ArrayList<>();
+            root.forEach(node -> cases.add(Arguments.of(node.get("name").asText(), node)));
+            return cases.stream();
+        }
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("goldenCases")
+    void matchesYjsOutput(String name, JsonNode golden) {
+        List<byte[]> inputs = new ArrayList<>();
+        golden.get("inputs").forEach(input -> inputs.add(HEX.parseHex(input.asText())));
+
+        byte[] actual = switch (golden.get("op").asText()) {
+            case "merge" -> YjsUpdates.mergeUpdates(inputs);
+            case "diff" -> YjsUpdates.diffUpdate(inputs.get(0), HEX.parseHex(golden.get("stateVector").asText()));
+            case "stateVector" -> YjsUpdates.encodeStateVectorFromUpdate(inputs.get(0));
+            default -> throw new IllegalArgumentException("unknown op");
+        };
+
+        assertThat(HEX.formatHex(actual)).isEqualTo(golden.get("expected").asText());
+    }
+}
@@ -0,0 +1,214 @@
+package com.yunke.backend.document.service;
+
+import com.yunke.backend.storage.binary.DocBinaryStorageService;
+import com.yunke.backend.system.domain.entity.Snapshot;
+import com.yunke.backend.system.domain.entity.Update;
+import com.yunke.backend.system.repository.SnapshotRepository;
+import com.yunke.backend.system.repository.UpdateRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 压缩水位：分块边界、压缩期间的并发追加、快照被改写时放弃
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class DocCompactionSchedulerTest {
+
+    private static final String WS = "ws1";
+    private static final String DOC = "doc1";
+
+    @Mock
+    private SnapshotRepository snapshotRepository;
+
+    @Mock
+    private UpdateRepository updateRepository;
+
+    @Mock
+    private YjsServiceClient yjsServiceClient;
+
+    @Mock
+    private DocBinaryStorageService binaryStorageService;
+
+    private final List<Update> updates = new CopyOnWriteArrayList<>();
+    private final LocalDateTime base = LocalDateTime.of(2025, 1, 1, 0, 0);
+    private Snapshot snapshot;
+
+    @BeforeEach
+    void setUp() {
+        snapshot = Snapshot.builder()
+                .workspaceId(WS)
+                .id(DOC)
+                .blob(bytes("snapshot"))
+                .createdAt(base)
+                .updatedAt(base)
+                .build();
+        when(snapshotRepository.findByWorkspaceIdAndId(WS, DOC)).thenAnswer(inv -> Optional.of(copy(snapshot)));
+        when(snapshotRepository.findForUpdate(WS, DOC)).thenAnswer(inv -> Optional.of(snapshot));
+        when(updateRepository.findByWorkspaceIdAndDocIdAfterSeq(eq(WS), eq(DOC), anyInt())).thenAnswer(inv -> {
+            int after = inv.getArgument(2);
+            return updates.stream()
+                    .filter(update -> update.getSeq() > after)
+                    .sorted((a, b) -> Integer.compare(a.getSeq(), b.getSeq()))
+                    .toList();
+        });
+        doAnswer(inv -> {
+            Collection<Update> folded = inv.getArgument(0);
+            updates.removeAll(folded);
+            return null;
+        }).when(updateRepository).deleteAll(anyList());
+        when(binaryStorageService.resolvePointer(any(byte[].class))).thenAnswer(inv -> inv.getArgument(0));
+        when(binaryStorageService.resolvePointer(any(byte[].class), anyString(), anyString()))
+                .thenAnswer(inv -> inv.getArgument(0));
+        when(binaryStorageService.saveSnapshot(anyString(), anyString(), any(byte[].class))).thenReturn("merged");
+        when(binaryStorageService.pointerToBytes(anyString())).thenAnswer(inv -> bytes(inv.getArgument(0)));
+        when(yjsServiceClient.mergeUpdates(anyString(), anyList())).thenReturn(bytes("merged"));
+    }
+
+    @Test
+    void foldsAtMostOneBatchAndAdvancesSeqWatermark() {
+        for (int seq = 1; seq <= 5; seq++) {
+            append(seq, base.plusSeconds(seq));
+        }
+
+        compactOnce(scheduler(2));
+
+        assertThat(snapshot.getFoldedSeq()).isEqualTo(2);
+        assertThat(updates).extracting(Update::getSeq).containsExactly(3, 4, 5);
+
+        compactOnce(scheduler(2));
+
+        assertThat(snapshot.getFoldedSeq()).isEqualTo(4);
+        assertThat(updates).extracting(Update::getSeq).containsExactly(5);
+    }
+
+    @Test
+    void updateCommittedDuringCompactionStaysVisible() {
+        append(1, base.plusSeconds(10));
+        append(2, base.plusSeconds(11));
+        // 合并期间提交了一条 created_at 更早的更新（应用层时间戳在提交前生成）
+        when(yjsServiceClient.mergeUpdates(anyString(), anyList())).thenAnswer(inv -> {
+            append(3, base.plusSeconds(1));
+            return bytes("merged");
+        });
+
+        compactOnce(scheduler(100));
+
+        assertThat(snapshot.getFoldedSeq()).isEqualTo(2);
+        assertThat(updateRepository.findByWorkspaceIdAndDocIdAfterSeq(WS, DOC, snapshot.getFoldedSeq()))
+                .extracting(Update::getSeq)
+                .containsExactly(3);
+    }
+
+    @Test
+    void abandonsResultWhenSnapshotIsRewrittenConcurrently() {
+        append(1, base.plusSeconds(1));
+        append(2, base.plusSeconds(2));
+        when(yjsServiceClient.mergeUpdates(anyString(), anyList())).thenAnswer(inv -> {
+            // 其他路径在合并期间整体替换了快照
+            snapshot.setBlob(bytes("rewritten"));
+            snapshot.setUpdatedAt(base.plusMinutes(5));
+            return bytes("merged");
+        });
+
+        compactOnce(scheduler(100));
+
+        assertThat(snapshot.getFoldedSeq()).isZero();
+        assertThat(snapshot.getBlob()).isEqualTo(bytes("rewritten"));
+        assertThat(updates).hasSize(2);
+        verify(binaryStorageService, never()).saveSnapshot(anyString(), anyString(), any(byte[].class));
+        verify(updateRepository, never()).deleteAll(anyList());
+    }
+
+    private DocCompactionScheduler scheduler(int batchUpdates) {
+        return new DocCompactionScheduler(snapshotRepository, updateRepository, yjsServiceClient,
+                binaryStorageService, new NoOpTransactionManager(), new SimpleMeterRegistry(),
+                true, 1, 1, Long.MAX_VALUE, 3600, batchUpdates, 64, 100);
+    }
+
+    /**
+     * 记录写入后扫描一次，并等待压缩任务结束
+     */
+    private void compactOnce(DocCompactionScheduler scheduler) {
+        scheduler.recordWrite(WS, DOC, updates.size(), 0);
+        scheduler.scan();
+        scheduler.shutdown();
+    }
+
+    private void append(int seq, LocalDateTime createdAt) {
+        updates.add(Update.builder()
+                .workspaceId(WS)
+                .id(DOC)
+                .seq(seq)
+                .blob(bytes("u" + seq))
+                .createdAt(createdAt)
+                .build());
+    }
+
+    private static Snapshot copy(Snapshot source) {
+        return Snapshot.builder()
+                .workspaceId(source.getWorkspaceId())
+                .id(source.getId())
+                .blob(source.getBlob())
+                .createdAt(source.getCreatedAt())
+                .updatedAt(source.getUpdatedAt())
+                .seq(source.getSeq())
+                .foldedSeq(source.getFoldedSeq())
+                .build();
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 只负责事务同步回调的事务管理器
+     */
+    private static final class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
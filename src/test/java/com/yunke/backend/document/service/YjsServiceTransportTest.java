@@ -0,0 +1,139 @@
+package com.yunke.backend.document.service;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntUnaryOperator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class YjsServiceTransportTest {
+
+    private final List<HttpServer> servers = new ArrayList<>();
+
+    @AfterEach
+    void stopServers() {
+        servers.forEach(server -> server.stop(0));
+    }
+
+    @Test
+    void hedgedRequestWinsOverSlowInstance() {
+        String slow = startServer(2000, 200, "slow", new AtomicInteger());
+        String fast = startServer(0, 200, "fast", new AtomicInteger());
+        YjsServiceTransport transport = new YjsServiceTransport(
+                List.of(slow, fast), Duration.ofSeconds(5), 1, 50, 5, 10_000, null);
+
+        for (int i = 0; i < 5; i++) {
+            long start = System.nanoTime();
+            byte[] body = transport.post("/op", new byte[]{1}, "application/octet-stream");
+            assertThat(new String(body)).isEqualTo("fast");
+            assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(1500));
+        }
+    }
+
+    @Test
+    void failingInstanceIsPenalizedAndSkipped() {
+        AtomicInteger brokenHits = new AtomicInteger();
+        String broken = startServer(0, 500, "error", brokenHits);
+        String healthy = startServer(0, 200, "ok", new AtomicInteger());
+        YjsServiceTransport transport = new YjsServiceTransport(
+                List.of(broken, healthy), Duration.ofSeconds(5), 2, 0, 2, 60_000, null);
+
+        for (int i = 0; i < 20; i++) {
+            assertThat(new String(transport.post("/op", new byte[0], "application/json"))).isEqualTo("ok");
+        }
+        assertThat(brokenHits.get()).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void failsFastWhenAllInstancesAreOpen() {
+        String broken = startServer(0, 503, "error", new AtomicInteger());
+        YjsServiceTransport transport = new YjsServiceTransport(
+                List.of(broken), Duration.ofSeconds(5), 1, 0, 1, 60_000, null);
+
+        assertThatThrownBy(() -> transport.post("/op", new byte[0], "application/json"))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> transport.post("/op", new byte[0], "application/json"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasNoCause();
+    }
+
+    @Test
+    void singleInstanceIsRetriedAfterTransientFailure() {
+        AtomicInteger hits = new AtomicInteger();
+        // 第一次返回 503，之后恢复
+        String flaky = startServer(0, hit -> hit == 1 ? 503 : 200, "ok", hits);
+        YjsServiceTransport transport = new YjsServiceTransport(
+                List.of(flaky), Duration.ofSeconds(5), 2, 0, 3, 60_000, null);
+
+        assertThat(new String(transport.post("/op", new byte[0], "application/json"))).isEqualTo("ok");
+        assertThat(hits.get()).isEqualTo(2);
+    }
+
+    @Test
+    void docKeyStaysOnOneInstanceUntilItLeaves() {
+        List<AtomicInteger> hits = List.of(new AtomicInteger(), new AtomicInteger(), new AtomicInteger());
+        List<String> urls = new ArrayList<>();
+        for (int i = 0; i < hits.size(); i++) {
+            urls.add(startServer(0, 200, "instance-" + i, hits.get(i)));
+        }
+        YjsServiceTransport transport = new YjsServiceTransport(
+                urls, Duration.ofSeconds(5), 3, 0, 1, 60_000, 1.25, null);
+
+        String owner = new String(transport.post("/op", new byte[0], "application/json", "ws:doc-1"));
+        for (int i = 0; i < 10; i++) {
+            assertThat(new String(transport.post("/op", new byte[0], "application/json", "ws:doc-1")))
+                    .isEqualTo(owner);
+        }
+
+        // 所有者下线：请求溢出到环上的下一个实例，并继续固定在该实例
+        int ownerIndex = Integer.parseInt(owner.substring("instance-".length()));
+        servers.get(ownerIndex).stop(0);
+        String successor = new String(transport.post("/op", new byte[0], "application/json", "ws:doc-1"));
+        assertThat(successor).isNotEqualTo(owner);
+        for (int i = 0; i < 10; i++) {
+            assertThat(new String(transport.post("/op", new byte[0], "application/json", "ws:doc-1")))
+                    .isEqualTo(successor);
+        }
+    }
+
+    private String startServer(long delayMillis, int status, String body, AtomicInteger hits) {
+        return startServer(delayMillis, hit -> status, body, hits);
+    }
+
+    private String startServer(long delayMillis, IntUnaryOperator statusByHit, String body, AtomicInteger hits) {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.setExecutor(java.util.concurrent.Executors.newCachedThreadPool());
+            server.createContext("/", exchange -> {
+                int status = statusByHit.applyAsInt(hits.incrementAndGet());
+                exchange.getRequestBody().readAllBytes();
+                try {
+                    Thread.sleep(delayMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                byte[] bytes = body.getBytes();
+                exchange.sendResponseHeaders(status, bytes.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(bytes);
+                } catch (Exception ignored) {
+                    // 对冲请求被取消后连接已关闭
+                }
+            });
+            server.start();
+            servers.add(server);
+            return "http://127.0.0.1:" + server.getAddress().getPort();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.yunke.backend.search.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 标题前缀树：词首与中日韩字符处的补全、排名、节点候选上限
+ */
+class PrefixTrieTest {
+
+    @Test
+    void matchesTitleStartBeforeWordStart() {
+        PrefixTrie trie = new PrefixTrie(10, 16);
+        trie.put("1", "Weekly Report");
+        trie.put("2", "Report template");
+        trie.put("3", "Roadmap");
+
+        assertThat(trie.suggest("rep", 10))
+                .extracting(PrefixTrie.Entry::id)
+                .containsExactly("2", "1");
+        assertThat(trie.suggest("  REPORT ", 10)).hasSize(2);
+        assertThat(trie.suggest("eport", 10)).isEmpty();
+    }
+
+    @Test
+    void matchesFromAnyCjkCharacter() {
+        PrefixTrie trie = new PrefixTrie(10, 16);
+        trie.put("1", "产品需求文档");
+        trie.put("2", "需求评审");
+
+        assertThat(trie.suggest("需求", 10))
+                .extracting(PrefixTrie.Entry::id)
+                .containsExactly("2", "1");
+        assertThat(trie.suggest("文档", 10))
+                .extracting(PrefixTrie.Entry::title)
+                .containsExactly("产品需求文档");
+    }
+
+    @Test
+    void keepsShortestTitlesPerNodeAndDeduplicates() {
+        PrefixTrie trie = new PrefixTrie(2, 16);
+        trie.put("long", "notes about notes");
+        trie.put("mid", "notes 2024");
+        trie.put("short", "notes");
+
+        assertThat(trie.suggest("no", 10))
+                .extracting(PrefixTrie.Entry::id)
+                .containsExactly("short", "mid");
+    }
+
+    @Test
+    void filtersPrefixesLongerThanMaxDepth() {
+        PrefixTrie trie = new PrefixTrie(10, 4);
+        trie.put("1", "database design");
+        trie.put("2", "data pipeline");
+
+        assertThat(trie.suggest("data", 10)).hasSize(2);
+        assertThat(trie.suggest("datab", 10))
+                .extracting(PrefixTrie.Entry::id)
+                .containsExactly("1");
+    }
+}
@@ -0,0 +1,39 @@
+package com.yunke.backend.search.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CjkTextAnalyzerTest {
+
+    @Test
+    void splitsChineseIntoBigramsAndBreaksOnStopWords() {
+        CjkTextAnalyzer analyzer = new CjkTextAnalyzer();
+
+        assertThat(analyzer.analyze("我的工作空间")).containsExactly("我", "工作", "作空", "空间");
+        assertThat(analyzer.analyze("云")).containsExactly("云");
+    }
+
+    @Test
+    void normalizesWidthAndCaseAndKeepsShortWords() {
+        CjkTextAnalyzer analyzer = new CjkTextAnalyzer();
+
+        assertThat(analyzer.analyze("ＡＩ写作 the Java21 笔记")).containsExactly("ai", "写作", "java21", "笔记");
+    }
+
+    @Test
+    void addsDictionaryWordsOnTopOfBigrams() {
+        CjkTextAnalyzer analyzer = new CjkTextAnalyzer(CjkTextAnalyzer.DEFAULT_STOP_WORDS, List.of("搜索引擎", "云科"));
+
+        assertThat(analyzer.analyze("搜索引擎")).containsExactly("搜索", "索引", "引擎", "搜索引擎");
+    }
+
+    @Test
+    void edgeNGramsEmitPrefixesOfEachToken() {
+        EdgeNGramAnalyzer prefixes = new EdgeNGramAnalyzer(new CjkTextAnalyzer(), 1, 3);
+
+        assertThat(prefixes.analyze("Note")).containsExactly("n", "no", "not");
+    }
+}
@@ -0,0 +1,105 @@
+package com.yunke.backend.search.index;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yunke.backend.search.enums.SearchQueryOccur;
+import com.yunke.backend.search.enums.SearchQueryType;
+import com.yunke.backend.system.dto.SearchQueryDto;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 倒排索引：BM25 排序、增量写删、刷盘后内存映射重新打开
+ */
+class WorkspaceIndexTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void ranksByBm25AndRequiresAllTerms() throws Exception {
+        WorkspaceIndex index = WorkspaceIndex.open(dir, SearchAnalyzers.standard(), objectMapper);
+        index.upsert("a", Map.of("title", "Java search engine", "summary", "inverted index"));
+        index.upsert("b", Map.of("title", "Search search search", "summary", "bm25"));
+        index.upsert("c", Map.of("title", "Cooking notes"));
+
+        Map<String, Double> search = index.search(match("title", "search"));
+        assertThat(search).containsOnlyKeys("a", "b");
+        assertThat(search.get("b")).isGreaterThan(search.get("a"));
+
+        assertThat(index.search(match("title", "java search"))).containsOnlyKeys("a");
+        assertThat(index.search(match("title", "java cooking"))).isEmpty();
+    }
+
+    @Test
+    void survivesFlushAndReopen() throws Exception {
+        WorkspaceIndex index = WorkspaceIndex.open(dir, SearchAnalyzers.standard(), objectMapper);
+        index.upsert("a", Map.of("title", "Quarterly report", "mode", "page"));
+        index.upsert("b", Map.of("title", "Weekly report"));
+        index.flush();
+
+        // 覆盖 base 中的文档、删除另一个，再写入新文档，刷盘前后结果一致
+        index.upsert("a", Map.of("title", "Annual plan", "mode", "edgeless"));
+        index.delete("b");
+        index.upsert("c", Map.of("title", "Monthly report"));
+        assertThat(index.search(match("title", "report"))).containsOnlyKeys("c");
+        assertThat(index.size()).isEqualTo(2);
+
+        index.flush();
+        WorkspaceIndex reopened = WorkspaceIndex.open(dir, SearchAnalyzers.standard(), objectMapper);
+        assertThat(reopened.size()).isEqualTo(2);
+        assertThat(reopened.search(match("title", "report"))).containsOnlyKeys("c");
+        assertThat(reopened.search(match("title", "plan"))).containsOnlyKeys("a");
+        assertThat(reopened.storedFields("a")).containsEntry("mode", "edgeless");
+        assertThat(reopened.search(SearchQueryDto.builder().type(SearchQueryType.EXISTS).field("mode").build()))
+                .containsOnlyKeys("a");
+    }
+
+    @Test
+    void evaluatesBooleanQueries() throws Exception {
+        WorkspaceIndex index = WorkspaceIndex.open(dir, SearchAnalyzers.standard(), objectMapper);
+        index.upsert("a", Map.of("title", "alpha beta"));
+        index.upsert("b", Map.of("title", "beta gamma"));
+        index.upsert("c", Map.of("title", "gamma delta"));
+        index.flush();
+
+        SearchQueryDto should = SearchQueryDto.builder().type(SearchQueryType.BOOLEAN).occur(SearchQueryOccur.SHOULD)
+                .queries(List.of(match("title", "alpha"), match("title", "delta"))).build();
+        assertThat(index.search(should)).containsOnlyKeys("a", "c");
+
+        SearchQueryDto mustNot = SearchQueryDto.builder().type(SearchQueryType.BOOLEAN).occur(SearchQueryOccur.MUST_NOT)
+                .queries(List.of(match("title", "beta"))).build();
+        assertThat(index.search(mustNot)).containsOnlyKeys("c");
+
+        SearchQueryDto must = SearchQueryDto.builder().type(SearchQueryType.BOOLEAN).occur(SearchQueryOccur.MUST)
+                .queries(List.of(match("title", "beta"), match("title", "gamma"))).build();
+        assertThat(index.search(must)).containsOnlyKeys("b");
+    }
+
+    @Test
+    void matchesChineseSubstringsAndTitlePrefixes() throws Exception {
+        CjkTextAnalyzer cjk = new CjkTextAnalyzer();
+        SearchAnalyzers analyzers = new SearchAnalyzers(cjk, new EdgeNGramAnalyzer(cjk, 1, 10), Set.of("title"));
+        WorkspaceIndex index = WorkspaceIndex.open(dir, analyzers, objectMapper);
+        index.upsert("a", Map.of("title", "全文搜索引擎设计"));
+        index.upsert("b", Map.of("title", "Searchable 文档"));
+        index.flush();
+
+        assertThat(index.search(match("title", "搜索引擎"))).containsOnlyKeys("a");
+        assertThat(index.search(match("title", "引擎"))).containsOnlyKeys("a");
+        assertThat(index.search(match("title.prefix", "sea"))).containsOnlyKeys("b");
+        assertThat(index.search(match("title.prefix", "全文"))).containsOnlyKeys("a");
+    }
+
+    private static SearchQueryDto match(String field, String text) {
+        return SearchQueryDto.builder().type(SearchQueryType.MATCH).field(field).match(text).build();
+    }
+}
@@ -0,0 +1,191 @@
+package com.yunke.backend.search.indexer;
+
+import com.yunke.backend.document.crdt.yjs.YjsEncoder;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * 块文本提取：手工编码的 AFFiNE 文档（v1 更新），覆盖并发插入的 YATA 排序、删除集与 map 覆盖写
+ */
+class DocBlockExtractorTest {
+
+    private static final int REF_ANY = 8;
+    private static final int REF_STRING = 4;
+    private static final int REF_TYPE = 7;
+    private static final int TYPE_ARRAY = 0;
+    private static final int TYPE_MAP = 1;
+    private static final int TYPE_TEXT = 2;
+
+    @Test
+    void extractsBlocksInTreeOrder() {
+        DocBlockExtractor.Extracted extracted = DocBlockExtractor.extract(sampleDoc(true));
+
+        assertThat(extracted.title()).isEqualTo("Hello world!");
+        assertThat(extracted.summary()).isEqualTo("ac");
+        assertThat(extracted.blocks())
+                .extracting(DocBlockExtractor.Block::blockId, DocBlockExtractor.Block::flavour,
+                        DocBlockExtractor.Block::parentId, DocBlockExtractor.Block::content)
+                .containsExactly(
+                        tuple("page", "affine:page", null, "Hello world!"),
+                        tuple("p1", "affine:paragraph", "page", "ac"));
+    }
+
+    @Test
+    void contentHashOnlyChangesWithText() {
+        List<DocBlockExtractor.Block> before = DocBlockExtractor.extract(sampleDoc(false)).blocks();
+        List<DocBlockExtractor.Block> after = DocBlockExtractor.extract(sampleDoc(true)).blocks();
+
+        // 标题未变，段落删除了一个字符
+        assertThat(before.get(0).contentHash()).isEqualTo(after.get(0).contentHash());
+        assertThat(before.get(1).content()).isEqualTo("abc");
+        assertThat(before.get(1).contentHash()).isNotEqualTo(after.get(1).contentHash());
+    }
+
+    @Test
+    void insertsInsideAnExistingTextRun() {
+        // client 2 在 "Hello" 的 'e' 与 'l' 之间插入 "y"，并删除末尾的 'o'：两处都落在同一个结构体内部
+        YjsEncoder encoder = new YjsEncoder();
+        encoder.writeVarUint(2);
+
+        encoder.writeVarUint(1);
+        encoder.writeVarUint(2);
+        encoder.writeVarUint(0);
+        encoder.writeUint8(REF_STRING | 0x80 | 0x40);
+        encoder.writeVarUint(1);
+        encoder.writeVarUint(4);
+        encoder.writeVarUint(1);
+        encoder.writeVarUint(5);
+        encoder.writeVarString("y");
+
+        encoder.writeVarUint(4);
+        encoder.writeVarUint(1);
+        encoder.writeVarUint(0);
+        rootEntry(encoder, "blocks", "page", TYPE_MAP);                 // 0
+        mapEntry(encoder, 1, 0, "sys:flavour", "affine:page");          // 1
+        mapType(encoder, 1, 0, "prop:title", TYPE_TEXT);                // 2
+        textInto(encoder, 1, 2, "Hello");                               // 3..7
+
+        encoder.writeVarUint(1);
+        encoder.writeVarUint(1);
+        encoder.writeVarUint(1);
+        encoder.writeVarUint(7);
+        encoder.writeVarUint(1);
+
+        assertThat(DocBlockExtractor.extract(encoder.toByteArray()).title()).isEqualTo("Heyll");
+    }
+
+    @Test
+    void emptyOrUnknownStateHasNoBlocks() {
+        assertThat(DocBlockExtractor.extract(new byte[0]).blocks()).isEmpty();
+        assertThat(DocBlockExtractor.extract(new byte[]{0, 0}).blocks()).isEmpty();
+    }
+
+    /**
+     * client 1 建页面块（标题 "Hello"）与段落 p1（"abc"），client 2/3 在 "Hello" 之后并发插入 " world" / "!"；
+     * 段落的 sys:flavour 被 client 1 覆盖写一次。按 yjs 的顺序 client 降序写出，依赖需要倒序解析。
+     */
+    private static byte[] sampleDoc(boolean deleteB) {
+        YjsEncoder encoder = new YjsEncoder();
+        encoder.writeVarUint(3);
+
+        encoder.writeVarUint(1);
+        encoder.writeVarUint(3);
+        encoder.writeVarUint(0);
+        insertText(encoder, 1, 7, "!");
+
+        encoder.writeVarUint(1);
+        encoder.writeVarUint(2);
+        encoder.writeVarUint(0);
+        insertText(encoder, 1, 7, " world");
+
+        encoder.writeVarUint(13);
+        encoder.writeVarUint(1);
+        encoder.writeVarUint(0);
+        rootEntry(encoder, "blocks", "page", TYPE_MAP);                 // 0
+        mapEntry(encoder, 1, 0, "sys:flavour", "affine:page");          // 1
+        mapType(encoder, 1, 0, "prop:title", TYPE_TEXT);                // 2
+        textInto(encoder, 1, 2, "Hello");                               // 3..7
+        mapType(encoder, 1, 0, "sys:children", TYPE_ARRAY);             // 8
+        rootEntry(encoder, "blocks", "p1", TYPE_MAP);                   // 9
+        mapEntry(encoder, 1, 9, "sys:flavour", "affine:text");          // 10
+        mapType(encoder, 1, 9, "prop:text", TYPE_TEXT);                 // 11
+        textInto(encoder, 1, 11, "abc");                                // 12..14
+        arrayInto(encoder, 1, 8, "p1");                                 // 15
+        // 16：覆盖 sys:flavour，origin 指向上一个值
+        encoder.writeUint8(REF_ANY | 0x80);
+        encoder.writeVarUint(1);
+        encoder.writeVarUint(10);
+        anyString(encoder, "affine:paragraph");
+        // 17：未挂在树上的块
+        rootEntry(encoder, "blocks", "orphan", TYPE_MAP);
+        mapEntry(encoder, 1, 17, "sys:flavour", "affine:paragraph");   // 18
+
+        if (deleteB) {
+            encoder.writeVarUint(1);
+            encoder.writeVarUint(1);
+            encoder.writeVarUint(1);
+            encoder.writeVarUint(13);
+            encoder.writeVarUint(1);
+        } else {
+            encoder.writeVarUint(0);
+        }
+        return encoder.toByteArray();
+    }
+
+    private static void rootEntry(YjsEncoder encoder, String root, String key, int typeRef) {
+        encoder.writeUint8(REF_TYPE | 0x20);
+        encoder.writeVarUint(1);
+        encoder.writeVarString(root);
+        encoder.writeVarString(key);
+        encoder.writeVarUint(typeRef);
+    }
+
+    private static void mapEntry(YjsEncoder encoder, long client, long clock, String key, String value) {
+        encoder.writeUint8(REF_ANY | 0x20);
+        parentId(encoder, client, clock);
+        encoder.writeVarString(key);
+        anyString(encoder, value);
+    }
+
+    private static void mapType(YjsEncoder encoder, long client, long clock, String key, int typeRef) {
+        encoder.writeUint8(REF_TYPE | 0x20);
+        parentId(encoder, client, clock);
+        encoder.writeVarString(key);
+        encoder.writeVarUint(typeRef);
+    }
+
+    private static void textInto(YjsEncoder encoder, long client, long clock, String text) {
+        encoder.writeUint8(REF_STRING);
+        parentId(encoder, client, clock);
+        encoder.writeVarString(text);
+    }
+
+    private static void arrayInto(YjsEncoder encoder, long client, long clock, String element) {
+        encoder.writeUint8(REF_ANY);
+        parentId(encoder, client, clock);
+        anyString(encoder, element);
+    }
+
+    private static void insertText(YjsEncoder encoder, long originClient, long originClock, String text) {
+        encoder.writeUint8(REF_STRING | 0x80);
+        encoder.writeVarUint(originClient);
+        encoder.writeVarUint(originClock);
+        encoder.writeVarString(text);
+    }
+
+    private static void parentId(YjsEncoder encoder, long client, long clock) {
+        encoder.writeVarUint(0);
+        encoder.writeVarUint(client);
+        encoder.writeVarUint(clock);
+    }
+
+    private static void anyString(YjsEncoder encoder, String value) {
+        encoder.writeVarUint(1);
+        encoder.writeUint8(119);
+        encoder.writeVarString(value);
+    }
+}
@@ -0,0 +1,46 @@
+package com.yunke.backend.filter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Base64;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * SQL注入特征检测：关键词按完整词匹配、符号规则、URL解码、Base64 不误判
+ */
+class SqlInjectionDetectorTest {
+
+    @Test
+    void detectsClassicInjections() {
+        assertThat(SqlInjectionDetector.isSqlInjection("1' UNION SELECT password FROM users--")).isTrue();
+        assertThat(SqlInjectionDetector.isSqlInjection("1%27%20or%201%3D1--")).isTrue();
+        assertThat(SqlInjectionDetector.isSqlInjection("admin'--")).isTrue();
+        assertThat(SqlInjectionDetector.isSqlInjection("<ScRiPt>alert(1)</script>")).isTrue();
+        assertThat(SqlInjectionDetector.isSqlInjection("x; exec xp_cmdshell 'dir'")).isTrue();
+        assertThat(SqlInjectionDetector.isSqlInjection("id=0x414243")).isTrue();
+    }
+
+    @Test
+    void keywordsMustBeWholeWords() {
+        assertThat(SqlInjectionDetector.isSqlInjection("selection criteria")).isFalse();
+        assertThat(SqlInjectionDetector.isSqlInjection("updated_at")).isFalse();
+        assertThat(SqlInjectionDetector.isSqlInjection("please drop by")).isTrue();
+    }
+
+    @Test
+    void keepsPlainApostropheException() {
+        assertThat(SqlInjectionDetector.isSqlInjection("it's fine")).isFalse();
+        assertThat(SqlInjectionDetector.isSqlInjection("it's fine!")).isTrue();
+        assertThat(SqlInjectionDetector.isSqlInjection("项目周报")).isFalse();
+    }
+
+    @Test
+    void base64PayloadsDoNotMatch() {
+        byte[] data = new byte[64 * 1024];
+        new Random(7).nextBytes(data);
+
+        assertThat(SqlInjectionDetector.isSqlInjection(Base64.getEncoder().encodeToString(data))).isFalse();
+    }
+}
@@ -0,0 +1,107 @@
+package com.yunke.backend.filter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * SQL注入检测基准：原正则实现 vs {@link SqlInjectionDetector}
+ *
+ * 运行：mvn test-compile 后执行本类的 main 方法（或 java -cp target/test-classes:... org.openjdk.jmh.Main SqlInjectionFilterBenchmark）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SqlInjectionFilterBenchmark {
+
+    // 原 SqlInjectionFilter 中的正则
+    private static final Pattern SQL_INJECTION_PATTERN = Pattern.compile(
+        ".*(union|select|insert|update|delete|drop|create|alter|exec|execute|" +
+        "script|javascript|alert|onerror|onclick|onfocus|onload|onmouseover|" +
+        "eval|expression|vbscript|behaviour|<script|</script>).*",
+        Pattern.CASE_INSENSITIVE
+    );
+
+    private static final Pattern SQL_SYMBOL_PATTERN = Pattern.compile(
+        ".*('|(--|;|\\|\\||/\\*|\\*/|xp_|sp_|0x)).*"
+    );
+
+    @Param({"search", "text", "attack", "base64-4k", "base64-64k"})
+    public String payload;
+
+    private String value;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        value = switch (payload) {
+            case "search" -> "quarterly report 2024";
+            case "text" -> "Meeting notes: it's agreed, we ship on Friday (after QA sign-off) & update docs.";
+            case "attack" -> "1' UNION SELECT username, password FROM users--";
+            case "base64-4k" -> base64(random, 3 * 1024);
+            case "base64-64k" -> base64(random, 48 * 1024);
+            default -> throw new IllegalArgumentException(payload);
+        };
+    }
+
+    @Benchmark
+    public boolean legacyRegex() {
+        return legacyIsSqlInjection(value);
+    }
+
+    @Benchmark
+    public boolean automaton() {
+        return SqlInjectionDetector.isSqlInjection(value);
+    }
+
+    private static boolean legacyIsSqlInjection(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return false;
+        }
+        String decoded = value;
+        try {
+            decoded = URLDecoder.decode(value, StandardCharsets.UTF_8);
+        } catch (Exception ignored) {
+        }
+        if (SQL_INJECTION_PATTERN.matcher(decoded).matches()) {
+            return true;
+        }
+        if (SQL_SYMBOL_PATTERN.matcher(decoded).matches()) {
+            return !decoded.matches("^[a-zA-Z0-9\\s']+$");
+        }
+        return false;
+    }
+
+    private static String base64(Random random, int bytes) {
+        byte[] data = new byte[bytes];
+        random.nextBytes(data);
+        return Base64.getEncoder().encodeToString(data);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SqlInjectionFilterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,51 @@
+package com.yunke.backend.security.service.guard;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 本地令牌桶：首个请求必须同步、漏计上限、同步间隔
+ */
+class LocalTokenBucketTest {
+
+    @Test
+    void firstRequestGoesToRedisThenBurstIsAbsorbed() {
+        LocalTokenBucket bucket = new LocalTokenBucket(3, 1000, 0);
+
+        assertThat(bucket.tryAbsorb(0)).isFalse();
+        assertThat(bucket.drain(0)).isZero();
+
+        assertThat(bucket.tryAbsorb(1)).isTrue();
+        assertThat(bucket.tryAbsorb(2)).isTrue();
+        assertThat(bucket.tryAbsorb(3)).isTrue();
+        // 未上报次数已满，必须同步
+        assertThat(bucket.tryAbsorb(4)).isFalse();
+        assertThat(bucket.drain(4)).isEqualTo(3);
+    }
+
+    @Test
+    void syncsAfterIntervalEvenWhenTokensRemain() {
+        LocalTokenBucket bucket = new LocalTokenBucket(10, 1000, 0);
+        bucket.drain(0);
+
+        assertThat(bucket.tryAbsorb(500)).isTrue();
+        assertThat(bucket.tryAbsorb(1000)).isFalse();
+        assertThat(bucket.drain(1000)).isEqualTo(1);
+        assertThat(bucket.tryAbsorb(1001)).isTrue();
+    }
+
+    @Test
+    void emptyBucketRefillsOverTime() {
+        LocalTokenBucket bucket = new LocalTokenBucket(2, 1000, 0);
+        bucket.drain(0);
+        assertThat(bucket.tryAbsorb(0)).isTrue();
+        assertThat(bucket.tryAbsorb(0)).isTrue();
+        bucket.drain(0);
+
+        // 令牌耗尽
+        assertThat(bucket.tryAbsorb(100)).isFalse();
+        // 每 500ms 补充一个令牌
+        assertThat(bucket.tryAbsorb(500)).isTrue();
+    }
+}
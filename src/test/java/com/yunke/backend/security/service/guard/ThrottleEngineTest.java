@@ -0,0 +1,32 @@
+package com.yunke.backend.security.service.guard;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * GCRA 模拟：突发上限、匀速放行、阻断时长
+ */
+class ThrottleEngineTest {
+
+    @Test
+    void allowsBurstUpToLimit() {
+        assertThat(ThrottleEngine.simulate(10, 10, 0, 20, 0)).isEqualTo(10);
+    }
+
+    @Test
+    void allowsSteadyTrafficAtConfiguredRate() {
+        // 每秒 1 次，正好等于 10 次/10 秒
+        assertThat(ThrottleEngine.simulate(10, 10, 0, 30, 29_000)).isZero();
+    }
+
+    @Test
+    void blockDurationRejectsFollowingRequests() {
+        // 每 100ms 一次：前 11 次放行（10 次突发 + 第 1 秒补的 1 次），之后每秒补 1 次
+        int withoutBlock = ThrottleEngine.simulate(10, 10, 0, 50, 4_900);
+        int withBlock = ThrottleEngine.simulate(10, 10, 60, 50, 4_900);
+
+        assertThat(withoutBlock).isBetween(35, 40);
+        assertThat(withBlock).isEqualTo(39);
+    }
+}
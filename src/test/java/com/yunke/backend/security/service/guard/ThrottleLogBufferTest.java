@@ -0,0 +1,30 @@
+package com.yunke.backend.security.service.guard;
+
+import com.yunke.backend.security.dto.throttle.ThrottleLogEntryDto;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 限流日志环形缓冲区：倒序、覆盖最旧条目、按级别过滤
+ */
+class ThrottleLogBufferTest {
+
+    @Test
+    void keepsNewestEntriesInReverseOrder() {
+        ThrottleLogBuffer buffer = new ThrottleLogBuffer(3);
+        for (int i = 1; i <= 5; i++) {
+            buffer.append(ThrottleLogEntryDto.builder()
+                    .level(i % 2 == 0 ? "INFO" : "WARN")
+                    .message("m" + i)
+                    .build());
+        }
+
+        assertThat(buffer.snapshot(null))
+                .extracting(ThrottleLogEntryDto::getMessage)
+                .containsExactly("m5", "m4", "m3");
+        assertThat(buffer.snapshot("warn"))
+                .extracting(ThrottleLogEntryDto::getId)
+                .containsExactly("log-5", "log-3");
+    }
+}
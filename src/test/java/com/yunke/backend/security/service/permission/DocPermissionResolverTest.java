@@ -0,0 +1,98 @@
+package com.yunke.backend.security.service.permission;
+
+import com.yunke.backend.document.enums.DocPermission;
+import com.yunke.backend.workspace.domain.entity.WorkspaceDoc;
+import com.yunke.backend.workspace.domain.entity.WorkspaceUserRole;
+import com.yunke.backend.workspace.repository.WorkspaceDocRepository;
+import com.yunke.backend.workspace.repository.WorkspaceDocUserRoleRepository;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.endsWith;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DocPermissionResolverTest {
+
+    private static final int COLLABORATOR = DocPermissionResolver.roleToMask(WorkspaceUserRole.WorkspaceRole.COLLABORATOR);
+
+    @Mock
+    private WorkspaceDocUserRoleRepository docUserRoleRepository;
+
+    @Mock
+    private WorkspaceDocRepository workspaceDocRepository;
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private RedisMessageListenerContainer listenerContainer;
+
+    private DocPermissionResolver resolver;
+
+    @BeforeEach
+    void setUp() {
+        resolver = new DocPermissionResolver(docUserRoleRepository, workspaceDocRepository,
+                redisTemplate, listenerContainer, 1000, 1000, 300);
+        WorkspaceDoc publicDoc = WorkspaceDoc.builder()
+                .workspaceId("ws1")
+                .docId("public")
+                .public_(true)
+                .publicPermission("append-only")
+                .build();
+        when(workspaceDocRepository.findPublicDocsByWorkspace("ws1")).thenReturn(List.of(publicDoc));
+    }
+
+    @Test
+    void resolvesManyDocsWithOneLoad() {
+        when(docUserRoleRepository.findUserPermissionRows("ws1", "u1")).thenReturn(List.of(
+                new Object[]{null, "COLLABORATOR", null},
+                new Object[]{"restricted", null, DocPermission.Read.bit}));
+
+        Map<String, Integer> masks = resolver.resolveMasks("ws1", "u1", List.of("a", "restricted", "public"));
+
+        assertThat(masks).containsExactly(
+                Map.entry("a", COLLABORATOR),
+                Map.entry("restricted", DocPermission.Read.bit),
+                Map.entry("public", COLLABORATOR));
+        assertThat(resolver.resolveMask("ws1", "b", "u1")).isEqualTo(COLLABORATOR);
+        verify(docUserRoleRepository, times(1)).findUserPermissionRows("ws1", "u1");
+        verify(workspaceDocRepository, times(1)).findPublicDocsByWorkspace("ws1");
+    }
+
+    @Test
+    void nonMembersAndAnonymousOnlySeePublicDocs() {
+        when(docUserRoleRepository.findUserPermissionRows("ws1", "stranger")).thenReturn(List.of());
+
+        int publicMask = DocPermission.Read.bit | DocPermission.Add.bit;
+        assertThat(resolver.resolveMasks("ws1", "stranger", List.of("public", "private")))
+                .containsExactly(Map.entry("public", publicMask), Map.entry("private", 0));
+        assertThat(resolver.resolveMask("ws1", "public", null)).isEqualTo(publicMask);
+    }
+
+    @Test
+    void permissionChangeReloadsOnlyThatUser() {
+        when(docUserRoleRepository.findUserPermissionRows("ws1", "u1")).thenReturn(
+                List.<Object[]>of(new Object[]{null, "EXTERNAL", null}),
+                List.<Object[]>of(new Object[]{null, "COLLABORATOR", null}));
+
+        assertThat(resolver.resolveMask("ws1", "a", "u1")).isEqualTo(DocPermission.Read.bit);
+        resolver.onPermissionChanged(new PermissionChangedEvent(this, "ws1", "u1"));
+        assertThat(resolver.resolveMask("ws1", "a", "u1")).isEqualTo(COLLABORATOR);
+
+        verify(docUserRoleRepository, times(2)).findUserPermissionRows("ws1", "u1");
+        verify(workspaceDocRepository, times(1)).findPublicDocsByWorkspace("ws1");
+        verify(redisTemplate).convertAndSend(eq("permission:doc:invalidate"), endsWith("|ws1|u1"));
+    }
+}